@@ -4,6 +4,7 @@ plugins {
     java
 
     id("com.consentframework.consentmanagement.checkstyle-config") version "1.1.0"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 repositories {
@@ -33,12 +34,21 @@ dependencies {
     // AWS DynamoDB SDK
     implementation("software.amazon.awssdk:dynamodb-enhanced:2.26.7")
 
+    // Lightweight HTTP client for synchronous AWS clients, faster to load than the default Apache client
+    implementation("software.amazon.awssdk:url-connection-client:2.26.7")
+
     // AWS Lambda SDK
     implementation("com.amazonaws:aws-lambda-java-core:1.2.3")
 
+    // CRaC runtime hooks, used to prime clients around Lambda SnapStart snapshots
+    implementation("org.crac:crac:1.4.0")
+
     // AWS CloudWatch SDK
     implementation("software.amazon.awssdk:cloudwatch:2.31.23")
 
+    // Latency histograms for the per-run performance report
+    implementation("org.hdrhistogram:HdrHistogram:2.2.2")
+
     implementation(libs.guava)
     implementation("com.fasterxml.jackson.core:jackson-databind:2.17.1")
     implementation("jakarta.annotation:jakarta.annotation-api:3.0.0")
@@ -47,6 +57,7 @@ dependencies {
     val log4j2Version = "2.24.3"
     implementation("org.apache.logging.log4j:log4j-api:$log4j2Version")
     implementation("org.apache.logging.log4j:log4j-core:$log4j2Version")
+    runtimeOnly("org.apache.logging.log4j:log4j-layout-template-json:$log4j2Version")
 
     // Immutables
     val immutablesDependency = "org.immutables:value:2.10.1"
@@ -100,6 +111,15 @@ tasks {
     }
 }
 
+// Benchmarks in src/jmh, run with ./gradlew jmh
+jmh {
+    jmhVersion = "1.37"
+    // Allow benchmarks to reuse test fixtures such as ActiveConsentWithExpiryTimeGenerator
+    includeTests = true
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("results/jmh/results.json")
+}
+
 // Build jar which will later be consumed to run the service
 tasks.register<Zip>("packageJar") {
     into("lib") {
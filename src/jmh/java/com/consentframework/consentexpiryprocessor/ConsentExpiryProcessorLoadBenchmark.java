@@ -0,0 +1,157 @@
+package com.consentframework.consentexpiryprocessor;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
+import com.consentframework.consentexpiryprocessor.infrastructure.configuration.ConsentExpiryProcessorConfiguration;
+import com.consentframework.consentexpiryprocessor.infrastructure.configuration.MetricsBackend;
+import com.consentframework.consentexpiryprocessor.testcommon.dynamodb.FakeDynamoDbServer;
+import com.consentframework.consentexpiryprocessor.testcommon.utils.ActiveConsentWithExpiryTimeGenerator;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of a full expiry run through the real DynamoDB repositories, against FakeDynamoDbServer.
+ *
+ * Each iteration seeds the fake table with numConsents expired consents spread across the past day, then
+ * invokes the processor once and reports how long it took to drain the table, with the consents expired and
+ * writes throttled as JMH secondary results, summed over the measured iterations. Latency and throttling are injected by the fake,
+ * so the processor's concurrency, rate limiting and retries can be compared under realistic service behaviour
+ * without a deployed table.
+ *
+ * The processor builds its DynamoDB clients through AwsClientFactory, whose SDK retries skip throttling errors,
+ * so every throttled write is retried by the processor's own retry policy, up to maxExpiryWriteAttempts attempts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class ConsentExpiryProcessorLoadBenchmark {
+    private static final int NUM_EXPIRY_HOURS = 24;
+    private static final int LAMBDA_TIMEOUT_MILLIS = (int) TimeUnit.MINUTES.toMillis(15);
+
+    @Param({"100000", "1000000"})
+    int numConsents;
+
+    @Param({"5"})
+    int queryLatencyMillis;
+
+    @Param({"5"})
+    int writeLatencyMillis;
+
+    @Param({"0.0", "0.05"})
+    double throttleRate;
+
+    @Param({"1000"})
+    int maxPageSize;
+
+    @Param({"false", "true"})
+    String useAsyncDynamoDbClient;
+
+    @Param({"16"})
+    String maxConcurrentExpiryWrites;
+
+    @Param({"4"})
+    String maxExpiryWriteAttempts;
+
+    private FakeDynamoDbServer server;
+    private List<ActiveConsentWithExpiryTime> consents;
+    private ConsentExpiryProcessor processor;
+    private Context context;
+
+    @Setup
+    public void startServer() {
+        Configurator.setRootLevel(Level.WARN);
+        // Picked up by the default credentials chain, the fake server does not verify request signatures
+        System.setProperty("aws.accessKeyId", "BenchmarkAccessKeyId");
+        System.setProperty("aws.secretAccessKey", "BenchmarkSecretAccessKey");
+        server = new FakeDynamoDbServer(Duration.ofMillis(queryLatencyMillis), Duration.ofMillis(writeLatencyMillis),
+            throttleRate, maxPageSize);
+
+        final OffsetDateTime firstExpiryTime = OffsetDateTime.now(ZoneOffset.UTC).minusHours(NUM_EXPIRY_HOURS + 1);
+        final long expiryTimeStepMillis = TimeUnit.HOURS.toMillis(NUM_EXPIRY_HOURS) / numConsents;
+        consents = new ArrayList<>(numConsents);
+        for (int i = 0; i < numConsents; i++) {
+            consents.add(ActiveConsentWithExpiryTimeGenerator.generate("consent-" + i,
+                firstExpiryTime.plus(Duration.ofMillis(i * expiryTimeStepMillis))));
+        }
+
+        context = mock(Context.class);
+        when(context.getAwsRequestId()).thenReturn("LoadBenchmarkRequestId");
+        when(context.getRemainingTimeInMillis()).thenReturn(LAMBDA_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Reseeds the table and builds a fresh processor, so no expired consent cache carries over between iterations.
+     */
+    @Setup(org.openjdk.jmh.annotations.Level.Iteration)
+    public void seedTable() {
+        server.clear();
+        server.putConsents(consents);
+
+        final Map<String, String> environment = new HashMap<>();
+        environment.put(ConsentExpiryProcessorConfiguration.DYNAMODB_ENDPOINT_VARIABLE, server.endpoint().toString());
+        environment.put(ConsentExpiryProcessorConfiguration.AWS_REGION_VARIABLE, "us-west-2");
+        environment.put(ConsentExpiryProcessorConfiguration.METRICS_BACKEND_VARIABLE, MetricsBackend.EMBEDDED_METRIC_FORMAT.name());
+        environment.put(ConsentExpiryProcessorConfiguration.USE_ASYNC_DYNAMODB_CLIENT_VARIABLE, useAsyncDynamoDbClient);
+        environment.put(ConsentExpiryProcessorConfiguration.MAX_CONCURRENT_EXPIRY_WRITES_VARIABLE, maxConcurrentExpiryWrites);
+        environment.put(ConsentExpiryProcessorConfiguration.MAX_EXPIRY_WRITE_ATTEMPTS_VARIABLE, maxExpiryWriteAttempts);
+        environment.put(ConsentExpiryProcessorConfiguration.QUERY_PAGE_SIZE_VARIABLE, String.valueOf(maxPageSize));
+        processor = new ConsentExpiryProcessor(ConsentExpiryProcessorConfiguration.fromEnvironment(environment));
+    }
+
+    @Benchmark
+    public void expireConsents(final ExpiryCounters counters) {
+        processor.handleRequest(Map.of(), context);
+    }
+
+    /**
+     * Consents expired and writes throttled in each iteration, which JMH sums and reports alongside the run time.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ExpiryCounters {
+        public long expiredConsents;
+        public long throttledWrites;
+
+        /**
+         * Counts the consents left in the table once the run has finished, outside the measured run time.
+         */
+        @TearDown(org.openjdk.jmh.annotations.Level.Iteration)
+        public void countExpiries(final ConsentExpiryProcessorLoadBenchmark benchmark) {
+            expiredConsents = benchmark.numConsents - benchmark.server.countIndexedConsents();
+            throttledWrites = benchmark.server.getNumThrottledRequests();
+        }
+    }
+
+    @TearDown
+    public void stopServer() {
+        server.close();
+    }
+}
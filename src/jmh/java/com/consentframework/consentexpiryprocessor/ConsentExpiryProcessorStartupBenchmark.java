@@ -0,0 +1,46 @@
+package com.consentframework.consentexpiryprocessor;
+
+import com.consentframework.consentexpiryprocessor.infrastructure.configuration.ConsentExpiryProcessorConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures cold-start initialization of the processor, from loading its classes to having AWS clients built.
+ *
+ * Each measurement runs once in a fresh JVM, so class loading and static initialization are included
+ * as they would be on a Lambda cold start. No requests are sent, only the clients are built.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class ConsentExpiryProcessorStartupBenchmark {
+    private static final Map<String, String> LAMBDA_ENVIRONMENT = Map.of(
+        ConsentExpiryProcessorConfiguration.AWS_REGION_VARIABLE, "us-west-2",
+        ConsentExpiryProcessorConfiguration.AWS_ACCESS_KEY_ID_VARIABLE, "BenchmarkAccessKeyId",
+        ConsentExpiryProcessorConfiguration.AWS_SECRET_ACCESS_KEY_VARIABLE, "BenchmarkSecretAccessKey");
+
+    @Param({"false", "true"})
+    String useAsyncDynamoDbClient;
+
+    @Benchmark
+    public ConsentExpiryProcessor initialize() {
+        final Map<String, String> environment = new HashMap<>(LAMBDA_ENVIRONMENT);
+        environment.put(ConsentExpiryProcessorConfiguration.USE_ASYNC_DYNAMODB_CLIENT_VARIABLE, useAsyncDynamoDbClient);
+        return new ConsentExpiryProcessor(ConsentExpiryProcessorConfiguration.fromEnvironment(environment));
+    }
+}
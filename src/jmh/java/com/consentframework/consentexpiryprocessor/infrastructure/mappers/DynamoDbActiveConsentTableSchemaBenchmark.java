@@ -0,0 +1,67 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.mappers;
+
+import com.consentframework.shared.api.infrastructure.entities.DynamoDbActiveConsentWithExpiryTime;
+import com.consentframework.shared.api.infrastructure.mappers.DynamoDbConsentExpiryTimeConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Measures mapping a page of projected ActiveConsentsByExpiryHour GSI items through the static table schema.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DynamoDbActiveConsentTableSchemaBenchmark {
+    @Param({"100", "1000"})
+    int pageSize;
+
+    private List<Map<String, AttributeValue>> pageItems;
+
+    /**
+     * Builds a page of raw GSI items within a single expiry hour.
+     */
+    @Setup
+    public void setUp() {
+        final OffsetDateTime expiryHourStart = OffsetDateTime.of(2011, 12, 3, 10, 0, 0, 0, ZoneOffset.UTC);
+        pageItems = IntStream.range(0, pageSize)
+            .mapToObj(i -> {
+                final String id = "TestServiceId|TestUserId|TestConsentId" + i;
+                final OffsetDateTime expiryTime = expiryHourStart.plusSeconds(i % 3600);
+                return Map.of(
+                    "id", AttributeValue.builder().s(id).build(),
+                    "consentVersion", AttributeValue.builder().n("1").build(),
+                    "expiryHour", AttributeValue.builder().s(DynamoDbConsentExpiryTimeConverter.toExpiryHour(expiryTime)).build(),
+                    "expiryTimeId", AttributeValue.builder().s(DynamoDbConsentExpiryTimeConverter.toExpiryTimeId(expiryTime, id)).build());
+            })
+            .toList();
+    }
+
+    @Benchmark
+    public void mapToItem(final Blackhole blackhole) {
+        for (final Map<String, AttributeValue> pageItem : pageItems) {
+            final DynamoDbActiveConsentWithExpiryTime item = DynamoDbActiveConsentTableSchema.TABLE_SCHEMA.mapToItem(pageItem);
+            blackhole.consume(item);
+        }
+    }
+}
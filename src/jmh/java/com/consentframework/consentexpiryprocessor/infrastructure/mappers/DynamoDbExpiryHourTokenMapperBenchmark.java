@@ -0,0 +1,103 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.mappers;
+
+import com.consentframework.consentexpiryprocessor.domain.constants.ActiveConsentWithExpiryTimeAttributeName;
+import com.consentframework.consentexpiryprocessor.testcommon.utils.JsonPageTokenEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures encoding and decoding of ActiveConsentsByExpiryHour GSI page tokens, done once per page of consents,
+ * in the JSON form and the compact binary form, for a single partition and for an expiry hour sharded four ways.
+ *
+ * The setup logs the length of each encoded token, so that runs show the size saved along with the time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DynamoDbExpiryHourTokenMapperBenchmark {
+    private static final String ID = "TestServiceId|TestUserId|TestConsentId";
+    private static final String EXPIRY_HOUR = "2011-12-03T10:00Z";
+    private static final int SHARD_COUNT = 4;
+
+    /**
+     * Page token formats.
+     */
+    public enum TokenFormat {
+        JSON,
+        BINARY
+    }
+
+    @Param({"JSON", "BINARY"})
+    private TokenFormat format;
+
+    @Param({"false", "true"})
+    private boolean sharded;
+
+    private Map<String, AttributeValue> dynamoDbPageToken;
+    private Map<String, Map<String, AttributeValue>> shardedDynamoDbPageToken;
+    private Optional<String> pageToken;
+
+    @Setup
+    public void setup() {
+        dynamoDbPageToken = buildLastEvaluatedKey(EXPIRY_HOUR);
+        shardedDynamoDbPageToken = new LinkedHashMap<>();
+        shardedDynamoDbPageToken.put(EXPIRY_HOUR, Map.of());
+        for (int shard = 0; shard < SHARD_COUNT; shard++) {
+            shardedDynamoDbPageToken.put(EXPIRY_HOUR + "#" + shard, buildLastEvaluatedKey(EXPIRY_HOUR + "#" + shard));
+        }
+        pageToken = Optional.of(encode());
+        System.out.printf("%s page token, sharded %s: %d characters%n", format, sharded, pageToken.get().length());
+    }
+
+    @Benchmark
+    public String encodePageToken() {
+        return encode();
+    }
+
+    @Benchmark
+    public Object decodePageToken() {
+        if (sharded) {
+            return DynamoDbExpiryHourTokenMapper.toShardedDynamoDbPageToken(pageToken.orElseThrow());
+        }
+        return DynamoDbExpiryHourTokenMapper.toDynamoDbPageToken(pageToken);
+    }
+
+    private String encode() {
+        if (sharded) {
+            return format == TokenFormat.JSON
+                ? JsonPageTokenEncoder.toShardedJsonString(shardedDynamoDbPageToken)
+                : DynamoDbExpiryHourTokenMapper.toShardedPageToken(shardedDynamoDbPageToken);
+        }
+        return format == TokenFormat.JSON
+            ? JsonPageTokenEncoder.toJsonString(dynamoDbPageToken)
+            : DynamoDbExpiryHourTokenMapper.toPageToken(dynamoDbPageToken).orElseThrow();
+    }
+
+    private static Map<String, AttributeValue> buildLastEvaluatedKey(final String partitionKey) {
+        return Map.of(
+            ActiveConsentWithExpiryTimeAttributeName.ID.getValue(), AttributeValue.builder().s(ID).build(),
+            ActiveConsentWithExpiryTimeAttributeName.CONSENT_VERSION.getValue(), AttributeValue.builder().n("1").build(),
+            ActiveConsentWithExpiryTimeAttributeName.EXPIRY_HOUR.getValue(), AttributeValue.builder().s(partitionKey).build(),
+            ActiveConsentWithExpiryTimeAttributeName.EXPIRY_TIME_ID.getValue(),
+            AttributeValue.builder().s("2011-12-03T10:15:12Z|" + ID).build()
+        );
+    }
+}
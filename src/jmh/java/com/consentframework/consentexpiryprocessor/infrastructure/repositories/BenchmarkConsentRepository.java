@@ -0,0 +1,92 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.repositories;
+
+import com.consentframework.consentexpiryprocessor.domain.constants.ConsentExpiryStatus;
+import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
+import com.consentframework.consentexpiryprocessor.domain.entities.ConsentExpiryResult;
+import com.consentframework.consentexpiryprocessor.domain.repositories.ConsentRepository;
+import com.consentframework.shared.api.domain.pagination.ListPage;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-only in-memory consent repository for benchmarks.
+ *
+ * Unlike InMemoryConsentRepository, page tokens are list offsets so each page is read in constant time,
+ * and expiring a consent only counts the write so that every benchmark invocation sees the same consents.
+ * A page write latency can be set to stand in for the round trip of a batch of writes to the table.
+ */
+public class BenchmarkConsentRepository implements ConsentRepository {
+    private final Map<String, List<ActiveConsentWithExpiryTime>> activeConsentsPerExpiryHour;
+    private final int pageSize;
+    private final Duration pageWriteLatency;
+    private final AtomicLong numExpiredConsents = new AtomicLong();
+
+    /**
+     * Constructs a benchmark consent repository.
+     *
+     * @param activeConsentsPerExpiryHour Consents per expiry hour, each sorted by expiry time.
+     * @param pageSize The maximum number of consents returned per page.
+     */
+    public BenchmarkConsentRepository(final Map<String, List<ActiveConsentWithExpiryTime>> activeConsentsPerExpiryHour,
+            final int pageSize) {
+        this(activeConsentsPerExpiryHour, pageSize, Duration.ZERO);
+    }
+
+    /**
+     * Constructs a benchmark consent repository whose page writes take the given time.
+     *
+     * @param activeConsentsPerExpiryHour Consents per expiry hour, each sorted by expiry time.
+     * @param pageSize The maximum number of consents returned per page.
+     * @param pageWriteLatency The time each call to expireConsents waits before writing the page.
+     */
+    public BenchmarkConsentRepository(final Map<String, List<ActiveConsentWithExpiryTime>> activeConsentsPerExpiryHour,
+            final int pageSize, final Duration pageWriteLatency) {
+        this.activeConsentsPerExpiryHour = Map.copyOf(activeConsentsPerExpiryHour);
+        this.pageSize = pageSize;
+        this.pageWriteLatency = pageWriteLatency;
+    }
+
+    @Override
+    public ListPage<ActiveConsentWithExpiryTime> getActiveConsentsWithExpiryHour(final String expiryHour,
+            final Optional<String> pageToken) {
+        final List<ActiveConsentWithExpiryTime> consents = activeConsentsPerExpiryHour.getOrDefault(expiryHour, List.of());
+        final int firstIndex = pageToken.map(Integer::parseInt).orElse(0);
+        final int nextIndex = Math.min(firstIndex + pageSize, consents.size());
+        final Optional<String> nextPageToken = nextIndex < consents.size()
+            ? Optional.of(String.valueOf(nextIndex))
+            : Optional.empty();
+        return new ListPage<>(consents.subList(firstIndex, nextIndex), nextPageToken);
+    }
+
+    @Override
+    public List<ConsentExpiryResult> expireConsents(final List<ActiveConsentWithExpiryTime> consents) {
+        if (!pageWriteLatency.isZero()) {
+            try {
+                Thread.sleep(pageWriteLatency);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while writing page", e);
+            }
+        }
+        return ConsentRepository.super.expireConsents(consents);
+    }
+
+    @Override
+    public ConsentExpiryStatus expireConsent(final String id, final String updatedVersion) {
+        numExpiredConsents.incrementAndGet();
+        return ConsentExpiryStatus.SUCCESS;
+    }
+
+    /**
+     * Returns the number of consents expired since the last call, and resets the count.
+     *
+     * @return number of expiry writes.
+     */
+    public long resetNumExpiredConsents() {
+        return numExpiredConsents.getAndSet(0);
+    }
+}
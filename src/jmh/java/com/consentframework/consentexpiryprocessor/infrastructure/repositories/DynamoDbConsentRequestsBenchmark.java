@@ -0,0 +1,68 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.repositories;
+
+import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
+import com.consentframework.shared.api.domain.pagination.ListPage;
+import com.consentframework.shared.api.infrastructure.entities.DynamoDbActiveConsentWithExpiryTime;
+import com.consentframework.shared.api.infrastructure.mappers.DynamoDbConsentExpiryTimeConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Measures mapping a page of ActiveConsentsByExpiryHour GSI items to domain consents.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DynamoDbConsentRequestsBenchmark {
+    @Param({"100", "1000"})
+    int pageSize;
+
+    private Page<DynamoDbActiveConsentWithExpiryTime> page;
+
+    /**
+     * Builds a page of GSI items within a single expiry hour.
+     */
+    @Setup
+    public void setUp() {
+        final OffsetDateTime expiryHourStart = OffsetDateTime.of(2011, 12, 3, 10, 0, 0, 0, ZoneOffset.UTC);
+        final List<DynamoDbActiveConsentWithExpiryTime> items = IntStream.range(0, pageSize)
+            .mapToObj(i -> {
+                final String id = "TestServiceId|TestUserId|TestConsentId" + i;
+                final OffsetDateTime expiryTime = expiryHourStart.plusSeconds(i % 3600);
+                return DynamoDbActiveConsentWithExpiryTime.builder()
+                    .id(id)
+                    .consentVersion(1)
+                    .expiryHour(DynamoDbConsentExpiryTimeConverter.toExpiryHour(expiryTime))
+                    .expiryTimeId(DynamoDbConsentExpiryTimeConverter.toExpiryTimeId(expiryTime, id))
+                    .build();
+            })
+            .toList();
+        page = Page.builder(DynamoDbActiveConsentWithExpiryTime.class)
+            .items(items)
+            .build();
+    }
+
+    @Benchmark
+    public ListPage<ActiveConsentWithExpiryTime> toListPage() {
+        return DynamoDbConsentRequests.toListPage(page);
+    }
+}
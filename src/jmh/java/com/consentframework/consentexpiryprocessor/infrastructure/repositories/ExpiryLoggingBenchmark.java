@@ -0,0 +1,121 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.repositories;
+
+import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
+import com.consentframework.consentexpiryprocessor.domain.entities.ConsentExpiryResult;
+import com.consentframework.consentexpiryprocessor.infrastructure.metrics.CloudWatchMetricsHandler;
+import com.consentframework.consentexpiryprocessor.infrastructure.throttling.AdaptiveRateLimiter;
+import com.consentframework.consentexpiryprocessor.testcommon.utils.ActiveConsentWithExpiryTimeGenerator;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.config.plugins.util.PluginManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Measures the logging cost of expiring a page of consents, with UpdateItem calls answered immediately.
+ *
+ * The sync-pattern configuration is the console configuration before logging moved to JSON, with caller location
+ * in each line, and the sync-json configuration is the production one. At DEBUG the per-consent lines that used to
+ * be logged at INFO are written again, so sync-pattern at DEBUG approximates the previous hot path and sync-json at
+ * INFO the current one. Both configurations write to build/tmp/jmh rather than the console, synchronously, as events
+ * buffered for a background thread would be lost when Lambda freezes the execution environment.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpiryLoggingBenchmark {
+    static {
+        // The benchmark jar merges dependencies keeping a single log4j plugin cache, so the JSON layout's plugins
+        // are found by scanning its package instead. This has to happen before log4j initializes.
+        PluginManager.addPackage("org.apache.logging.log4j.layout.template.json");
+    }
+
+    @Param({"sync-pattern", "sync-json"})
+    String loggingConfiguration;
+
+    @Param({"INFO", "DEBUG"})
+    String logLevel;
+
+    @Param({"1000"})
+    int pageSize;
+
+    private DynamoDbConsentRepository consentRepository;
+    private List<ActiveConsentWithExpiryTime> consents;
+
+    /**
+     * Applies the logging configuration and builds a repository whose writes always succeed.
+     */
+    @Setup
+    public void setUp() throws URISyntaxException {
+        // Reconfigure the context the repository's loggers belong to, rather than the default context
+        final LoggerContext loggerContext = (LoggerContext) LogManager.getContext(DynamoDbConsentRepository.class.getClassLoader(), false);
+        loggerContext.setConfigLocation(getClass().getResource("/log4j2-benchmark-" + loggingConfiguration + ".xml").toURI());
+        loggerContext.getConfiguration().getRootLogger().setLevel(org.apache.logging.log4j.Level.valueOf(logLevel));
+        loggerContext.updateLoggers();
+
+        final DynamoDbClient ddbClient = new DynamoDbClient() {
+            private final UpdateItemResponse updateItemResponse = UpdateItemResponse.builder().build();
+
+            @Override
+            public UpdateItemResponse updateItem(final UpdateItemRequest updateItemRequest) {
+                return updateItemResponse;
+            }
+
+            @Override
+            public String serviceName() {
+                return SERVICE_NAME;
+            }
+
+            @Override
+            public void close() {}
+        };
+        consentRepository = new DynamoDbConsentRepository(ddbClient, null,
+            new CloudWatchMetricsHandler((namespace, metricData) -> { }, Duration.ofHours(1)),
+            DynamoDbConsentRepositorySettings.builder()
+                .maxConcurrentWrites(16)
+                .writeRateLimiter(new AdaptiveRateLimiter(1_000_000_000))
+                .queryPageSize(pageSize)
+                .build());
+
+        final OffsetDateTime expiryHourStart = OffsetDateTime.of(2011, 12, 3, 10, 0, 0, 0, ZoneOffset.UTC);
+        consents = IntStream.range(0, pageSize)
+            .mapToObj(i -> ActiveConsentWithExpiryTimeGenerator.generate("TestServiceId|TestUserId|TestConsentId" + i,
+                expiryHourStart.plusSeconds(i % 3600)))
+            .toList();
+    }
+
+    @Benchmark
+    public List<ConsentExpiryResult> expireConsents() {
+        return consentRepository.expireConsents(consents);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        LogManager.shutdown();
+    }
+}
@@ -0,0 +1,140 @@
+package com.consentframework.consentexpiryprocessor.usecases.activities;
+
+import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
+import com.consentframework.consentexpiryprocessor.domain.entities.ExpiryTimeCutoff;
+import com.consentframework.consentexpiryprocessor.infrastructure.repositories.BenchmarkConsentRepository;
+import com.consentframework.consentexpiryprocessor.testcommon.utils.ActiveConsentWithExpiryTimeGenerator;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the expiry hot path: the per-consent expiry time check, and a full run over an in-memory repository.
+ */
+@Fork(1)
+public class AutoExpireConsentsActivityBenchmark {
+    private static final int PAGE_SIZE = 1000;
+
+    /**
+     * Cutoff and consent for measuring the expiry time check in isolation.
+     */
+    @State(Scope.Benchmark)
+    public static class ExpiryTimeCheckState {
+        ExpiryTimeCutoff cutoff;
+        ActiveConsentWithExpiryTime pastConsent;
+
+        /**
+         * Builds a consent that expired a minute ago.
+         */
+        @Setup
+        public void setUp() {
+            final OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+            cutoff = new ExpiryTimeCutoff(now.toInstant());
+            pastConsent = ActiveConsentWithExpiryTimeGenerator.generate("consent-0", now.minusMinutes(1));
+        }
+    }
+
+    /**
+     * Activity over a repository with consents spread across the expiry hours processed by a run.
+     *
+     * With the SKEWED distribution nine in ten consents share one expiry hour, as after a bulk import with a
+     * shared expiry date, so run time only scales with the number of page writers if they share that hour's pages.
+     * The page write latency stands in for the round trip of a batch of writes to the table.
+     */
+    @State(Scope.Benchmark)
+    public static class ExecuteState {
+        @Param({"1000000"})
+        int numConsents;
+
+        @Param({"1", "4", "24"})
+        int maxConcurrentExpiryHours;
+
+        @Param({"UNIFORM", "SKEWED"})
+        String distribution;
+
+        @Param({"0", "2"})
+        int pageWriteLatencyMillis;
+
+        BenchmarkConsentRepository consentRepository;
+        AutoExpireConsentsActivity activity;
+
+        /**
+         * Spreads the consents across the expiry hours, with every expiry time in the past.
+         */
+        @Setup
+        public void setUp() {
+            // Per-page info logs would otherwise dominate the run time
+            Configurator.setRootLevel(Level.WARN);
+
+            final OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+            final OffsetDateTime oldestExpiryTime = now.minusHours(AutoExpireConsentsActivitySettings.DEFAULT_LOOKBACK_HOURS - 1L);
+
+            final int numSpreadConsents = "SKEWED".equals(distribution) ? numConsents / 10 : numConsents;
+            final long expiryTimeSpacingNanos = Duration.between(oldestExpiryTime, now.minusMinutes(1)).toNanos() / numSpreadConsents;
+            final long heavyHourSpacingNanos = Duration.ofHours(1).toNanos() / Math.max(1, numConsents - numSpreadConsents);
+
+            final List<OffsetDateTime> expiryTimes = new ArrayList<>(numConsents);
+            for (int i = 0; i < numSpreadConsents; i++) {
+                expiryTimes.add(oldestExpiryTime.plusNanos(i * expiryTimeSpacingNanos));
+            }
+            final OffsetDateTime heavyExpiryHour = oldestExpiryTime.truncatedTo(ChronoUnit.HOURS);
+            for (int i = 0; i < numConsents - numSpreadConsents; i++) {
+                expiryTimes.add(heavyExpiryHour.plusNanos(i * heavyHourSpacingNanos));
+            }
+            expiryTimes.sort(Comparator.naturalOrder());
+
+            final Map<String, List<ActiveConsentWithExpiryTime>> consentsPerExpiryHour = new LinkedHashMap<>();
+            for (int i = 0; i < numConsents; i++) {
+                final ActiveConsentWithExpiryTime consent = ActiveConsentWithExpiryTimeGenerator.generate("consent-" + i,
+                    expiryTimes.get(i));
+                consentsPerExpiryHour.computeIfAbsent(consent.expiryHour(), expiryHour -> new ArrayList<>()).add(consent);
+            }
+
+            consentRepository = new BenchmarkConsentRepository(consentsPerExpiryHour, PAGE_SIZE,
+                Duration.ofMillis(pageWriteLatencyMillis));
+            activity = new AutoExpireConsentsActivity(consentRepository, AutoExpireConsentsActivitySettings.builder()
+                .maxConcurrentExpiryHours(maxConcurrentExpiryHours)
+                .build());
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public boolean isPastExpiryTime(final ExpiryTimeCheckState state) {
+        return state.cutoff.isAfter(state.pastConsent.expiryTimeId());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public long execute(final ExecuteState state) {
+        state.activity.execute();
+        return state.consentRepository.resetNumExpiredConsents();
+    }
+}
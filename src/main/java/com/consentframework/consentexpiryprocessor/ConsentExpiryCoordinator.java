@@ -0,0 +1,58 @@
+package com.consentframework.consentexpiryprocessor;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.consentframework.consentexpiryprocessor.infrastructure.configuration.ConsentExpiryProcessorConfiguration;
+import com.consentframework.consentexpiryprocessor.infrastructure.mappers.ExpiryShardAssignmentPayloadMapper;
+import com.consentframework.consentexpiryprocessor.usecases.activities.PlanExpiryShardsActivity;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Entry point for the coordinator, which splits the expiry sweep into ConsentExpiryProcessor invocation payloads.
+ *
+ * The returned payloads are intended to fan out to one ConsentExpiryProcessor invocation each,
+ * for example through a Step Functions Map state, so the sweep is not bound by a single invocation's timeout.
+ */
+public class ConsentExpiryCoordinator {
+    private static final Logger logger = LogManager.getLogger(ConsentExpiryCoordinator.class);
+
+    final PlanExpiryShardsActivity planExpiryShardsActivity;
+    private final int defaultShardCount;
+
+    /**
+     * Creates a new instance of ConsentExpiryCoordinator.
+     */
+    public ConsentExpiryCoordinator() {
+        this(ConsentExpiryProcessorConfiguration.fromEnvironment(System.getenv()));
+    }
+
+    /**
+     * Creates a new instance of ConsentExpiryCoordinator with the given configuration.
+     *
+     * @param configuration The processor configuration.
+     */
+    public ConsentExpiryCoordinator(final ConsentExpiryProcessorConfiguration configuration) {
+        this.planExpiryShardsActivity = new PlanExpiryShardsActivity(configuration.lookbackHours());
+        this.defaultShardCount = configuration.expiryShardCount();
+    }
+
+    /**
+     * Handle the Lambda request.
+     *
+     * @param input The invocation payload, optionally with a "shardCount" overriding the configured shard count.
+     * @param context The Lambda context.
+     * @return One ConsentExpiryProcessor invocation payload per shard.
+     */
+    public List<Map<String, Object>> handleRequest(final Map<String, Object> input, final Context context) {
+        final int shardCount = ExpiryShardAssignmentPayloadMapper.toShardCount(input, defaultShardCount);
+        logger.info("Planning {} consent expiry shards, request ID: {}.", shardCount, context.getAwsRequestId());
+
+        return planExpiryShardsActivity.execute(shardCount)
+            .stream()
+            .map(ExpiryShardAssignmentPayloadMapper::toPayload)
+            .toList();
+    }
+}
@@ -1,79 +1,329 @@
 package com.consentframework.consentexpiryprocessor;
 
 import com.amazonaws.services.lambda.runtime.Context;
+import com.consentframework.consentexpiryprocessor.domain.entities.ExpiryForecast;
+import com.consentframework.consentexpiryprocessor.domain.entities.ExpiryRunSummary;
+import com.consentframework.consentexpiryprocessor.domain.entities.ExpiryShardAssignment;
+import com.consentframework.consentexpiryprocessor.domain.metrics.ExpiryRunRecorder;
 import com.consentframework.consentexpiryprocessor.domain.repositories.ConsentRepository;
+import com.consentframework.consentexpiryprocessor.domain.repositories.ExpiryCheckpointStore;
+import com.consentframework.consentexpiryprocessor.infrastructure.configuration.AwsClientFactory;
+import com.consentframework.consentexpiryprocessor.infrastructure.configuration.ConsentExpiryProcessorConfiguration;
+import com.consentframework.consentexpiryprocessor.infrastructure.configuration.MetricsBackend;
+import com.consentframework.consentexpiryprocessor.infrastructure.mappers.DynamoDbActiveConsentTableSchema;
+import com.consentframework.consentexpiryprocessor.infrastructure.mappers.ExpiryForecastPayloadMapper;
+import com.consentframework.consentexpiryprocessor.infrastructure.mappers.ExpiryRunSummaryPayloadMapper;
+import com.consentframework.consentexpiryprocessor.infrastructure.mappers.ExpiryShardAssignmentPayloadMapper;
 import com.consentframework.consentexpiryprocessor.infrastructure.metrics.CloudWatchMetricsHandler;
+import com.consentframework.consentexpiryprocessor.infrastructure.metrics.EmbeddedMetricFormatMetricsSink;
+import com.consentframework.consentexpiryprocessor.infrastructure.metrics.ExpiryRunReport;
+import com.consentframework.consentexpiryprocessor.infrastructure.metrics.MetricsSink;
+import com.consentframework.consentexpiryprocessor.infrastructure.metrics.PutMetricDataMetricsSink;
+import com.consentframework.consentexpiryprocessor.infrastructure.repositories.DynamoDbAsyncConsentRepository;
 import com.consentframework.consentexpiryprocessor.infrastructure.repositories.DynamoDbConsentRepository;
+import com.consentframework.consentexpiryprocessor.infrastructure.repositories.DynamoDbConsentRepositorySettings;
+import com.consentframework.consentexpiryprocessor.infrastructure.repositories.DynamoDbExpiryCheckpointStore;
+import com.consentframework.consentexpiryprocessor.infrastructure.repositories.FileExpiryCheckpointStore;
+import com.consentframework.consentexpiryprocessor.infrastructure.throttling.AdaptiveRateLimiter;
+import com.consentframework.consentexpiryprocessor.infrastructure.throttling.ThrottlingRetryPolicy;
 import com.consentframework.consentexpiryprocessor.usecases.activities.AutoExpireConsentsActivity;
+import com.consentframework.consentexpiryprocessor.usecases.activities.AutoExpireConsentsActivitySettings;
+import com.consentframework.consentexpiryprocessor.usecases.activities.ExpiredConsentCache;
+import com.consentframework.consentexpiryprocessor.usecases.activities.ForecastExpiryCapacityActivity;
 import com.consentframework.shared.api.infrastructure.entities.DynamoDbActiveConsentWithExpiryTime;
+import com.consentframework.shared.api.infrastructure.mappers.DynamoDbConsentExpiryTimeConverter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import org.crac.Core;
+import org.crac.Resource;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
-import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
 import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.Optional;
+
 /**
  * Entry point for the application, orchestrates job execution to auto-expire consents.
+ *
+ * The Lambda entry point registers itself as a CRaC resource, so that with SnapStart enabled the AWS clients
+ * are primed with a query before the snapshot is taken and again once it is restored, moving class loading
+ * and connection setup off the first invocation.
  */
-public class ConsentExpiryProcessor {
+public class ConsentExpiryProcessor implements Resource {
     public static final String EXPIRY_JOB_FAILURE_METRIC_NAME = "ConsentExpiryJobFailure";
+    public static final String FAILED_CONSENT_EXPIRY_METRIC_NAME = "ConsentExpiryFailedConsents";
+
+    // No consents expire in this hour, so priming queries it without reading or expiring any consent
+    static final String PRIMING_EXPIRY_HOUR = DynamoDbConsentExpiryTimeConverter.toExpiryHour(
+        OffsetDateTime.of(1970, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC));
 
     private static final Logger logger = LogManager.getLogger(ConsentExpiryProcessor.class);
 
     final ConsentRepository consentRepository;
     final AutoExpireConsentsActivity autoExpireConsentsActivity;
+    final ForecastExpiryCapacityActivity forecastExpiryCapacityActivity;
     final CloudWatchMetricsHandler metricsHandler;
+    private final Duration deadlineSafetyMargin;
+    private final int forecastLookaheadHours;
 
     /**
      * Creates a new instance of ConsentExpiryProcessor.
      */
     public ConsentExpiryProcessor() {
-        final DynamoDbClient ddbClient = DynamoDbClient.builder()
-            .credentialsProvider(DefaultCredentialsProvider.create())
+        this(ConsentExpiryProcessorConfiguration.fromEnvironment(System.getenv()));
+        Core.getGlobalContext().register(this);
+    }
+
+    /**
+     * Creates a new instance of ConsentExpiryProcessor with AWS clients built for the given configuration.
+     *
+     * @param configuration The processor configuration.
+     */
+    ConsentExpiryProcessor(final ConsentExpiryProcessorConfiguration configuration) {
+        this(configuration, new AwsClientFactory(configuration));
+    }
+
+    /**
+     * Creates a new instance of ConsentExpiryProcessor with AWS clients from the given factory.
+     *
+     * @param configuration The processor configuration.
+     * @param awsClientFactory The factory providing shared AWS clients.
+     */
+    ConsentExpiryProcessor(final ConsentExpiryProcessorConfiguration configuration, final AwsClientFactory awsClientFactory) {
+        this.metricsHandler = new CloudWatchMetricsHandler(buildMetricsSink(configuration, awsClientFactory),
+            configuration.metricsFlushInterval());
+        final ExpiryRunRecorder runRecorder = new ExpiryRunReport(metricsHandler);
+        this.consentRepository = configuration.useAsyncDynamoDbClient()
+            ? buildAsyncConsentRepository(configuration, awsClientFactory, metricsHandler, runRecorder)
+            : buildConsentRepository(configuration, awsClientFactory, metricsHandler, runRecorder);
+        this.autoExpireConsentsActivity = new AutoExpireConsentsActivity(consentRepository,
+            buildActivitySettings(configuration, buildCheckpointStore(configuration, awsClientFactory), runRecorder));
+        this.forecastExpiryCapacityActivity = buildForecastExpiryCapacityActivity(consentRepository, configuration);
+        this.deadlineSafetyMargin = configuration.deadlineSafetyMargin();
+        this.forecastLookaheadHours = configuration.forecastLookaheadHours();
+    }
+
+    /**
+     * Instantiates the ConsentExpiryProcessor with a given consent repository.
+     *
+     * @param consentRepository The consent repository.
+     */
+    public ConsentExpiryProcessor(final ConsentRepository consentRepository, final CloudWatchClient cloudWatchClient) {
+        this(consentRepository, cloudWatchClient, ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of()));
+    }
+
+    /**
+     * Instantiates the ConsentExpiryProcessor with a given consent repository and configuration.
+     *
+     * @param consentRepository The consent repository.
+     * @param cloudWatchClient The CloudWatch client used to publish metrics.
+     * @param configuration The processor configuration.
+     */
+    public ConsentExpiryProcessor(final ConsentRepository consentRepository, final CloudWatchClient cloudWatchClient,
+            final ConsentExpiryProcessorConfiguration configuration) {
+        this(consentRepository, cloudWatchClient, configuration, buildCheckpointStore(configuration));
+    }
+
+    /**
+     * Instantiates the ConsentExpiryProcessor with a given consent repository, configuration and checkpoint store.
+     *
+     * @param consentRepository The consent repository.
+     * @param cloudWatchClient The CloudWatch client used to publish metrics.
+     * @param configuration The processor configuration.
+     * @param checkpointStore The store recording progress through each expiry hour.
+     */
+    public ConsentExpiryProcessor(final ConsentRepository consentRepository, final CloudWatchClient cloudWatchClient,
+            final ConsentExpiryProcessorConfiguration configuration, final ExpiryCheckpointStore checkpointStore) {
+        this.consentRepository = consentRepository;
+        this.metricsHandler = new CloudWatchMetricsHandler(cloudWatchClient, configuration.metricsFlushInterval());
+        this.autoExpireConsentsActivity = new AutoExpireConsentsActivity(consentRepository,
+            buildActivitySettings(configuration, checkpointStore, new ExpiryRunReport(metricsHandler)));
+        this.forecastExpiryCapacityActivity = buildForecastExpiryCapacityActivity(consentRepository, configuration);
+        this.deadlineSafetyMargin = configuration.deadlineSafetyMargin();
+        this.forecastLookaheadHours = configuration.forecastLookaheadHours();
+    }
+
+    /**
+     * Builds the checkpoint store for a processor given its consent repository, which has no DynamoDB client
+     * to reach the checkpoint table, so checkpoints are only saved if a checkpoint file is configured.
+     */
+    private static ExpiryCheckpointStore buildCheckpointStore(final ConsentExpiryProcessorConfiguration configuration) {
+        return configuration.checkpointFile()
+            .<ExpiryCheckpointStore>map(FileExpiryCheckpointStore::new)
+            .orElse(ExpiryCheckpointStore.NONE);
+    }
+
+    /**
+     * Builds the checkpoint store, saving checkpoints to the checkpoint table so that they survive new containers,
+     * unless a checkpoint file on the container's local disk is configured.
+     */
+    static ExpiryCheckpointStore buildCheckpointStore(final ConsentExpiryProcessorConfiguration configuration,
+            final AwsClientFactory awsClientFactory) {
+        return configuration.checkpointFile()
+            .<ExpiryCheckpointStore>map(FileExpiryCheckpointStore::new)
+            .orElseGet(() -> new DynamoDbExpiryCheckpointStore(awsClientFactory.dynamoDbClient(), configuration.checkpointTableName()));
+    }
+
+    /**
+     * Builds the activity settings, with an expired consent cache that lives as long as the processor so that it is kept
+     * across warm invocations.
+     */
+    private static AutoExpireConsentsActivitySettings buildActivitySettings(final ConsentExpiryProcessorConfiguration configuration,
+            final ExpiryCheckpointStore checkpointStore, final ExpiryRunRecorder runRecorder) {
+        return AutoExpireConsentsActivitySettings.builder()
+            .maxConcurrentExpiryHours(configuration.maxConcurrentExpiryHours())
+            .checkpointStore(checkpointStore)
+            .expiredConsentCache(new ExpiredConsentCache(configuration.expiredConsentCacheSize()))
+            .runRecorder(runRecorder)
+            .lookbackHours(configuration.lookbackHours())
             .build();
+    }
+
+    private static ForecastExpiryCapacityActivity buildForecastExpiryCapacityActivity(final ConsentRepository consentRepository,
+            final ConsentExpiryProcessorConfiguration configuration) {
+        return new ForecastExpiryCapacityActivity(consentRepository, configuration.lookbackHours(),
+            configuration.maxConcurrentExpiryHours(), configuration.maxConcurrentExpiryWrites(),
+            configuration.maxExpiryWritesPerSecond(), configuration.forecastExpiryWriteLatency());
+    }
+
+    /**
+     * Builds the metrics sink, only creating a CloudWatch client when metrics are published through the API.
+     */
+    static MetricsSink buildMetricsSink(final ConsentExpiryProcessorConfiguration configuration,
+            final AwsClientFactory awsClientFactory) {
+        if (configuration.metricsBackend() == MetricsBackend.EMBEDDED_METRIC_FORMAT) {
+            return new EmbeddedMetricFormatMetricsSink(System.out);
+        }
+        return new PutMetricDataMetricsSink(awsClientFactory.cloudWatchClient());
+    }
+
+    private static DynamoDbConsentRepositorySettings buildRepositorySettings(final ConsentExpiryProcessorConfiguration configuration,
+            final ExpiryRunRecorder runRecorder) {
+        return DynamoDbConsentRepositorySettings.builder()
+            .maxConcurrentWrites(configuration.maxConcurrentExpiryWrites())
+            .writeRateLimiter(new AdaptiveRateLimiter(configuration.maxExpiryWritesPerSecond()))
+            .retryPolicy(new ThrottlingRetryPolicy(configuration.maxExpiryWriteAttempts()))
+            .queryPageSize(configuration.queryPageSize())
+            .runRecorder(runRecorder)
+            .expiryHourShardCount(configuration.expiryHourWriteShardCount())
+            .build();
+    }
+
+    static ConsentRepository buildConsentRepository(final ConsentExpiryProcessorConfiguration configuration,
+            final AwsClientFactory awsClientFactory, final CloudWatchMetricsHandler metricsHandler,
+            final ExpiryRunRecorder runRecorder) {
+        final DynamoDbClient ddbClient = awsClientFactory.dynamoDbClient();
         final DynamoDbEnhancedClient ddbEnhancedClient = DynamoDbEnhancedClient.builder()
             .dynamoDbClient(ddbClient)
             .build();
         final DynamoDbTable<DynamoDbActiveConsentWithExpiryTime> consentTable = ddbEnhancedClient.table(
             DynamoDbActiveConsentWithExpiryTime.TABLE_NAME,
-            TableSchema.fromClass(DynamoDbActiveConsentWithExpiryTime.class));
+            DynamoDbActiveConsentTableSchema.TABLE_SCHEMA);
+        return new DynamoDbConsentRepository(ddbClient, consentTable, metricsHandler, buildRepositorySettings(configuration, runRecorder));
+    }
 
-        final CloudWatchClient cloudWatchClient = CloudWatchClient.create();
-        this.metricsHandler = new CloudWatchMetricsHandler(cloudWatchClient);
-        this.consentRepository = new DynamoDbConsentRepository(ddbClient, consentTable, metricsHandler);
-        this.autoExpireConsentsActivity = new AutoExpireConsentsActivity(consentRepository);
+    static ConsentRepository buildAsyncConsentRepository(final ConsentExpiryProcessorConfiguration configuration,
+            final AwsClientFactory awsClientFactory, final CloudWatchMetricsHandler metricsHandler,
+            final ExpiryRunRecorder runRecorder) {
+        final DynamoDbAsyncClient ddbClient = awsClientFactory.dynamoDbAsyncClient();
+        final DynamoDbEnhancedAsyncClient ddbEnhancedClient = DynamoDbEnhancedAsyncClient.builder()
+            .dynamoDbClient(ddbClient)
+            .build();
+        final DynamoDbAsyncTable<DynamoDbActiveConsentWithExpiryTime> consentTable = ddbEnhancedClient.table(
+            DynamoDbActiveConsentWithExpiryTime.TABLE_NAME,
+            DynamoDbActiveConsentTableSchema.TABLE_SCHEMA);
+        return new DynamoDbAsyncConsentRepository(ddbClient, consentTable, metricsHandler,
+            buildRepositorySettings(configuration, runRecorder));
     }
 
     /**
-     * Instantiates the ConsentExpiryProcessor with a given consent repository.
+     * Primes the AWS clients before a SnapStart snapshot is taken.
      *
-     * @param consentRepository The consent repository.
+     * @param context The CRaC context being checkpointed.
      */
-    public ConsentExpiryProcessor(final ConsentRepository consentRepository, final CloudWatchClient cloudWatchClient) {
-        this.consentRepository = consentRepository;
-        this.autoExpireConsentsActivity = new AutoExpireConsentsActivity(consentRepository);
-        this.metricsHandler = new CloudWatchMetricsHandler(cloudWatchClient);
+    @Override
+    public void beforeCheckpoint(final org.crac.Context<? extends Resource> context) {
+        prime();
+    }
+
+    /**
+     * Primes the AWS clients after a SnapStart snapshot is restored, before the first invocation.
+     *
+     * @param context The CRaC context being restored.
+     */
+    @Override
+    public void afterRestore(final org.crac.Context<? extends Resource> context) {
+        prime();
+    }
+
+    /**
+     * Queries an expiry hour with no consents, loading the classes on the query path and opening
+     * a connection. Failures are logged rather than thrown, since priming is only an optimization.
+     */
+    void prime() {
+        try {
+            consentRepository.getActiveConsentsWithExpiryHour(PRIMING_EXPIRY_HOUR, Optional.empty());
+            logger.info("Primed consent repository.");
+        } catch (final RuntimeException e) {
+            logger.warn("Failed to prime consent repository, continuing without priming.", e);
+        }
     }
 
     /**
      * Handle the Lambda request.
      *
+     * Consents that fail to expire are counted in the response and left active for the next run,
+     * the request only fails if the run could not continue.
+     *
+     * A dry run request forecasts the consents due to expire and the capacity needed to expire them instead,
+     * without expiring any or publishing job metrics.
+     *
+     * @param input The invocation payload, optionally assigning a shard of expiry hours to process.
+     *     See ExpiryShardAssignmentPayloadMapper for the payload format, and ExpiryForecastPayloadMapper for dry runs.
      * @param context The Lambda context.
+     * @return Summary of the run, see ExpiryRunSummaryPayloadMapper for the response format,
+     *     or the forecast for a dry run, see ExpiryForecastPayloadMapper.
      */
-    public void handleRequest(final Context context) {
-        logger.info("Handling request to update status of consents past their expiry time, request ID: {}.", context.getAwsRequestId());
-        executeAutoExpireConsentsActivity(context);
+    public Map<String, Object> handleRequest(final Map<String, Object> input, final Context context) {
+        try {
+            if (ExpiryForecastPayloadMapper.isDryRun(input)) {
+                return ExpiryForecastPayloadMapper.toPayload(executeForecastExpiryCapacityActivity(input, context));
+            }
+
+            logger.info("Handling request to update status of consents past their expiry time, request ID: {}.", context.getAwsRequestId());
+            final ExpiryRunSummary runSummary = executeAutoExpireConsentsActivity(input, context);
+
+            logger.info("Successfully processed auto expire consents request, request ID: {}.", context.getAwsRequestId());
+            metricsHandler.publishCountMetric(EXPIRY_JOB_FAILURE_METRIC_NAME, 0);
+            metricsHandler.publishCountMetric(FAILED_CONSENT_EXPIRY_METRIC_NAME, runSummary.numConsentsFailed());
+            return ExpiryRunSummaryPayloadMapper.toPayload(runSummary);
+        } finally {
+            // Publish metrics still buffered in memory before the Lambda execution environment is frozen
+            metricsHandler.flush();
+        }
+    }
 
-        logger.info("Successfully processed auto expire consents request, request ID: {}.", context.getAwsRequestId());
-        metricsHandler.publishCountMetric(EXPIRY_JOB_FAILURE_METRIC_NAME, 0);
+    private ExpiryForecast executeForecastExpiryCapacityActivity(final Map<String, Object> input, final Context context) {
+        logger.info("Handling dry run request to forecast consent expiry capacity, request ID: {}.", context.getAwsRequestId());
+        final int lookaheadHours = ExpiryForecastPayloadMapper.toLookaheadHours(input, forecastLookaheadHours);
+        return forecastExpiryCapacityActivity.execute(lookaheadHours,
+            () -> context.getRemainingTimeInMillis() < deadlineSafetyMargin.toMillis());
     }
 
-    private void executeAutoExpireConsentsActivity(final Context context) {
+    private ExpiryRunSummary executeAutoExpireConsentsActivity(final Map<String, Object> input, final Context context) {
         try {
-            autoExpireConsentsActivity.execute();
+            final ExpiryShardAssignment shardAssignment = ExpiryShardAssignmentPayloadMapper.toExpiryShardAssignment(input);
+            logger.info("Processing expiry shard {}.", shardAssignment);
+            return autoExpireConsentsActivity.execute(shardAssignment,
+                () -> context.getRemainingTimeInMillis() < deadlineSafetyMargin.toMillis());
         } catch (final Exception e) {
             logger.error("Failed to process auto expire consents request, request ID: {}.", context.getAwsRequestId());
             metricsHandler.publishCountMetric(EXPIRY_JOB_FAILURE_METRIC_NAME, 1);
@@ -0,0 +1,116 @@
+package com.consentframework.consentexpiryprocessor;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.consentframework.consentexpiryprocessor.domain.entities.ConsentExpiryChange;
+import com.consentframework.consentexpiryprocessor.domain.metrics.ExpiryRunRecorder;
+import com.consentframework.consentexpiryprocessor.domain.repositories.ConsentRepository;
+import com.consentframework.consentexpiryprocessor.infrastructure.configuration.AwsClientFactory;
+import com.consentframework.consentexpiryprocessor.infrastructure.configuration.ConsentExpiryProcessorConfiguration;
+import com.consentframework.consentexpiryprocessor.infrastructure.mappers.DynamoDbStreamEventMapper;
+import com.consentframework.consentexpiryprocessor.infrastructure.metrics.CloudWatchMetricsHandler;
+import com.consentframework.consentexpiryprocessor.usecases.activities.ExpireStreamedConsentsActivity;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Entry point for the event-driven expiry mode, which expires consents at their expiry time as their changes
+ * arrive on the consent table's DynamoDB stream.
+ *
+ * The stream must include new images. Consents expiring within the configured stream expiry window are held
+ * until they expire, all others are left to the periodic ConsentExpiryProcessor sweep, which should keep running
+ * as the backstop. The function timeout should exceed the stream expiry window plus the deadline safety margin,
+ * so that consents held are expired before the invocation ends.
+ */
+public class ConsentExpiryStreamProcessor {
+    public static final String STREAM_EXPIRY_JOB_FAILURE_METRIC_NAME = "ConsentExpiryStreamJobFailure";
+
+    private static final Logger logger = LogManager.getLogger(ConsentExpiryStreamProcessor.class);
+
+    final ExpireStreamedConsentsActivity expireStreamedConsentsActivity;
+    final CloudWatchMetricsHandler metricsHandler;
+    private final Duration deadlineSafetyMargin;
+
+    /**
+     * Creates a new instance of ConsentExpiryStreamProcessor.
+     */
+    public ConsentExpiryStreamProcessor() {
+        this(ConsentExpiryProcessorConfiguration.fromEnvironment(System.getenv()));
+    }
+
+    /**
+     * Creates a new instance of ConsentExpiryStreamProcessor with AWS clients built for the given configuration.
+     *
+     * @param configuration The processor configuration.
+     */
+    ConsentExpiryStreamProcessor(final ConsentExpiryProcessorConfiguration configuration) {
+        this(configuration, new AwsClientFactory(configuration));
+    }
+
+    /**
+     * Creates a new instance of ConsentExpiryStreamProcessor with AWS clients from the given factory.
+     *
+     * @param configuration The processor configuration.
+     * @param awsClientFactory The factory providing shared AWS clients.
+     */
+    ConsentExpiryStreamProcessor(final ConsentExpiryProcessorConfiguration configuration, final AwsClientFactory awsClientFactory) {
+        this.metricsHandler = new CloudWatchMetricsHandler(ConsentExpiryProcessor.buildMetricsSink(configuration, awsClientFactory),
+            configuration.metricsFlushInterval());
+        final ConsentRepository consentRepository = configuration.useAsyncDynamoDbClient()
+            ? ConsentExpiryProcessor.buildAsyncConsentRepository(configuration, awsClientFactory, metricsHandler, ExpiryRunRecorder.NONE)
+            : ConsentExpiryProcessor.buildConsentRepository(configuration, awsClientFactory, metricsHandler, ExpiryRunRecorder.NONE);
+        this.expireStreamedConsentsActivity = new ExpireStreamedConsentsActivity(consentRepository, configuration.streamExpiryWindow());
+        this.deadlineSafetyMargin = configuration.deadlineSafetyMargin();
+    }
+
+    /**
+     * Instantiates the ConsentExpiryStreamProcessor with a given consent repository and configuration.
+     *
+     * @param consentRepository The consent repository.
+     * @param cloudWatchClient The CloudWatch client used to publish metrics.
+     * @param configuration The processor configuration.
+     */
+    public ConsentExpiryStreamProcessor(final ConsentRepository consentRepository, final CloudWatchClient cloudWatchClient,
+            final ConsentExpiryProcessorConfiguration configuration) {
+        this.metricsHandler = new CloudWatchMetricsHandler(cloudWatchClient, configuration.metricsFlushInterval());
+        this.expireStreamedConsentsActivity = new ExpireStreamedConsentsActivity(consentRepository, configuration.streamExpiryWindow());
+        this.deadlineSafetyMargin = configuration.deadlineSafetyMargin();
+    }
+
+    /**
+     * Handle the Lambda request.
+     *
+     * @param event The DynamoDB Streams event, see DynamoDbStreamEventMapper for the event format.
+     * @param context The Lambda context.
+     */
+    public void handleRequest(final Map<String, Object> event, final Context context) {
+        logger.info("Handling stream of consent changes to expire consents at their expiry time, request ID: {}.",
+            context.getAwsRequestId());
+        try {
+            executeExpireStreamedConsentsActivity(event, context);
+
+            logger.info("Successfully processed stream of consent changes, request ID: {}.", context.getAwsRequestId());
+            metricsHandler.publishCountMetric(STREAM_EXPIRY_JOB_FAILURE_METRIC_NAME, 0);
+        } finally {
+            // Publish metrics still buffered in memory before the Lambda execution environment is frozen
+            metricsHandler.flush();
+        }
+    }
+
+    private void executeExpireStreamedConsentsActivity(final Map<String, Object> event, final Context context) {
+        try {
+            final List<ConsentExpiryChange> changes = DynamoDbStreamEventMapper.toConsentExpiryChanges(event);
+            logger.info("Processing {} consent changes.", changes.size());
+            expireStreamedConsentsActivity.execute(changes,
+                () -> context.getRemainingTimeInMillis() < deadlineSafetyMargin.toMillis());
+        } catch (final Exception e) {
+            logger.error("Failed to process stream of consent changes, request ID: {}.", context.getAwsRequestId());
+            metricsHandler.publishCountMetric(STREAM_EXPIRY_JOB_FAILURE_METRIC_NAME, 1);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.consentframework.consentexpiryprocessor.domain.constants;
+
+/**
+ * Outcome of an attempt to update a consent's status to expired.
+ */
+public enum ConsentExpiryStatus {
+    // The consent was updated to expired
+    SUCCESS,
+    // The consent no longer matched the expected version, for example because it was already expired or updated
+    CONDITION_FAILED,
+    // The update was rejected because the table's write capacity was exceeded, the consent remains active
+    THROTTLED,
+    // The update failed with an error specific to the consent, the consent remains active
+    FAILED
+}
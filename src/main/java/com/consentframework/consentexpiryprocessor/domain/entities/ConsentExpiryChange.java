@@ -0,0 +1,37 @@
+package com.consentframework.consentexpiryprocessor.domain.entities;
+
+import org.immutables.value.Value.Immutable;
+import org.immutables.value.Value.Style;
+
+import java.util.Optional;
+
+/**
+ * Represents a change to a consent's pending expiry, read from a change to the consent table.
+ *
+ * A change either gives the consent's current expiry time, or has no active consent if the consent
+ * was deleted, expired, or no longer has an expiry time.
+ */
+@Immutable
+@Style(
+    // Enable strict builder mode to prevent initialization errors
+    strictBuilder = true,
+    // Have Builder return original class instead of implementation
+    overshadowImplementation = true
+)
+public interface ConsentExpiryChange {
+    static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * ConsentExpiryChange Builder class, intentionally empty.
+     */
+    class Builder extends ImmutableConsentExpiryChange.Builder {}
+
+    String id();
+
+    /**
+     * The consent as it is now pending expiry, empty if it no longer has a pending expiry.
+     */
+    Optional<ActiveConsentWithExpiryTime> activeConsent();
+}
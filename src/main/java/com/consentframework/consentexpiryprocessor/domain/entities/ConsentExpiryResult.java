@@ -0,0 +1,30 @@
+package com.consentframework.consentexpiryprocessor.domain.entities;
+
+import com.consentframework.consentexpiryprocessor.domain.constants.ConsentExpiryStatus;
+import org.immutables.value.Value.Immutable;
+import org.immutables.value.Value.Style;
+
+/**
+ * Represents the result of attempting to expire a single consent.
+ */
+@Immutable
+@Style(
+    // Enable strict builder mode to prevent initialization errors
+    strictBuilder = true,
+    // Have Builder return original class instead of implementation
+    overshadowImplementation = true
+)
+public interface ConsentExpiryResult {
+    static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * ConsentExpiryResult Builder class, intentionally empty.
+     */
+    class Builder extends ImmutableConsentExpiryResult.Builder {}
+
+    String id();
+
+    ConsentExpiryStatus status();
+}
@@ -0,0 +1,101 @@
+package com.consentframework.consentexpiryprocessor.domain.entities;
+
+import org.immutables.value.Value.Immutable;
+import org.immutables.value.Value.Style;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Represents a forecast of the consents due to expire over a window of expiry hours, and of the write capacity
+ * and run time needed to expire them at the configured concurrency.
+ *
+ * Expiring a consent is assumed to cost WRITE_CAPACITY_UNITS_PER_EXPIRY write capacity units: one to update the
+ * consent item, under 1 KB, and one to remove it from the ActiveConsentsByExpiryHour GSI. Larger items cost more.
+ */
+@Immutable
+@Style(
+    // Enable strict builder mode to prevent initialization errors
+    strictBuilder = true,
+    // Have Builder return original class instead of implementation
+    overshadowImplementation = true
+)
+public interface ExpiryForecast {
+    int WRITE_CAPACITY_UNITS_PER_EXPIRY = 2;
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * ExpiryForecast Builder class, intentionally empty.
+     */
+    class Builder extends ImmutableExpiryForecast.Builder {}
+
+    /**
+     * Number of active consents expiring in each expiry hour walked, from oldest to newest, including empty hours.
+     */
+    Map<String, Integer> consentsPerHour();
+
+    /**
+     * Number of active consents expiring in each minute, with format "2021-12-31T23:59Z", from oldest to newest,
+     * excluding minutes without any.
+     */
+    Map<String, Integer> consentsPerMinute();
+
+    /**
+     * Rate consents can be expired at with the configured concurrency, write latency and write budget.
+     */
+    double expiryWritesPerSecond();
+
+    /**
+     * Whether some expiry hours were not walked, or only partly walked, because the invocation deadline was reached.
+     */
+    boolean stoppedAtDeadline();
+
+    default int numConsents() {
+        return consentsPerHour().values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    default int peakConsentsPerMinute() {
+        return consentsPerMinute().values().stream().mapToInt(Integer::intValue).max().orElse(0);
+    }
+
+    /**
+     * Estimates the write capacity units needed to expire every consent in the forecast.
+     *
+     * @return total write capacity units.
+     */
+    default long estimatedWriteCapacityUnits() {
+        return (long) numConsents() * WRITE_CAPACITY_UNITS_PER_EXPIRY;
+    }
+
+    /**
+     * Estimates the write capacity a sweep consumes while it expires consents at expiryWritesPerSecond.
+     *
+     * @return write capacity units per second, the capacity to provision for the run.
+     */
+    default long estimatedWriteCapacityUnitsPerSecond() {
+        return (long) Math.ceil(expiryWritesPerSecond() * WRITE_CAPACITY_UNITS_PER_EXPIRY);
+    }
+
+    /**
+     * Estimates the write capacity needed to expire the consents of the busiest minute within that minute,
+     * the capacity to provision for consents to be expired as soon as they are due.
+     *
+     * @return write capacity units per second.
+     */
+    default long peakMinuteWriteCapacityUnitsPerSecond() {
+        return (long) Math.ceil(peakConsentsPerMinute() * WRITE_CAPACITY_UNITS_PER_EXPIRY / 60.0);
+    }
+
+    /**
+     * Estimates the time spent writing to expire every consent in the forecast at expiryWritesPerSecond,
+     * excluding the time spent querying.
+     *
+     * @return estimated run time, possibly spread over several invocations.
+     */
+    default Duration estimatedRunTime() {
+        return Duration.ofMillis((long) Math.ceil(numConsents() * 1000.0 / expiryWritesPerSecond()));
+    }
+}
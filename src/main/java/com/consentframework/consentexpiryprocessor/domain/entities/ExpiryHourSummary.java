@@ -0,0 +1,61 @@
+package com.consentframework.consentexpiryprocessor.domain.entities;
+
+import org.immutables.value.Value.Immutable;
+import org.immutables.value.Value.Style;
+
+/**
+ * Represents the outcome of processing one expiry hour partition in an expiry run.
+ */
+@Immutable
+@Style(
+    // Enable strict builder mode to prevent initialization errors
+    strictBuilder = true,
+    // Have Builder return original class instead of implementation
+    overshadowImplementation = true
+)
+public interface ExpiryHourSummary {
+    /**
+     * Summary of an expiry hour that was not processed because the invocation deadline had been reached.
+     */
+    ExpiryHourSummary SKIPPED_AT_DEADLINE = builder()
+        .numConsentsScanned(0)
+        .numConsentsExpired(0)
+        .numConsentsSkipped(0)
+        .numConsentsFailed(0)
+        .stoppedAtDeadline(true)
+        .build();
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * ExpiryHourSummary Builder class, intentionally empty.
+     */
+    class Builder extends ImmutableExpiryHourSummary.Builder {}
+
+    /**
+     * Number of consents past their expiry time read from the partition.
+     */
+    int numConsentsScanned();
+
+    /**
+     * Number of consents updated to expired.
+     */
+    int numConsentsExpired();
+
+    /**
+     * Number of consents not written because they were already expired or updated, by this or another run.
+     */
+    int numConsentsSkipped();
+
+    /**
+     * Number of consents left active because their write was still throttled after retrying, or failed with an error.
+     */
+    int numConsentsFailed();
+
+    /**
+     * Whether the partition was left unfinished because the invocation deadline was reached.
+     */
+    boolean stoppedAtDeadline();
+}
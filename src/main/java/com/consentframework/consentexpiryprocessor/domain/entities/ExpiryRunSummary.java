@@ -0,0 +1,75 @@
+package com.consentframework.consentexpiryprocessor.domain.entities;
+
+import org.immutables.value.Value.Immutable;
+import org.immutables.value.Value.Style;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Represents the outcome of an expiry run, per expiry hour and in total.
+ */
+@Immutable
+@Style(
+    // Enable strict builder mode to prevent initialization errors
+    strictBuilder = true,
+    // Have Builder return original class instead of implementation
+    overshadowImplementation = true
+)
+public interface ExpiryRunSummary {
+    static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * ExpiryRunSummary Builder class, intentionally empty.
+     */
+    class Builder extends ImmutableExpiryRunSummary.Builder {}
+
+    /**
+     * Summary of each expiry hour the run was assigned, in the order they were listed, excluding hours drained by earlier runs.
+     */
+    Map<String, ExpiryHourSummary> expiryHours();
+
+    /**
+     * Number of expiry writes rejected because the table's capacity was exceeded, including those later retried.
+     */
+    long numThrottles();
+
+    /**
+     * Number of throttled expiry writes attempted again.
+     */
+    long numRetries();
+
+    Duration elapsedTime();
+
+    /**
+     * Checks if any expiry hour was left unfinished because the invocation deadline was reached.
+     *
+     * @return True if the next run has to resume the sweep, false if every expiry hour was finished.
+     */
+    default boolean stoppedEarly() {
+        return expiryHours().values().stream().anyMatch(ExpiryHourSummary::stoppedAtDeadline);
+    }
+
+    default int numConsentsScanned() {
+        return sum(ExpiryHourSummary::numConsentsScanned);
+    }
+
+    default int numConsentsExpired() {
+        return sum(ExpiryHourSummary::numConsentsExpired);
+    }
+
+    default int numConsentsSkipped() {
+        return sum(ExpiryHourSummary::numConsentsSkipped);
+    }
+
+    default int numConsentsFailed() {
+        return sum(ExpiryHourSummary::numConsentsFailed);
+    }
+
+    private int sum(final ToIntFunction<ExpiryHourSummary> count) {
+        return expiryHours().values().stream().mapToInt(count).sum();
+    }
+}
@@ -0,0 +1,83 @@
+package com.consentframework.consentexpiryprocessor.domain.entities;
+
+import org.immutables.value.Value.Check;
+import org.immutables.value.Value.Default;
+import org.immutables.value.Value.Immutable;
+import org.immutables.value.Value.Style;
+
+import java.util.List;
+
+/**
+ * Represents the slice of expiry hour partitions that one processor invocation is responsible for.
+ *
+ * A shard is either an explicit list of expiry hours, or a hash range selecting the expiry hours
+ * whose hash modulo shardCount equals shardIndex. String hash codes are fixed by the Java spec,
+ * so every invocation assigns an expiry hour to the same shard.
+ */
+@Immutable
+@Style(
+    // Enable strict builder mode to prevent initialization errors
+    strictBuilder = true,
+    // Have Builder return original class instead of implementation
+    overshadowImplementation = true
+)
+public interface ExpiryShardAssignment {
+    /**
+     * Assignment covering every expiry hour, used when no shard is specified.
+     */
+    ExpiryShardAssignment ALL_EXPIRY_HOURS = builder().build();
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * ExpiryShardAssignment Builder class, intentionally empty.
+     */
+    class Builder extends ImmutableExpiryShardAssignment.Builder {}
+
+    /**
+     * Expiry hours to process, if empty the hash range is used instead.
+     */
+    List<String> expiryHours();
+
+    @Default
+    default int shardIndex() {
+        return 0;
+    }
+
+    @Default
+    default int shardCount() {
+        return 1;
+    }
+
+    /**
+     * Checks if an expiry hour belongs to this shard.
+     *
+     * @param expiryHour The expiry hour partition.
+     * @return True if this shard should process the expiry hour, false otherwise.
+     */
+    default boolean includes(final String expiryHour) {
+        if (!expiryHours().isEmpty()) {
+            return expiryHours().contains(expiryHour);
+        }
+        return Math.floorMod(expiryHour.hashCode(), shardCount()) == shardIndex();
+    }
+
+    /**
+     * Validates the shard, called by Immutables on build.
+     */
+    @Check
+    default void validate() {
+        if (shardCount() < 1) {
+            throw new IllegalArgumentException("shardCount must be positive, received: " + shardCount());
+        }
+        if (shardIndex() < 0 || shardIndex() >= shardCount()) {
+            throw new IllegalArgumentException(String.format("shardIndex must be between 0 and %d, received: %d",
+                shardCount() - 1, shardIndex()));
+        }
+        if (!expiryHours().isEmpty() && shardCount() != 1) {
+            throw new IllegalArgumentException("Specify either expiryHours or a shardIndex and shardCount, not both");
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.consentframework.consentexpiryprocessor.domain.entities;
+
+import com.consentframework.shared.api.infrastructure.mappers.DynamoDbConsentExpiryTimeConverter;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Point in time that consents must have expired before to be auto-expired, fixed once per run.
+ *
+ * Checking a consent against the cutoff reads the UTC timestamp prefix of its expiryTimeId,
+ * e.g. "2011-12-03T10:15:12Z|id", directly as epoch seconds and nanos, so no temporal objects
+ * are created per consent. Timestamps outside the "yyyy-MM-ddTHH:mm[:ss[.fraction]]Z" layout
+ * fall back to a full parse through DynamoDbConsentExpiryTimeConverter.
+ */
+public final class ExpiryTimeCutoff {
+    private static final int MIN_TIMESTAMP_LENGTH = "yyyy-MM-ddTHH:mmZ".length();
+    private static final int MAX_FRACTION_DIGITS = 9;
+    private static final long SECONDS_PER_DAY = 86_400L;
+    private static final int INVALID = -1;
+
+    private final Instant cutoffTime;
+    private final OffsetDateTime cutoffDateTime;
+    private final long cutoffEpochSecond;
+    private final int cutoffNano;
+    private final String cutoffExpiryHour;
+
+    /**
+     * Constructs a cutoff at the given time.
+     *
+     * @param cutoffTime Consents with an expiry time before this time are past their expiry time.
+     */
+    public ExpiryTimeCutoff(final Instant cutoffTime) {
+        this.cutoffTime = cutoffTime;
+        this.cutoffDateTime = cutoffTime.atOffset(ZoneOffset.UTC);
+        this.cutoffEpochSecond = cutoffTime.getEpochSecond();
+        this.cutoffNano = cutoffTime.getNano();
+        this.cutoffExpiryHour = DynamoDbConsentExpiryTimeConverter.toExpiryHour(cutoffDateTime);
+    }
+
+    /**
+     * Returns the cutoff as a UTC date-time, the form repository queries take it in.
+     *
+     * @return cutoff time.
+     */
+    public OffsetDateTime toOffsetDateTime() {
+        return cutoffDateTime;
+    }
+
+    /**
+     * Checks if a whole expiry hour is before the cutoff, so every consent in it is past its expiry time.
+     *
+     * Expiry hours have a fixed-width UTC layout, so they are compared as strings.
+     *
+     * @param expiryHour The expiry hour, with format "2021-12-31T23:00Z".
+     * @return True if the expiry hour ended at or before the cutoff, false if the cutoff falls within or before it.
+     */
+    public boolean isAfterEndOf(final String expiryHour) {
+        return expiryHour.compareTo(cutoffExpiryHour) < 0;
+    }
+
+    /**
+     * Checks if the expiry time encoded in an expiryTimeId is before the cutoff.
+     *
+     * @param expiryTimeId The consent's expiryTimeId, its expiry time followed by "|" and its id.
+     * @return True if the consent's expiry time is before the cutoff, false otherwise.
+     */
+    public boolean isAfter(final String expiryTimeId) {
+        final long expiryEpochSecond = parseEpochSecond(expiryTimeId);
+        if (expiryEpochSecond == Long.MIN_VALUE) {
+            return DynamoDbConsentExpiryTimeConverter.toOffsetDateTimeFromExpiryTimeId(expiryTimeId).toInstant().isBefore(cutoffTime);
+        }
+        if (expiryEpochSecond != cutoffEpochSecond) {
+            return expiryEpochSecond < cutoffEpochSecond;
+        }
+        return parseNano(expiryTimeId) < cutoffNano;
+    }
+
+    /**
+     * Reads the epoch second of a fixed-layout UTC timestamp prefix.
+     *
+     * @return Epoch second, or Long.MIN_VALUE if the prefix is not in the expected layout.
+     */
+    private static long parseEpochSecond(final String expiryTimeId) {
+        if (expiryTimeId.length() < MIN_TIMESTAMP_LENGTH
+                || expiryTimeId.charAt(4) != '-' || expiryTimeId.charAt(7) != '-'
+                || expiryTimeId.charAt(10) != 'T' || expiryTimeId.charAt(13) != ':') {
+            return Long.MIN_VALUE;
+        }
+        final int year = parseDigits(expiryTimeId, 0, 4);
+        final int month = parseDigits(expiryTimeId, 5, 2);
+        final int day = parseDigits(expiryTimeId, 8, 2);
+        final int hour = parseDigits(expiryTimeId, 11, 2);
+        final int minute = parseDigits(expiryTimeId, 14, 2);
+
+        int second = 0;
+        int index = 16;
+        if (index < expiryTimeId.length() && expiryTimeId.charAt(index) == ':') {
+            second = parseDigits(expiryTimeId, index + 1, 2);
+            index = skipFraction(expiryTimeId, index + 3);
+        }
+
+        if (year == INVALID || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+                || hour == INVALID || hour > 23
+                || minute == INVALID || minute > 59 || second == INVALID || second > 59 || index == INVALID
+                || !isUtcTimestampEnd(expiryTimeId, index)) {
+            return Long.MIN_VALUE;
+        }
+        return toEpochDay(year, month, day) * SECONDS_PER_DAY + hour * 3600L + minute * 60L + second;
+    }
+
+    /**
+     * Reads the nano-of-second of a timestamp prefix already validated by parseEpochSecond.
+     */
+    private static int parseNano(final String expiryTimeId) {
+        if (expiryTimeId.charAt(16) != ':' || expiryTimeId.charAt(19) != '.') {
+            return 0;
+        }
+        int nano = 0;
+        int numDigits = 0;
+        for (int index = 20; isDigit(expiryTimeId, index); index++, numDigits++) {
+            nano = nano * 10 + expiryTimeId.charAt(index) - '0';
+        }
+        for (; numDigits < MAX_FRACTION_DIGITS; numDigits++) {
+            nano *= 10;
+        }
+        return nano;
+    }
+
+    private static int skipFraction(final String expiryTimeId, final int index) {
+        if (index >= expiryTimeId.length() || expiryTimeId.charAt(index) != '.') {
+            return index;
+        }
+        int fractionEnd = index + 1;
+        while (isDigit(expiryTimeId, fractionEnd)) {
+            fractionEnd++;
+        }
+        final int numDigits = fractionEnd - index - 1;
+        return numDigits >= 1 && numDigits <= MAX_FRACTION_DIGITS ? fractionEnd : INVALID;
+    }
+
+    private static boolean isUtcTimestampEnd(final String expiryTimeId, final int index) {
+        return index < expiryTimeId.length()
+            && expiryTimeId.charAt(index) == 'Z'
+            && (index + 1 == expiryTimeId.length() || expiryTimeId.charAt(index + 1) == '|');
+    }
+
+    private static int parseDigits(final String value, final int startIndex, final int numDigits) {
+        int result = 0;
+        for (int index = startIndex; index < startIndex + numDigits; index++) {
+            if (!isDigit(value, index)) {
+                return INVALID;
+            }
+            result = result * 10 + value.charAt(index) - '0';
+        }
+        return result;
+    }
+
+    private static boolean isDigit(final String value, final int index) {
+        return index < value.length() && value.charAt(index) >= '0' && value.charAt(index) <= '9';
+    }
+
+    private static int lengthOfMonth(final int year, final int month) {
+        return switch (month) {
+            case 2 -> year % 4 == 0 && (year % 100 != 0 || year % 400 == 0) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    /**
+     * Converts a proleptic Gregorian date to days since 1970-01-01, without creating a LocalDate.
+     *
+     * Ref: https://howardhinnant.github.io/date_algorithms.html#days_from_civil
+     */
+    private static long toEpochDay(final int year, final int month, final int day) {
+        final int adjustedYear = month <= 2 ? year - 1 : year;
+        final int era = Math.floorDiv(adjustedYear, 400);
+        final int yearOfEra = adjustedYear - era * 400;
+        final int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097L + dayOfEra - 719_468L;
+    }
+}
@@ -0,0 +1,102 @@
+package com.consentframework.consentexpiryprocessor.domain.metrics;
+
+/**
+ * Interface for recording where an expiry run spends its time, summarized once the run finishes.
+ *
+ * Implementations must be safe to call from multiple threads, as expiry hours and consent updates may be
+ * processed concurrently. Latencies are measured with System.nanoTime().
+ */
+public interface ExpiryRunRecorder {
+    /**
+     * Recorder that discards everything it is given.
+     */
+    ExpiryRunRecorder NONE = new ExpiryRunRecorder() {
+        @Override
+        public void runStarted() {}
+
+        @Override
+        public void recordPageQuery(final long latencyNanos) {}
+
+        @Override
+        public void recordConsentUpdate(final long latencyNanos) {}
+
+        @Override
+        public void recordThrottle() {}
+
+        @Override
+        public void recordRetry() {}
+
+        @Override
+        public void recordExpiryHour(final String expiryHour, final int numConsentsScanned, final int numConsentsExpired) {}
+
+        @Override
+        public void runFinished() {}
+
+        @Override
+        public long numThrottles() {
+            return 0;
+        }
+
+        @Override
+        public long numRetries() {
+            return 0;
+        }
+    };
+
+    /**
+     * Discards anything recorded by a previous run and starts timing a new run.
+     */
+    void runStarted();
+
+    /**
+     * Records the time taken to retrieve a page of consents.
+     *
+     * @param latencyNanos The query latency, in nanoseconds.
+     */
+    void recordPageQuery(final long latencyNanos);
+
+    /**
+     * Records the time taken to expire a consent, including any retries.
+     *
+     * @param latencyNanos The update latency, in nanoseconds.
+     */
+    void recordConsentUpdate(final long latencyNanos);
+
+    /**
+     * Records a write rejected because the table's capacity was exceeded.
+     */
+    void recordThrottle();
+
+    /**
+     * Records a throttled write being attempted again.
+     */
+    void recordRetry();
+
+    /**
+     * Records the outcome of processing an expiry hour partition.
+     *
+     * @param expiryHour The expiry hour, with format "2021-12-31T23:00Z".
+     * @param numConsentsScanned The number of consents past their expiry time read from the partition.
+     * @param numConsentsExpired The number of consents successfully expired.
+     */
+    void recordExpiryHour(final String expiryHour, final int numConsentsScanned, final int numConsentsExpired);
+
+    /**
+     * Stops timing the run and reports what was recorded since runStarted().
+     */
+    void runFinished();
+
+    /**
+     * Returns the number of throttled writes recorded since runStarted().
+     *
+     * @return number of throttles.
+     */
+    long numThrottles();
+
+    /**
+     * Returns the number of retried writes recorded since runStarted().
+     *
+     * @return number of retries.
+     */
+    long numRetries();
+}
@@ -0,0 +1,30 @@
+package com.consentframework.consentexpiryprocessor.domain.repositories;
+
+import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Iterator over the pages of consents in an expiry hour that expired before a cutoff, in ascending order of expiry time.
+ *
+ * The cursor tracks its position in the repository's native form, so moving between pages does not serialize
+ * a page token; one is only built when nextPageToken() is called, e.g. to checkpoint progress. Iteration ends
+ * with the first page holding a consent at or after the cutoff, which is truncated before that consent.
+ */
+public interface ConsentPageCursor extends Iterator<List<ActiveConsentWithExpiryTime>> {
+    /**
+     * Starts retrieving the next page in the background, so that the following call to next() does not wait for it.
+     *
+     * Does nothing if there are no more pages or the next page is already being retrieved.
+     */
+    void prefetch();
+
+    /**
+     * Returns a page token for resuming after the last page returned by next().
+     *
+     * @return The page token, empty if there are no more pages.
+     */
+    Optional<String> nextPageToken();
+}
@@ -1,9 +1,16 @@
 package com.consentframework.consentexpiryprocessor.domain.repositories;
 
+import com.consentframework.consentexpiryprocessor.domain.constants.ConsentExpiryStatus;
 import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
+import com.consentframework.consentexpiryprocessor.domain.entities.ConsentExpiryResult;
+import com.consentframework.consentexpiryprocessor.domain.entities.ExpiryTimeCutoff;
 import com.consentframework.shared.api.domain.pagination.ListPage;
 
+import java.time.OffsetDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 /**
  * Interface for the consent repository, defining methods for querying and updating consents.
@@ -18,11 +25,114 @@ public interface ConsentRepository {
      */
     ListPage<ActiveConsentWithExpiryTime> getActiveConsentsWithExpiryHour(final String expiryHour, final Optional<String> pageToken);
 
+    /**
+     * Asynchronously retrieves a paginated list of active consents with non-null expiry times.
+     *
+     * The default implementation runs the blocking query on a virtual thread, implementations
+     * backed by a non-blocking client should override it.
+     *
+     * @param expiryHour The expiry hour to query for, with format "2021-12-31T23:00Z".
+     * @param pageToken The page token for pagination, null if retrieving the first page.
+     * @return future completed with the paginated list of consents, or null if no results found.
+     */
+    default CompletableFuture<ListPage<ActiveConsentWithExpiryTime>> getActiveConsentsWithExpiryHourAsync(final String expiryHour,
+            final Optional<String> pageToken) {
+        return CompletableFuture.supplyAsync(() -> getActiveConsentsWithExpiryHour(expiryHour, pageToken),
+            runnable -> Thread.ofVirtual().start(runnable));
+    }
+
+    /**
+     * Retrieves a paginated list of active consents in an expiry hour whose expiry time is before a cutoff.
+     *
+     * Implementations backed by a store that can filter on the expiryTimeId sort key should override it,
+     * so that consents which have not yet expired are never read. The default implementation returns
+     * every active consent in the expiry hour, so callers must still check each consent's expiry time.
+     *
+     * @param expiryHour The expiry hour to query for, with format "2021-12-31T23:00Z".
+     * @param pageToken The page token for pagination, empty if retrieving the first page.
+     * @param expiredBefore Only consents with an expiry time before this time need to be returned.
+     * @return paginated list of consents, or null if no results found.
+     */
+    default ListPage<ActiveConsentWithExpiryTime> getActiveConsentsWithExpiryHour(final String expiryHour,
+            final Optional<String> pageToken, final OffsetDateTime expiredBefore) {
+        return getActiveConsentsWithExpiryHour(expiryHour, pageToken);
+    }
+
+    /**
+     * Asynchronously retrieves a paginated list of active consents in an expiry hour whose expiry time is before a cutoff.
+     *
+     * The default implementation runs the blocking query on a virtual thread, implementations
+     * backed by a non-blocking client should override it.
+     *
+     * @param expiryHour The expiry hour to query for, with format "2021-12-31T23:00Z".
+     * @param pageToken The page token for pagination, empty if retrieving the first page.
+     * @param expiredBefore Only consents with an expiry time before this time need to be returned.
+     * @return future completed with the paginated list of consents, or null if no results found.
+     */
+    default CompletableFuture<ListPage<ActiveConsentWithExpiryTime>> getActiveConsentsWithExpiryHourAsync(final String expiryHour,
+            final Optional<String> pageToken, final OffsetDateTime expiredBefore) {
+        return CompletableFuture.supplyAsync(() -> getActiveConsentsWithExpiryHour(expiryHour, pageToken, expiredBefore),
+            runnable -> Thread.ofVirtual().start(runnable));
+    }
+
+    /**
+     * Opens a cursor over the pages of consents in an expiry hour that expired before a cutoff.
+     *
+     * The default implementation pages through getActiveConsentsWithExpiryHour with string page tokens,
+     * prefetching through getActiveConsentsWithExpiryHourAsync. Implementations should override it to track
+     * their position without serializing a token per page.
+     *
+     * @param expiryHour The expiry hour to query for, with format "2021-12-31T23:00Z".
+     * @param pageToken The page token to start from, empty if starting from the first page.
+     * @param cutoff Consents with an expiry time before the cutoff are returned.
+     * @return cursor over the pages of expired consents.
+     */
+    default ConsentPageCursor openExpiredConsentPages(final String expiryHour, final Optional<String> pageToken,
+            final ExpiryTimeCutoff cutoff) {
+        return new PrefetchingConsentPageCursor<String>(pageToken, cutoff,
+            startPageToken -> toKeyedPage(getActiveConsentsWithExpiryHour(expiryHour, startPageToken, cutoff.toOffsetDateTime())),
+            startPageToken -> getActiveConsentsWithExpiryHourAsync(expiryHour, startPageToken, cutoff.toOffsetDateTime())
+                .thenApply(ConsentRepository::toKeyedPage),
+            Function.identity());
+    }
+
     /**
      * Updates the status of a consent to expired.
      *
+     * A consent left active is reported through the returned status. Errors that every update would fail with,
+     * such as a missing table, are thrown.
+     *
      * @param id The partition key of the consent record.
      * @param updatedVersion The updated version of the consent record.
+     * @return SUCCESS if the consent was expired, CONDITION_FAILED if it was already expired or updated, THROTTLED if the
+     *     update was still throttled once its retries were exhausted, or FAILED if it failed with an error specific to the consent.
+     */
+    ConsentExpiryStatus expireConsent(final String id, final String updatedVersion);
+
+    /**
+     * Updates the status of a batch of consents to expired.
+     *
+     * The default implementation expires the consents one at a time, implementations
+     * backed by a remote store should override it to batch or parallelize the updates.
+     * A consent that fails to expire is reported with the status expireConsent returned for it, so it does not stop
+     * the rest of the batch, while errors thrown by expireConsent apply to every consent and are rethrown.
+     *
+     * @param consents The consents to expire, each with its current consent version.
+     * @return The result of each update, in the same order as the input consents.
      */
-    void expireConsent(final String id, final String updatedVersion);
+    default List<ConsentExpiryResult> expireConsents(final List<ActiveConsentWithExpiryTime> consents) {
+        return consents.stream()
+            .map(consent -> ConsentExpiryResult.builder()
+                .id(consent.id())
+                .status(expireConsent(consent.id(), String.valueOf(consent.consentVersion() + 1)))
+                .build())
+            .toList();
+    }
+
+    private static PrefetchingConsentPageCursor.KeyedPage<String> toKeyedPage(final ListPage<ActiveConsentWithExpiryTime> page) {
+        if (page == null || page.resultsOnPage() == null) {
+            return PrefetchingConsentPageCursor.KeyedPage.empty();
+        }
+        return new PrefetchingConsentPageCursor.KeyedPage<>(page.resultsOnPage(), page.nextPageToken());
+    }
 }
@@ -0,0 +1,87 @@
+package com.consentframework.consentexpiryprocessor.domain.repositories;
+
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Interface for the checkpoint store, which records how far each expiry hour has been processed
+ * so that a run cut short by the invocation deadline can be resumed without re-reading pages,
+ * and which expiry hours have been drained, so that later runs can skip them.
+ *
+ * Checkpoints and drained markers only carry over between runs for as long as the store keeps them: the DynamoDB store
+ * keeps them across Lambda containers, while the file store only keeps them for runs served by the same container.
+ *
+ * Implementations must be safe to call from multiple threads, as expiry hours may be processed concurrently.
+ */
+public interface ExpiryCheckpointStore {
+    /**
+     * Checkpoint store that saves nothing, so every run starts each expiry hour from its first page.
+     */
+    ExpiryCheckpointStore NONE = new ExpiryCheckpointStore() {
+        @Override
+        public Optional<String> getPageToken(final String expiryHour) {
+            return Optional.empty();
+        }
+
+        @Override
+        public void savePageToken(final String expiryHour, final String pageToken) {}
+
+        @Override
+        public void deletePageToken(final String expiryHour) {}
+
+        @Override
+        public Set<String> getDrainedExpiryHours() {
+            return Set.of();
+        }
+
+        @Override
+        public void markExpiryHourDrained(final String expiryHour) {}
+
+        @Override
+        public void forgetExpiryHoursBefore(final String oldestExpiryHour) {}
+    };
+
+    /**
+     * Retrieves the token of the next page to process for an expiry hour.
+     *
+     * @param expiryHour The expiry hour, with format "2021-12-31T23:00Z".
+     * @return The page token, empty if the expiry hour should be processed from its first page.
+     */
+    Optional<String> getPageToken(final String expiryHour);
+
+    /**
+     * Records the token of the next page to process for an expiry hour, replacing any previous checkpoint.
+     *
+     * @param expiryHour The expiry hour, with format "2021-12-31T23:00Z".
+     * @param pageToken The next page token returned by the consent repository.
+     */
+    void savePageToken(final String expiryHour, final String pageToken);
+
+    /**
+     * Removes the checkpoint for an expiry hour, once every page in it has been processed.
+     *
+     * @param expiryHour The expiry hour, with format "2021-12-31T23:00Z".
+     */
+    void deletePageToken(final String expiryHour);
+
+    /**
+     * Lists the expiry hours recorded as drained, which have no active consents left to expire.
+     *
+     * @return Drained expiry hours, with format "2021-12-31T23:00Z".
+     */
+    Set<String> getDrainedExpiryHours();
+
+    /**
+     * Records that an expiry hour has been drained, once every consent in it has been expired.
+     *
+     * @param expiryHour The expiry hour, with format "2021-12-31T23:00Z".
+     */
+    void markExpiryHourDrained(final String expiryHour);
+
+    /**
+     * Removes the page tokens and drained markers of expiry hours that have left the lookback window.
+     *
+     * @param oldestExpiryHour The oldest expiry hour still in the lookback window, with format "2021-12-31T23:00Z".
+     */
+    void forgetExpiryHoursBefore(final String oldestExpiryHour);
+}
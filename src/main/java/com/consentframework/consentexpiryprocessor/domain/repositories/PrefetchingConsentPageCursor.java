@@ -0,0 +1,120 @@
+package com.consentframework.consentexpiryprocessor.domain.repositories;
+
+import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
+import com.consentframework.consentexpiryprocessor.domain.entities.ExpiryTimeCutoff;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Consent page cursor that retrieves pages on demand, or ahead of time when asked to prefetch.
+ *
+ * At most one page is prefetched, and none once the cutoff has been crossed or the expiry hour has no more pages.
+ *
+ * @param <K> The repository's native representation of the position to start a page query from.
+ */
+public final class PrefetchingConsentPageCursor<K> implements ConsentPageCursor {
+    private final ExpiryTimeCutoff cutoff;
+    private final Function<Optional<K>, KeyedPage<K>> pageQuery;
+    private final Function<Optional<K>, CompletableFuture<KeyedPage<K>>> asyncPageQuery;
+    private final Function<K, String> pageTokenMapper;
+
+    private Optional<K> nextPageKey;
+    private CompletableFuture<KeyedPage<K>> pendingPage;
+    private boolean exhausted;
+
+    /**
+     * Page of consents returned by a page query, with the position to query the following page from.
+     *
+     * @param consents The consents on the page, in ascending order of expiry time.
+     * @param lastEvaluatedKey The position after the page, empty if it is the last page.
+     * @param <K> The repository's native representation of a position.
+     */
+    public record KeyedPage<K>(List<ActiveConsentWithExpiryTime> consents, Optional<K> lastEvaluatedKey) {
+        /**
+         * Returns the page to report when a query finds no results.
+         *
+         * @param <K> The repository's native representation of a position.
+         * @return Empty last page.
+         */
+        public static <K> KeyedPage<K> empty() {
+            return new KeyedPage<>(List.of(), Optional.empty());
+        }
+    }
+
+    /**
+     * Constructs a new cursor, no page is requested until next() is called.
+     *
+     * @param startPageKey The position to start from, empty to start from the first page.
+     * @param cutoff Consents with an expiry time before the cutoff are returned.
+     * @param pageQuery Retrieves the page starting from a position, or the first page if the position is empty.
+     * @param asyncPageQuery Asynchronously retrieves the page starting from a position, used to prefetch pages.
+     * @param pageTokenMapper Serializes a position to a page token the repository accepts.
+     */
+    public PrefetchingConsentPageCursor(final Optional<K> startPageKey, final ExpiryTimeCutoff cutoff,
+            final Function<Optional<K>, KeyedPage<K>> pageQuery,
+            final Function<Optional<K>, CompletableFuture<KeyedPage<K>>> asyncPageQuery,
+            final Function<K, String> pageTokenMapper) {
+        this.nextPageKey = startPageKey;
+        this.cutoff = cutoff;
+        this.pageQuery = pageQuery;
+        this.asyncPageQuery = asyncPageQuery;
+        this.pageTokenMapper = pageTokenMapper;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !exhausted;
+    }
+
+    /**
+     * Returns the next page, truncated before the first consent that has not expired.
+     */
+    @Override
+    public List<ActiveConsentWithExpiryTime> next() {
+        if (exhausted) {
+            throw new NoSuchElementException("No more pages of expired consents");
+        }
+        final KeyedPage<K> page = pendingPage != null ? awaitPage(pendingPage) : pageQuery.apply(nextPageKey);
+        pendingPage = null;
+        final List<ActiveConsentWithExpiryTime> consents = page.consents();
+
+        int numExpiredConsents = 0;
+        while (numExpiredConsents < consents.size() && cutoff.isAfter(consents.get(numExpiredConsents).expiryTimeId())) {
+            numExpiredConsents++;
+        }
+        nextPageKey = numExpiredConsents < consents.size() ? Optional.empty() : page.lastEvaluatedKey();
+        exhausted = nextPageKey.isEmpty();
+        return numExpiredConsents < consents.size() ? consents.subList(0, numExpiredConsents) : consents;
+    }
+
+    @Override
+    public void prefetch() {
+        if (!exhausted && pendingPage == null) {
+            pendingPage = asyncPageQuery.apply(nextPageKey);
+        }
+    }
+
+    @Override
+    public Optional<String> nextPageToken() {
+        return nextPageKey.map(pageTokenMapper);
+    }
+
+    /**
+     * Waits for a page to be retrieved, rethrowing the original exception if retrieval failed.
+     */
+    private KeyedPage<K> awaitPage(final CompletableFuture<KeyedPage<K>> page) {
+        try {
+            return page.join();
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+}
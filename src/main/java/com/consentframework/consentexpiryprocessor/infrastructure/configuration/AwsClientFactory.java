@@ -0,0 +1,158 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.configuration;
+
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
+import software.amazon.awssdk.awscore.client.builder.AwsClientBuilder;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.core.retry.RetryUtils;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+import software.amazon.awssdk.retries.DefaultRetryStrategy;
+import software.amazon.awssdk.retries.api.RetryStrategy;
+import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Set;
+
+/**
+ * Lazily builds the AWS clients used by the processor, sharing them across repositories and metrics sinks.
+ *
+ * Clients are configured to keep cold starts short: synchronous clients share a single URL connection
+ * HTTP client, which loads far fewer classes than the default Apache client, and the region and
+ * credentials are pinned from the Lambda runtime's environment variables when present, skipping the
+ * provider chain lookups. When they are not present, e.g. while a SnapStart snapshot is being created,
+ * the default provider chains are used.
+ *
+ * DynamoDB clients send requests to the configured DynamoDB endpoint when one is set, e.g. DynamoDB Local
+ * for load testing, and to the regional endpoint otherwise. They retry transient errors such as 5xx responses,
+ * connection resets and timeouts with the SDK's standard backoff, but not throttling errors: the SDK would
+ * otherwise retry throttled writes before the repositories' ThrottlingRetryPolicy and AdaptiveRateLimiter see
+ * them, hiding the throttles they back off on.
+ */
+public class AwsClientFactory {
+    private static final Set<Integer> RETRYABLE_STATUS_CODES = Set.of(500, 502, 503, 504);
+
+    private final ConsentExpiryProcessorConfiguration configuration;
+
+    private SdkHttpClient httpClient;
+    private AwsCredentialsProvider credentialsProvider;
+    private DynamoDbClient dynamoDbClient;
+    private DynamoDbAsyncClient dynamoDbAsyncClient;
+    private CloudWatchClient cloudWatchClient;
+
+    /**
+     * Constructs a new AwsClientFactory.
+     *
+     * @param configuration The processor configuration, read for the region and credentials to pin.
+     */
+    public AwsClientFactory(final ConsentExpiryProcessorConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * Returns the shared synchronous DynamoDB client, building it on first use.
+     *
+     * @return DynamoDB client.
+     */
+    public synchronized DynamoDbClient dynamoDbClient() {
+        if (dynamoDbClient == null) {
+            dynamoDbClient = configureDynamoDb(DynamoDbClient.builder())
+                .httpClient(httpClient())
+                .build();
+        }
+        return dynamoDbClient;
+    }
+
+    /**
+     * Returns the shared asynchronous DynamoDB client, building it on first use.
+     *
+     * The URL connection HTTP client only supports synchronous requests, so this client keeps the SDK's
+     * default asynchronous HTTP client.
+     *
+     * @return DynamoDB async client.
+     */
+    public synchronized DynamoDbAsyncClient dynamoDbAsyncClient() {
+        if (dynamoDbAsyncClient == null) {
+            dynamoDbAsyncClient = configureDynamoDb(DynamoDbAsyncClient.builder()).build();
+        }
+        return dynamoDbAsyncClient;
+    }
+
+    /**
+     * Returns the shared CloudWatch client, building it on first use.
+     *
+     * @return CloudWatch client.
+     */
+    public synchronized CloudWatchClient cloudWatchClient() {
+        if (cloudWatchClient == null) {
+            cloudWatchClient = configure(CloudWatchClient.builder())
+                .httpClient(httpClient())
+                .build();
+        }
+        return cloudWatchClient;
+    }
+
+    private <B extends AwsClientBuilder<B, ?>> B configureDynamoDb(final B clientBuilder) {
+        configuration.dynamoDbEndpoint().ifPresent(clientBuilder::endpointOverride);
+        clientBuilder.overrideConfiguration(overrideConfiguration -> overrideConfiguration.retryStrategy(dynamoDbRetryStrategy()));
+        return configure(clientBuilder);
+    }
+
+    /**
+     * Builds the standard retry strategy without the SDK's client defaults, retrying every transient error except throttling.
+     *
+     * @return Retry strategy for DynamoDB clients.
+     */
+    static RetryStrategy dynamoDbRetryStrategy() {
+        return DefaultRetryStrategy.standardStrategyBuilder()
+            .retryOnException(AwsClientFactory::isTransientNonThrottlingError)
+            .useClientDefaults(false)
+            .build();
+    }
+
+    private static boolean isTransientNonThrottlingError(final Throwable exception) {
+        if (!(exception instanceof SdkException sdkException) || RetryUtils.isThrottlingException(sdkException)) {
+            return false;
+        }
+        return sdkException.retryable()
+            || RetryUtils.isClockSkewException(sdkException)
+            || sdkException instanceof SdkServiceException serviceException
+                && RETRYABLE_STATUS_CODES.contains(serviceException.statusCode())
+            || hasIoCause(sdkException);
+    }
+
+    private static boolean hasIoCause(final Throwable exception) {
+        for (Throwable cause = exception.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException || cause instanceof UncheckedIOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private <B extends AwsClientBuilder<B, ?>> B configure(final B clientBuilder) {
+        configuration.awsRegion().ifPresent(clientBuilder::region);
+        return clientBuilder.credentialsProvider(credentialsProvider());
+    }
+
+    private SdkHttpClient httpClient() {
+        if (httpClient == null) {
+            httpClient = UrlConnectionHttpClient.builder().build();
+        }
+        return httpClient;
+    }
+
+    private AwsCredentialsProvider credentialsProvider() {
+        if (credentialsProvider == null) {
+            credentialsProvider = configuration.hasEnvironmentCredentials()
+                ? EnvironmentVariableCredentialsProvider.create()
+                : DefaultCredentialsProvider.create();
+        }
+        return credentialsProvider;
+    }
+}
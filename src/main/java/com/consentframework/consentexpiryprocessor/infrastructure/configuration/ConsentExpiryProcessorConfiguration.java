@@ -0,0 +1,331 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.configuration;
+
+import com.consentframework.consentexpiryprocessor.infrastructure.repositories.DynamoDbConsentRepositorySettings;
+import com.consentframework.consentexpiryprocessor.infrastructure.repositories.DynamoDbExpiryCheckpointStore;
+import com.consentframework.consentexpiryprocessor.infrastructure.throttling.ThrottlingRetryPolicy;
+import com.consentframework.consentexpiryprocessor.usecases.activities.AutoExpireConsentsActivitySettings;
+import software.amazon.awssdk.regions.Region;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Runtime configuration for the consent expiry processor, read from Lambda environment variables.
+ *
+ * Settings shared with the activity and repository settings default to the same values as those settings,
+ * so a processor built from an empty environment behaves like a directly built activity and repository.
+ */
+public final class ConsentExpiryProcessorConfiguration {
+    public static final String MAX_CONCURRENT_EXPIRY_HOURS_VARIABLE = "MAX_CONCURRENT_EXPIRY_HOURS";
+    public static final String MAX_CONCURRENT_EXPIRY_WRITES_VARIABLE = "MAX_CONCURRENT_EXPIRY_WRITES";
+    public static final String USE_ASYNC_DYNAMODB_CLIENT_VARIABLE = "USE_ASYNC_DYNAMODB_CLIENT";
+    public static final String METRICS_FLUSH_INTERVAL_SECONDS_VARIABLE = "METRICS_FLUSH_INTERVAL_SECONDS";
+    public static final String METRICS_BACKEND_VARIABLE = "METRICS_BACKEND";
+    public static final String EXPIRY_SHARD_COUNT_VARIABLE = "EXPIRY_SHARD_COUNT";
+    public static final String CHECKPOINT_FILE_VARIABLE = "CHECKPOINT_FILE";
+    public static final String CHECKPOINT_TABLE_NAME_VARIABLE = "CHECKPOINT_TABLE_NAME";
+    public static final String DEADLINE_SAFETY_MARGIN_SECONDS_VARIABLE = "DEADLINE_SAFETY_MARGIN_SECONDS";
+    public static final String MAX_EXPIRY_WRITES_PER_SECOND_VARIABLE = "MAX_EXPIRY_WRITES_PER_SECOND";
+    public static final String MAX_EXPIRY_WRITE_ATTEMPTS_VARIABLE = "MAX_EXPIRY_WRITE_ATTEMPTS";
+    public static final String QUERY_PAGE_SIZE_VARIABLE = "QUERY_PAGE_SIZE";
+    public static final String EXPIRY_HOUR_WRITE_SHARD_COUNT_VARIABLE = "EXPIRY_HOUR_WRITE_SHARD_COUNT";
+    public static final String EXPIRED_CONSENT_CACHE_SIZE_VARIABLE = "EXPIRED_CONSENT_CACHE_SIZE";
+    public static final String LOOKBACK_HOURS_VARIABLE = "LOOKBACK_HOURS";
+    public static final String FORECAST_LOOKAHEAD_HOURS_VARIABLE = "FORECAST_LOOKAHEAD_HOURS";
+    public static final String FORECAST_EXPIRY_WRITE_LATENCY_MILLIS_VARIABLE = "FORECAST_EXPIRY_WRITE_LATENCY_MILLIS";
+    public static final String DYNAMODB_ENDPOINT_VARIABLE = "DYNAMODB_ENDPOINT";
+    public static final String STREAM_EXPIRY_WINDOW_SECONDS_VARIABLE = "STREAM_EXPIRY_WINDOW_SECONDS";
+    public static final String AWS_REGION_VARIABLE = "AWS_REGION";
+    public static final String AWS_ACCESS_KEY_ID_VARIABLE = "AWS_ACCESS_KEY_ID";
+    public static final String AWS_SECRET_ACCESS_KEY_VARIABLE = "AWS_SECRET_ACCESS_KEY";
+
+    static final int DEFAULT_MAX_CONCURRENT_EXPIRY_HOURS = AutoExpireConsentsActivitySettings.DEFAULT_MAX_CONCURRENT_EXPIRY_HOURS;
+    static final int DEFAULT_MAX_CONCURRENT_EXPIRY_WRITES = DynamoDbConsentRepositorySettings.DEFAULT_MAX_CONCURRENT_WRITES;
+    static final int DEFAULT_METRICS_FLUSH_INTERVAL_SECONDS = 60;
+    static final MetricsBackend DEFAULT_METRICS_BACKEND = MetricsBackend.PUT_METRIC_DATA;
+    static final int DEFAULT_EXPIRY_SHARD_COUNT = 1;
+    static final int DEFAULT_DEADLINE_SAFETY_MARGIN_SECONDS = 30;
+    static final int DEFAULT_MAX_EXPIRY_WRITES_PER_SECOND = DynamoDbConsentRepositorySettings.DEFAULT_MAX_WRITES_PER_SECOND;
+    static final int DEFAULT_MAX_EXPIRY_WRITE_ATTEMPTS = ThrottlingRetryPolicy.DEFAULT_MAX_ATTEMPTS;
+    static final int DEFAULT_QUERY_PAGE_SIZE = DynamoDbConsentRepositorySettings.DEFAULT_QUERY_PAGE_SIZE;
+    static final int DEFAULT_EXPIRY_HOUR_WRITE_SHARD_COUNT = DynamoDbConsentRepositorySettings.DEFAULT_EXPIRY_HOUR_SHARD_COUNT;
+    static final int DEFAULT_EXPIRED_CONSENT_CACHE_SIZE = AutoExpireConsentsActivitySettings.DEFAULT_EXPIRED_CONSENT_CACHE_SIZE;
+    static final int DEFAULT_LOOKBACK_HOURS = AutoExpireConsentsActivitySettings.DEFAULT_LOOKBACK_HOURS;
+    static final int DEFAULT_STREAM_EXPIRY_WINDOW_SECONDS = 60;
+    static final int DEFAULT_FORECAST_LOOKAHEAD_HOURS = 24;
+    static final int DEFAULT_FORECAST_EXPIRY_WRITE_LATENCY_MILLIS = 10;
+
+    private final Map<String, String> environment;
+
+    private ConsentExpiryProcessorConfiguration(final Map<String, String> environment) {
+        this.environment = Map.copyOf(environment);
+    }
+
+    /**
+     * Builds the configuration from a map of environment variables.
+     *
+     * @param environment The environment variables, typically System.getenv().
+     * @return The processor configuration.
+     */
+    public static ConsentExpiryProcessorConfiguration fromEnvironment(final Map<String, String> environment) {
+        return new ConsentExpiryProcessorConfiguration(environment);
+    }
+
+    /**
+     * Returns the maximum number of expiry hour partitions to process at the same time.
+     *
+     * @return max concurrent expiry hours, 1 if the hours should be processed sequentially.
+     */
+    public int maxConcurrentExpiryHours() {
+        return getPositiveInt(MAX_CONCURRENT_EXPIRY_HOURS_VARIABLE, DEFAULT_MAX_CONCURRENT_EXPIRY_HOURS);
+    }
+
+    /**
+     * Returns the maximum number of consent expiry writes to have in flight for each batch of expiries.
+     *
+     * @return max concurrent expiry writes.
+     */
+    public int maxConcurrentExpiryWrites() {
+        return getPositiveInt(MAX_CONCURRENT_EXPIRY_WRITES_VARIABLE, DEFAULT_MAX_CONCURRENT_EXPIRY_WRITES);
+    }
+
+    /**
+     * Returns whether to query and update consents through the non-blocking DynamoDB client.
+     *
+     * @return true if the asynchronous DynamoDB client should be used, false by default.
+     */
+    public boolean useAsyncDynamoDbClient() {
+        return Boolean.parseBoolean(environment.getOrDefault(USE_ASYNC_DYNAMODB_CLIENT_VARIABLE, "false").trim());
+    }
+
+    /**
+     * Returns the maximum time to buffer metrics in memory before publishing them.
+     *
+     * @return metrics flush interval, zero if every metric should be published immediately.
+     */
+    public Duration metricsFlushInterval() {
+        return Duration.ofSeconds(getInt(METRICS_FLUSH_INTERVAL_SECONDS_VARIABLE, DEFAULT_METRICS_FLUSH_INTERVAL_SECONDS, 0));
+    }
+
+    /**
+     * Returns how metrics are delivered to CloudWatch.
+     *
+     * @return metrics backend, PUT_METRIC_DATA by default.
+     */
+    public MetricsBackend metricsBackend() {
+        final String value = environment.get(METRICS_BACKEND_VARIABLE);
+        if (value == null || value.isBlank()) {
+            return DEFAULT_METRICS_BACKEND;
+        }
+
+        try {
+            return MetricsBackend.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (final IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format("%s must be one of %s, received: %s",
+                METRICS_BACKEND_VARIABLE, Arrays.toString(MetricsBackend.values()), value), e);
+        }
+    }
+
+    /**
+     * Returns the number of shards the coordinator splits the expiry hours into, unless the invocation specifies one.
+     *
+     * @return expiry shard count.
+     */
+    public int expiryShardCount() {
+        return getPositiveInt(EXPIRY_SHARD_COUNT_VARIABLE, DEFAULT_EXPIRY_SHARD_COUNT);
+    }
+
+    /**
+     * Returns the file to checkpoint progress through each expiry hour to, instead of the checkpoint table.
+     *
+     * The file lives on the Lambda container's local disk, so checkpoints are lost whenever a new container starts.
+     * Intended for local runs and tests, deployed processors should use the checkpoint table.
+     *
+     * @return checkpoint file path, empty by default.
+     */
+    public Optional<Path> checkpointFile() {
+        final String value = environment.get(CHECKPOINT_FILE_VARIABLE);
+        if (value == null || value.isBlank()) {
+            return Optional.empty();
+        }
+        return Optional.of(Path.of(value.trim()));
+    }
+
+    /**
+     * Returns the DynamoDB table to checkpoint progress through each expiry hour to, unless a checkpoint file is set.
+     *
+     * @return checkpoint table name.
+     */
+    public String checkpointTableName() {
+        final String value = environment.get(CHECKPOINT_TABLE_NAME_VARIABLE);
+        return value == null || value.isBlank() ? DynamoDbExpiryCheckpointStore.DEFAULT_TABLE_NAME : value.trim();
+    }
+
+    /**
+     * Returns how long before the invocation deadline to stop fetching pages, leaving time to finish the page in hand.
+     *
+     * @return deadline safety margin.
+     */
+    public Duration deadlineSafetyMargin() {
+        return Duration.ofSeconds(getInt(DEADLINE_SAFETY_MARGIN_SECONDS_VARIABLE, DEFAULT_DEADLINE_SAFETY_MARGIN_SECONDS, 0));
+    }
+
+    /**
+     * Returns the write budget for expiring consents, the rate is lowered below it while writes are throttled.
+     *
+     * @return max expiry writes per second.
+     */
+    public int maxExpiryWritesPerSecond() {
+        return getPositiveInt(MAX_EXPIRY_WRITES_PER_SECOND_VARIABLE, DEFAULT_MAX_EXPIRY_WRITES_PER_SECOND);
+    }
+
+    /**
+     * Returns the maximum number of attempts to expire a consent while its write is throttled.
+     *
+     * @return max expiry write attempts, including the first one.
+     */
+    public int maxExpiryWriteAttempts() {
+        return getPositiveInt(MAX_EXPIRY_WRITE_ATTEMPTS_VARIABLE, DEFAULT_MAX_EXPIRY_WRITE_ATTEMPTS);
+    }
+
+    /**
+     * Returns the maximum number of consents to read per page when querying an expiry hour.
+     *
+     * @return query page size.
+     */
+    public int queryPageSize() {
+        return getPositiveInt(QUERY_PAGE_SIZE_VARIABLE, DEFAULT_QUERY_PAGE_SIZE);
+    }
+
+    /**
+     * Returns the number of "expiryHour#N" GSI partitions that consent writers spread each expiry hour across.
+     *
+     * @return expiry hour write shard count, 1 if expiry hours are not sharded.
+     */
+    public int expiryHourWriteShardCount() {
+        return getPositiveInt(EXPIRY_HOUR_WRITE_SHARD_COUNT_VARIABLE, DEFAULT_EXPIRY_HOUR_WRITE_SHARD_COUNT);
+    }
+
+    /**
+     * Returns the maximum number of recently expired consent versions to remember across invocations,
+     * so that they are skipped instead of written again.
+     *
+     * @return expired consent cache size, 0 if the cache is disabled.
+     */
+    public int expiredConsentCacheSize() {
+        return getInt(EXPIRED_CONSENT_CACHE_SIZE_VARIABLE, DEFAULT_EXPIRED_CONSENT_CACHE_SIZE, 0);
+    }
+
+    /**
+     * Returns the number of expiry hours, ending with the current hour, that each sweep looks back over.
+     *
+     * @return lookback hours.
+     */
+    public int lookbackHours() {
+        return getPositiveInt(LOOKBACK_HOURS_VARIABLE, DEFAULT_LOOKBACK_HOURS);
+    }
+
+    /**
+     * Returns the number of expiry hours after the current hour that a dry run forecasts, unless the invocation specifies one.
+     *
+     * @return forecast lookahead hours, 0 to forecast only the lookback window.
+     */
+    public int forecastLookaheadHours() {
+        return getInt(FORECAST_LOOKAHEAD_HOURS_VARIABLE, DEFAULT_FORECAST_LOOKAHEAD_HOURS, 0);
+    }
+
+    /**
+     * Returns the time a dry run assumes each expiry write takes, when estimating the rate a sweep can expire consents at.
+     *
+     * @return forecast expiry write latency.
+     */
+    public Duration forecastExpiryWriteLatency() {
+        return Duration.ofMillis(
+            getPositiveInt(FORECAST_EXPIRY_WRITE_LATENCY_MILLIS_VARIABLE, DEFAULT_FORECAST_EXPIRY_WRITE_LATENCY_MILLIS));
+    }
+
+    /**
+     * Returns how far ahead of the stream processor's invocation a consent may expire to be held in its timer wheel,
+     * consents expiring later are left to the periodic sweep.
+     *
+     * @return stream expiry window.
+     */
+    public Duration streamExpiryWindow() {
+        return Duration.ofSeconds(getInt(STREAM_EXPIRY_WINDOW_SECONDS_VARIABLE, DEFAULT_STREAM_EXPIRY_WINDOW_SECONDS, 0));
+    }
+
+    /**
+     * Returns the endpoint to send DynamoDB requests to instead of the regional endpoint,
+     * such as DynamoDB Local or an embedded fake used for load testing.
+     *
+     * @return DynamoDB endpoint, empty by default.
+     */
+    public Optional<URI> dynamoDbEndpoint() {
+        final String value = environment.get(DYNAMODB_ENDPOINT_VARIABLE);
+        if (value == null || value.isBlank()) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(new URI(value.trim()));
+        } catch (final URISyntaxException e) {
+            throw new IllegalArgumentException(String.format("%s must be a URI, received: %s", DYNAMODB_ENDPOINT_VARIABLE, value), e);
+        }
+    }
+
+    /**
+     * Returns the region the Lambda runtime is running in, so that AWS clients skip the region provider chain.
+     *
+     * @return AWS region, empty if not set.
+     */
+    public Optional<Region> awsRegion() {
+        final String value = environment.get(AWS_REGION_VARIABLE);
+        if (value == null || value.isBlank()) {
+            return Optional.empty();
+        }
+        return Optional.of(Region.of(value.trim()));
+    }
+
+    /**
+     * Returns whether the Lambda runtime provided credentials as environment variables,
+     * so that AWS clients can read them directly instead of walking the credentials provider chain.
+     *
+     * @return true if both an access key id and secret access key are set.
+     */
+    public boolean hasEnvironmentCredentials() {
+        return isSet(AWS_ACCESS_KEY_ID_VARIABLE) && isSet(AWS_SECRET_ACCESS_KEY_VARIABLE);
+    }
+
+    private boolean isSet(final String variableName) {
+        final String value = environment.get(variableName);
+        return value != null && !value.isBlank();
+    }
+
+    private int getPositiveInt(final String variableName, final int defaultValue) {
+        return getInt(variableName, defaultValue, 1);
+    }
+
+    private int getInt(final String variableName, final int defaultValue, final int minValue) {
+        final String value = environment.get(variableName);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+
+        final int parsedValue;
+        try {
+            parsedValue = Integer.parseInt(value.trim());
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("%s must be an integer, received: %s", variableName, value), e);
+        }
+        if (parsedValue < minValue) {
+            throw new IllegalArgumentException(String.format("%s must be at least %d, received: %s", variableName, minValue, value));
+        }
+        return parsedValue;
+    }
+}
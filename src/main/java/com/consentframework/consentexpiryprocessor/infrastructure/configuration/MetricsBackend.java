@@ -0,0 +1,16 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.configuration;
+
+/**
+ * How the processor delivers metrics to CloudWatch.
+ */
+public enum MetricsBackend {
+    /**
+     * Synchronous CloudWatch PutMetricData API calls.
+     */
+    PUT_METRIC_DATA,
+
+    /**
+     * Embedded Metric Format log lines written to standard output, extracted by CloudWatch Logs.
+     */
+    EMBEDDED_METRIC_FORMAT
+}
@@ -0,0 +1,269 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.mappers;
+
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes DynamoDB page tokens as URL-safe Base64 of a compact, versioned binary form.
+ *
+ * The binary form is a version byte followed by the attribute map. A map is its number of entries followed by each
+ * attribute's name, type tag and value. Names, strings, numbers and binaries are each prefixed with their length in
+ * bytes, and maps are nested. Counts and lengths are unsigned varints.
+ *
+ * Names of the ActiveConsentsByExpiryHour GSI key attributes are written as a single byte, and an expiryTimeId that
+ * ends with "|" and the consent id of the same key is written without that suffix, so that a last evaluated key
+ * costs little beyond its values once and the token stays smaller than its JSON form despite the Base64 overhead.
+ *
+ * Encoded tokens never start with "{", so they can be told apart from the JSON tokens issued before this format.
+ */
+public final class BinaryPageTokenCodec {
+    static final byte VERSION = 1;
+
+    private static final byte STRING_TAG = 'S';
+    private static final byte NUMBER_TAG = 'N';
+    private static final byte BINARY_TAG = 'B';
+    private static final byte MAP_TAG = 'M';
+    private static final byte ID_SUFFIXED_STRING_TAG = 'I';
+    private static final String ID_ATTRIBUTE_NAME = "id";
+    private static final String ID_SEPARATOR = "|";
+    // Append only, a name's index is part of the encoded form
+    private static final List<String> WELL_KNOWN_NAMES = List.of(ID_ATTRIBUTE_NAME, "consentVersion", "expiryHour",
+        "expiryTimeId", DynamoDbExpiryHourTokenMapper.SHARDS_KEY);
+    private static final String JSON_TOKEN_PREFIX = "{";
+    private static final int INITIAL_BUFFER_SIZE = 128;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private BinaryPageTokenCodec() {}
+
+    /**
+     * Checks if a page token was encoded by this codec rather than issued as JSON.
+     *
+     * @param pageToken The page token.
+     * @return True if the page token is in the binary format.
+     */
+    public static boolean isBinaryToken(final String pageToken) {
+        return !pageToken.startsWith(JSON_TOKEN_PREFIX);
+    }
+
+    /**
+     * Encodes an attribute map, such as a last evaluated key, as a page token.
+     *
+     * @param attributes The attribute map, with string, number, binary or map values.
+     * @return URL-safe Base64 page token.
+     * @throws IllegalArgumentException if an attribute has a type a page token cannot hold.
+     */
+    public static String encode(final Map<String, AttributeValue> attributes) {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        output.write(VERSION);
+        writeMap(output, attributes);
+        return ENCODER.encodeToString(output.toByteArray());
+    }
+
+    /**
+     * Decodes a page token encoded by this codec back to its attribute map.
+     *
+     * @param pageToken URL-safe Base64 page token.
+     * @return The attribute map.
+     * @throws IllegalArgumentException if the page token is malformed or has an unsupported version.
+     */
+    public static Map<String, AttributeValue> decode(final String pageToken) {
+        final Reader reader = new Reader(DECODER.decode(pageToken));
+        final byte version = reader.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported page token version: " + version);
+        }
+        final Map<String, AttributeValue> attributes = reader.readMap();
+        if (reader.hasRemaining()) {
+            throw new IllegalArgumentException("Page token has trailing bytes");
+        }
+        return attributes;
+    }
+
+    private static void writeMap(final ByteArrayOutputStream output, final Map<String, AttributeValue> attributes) {
+        writeVarint(output, attributes.size());
+        final AttributeValue id = attributes.get(ID_ATTRIBUTE_NAME);
+        final String idSuffix = id != null && id.s() != null ? ID_SEPARATOR + id.s() : null;
+        attributes.forEach((name, value) -> {
+            writeName(output, name);
+            writeValue(output, name, value, idSuffix);
+        });
+    }
+
+    /**
+     * Writes a well-known name as its index, and any other name in full, telling them apart by the lowest bit.
+     */
+    private static void writeName(final ByteArrayOutputStream output, final String name) {
+        final int wellKnownIndex = WELL_KNOWN_NAMES.indexOf(name);
+        if (wellKnownIndex >= 0) {
+            writeVarint(output, wellKnownIndex << 1 | 1);
+            return;
+        }
+        final byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        writeVarint(output, bytes.length << 1);
+        output.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeValue(final ByteArrayOutputStream output, final String name, final AttributeValue value,
+            final String idSuffix) {
+        if (value.s() != null && idSuffix != null && !ID_ATTRIBUTE_NAME.equals(name) && value.s().endsWith(idSuffix)) {
+            output.write(ID_SUFFIXED_STRING_TAG);
+            writeBytes(output, value.s().substring(0, value.s().length() - idSuffix.length()).getBytes(StandardCharsets.UTF_8));
+        } else if (value.s() != null) {
+            output.write(STRING_TAG);
+            writeBytes(output, value.s().getBytes(StandardCharsets.UTF_8));
+        } else if (value.n() != null) {
+            output.write(NUMBER_TAG);
+            writeBytes(output, value.n().getBytes(StandardCharsets.US_ASCII));
+        } else if (value.b() != null) {
+            output.write(BINARY_TAG);
+            writeBytes(output, value.b().asByteArrayUnsafe());
+        } else if (value.hasM()) {
+            output.write(MAP_TAG);
+            writeMap(output, value.m());
+        } else {
+            throw new IllegalArgumentException(String.format("Page token attribute %s has unsupported type %s", name, value.type()));
+        }
+    }
+
+    private static void writeBytes(final ByteArrayOutputStream output, final byte[] bytes) {
+        writeVarint(output, bytes.length);
+        output.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeVarint(final ByteArrayOutputStream output, final int value) {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            output.write((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        output.write(remaining);
+    }
+
+    /**
+     * Reads the binary form of a page token, rejecting lengths that run past its end.
+     */
+    private static final class Reader {
+        private static final int MAX_VARINT_SHIFT = 28;
+
+        private final byte[] bytes;
+        private int position;
+
+        Reader(final byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        boolean hasRemaining() {
+            return position < bytes.length;
+        }
+
+        byte readByte() {
+            if (!hasRemaining()) {
+                throw new IllegalArgumentException("Page token is truncated");
+            }
+            return bytes[position++];
+        }
+
+        Map<String, AttributeValue> readMap() {
+            final int numAttributes = readLength();
+            final Map<String, AttributeValue> attributes = new LinkedHashMap<>();
+            final Map<String, String> idSuffixedPrefixes = new LinkedHashMap<>();
+            for (int i = 0; i < numAttributes; i++) {
+                final String name = readName();
+                final byte tag = readByte();
+                if (tag == ID_SUFFIXED_STRING_TAG) {
+                    idSuffixedPrefixes.put(name, readString());
+                    attributes.put(name, null);
+                } else {
+                    attributes.put(name, readValue(tag));
+                }
+            }
+
+            if (!idSuffixedPrefixes.isEmpty()) {
+                final AttributeValue id = attributes.get(ID_ATTRIBUTE_NAME);
+                if (id == null || id.s() == null) {
+                    throw new IllegalArgumentException("Page token has an attribute suffixed with a missing id");
+                }
+                idSuffixedPrefixes.forEach((name, prefix) -> attributes.put(name, AttributeValue.fromS(prefix + ID_SEPARATOR + id.s())));
+            }
+            return attributes;
+        }
+
+        private String readName() {
+            final int header = readVarint();
+            if ((header & 1) == 1) {
+                final int wellKnownIndex = header >>> 1;
+                if (wellKnownIndex >= WELL_KNOWN_NAMES.size()) {
+                    throw new IllegalArgumentException("Page token has an unknown attribute name index: " + wellKnownIndex);
+                }
+                return WELL_KNOWN_NAMES.get(wellKnownIndex);
+            }
+            return readString(checkLength(header >>> 1));
+        }
+
+        private AttributeValue readValue(final byte tag) {
+            return switch (tag) {
+                case STRING_TAG -> AttributeValue.fromS(readString());
+                case NUMBER_TAG -> AttributeValue.fromN(readString());
+                case BINARY_TAG -> {
+                    final int length = readLength();
+                    final SdkBytes value = SdkBytes.fromByteArray(Arrays.copyOfRange(bytes, position, position + length));
+                    position += length;
+                    yield AttributeValue.fromB(value);
+                }
+                case MAP_TAG -> AttributeValue.fromM(readMap());
+                default -> throw new IllegalArgumentException("Page token has unsupported attribute type tag: " + tag);
+            };
+        }
+
+        private String readString() {
+            return readString(readLength());
+        }
+
+        private String readString(final int length) {
+            final String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        /**
+         * Reads a varint count or length, checking that it fits in the bytes left.
+         */
+        private int readLength() {
+            return checkLength(readVarint());
+        }
+
+        private int checkLength(final int length) {
+            if (length < 0 || length > bytes.length - position) {
+                throw new IllegalArgumentException("Page token is truncated");
+            }
+            return length;
+        }
+
+        private int readVarint() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                final byte next = readByte();
+                value |= (next & 0x7F) << shift;
+                if ((next & 0x80) == 0) {
+                    break;
+                }
+                if (shift == MAX_VARINT_SHIFT) {
+                    throw new IllegalArgumentException("Page token has an oversized length");
+                }
+            }
+            if (value < 0) {
+                throw new IllegalArgumentException("Page token has an oversized length");
+            }
+            return value;
+        }
+    }
+}
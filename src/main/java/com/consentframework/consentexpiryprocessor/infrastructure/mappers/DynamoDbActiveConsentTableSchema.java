@@ -0,0 +1,41 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.mappers;
+
+import com.consentframework.consentexpiryprocessor.domain.constants.ActiveConsentWithExpiryTimeAttributeName;
+import com.consentframework.shared.api.infrastructure.entities.DynamoDbActiveConsentWithExpiryTime;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.StaticAttributeTags;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.StaticImmutableTableSchema;
+
+/**
+ * Hand-written table schema for active consents with expiry times.
+ *
+ * Maps only the attributes the expiry processor reads, through the item's builder and accessors,
+ * so that no bean introspection or reflection is needed to build the schema or to map each item.
+ */
+public final class DynamoDbActiveConsentTableSchema {
+    public static final TableSchema<DynamoDbActiveConsentWithExpiryTime> TABLE_SCHEMA = StaticImmutableTableSchema
+        .builder(DynamoDbActiveConsentWithExpiryTime.class, DynamoDbActiveConsentWithExpiryTime.Builder.class)
+        .newItemBuilder(DynamoDbActiveConsentWithExpiryTime::builder, DynamoDbActiveConsentWithExpiryTime.Builder::build)
+        .addAttribute(String.class, attribute -> attribute
+            .name(ActiveConsentWithExpiryTimeAttributeName.ID.getValue())
+            .getter(DynamoDbActiveConsentWithExpiryTime::id)
+            .setter(DynamoDbActiveConsentWithExpiryTime.Builder::id)
+            .tags(StaticAttributeTags.primaryPartitionKey()))
+        .addAttribute(Integer.class, attribute -> attribute
+            .name(ActiveConsentWithExpiryTimeAttributeName.CONSENT_VERSION.getValue())
+            .getter(DynamoDbActiveConsentWithExpiryTime::consentVersion)
+            .setter(DynamoDbActiveConsentWithExpiryTime.Builder::consentVersion))
+        .addAttribute(String.class, attribute -> attribute
+            .name(ActiveConsentWithExpiryTimeAttributeName.EXPIRY_HOUR.getValue())
+            .getter(DynamoDbActiveConsentWithExpiryTime::expiryHour)
+            .setter(DynamoDbActiveConsentWithExpiryTime.Builder::expiryHour)
+            .tags(StaticAttributeTags.secondaryPartitionKey(DynamoDbActiveConsentWithExpiryTime.ACTIVE_CONSENTS_BY_EXPIRY_HOUR_GSI_NAME)))
+        .addAttribute(String.class, attribute -> attribute
+            .name(ActiveConsentWithExpiryTimeAttributeName.EXPIRY_TIME_ID.getValue())
+            .getter(DynamoDbActiveConsentWithExpiryTime::expiryTimeId)
+            .setter(DynamoDbActiveConsentWithExpiryTime.Builder::expiryTimeId)
+            .tags(StaticAttributeTags.secondarySortKey(DynamoDbActiveConsentWithExpiryTime.ACTIVE_CONSENTS_BY_EXPIRY_HOUR_GSI_NAME)))
+        .build();
+
+    private DynamoDbActiveConsentTableSchema() {}
+}
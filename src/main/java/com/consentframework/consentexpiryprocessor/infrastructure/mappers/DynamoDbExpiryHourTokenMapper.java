@@ -3,38 +3,92 @@ package com.consentframework.consentexpiryprocessor.infrastructure.mappers;
 import software.amazon.awssdk.enhanced.dynamodb.document.EnhancedDocument;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 
 /**
  * Utility methods for converting ActiveConsentsByExpiryHour GSI page tokens between data models.
+ *
+ * A page token for a single partition holds its last evaluated key. A page token for an expiry hour whose consents
+ * are spread across several partitions holds the position in each partition not yet exhausted under a "shards" map,
+ * e.g. {"shards": {"2011-12-03T10:00Z#0": {"id": "...", "expiryHour": "2011-12-03T10:00Z#0", "expiryTimeId": "..."},
+ * "2011-12-03T10:00Z#1": {}}}, where an empty position means the partition is read from its start.
+ *
+ * Page tokens are issued in the compact binary form of BinaryPageTokenCodec. Page tokens in the JSON form issued
+ * before it, such as those saved in checkpoints, are still accepted, but no longer issued.
  */
 public final class DynamoDbExpiryHourTokenMapper {
+    public static final String SHARDS_KEY = "shards";
+
     private DynamoDbExpiryHourTokenMapper() {}
 
     /**
-     * Converts the JSON string to a DynamoDB page token that can be used in DynamoDB API queries.
+     * Converts the page token to a DynamoDB page token that can be used in DynamoDB API queries.
      *
-     * @param nextPageToken JSON string representation of the next page token.
+     * @param nextPageToken Binary or JSON string representation of the next page token.
      * @return DynamoDB AttributeValue map representation of the next page token.
      */
     public static Map<String, AttributeValue> toDynamoDbPageToken(final Optional<String> nextPageToken) {
         if (nextPageToken.isPresent()) {
-            return EnhancedDocument.fromJson(nextPageToken.get()).toMap();
+            return decode(nextPageToken.get());
         }
         return null;
     }
 
     /**
-     * Converts the DynamoDB page token to a JSON string.
+     * Converts the DynamoDB page token to its compact binary string representation.
      *
      * @param pageToken DynamoDB AttributeValue map representation of the next page token.
-     * @return JSON string representation of the next page token.
+     * @return Binary string representation of the next page token.
      */
-    public static Optional<String> toJsonString(final Map<String, AttributeValue> pageToken) {
+    public static Optional<String> toPageToken(final Map<String, AttributeValue> pageToken) {
         if (pageToken != null) {
-            return Optional.of(EnhancedDocument.fromAttributeValueMap(pageToken).toJson());
+            return Optional.of(BinaryPageTokenCodec.encode(pageToken));
         }
         return Optional.empty();
     }
+
+
+    /**
+     * Converts the page token to the DynamoDB positions of each partition of a sharded expiry hour.
+     *
+     * @param pageToken Binary or JSON string representation of the page token.
+     * @return Exclusive start key per partition key, empty if the page token is for a single partition.
+     */
+    public static Optional<Map<String, Map<String, AttributeValue>>> toShardedDynamoDbPageToken(final String pageToken) {
+        final AttributeValue shards = decode(pageToken).get(SHARDS_KEY);
+        if (shards == null || !shards.hasM()) {
+            return Optional.empty();
+        }
+
+        final Map<String, Map<String, AttributeValue>> exclusiveStartKeys = new LinkedHashMap<>();
+        shards.m().forEach((partitionKey, exclusiveStartKey) -> exclusiveStartKeys.put(partitionKey, exclusiveStartKey.m()));
+        return Optional.of(exclusiveStartKeys);
+    }
+
+
+    /**
+     * Converts the DynamoDB positions of each partition of a sharded expiry hour to its compact binary string representation.
+     *
+     * @param exclusiveStartKeys Exclusive start key per partition key, empty to read the partition from its start.
+     * @return Binary string representation of the page token.
+     */
+    public static String toShardedPageToken(final Map<String, Map<String, AttributeValue>> exclusiveStartKeys) {
+        return BinaryPageTokenCodec.encode(toShardedAttributes(exclusiveStartKeys));
+    }
+
+    private static Map<String, AttributeValue> toShardedAttributes(final Map<String, Map<String, AttributeValue>> exclusiveStartKeys) {
+        final Map<String, AttributeValue> shards = new LinkedHashMap<>();
+        exclusiveStartKeys.forEach((partitionKey, exclusiveStartKey) ->
+            shards.put(partitionKey, AttributeValue.builder().m(exclusiveStartKey).build()));
+        return Map.of(SHARDS_KEY, AttributeValue.builder().m(shards).build());
+    }
+
+    private static Map<String, AttributeValue> decode(final String pageToken) {
+        if (BinaryPageTokenCodec.isBinaryToken(pageToken)) {
+            return BinaryPageTokenCodec.decode(pageToken);
+        }
+        return EnhancedDocument.fromJson(pageToken).toMap();
+    }
 }
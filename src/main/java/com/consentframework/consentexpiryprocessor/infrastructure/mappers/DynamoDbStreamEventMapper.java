@@ -0,0 +1,131 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.mappers;
+
+import com.consentframework.consentexpiryprocessor.domain.constants.ActiveConsentWithExpiryTimeAttributeName;
+import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
+import com.consentframework.consentexpiryprocessor.domain.entities.ConsentExpiryChange;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Utility methods for reading consent expiry changes from DynamoDB Streams Lambda events.
+ *
+ * Events have a "Records" list, each record with an "eventName" of INSERT, MODIFY or REMOVE and a "dynamodb" object
+ * holding the item's "Keys" and, for INSERT and MODIFY, its "NewImage" in the DynamoDB JSON format,
+ * e.g. {"expiryTimeId": {"S": "2011-12-03T10:15:30Z|id"}}. The stream must include new images.
+ */
+public final class DynamoDbStreamEventMapper {
+    public static final String RECORDS_KEY = "Records";
+    public static final String EVENT_NAME_KEY = "eventName";
+    public static final String DYNAMODB_KEY = "dynamodb";
+    public static final String KEYS_KEY = "Keys";
+    public static final String NEW_IMAGE_KEY = "NewImage";
+    public static final String REMOVE_EVENT_NAME = "REMOVE";
+    public static final String CONSENT_STATUS_ATTRIBUTE_NAME = "consentStatus";
+    public static final String ACTIVE_STATUS = "ACTIVE";
+
+    private static final String STRING_TYPE = "S";
+    private static final String NUMBER_TYPE = "N";
+
+    private DynamoDbStreamEventMapper() {}
+
+    /**
+     * Reads the consent expiry changes from a DynamoDB Streams event, in stream order.
+     *
+     * @param event The Lambda event, may be null if the function was invoked without input.
+     * @return One change per stream record.
+     */
+    public static List<ConsentExpiryChange> toConsentExpiryChanges(final Map<String, Object> event) {
+        if (event == null || !event.containsKey(RECORDS_KEY)) {
+            return List.of();
+        }
+        if (!(event.get(RECORDS_KEY) instanceof List<?> records)) {
+            throw new IllegalArgumentException(RECORDS_KEY + " must be a list, received: " + event.get(RECORDS_KEY));
+        }
+
+        final List<ConsentExpiryChange> changes = new ArrayList<>(records.size());
+        for (final Object streamRecord : records) {
+            changes.add(toConsentExpiryChange(getMap(streamRecord, "stream record")));
+        }
+        return changes;
+    }
+
+    private static ConsentExpiryChange toConsentExpiryChange(final Map<?, ?> streamRecord) {
+        final Object eventName = streamRecord.get(EVENT_NAME_KEY);
+        final Map<?, ?> dynamoDbRecord = getMap(streamRecord.get(DYNAMODB_KEY), DYNAMODB_KEY);
+        final Map<?, ?> keys = getMap(dynamoDbRecord.get(KEYS_KEY), KEYS_KEY);
+        final String id = getString(keys, ActiveConsentWithExpiryTimeAttributeName.ID.getValue())
+            .orElseThrow(() -> new IllegalArgumentException("Stream record keys must have a string id, received: " + keys));
+
+        final ConsentExpiryChange.Builder builder = ConsentExpiryChange.builder().id(id);
+        if (REMOVE_EVENT_NAME.equals(eventName)) {
+            return builder.build();
+        }
+        if (!dynamoDbRecord.containsKey(NEW_IMAGE_KEY)) {
+            throw new IllegalArgumentException(String.format("%s record for consent %s has no %s, the stream must include new images",
+                eventName, id, NEW_IMAGE_KEY));
+        }
+
+        final Map<?, ?> newImage = getMap(dynamoDbRecord.get(NEW_IMAGE_KEY), NEW_IMAGE_KEY);
+        return builder.activeConsent(toActiveConsent(id, newImage)).build();
+    }
+
+    /**
+     * Reads the consent pending expiry from a new image, empty if the consent is not active or has no expiry time.
+     */
+    private static Optional<ActiveConsentWithExpiryTime> toActiveConsent(final String id, final Map<?, ?> newImage) {
+        final Optional<String> consentStatus = getString(newImage, CONSENT_STATUS_ATTRIBUTE_NAME);
+        if (consentStatus.isPresent() && !ACTIVE_STATUS.equals(consentStatus.get())) {
+            return Optional.empty();
+        }
+
+        final Optional<String> expiryHour = getString(newImage, ActiveConsentWithExpiryTimeAttributeName.EXPIRY_HOUR.getValue());
+        final Optional<String> expiryTimeId = getString(newImage, ActiveConsentWithExpiryTimeAttributeName.EXPIRY_TIME_ID.getValue());
+        if (expiryHour.isEmpty() || expiryTimeId.isEmpty()) {
+            return Optional.empty();
+        }
+
+        return Optional.of(ActiveConsentWithExpiryTime.builder()
+            .id(id)
+            .consentVersion(getConsentVersion(id, newImage))
+            .expiryHour(expiryHour.get())
+            .expiryTimeId(expiryTimeId.get())
+            .build());
+    }
+
+    private static int getConsentVersion(final String id, final Map<?, ?> newImage) {
+        final String attributeName = ActiveConsentWithExpiryTimeAttributeName.CONSENT_VERSION.getValue();
+        final Object attributeValue = newImage.get(attributeName);
+        // Numbers are sent as strings in the DynamoDB JSON format, but accept JSON numbers as well
+        final Object value = attributeValue instanceof Map<?, ?> typedValue ? typedValue.get(NUMBER_TYPE) : null;
+        if (value instanceof Number number && number.doubleValue() == number.intValue()) {
+            return number.intValue();
+        }
+        if (value instanceof String stringValue) {
+            try {
+                return Integer.parseInt(stringValue.trim());
+            } catch (final NumberFormatException e) {
+                throw new IllegalArgumentException(String.format("%s of consent %s must be an integer, received: %s",
+                    attributeName, id, attributeValue), e);
+            }
+        }
+        throw new IllegalArgumentException(String.format("%s of consent %s must be an integer, received: %s",
+            attributeName, id, attributeValue));
+    }
+
+    private static Optional<String> getString(final Map<?, ?> item, final String attributeName) {
+        if (item.get(attributeName) instanceof Map<?, ?> typedValue && typedValue.get(STRING_TYPE) instanceof String value) {
+            return Optional.of(value);
+        }
+        return Optional.empty();
+    }
+
+    private static Map<?, ?> getMap(final Object value, final String name) {
+        if (value instanceof Map<?, ?> mapValue) {
+            return mapValue;
+        }
+        throw new IllegalArgumentException(String.format("%s must be an object, received: %s", name, value));
+    }
+}
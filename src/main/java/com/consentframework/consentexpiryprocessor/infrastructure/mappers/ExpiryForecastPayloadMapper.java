@@ -0,0 +1,82 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.mappers;
+
+import com.consentframework.consentexpiryprocessor.domain.entities.ExpiryForecast;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Utility methods for reading dry run requests from Lambda invocation payloads and converting expiry forecasts
+ * to Lambda response payloads.
+ *
+ * Dry run payloads set "dryRun", and may set the number of future expiry hours to forecast, e.g. {"dryRun": true,
+ * "lookaheadHours": 48}. Responses hold the forecast's totals and estimates, and its histograms per expiry hour and
+ * per minute, e.g. {"consents": 3, "peakConsentsPerMinute": 2, "writeCapacityUnits": 6, "writeCapacityUnitsPerSecond": 2000,
+ * "peakMinuteWriteCapacityUnitsPerSecond": 1, "expiryWritesPerSecond": 1000.0, "estimatedRunMillis": 3, "stoppedEarly": false,
+ * "expiryHours": {"2011-12-03T10:00Z": 3}, "expiryMinutes": {"2011-12-03T10:15Z": 2, "2011-12-03T10:40Z": 1}}.
+ */
+public final class ExpiryForecastPayloadMapper {
+    public static final String DRY_RUN_KEY = "dryRun";
+    public static final String LOOKAHEAD_HOURS_KEY = "lookaheadHours";
+    public static final String CONSENTS_KEY = "consents";
+    public static final String PEAK_CONSENTS_PER_MINUTE_KEY = "peakConsentsPerMinute";
+    public static final String WRITE_CAPACITY_UNITS_KEY = "writeCapacityUnits";
+    public static final String WRITE_CAPACITY_UNITS_PER_SECOND_KEY = "writeCapacityUnitsPerSecond";
+    public static final String PEAK_MINUTE_WRITE_CAPACITY_UNITS_PER_SECOND_KEY = "peakMinuteWriteCapacityUnitsPerSecond";
+    public static final String EXPIRY_WRITES_PER_SECOND_KEY = "expiryWritesPerSecond";
+    public static final String ESTIMATED_RUN_MILLIS_KEY = "estimatedRunMillis";
+    public static final String STOPPED_EARLY_KEY = "stoppedEarly";
+    public static final String EXPIRY_HOURS_KEY = "expiryHours";
+    public static final String EXPIRY_MINUTES_KEY = "expiryMinutes";
+
+    private ExpiryForecastPayloadMapper() {}
+
+    /**
+     * Checks if an invocation payload requests a dry run forecast rather than an expiry run.
+     *
+     * @param payload The invocation payload, may be null if the function was invoked without input.
+     * @return True if the payload sets "dryRun" to true.
+     */
+    public static boolean isDryRun(final Map<String, Object> payload) {
+        if (payload == null) {
+            return false;
+        }
+        final Object dryRun = payload.get(DRY_RUN_KEY);
+        return Boolean.TRUE.equals(dryRun) || dryRun instanceof String dryRunString && Boolean.parseBoolean(dryRunString.trim());
+    }
+
+    /**
+     * Reads the number of future expiry hours to forecast from a dry run invocation payload.
+     *
+     * @param payload The invocation payload.
+     * @param defaultLookaheadHours The lookahead hours to use if the payload does not specify any.
+     * @return The lookahead hours.
+     */
+    public static int toLookaheadHours(final Map<String, Object> payload, final int defaultLookaheadHours) {
+        if (!payload.containsKey(LOOKAHEAD_HOURS_KEY)) {
+            return defaultLookaheadHours;
+        }
+        return ExpiryShardAssignmentPayloadMapper.getInt(payload, LOOKAHEAD_HOURS_KEY);
+    }
+
+    /**
+     * Converts the forecast to a response payload.
+     *
+     * @param forecast The expiry forecast.
+     * @return The response payload.
+     */
+    public static Map<String, Object> toPayload(final ExpiryForecast forecast) {
+        final Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put(CONSENTS_KEY, forecast.numConsents());
+        payload.put(PEAK_CONSENTS_PER_MINUTE_KEY, forecast.peakConsentsPerMinute());
+        payload.put(WRITE_CAPACITY_UNITS_KEY, forecast.estimatedWriteCapacityUnits());
+        payload.put(WRITE_CAPACITY_UNITS_PER_SECOND_KEY, forecast.estimatedWriteCapacityUnitsPerSecond());
+        payload.put(PEAK_MINUTE_WRITE_CAPACITY_UNITS_PER_SECOND_KEY, forecast.peakMinuteWriteCapacityUnitsPerSecond());
+        payload.put(EXPIRY_WRITES_PER_SECOND_KEY, forecast.expiryWritesPerSecond());
+        payload.put(ESTIMATED_RUN_MILLIS_KEY, forecast.estimatedRunTime().toMillis());
+        payload.put(STOPPED_EARLY_KEY, forecast.stoppedAtDeadline());
+        payload.put(EXPIRY_HOURS_KEY, new LinkedHashMap<>(forecast.consentsPerHour()));
+        payload.put(EXPIRY_MINUTES_KEY, new LinkedHashMap<>(forecast.consentsPerMinute()));
+        return payload;
+    }
+}
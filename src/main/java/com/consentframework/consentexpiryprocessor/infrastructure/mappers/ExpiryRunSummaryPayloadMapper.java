@@ -0,0 +1,66 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.mappers;
+
+import com.consentframework.consentexpiryprocessor.domain.entities.ExpiryHourSummary;
+import com.consentframework.consentexpiryprocessor.domain.entities.ExpiryRunSummary;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Utility methods for converting expiry run summaries to Lambda response payloads.
+ *
+ * Payloads hold the run's totals and a summary per expiry hour, e.g. {"consentsScanned": 4, "consentsExpired": 3,
+ * "consentsSkipped": 0, "consentsFailed": 1, "throttles": 2, "retries": 1, "elapsedMillis": 1500, "stoppedEarly": false,
+ * "expiryHours": {"2011-12-03T10:00Z": {"scanned": 4, "expired": 3, "skipped": 0, "failed": 1, "stoppedAtDeadline": false}}}.
+ */
+public final class ExpiryRunSummaryPayloadMapper {
+    public static final String CONSENTS_SCANNED_KEY = "consentsScanned";
+    public static final String CONSENTS_EXPIRED_KEY = "consentsExpired";
+    public static final String CONSENTS_SKIPPED_KEY = "consentsSkipped";
+    public static final String CONSENTS_FAILED_KEY = "consentsFailed";
+    public static final String THROTTLES_KEY = "throttles";
+    public static final String RETRIES_KEY = "retries";
+    public static final String ELAPSED_MILLIS_KEY = "elapsedMillis";
+    public static final String STOPPED_EARLY_KEY = "stoppedEarly";
+    public static final String EXPIRY_HOURS_KEY = "expiryHours";
+    public static final String SCANNED_KEY = "scanned";
+    public static final String EXPIRED_KEY = "expired";
+    public static final String SKIPPED_KEY = "skipped";
+    public static final String FAILED_KEY = "failed";
+    public static final String STOPPED_AT_DEADLINE_KEY = "stoppedAtDeadline";
+
+    private ExpiryRunSummaryPayloadMapper() {}
+
+    /**
+     * Converts the run summary to a response payload.
+     *
+     * @param runSummary The run summary.
+     * @return The response payload.
+     */
+    public static Map<String, Object> toPayload(final ExpiryRunSummary runSummary) {
+        final Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put(CONSENTS_SCANNED_KEY, runSummary.numConsentsScanned());
+        payload.put(CONSENTS_EXPIRED_KEY, runSummary.numConsentsExpired());
+        payload.put(CONSENTS_SKIPPED_KEY, runSummary.numConsentsSkipped());
+        payload.put(CONSENTS_FAILED_KEY, runSummary.numConsentsFailed());
+        payload.put(THROTTLES_KEY, runSummary.numThrottles());
+        payload.put(RETRIES_KEY, runSummary.numRetries());
+        payload.put(ELAPSED_MILLIS_KEY, runSummary.elapsedTime().toMillis());
+        payload.put(STOPPED_EARLY_KEY, runSummary.stoppedEarly());
+
+        final Map<String, Object> expiryHours = new LinkedHashMap<>();
+        runSummary.expiryHours().forEach((expiryHour, expiryHourSummary) -> expiryHours.put(expiryHour, toPayload(expiryHourSummary)));
+        payload.put(EXPIRY_HOURS_KEY, expiryHours);
+        return payload;
+    }
+
+    private static Map<String, Object> toPayload(final ExpiryHourSummary expiryHourSummary) {
+        final Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put(SCANNED_KEY, expiryHourSummary.numConsentsScanned());
+        payload.put(EXPIRED_KEY, expiryHourSummary.numConsentsExpired());
+        payload.put(SKIPPED_KEY, expiryHourSummary.numConsentsSkipped());
+        payload.put(FAILED_KEY, expiryHourSummary.numConsentsFailed());
+        payload.put(STOPPED_AT_DEADLINE_KEY, expiryHourSummary.stoppedAtDeadline());
+        return payload;
+    }
+}
@@ -0,0 +1,97 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.mappers;
+
+import com.consentframework.consentexpiryprocessor.domain.entities.ExpiryShardAssignment;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Utility methods for converting expiry shard assignments to and from Lambda invocation payloads.
+ *
+ * Payloads have either an "expiryHours" list, e.g. {"expiryHours": ["2011-12-03T10:00Z"]},
+ * or a hash range, e.g. {"shardIndex": 0, "shardCount": 4}. An empty payload covers every expiry hour.
+ */
+public final class ExpiryShardAssignmentPayloadMapper {
+    public static final String EXPIRY_HOURS_KEY = "expiryHours";
+    public static final String SHARD_INDEX_KEY = "shardIndex";
+    public static final String SHARD_COUNT_KEY = "shardCount";
+
+    private ExpiryShardAssignmentPayloadMapper() {}
+
+    /**
+     * Reads the shard assignment from an invocation payload.
+     *
+     * @param payload The invocation payload, may be null if the function was invoked without input.
+     * @return The shard assignment.
+     */
+    public static ExpiryShardAssignment toExpiryShardAssignment(final Map<String, Object> payload) {
+        if (payload == null || payload.isEmpty()) {
+            return ExpiryShardAssignment.ALL_EXPIRY_HOURS;
+        }
+
+        final ExpiryShardAssignment.Builder builder = ExpiryShardAssignment.builder();
+        final Object expiryHours = payload.get(EXPIRY_HOURS_KEY);
+        if (expiryHours != null) {
+            if (!(expiryHours instanceof List<?> expiryHourList)
+                    || !expiryHourList.stream().allMatch(String.class::isInstance)) {
+                throw new IllegalArgumentException(EXPIRY_HOURS_KEY + " must be a list of strings, received: " + expiryHours);
+            }
+            expiryHourList.forEach(expiryHour -> builder.addExpiryHours((String) expiryHour));
+        }
+        if (payload.containsKey(SHARD_INDEX_KEY)) {
+            builder.shardIndex(getInt(payload, SHARD_INDEX_KEY));
+        }
+        if (payload.containsKey(SHARD_COUNT_KEY)) {
+            builder.shardCount(getInt(payload, SHARD_COUNT_KEY));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Reads the number of shards to plan from a coordinator invocation payload.
+     *
+     * @param payload The invocation payload, may be null if the function was invoked without input.
+     * @param defaultShardCount The shard count to use if the payload does not specify one.
+     * @return The shard count.
+     */
+    public static int toShardCount(final Map<String, Object> payload, final int defaultShardCount) {
+        if (payload == null || !payload.containsKey(SHARD_COUNT_KEY)) {
+            return defaultShardCount;
+        }
+        return getInt(payload, SHARD_COUNT_KEY);
+    }
+
+    /**
+     * Converts the shard assignment to an invocation payload.
+     *
+     * @param shardAssignment The shard assignment.
+     * @return The invocation payload.
+     */
+    public static Map<String, Object> toPayload(final ExpiryShardAssignment shardAssignment) {
+        final Map<String, Object> payload = new LinkedHashMap<>();
+        if (!shardAssignment.expiryHours().isEmpty()) {
+            payload.put(EXPIRY_HOURS_KEY, shardAssignment.expiryHours());
+        } else if (shardAssignment.shardCount() > 1) {
+            payload.put(SHARD_INDEX_KEY, shardAssignment.shardIndex());
+            payload.put(SHARD_COUNT_KEY, shardAssignment.shardCount());
+        }
+        return payload;
+    }
+
+    static int getInt(final Map<String, Object> payload, final String key) {
+        final Object value = payload.get(key);
+        // The Lambda runtime may deserialize JSON numbers as any Number subtype
+        if (value instanceof Number number && number.doubleValue() == number.intValue()) {
+            return number.intValue();
+        }
+        if (value instanceof String stringValue) {
+            try {
+                return Integer.parseInt(stringValue.trim());
+            } catch (final NumberFormatException e) {
+                throw new IllegalArgumentException(String.format("%s must be an integer, received: %s", key, value), e);
+            }
+        }
+        throw new IllegalArgumentException(String.format("%s must be an integer, received: %s", key, value));
+    }
+}
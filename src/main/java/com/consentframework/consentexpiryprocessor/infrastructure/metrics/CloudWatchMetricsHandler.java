@@ -1,30 +1,81 @@
 package com.consentframework.consentexpiryprocessor.infrastructure.metrics;
 
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
-import software.amazon.awssdk.services.cloudwatch.model.CloudWatchException;
 import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
-import software.amazon.awssdk.services.cloudwatch.model.PutMetricDataRequest;
 import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Encapsulates logic for publishing metrics to AWS CloudWatch.
+ *
+ * Metric values are aggregated in memory per metric name and handed to a MetricsSink as the distinct values
+ * recorded and the number of times each was recorded, either through batched PutMetricData requests or as
+ * Embedded Metric Format log lines. Keeping the recorded values rather than a StatisticSet lets CloudWatch
+ * compute percentiles over them. The buffer is flushed once the flush interval has elapsed since the last
+ * flush, once it holds the maximum number of datums allowed in a single request, once any metric holds the
+ * maximum number of distinct values allowed in a single datum, and whenever flush() is called.
+ * A zero flush interval publishes every value as soon as it is recorded.
+ *
+ * The interval is checked when a metric is published rather than on a timer, since the Lambda
+ * execution environment is frozen between invocations.
  */
 public class CloudWatchMetricsHandler {
     public static final String METRIC_NAMESPACE = "ConsentExpiryProcessor";
 
-    private static final Logger logger = LogManager.getLogger(CloudWatchMetricsHandler.class);
+    static final int MAX_DATUMS_PER_REQUEST = PutMetricDataMetricsSink.MAX_DATUMS_PER_REQUEST;
+    static final int MAX_VALUES_PER_DATUM = EmbeddedMetricFormatMetricsSink.MAX_VALUES_PER_DOCUMENT;
 
-    private CloudWatchClient cloudWatchClient;
+    private final MetricsSink metricsSink;
+    private final Duration flushInterval;
+    private final Clock clock;
+
+    private Map<String, MetricAggregate> bufferedMetrics = new LinkedHashMap<>();
+    private Instant lastFlushTime;
 
     /**
-     * Constructs a new CloudWatchMetricsHandler.
+     * Constructs a new CloudWatchMetricsHandler that publishes each metric immediately.
      */
     public CloudWatchMetricsHandler(final CloudWatchClient cloudWatchClient) {
-        this.cloudWatchClient = cloudWatchClient;
+        this(cloudWatchClient, Duration.ZERO);
+    }
+
+    /**
+     * Constructs a new CloudWatchMetricsHandler that buffers metrics for up to the given flush interval.
+     *
+     * @param cloudWatchClient The CloudWatch client used to publish metrics.
+     * @param flushInterval The maximum time to buffer metrics before publishing them.
+     */
+    public CloudWatchMetricsHandler(final CloudWatchClient cloudWatchClient, final Duration flushInterval) {
+        this(new PutMetricDataMetricsSink(cloudWatchClient), flushInterval);
+    }
+
+    /**
+     * Constructs a new CloudWatchMetricsHandler that buffers metrics for up to the given flush interval.
+     *
+     * @param metricsSink The sink that buffered metrics are published to.
+     * @param flushInterval The maximum time to buffer metrics before publishing them.
+     */
+    public CloudWatchMetricsHandler(final MetricsSink metricsSink, final Duration flushInterval) {
+        this(metricsSink, flushInterval, Clock.systemUTC());
+    }
+
+    /**
+     * Constructs a new CloudWatchMetricsHandler with the given clock, used to control flush timing in tests.
+     */
+    CloudWatchMetricsHandler(final MetricsSink metricsSink, final Duration flushInterval, final Clock clock) {
+        if (flushInterval.isNegative()) {
+            throw new IllegalArgumentException("flushInterval must not be negative, received: " + flushInterval);
+        }
+        this.metricsSink = metricsSink;
+        this.flushInterval = flushInterval;
+        this.clock = clock;
+        this.lastFlushTime = clock.instant();
     }
 
     /**
@@ -44,22 +95,92 @@ public class CloudWatchMetricsHandler {
      * @param metricValue The value to set in the emitted metric
      */
     public void publishMetric(final String metricName, final Double metricValue) {
-        final Instant currentTime = Instant.now();
-        final MetricDatum metricDatum = MetricDatum.builder()
-            .metricName(metricName)
-            .unit(StandardUnit.COUNT)
-            .value(metricValue)
-            .timestamp(currentTime)
-            .build();
-        final PutMetricDataRequest putMetricDataRequest = PutMetricDataRequest.builder()
-            .namespace(METRIC_NAMESPACE)
-            .metricData(metricDatum)
-            .build();
-        try {
-            cloudWatchClient.putMetricData(putMetricDataRequest);
-        } catch (final CloudWatchException e) {
-            final String errorMessage = String.format("Failed to publish CloudWatch metric %s", metricDatum.toString());
-            logger.error(errorMessage, e);
+        publishMetric(metricName, metricValue, StandardUnit.COUNT);
+    }
+
+    /**
+     * Publishes a CloudWatch latency metric.
+     *
+     * @param metricName The CloudWatch metric name
+     * @param latencyMillis The latency to set in the emitted metric, in milliseconds
+     */
+    public void publishLatencyMetric(final String metricName, final double latencyMillis) {
+        publishMetric(metricName, latencyMillis, StandardUnit.MILLISECONDS);
+    }
+
+    private void publishMetric(final String metricName, final double metricValue, final StandardUnit unit) {
+        final Instant currentTime = clock.instant();
+        final boolean shouldFlush;
+        synchronized (this) {
+            final MetricAggregate metricAggregate = bufferedMetrics.computeIfAbsent(metricName,
+                name -> new MetricAggregate(currentTime, unit));
+            metricAggregate.add(metricValue);
+            shouldFlush = bufferedMetrics.size() >= MAX_DATUMS_PER_REQUEST
+                || metricAggregate.distinctValueCount() >= MAX_VALUES_PER_DATUM
+                || !currentTime.isBefore(lastFlushTime.plus(flushInterval));
+        }
+        if (shouldFlush) {
+            flush();
+        }
+    }
+
+    /**
+     * Publishes all buffered metrics, call once processing completes so that no metrics are lost.
+     */
+    public void flush() {
+        final Map<String, MetricAggregate> metricsToPublish;
+        synchronized (this) {
+            if (bufferedMetrics.isEmpty()) {
+                return;
+            }
+            metricsToPublish = bufferedMetrics;
+            bufferedMetrics = new LinkedHashMap<>();
+            lastFlushTime = clock.instant();
+        }
+
+        final List<MetricDatum> metricData = metricsToPublish.entrySet()
+            .stream()
+            .map(bufferedMetric -> bufferedMetric.getValue().toMetricDatum(bufferedMetric.getKey()))
+            .toList();
+        metricsSink.publish(METRIC_NAMESPACE, metricData);
+    }
+
+    /**
+     * Values recorded for a metric since the last flush, with the number of times each was recorded.
+     */
+    private static final class MetricAggregate {
+        private final Instant firstSampleTime;
+        private final StandardUnit unit;
+        private final Map<Double, Integer> valueCounts = new LinkedHashMap<>();
+
+        MetricAggregate(final Instant firstSampleTime, final StandardUnit unit) {
+            this.firstSampleTime = firstSampleTime;
+            this.unit = unit;
+        }
+
+        void add(final double value) {
+            valueCounts.merge(value, 1, Integer::sum);
+        }
+
+        int distinctValueCount() {
+            return valueCounts.size();
+        }
+
+        /**
+         * Builds a datum with a single value if only one sample was recorded, otherwise with the recorded values and counts.
+         */
+        MetricDatum toMetricDatum(final String metricName) {
+            final MetricDatum.Builder metricDatum = MetricDatum.builder()
+                .metricName(metricName)
+                .unit(unit)
+                .timestamp(firstSampleTime);
+            if (valueCounts.size() == 1 && valueCounts.values().iterator().next() == 1) {
+                return metricDatum.value(valueCounts.keySet().iterator().next()).build();
+            }
+            return metricDatum
+                .values(List.copyOf(valueCounts.keySet()))
+                .counts(valueCounts.values().stream().map(Integer::doubleValue).toList())
+                .build();
         }
     }
 }
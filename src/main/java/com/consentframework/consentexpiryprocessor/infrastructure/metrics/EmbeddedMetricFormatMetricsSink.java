@@ -0,0 +1,109 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.metrics;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Publishes metrics by writing CloudWatch Embedded Metric Format (EMF) documents to standard output.
+ *
+ * In Lambda, CloudWatch Logs extracts metrics from EMF log lines asynchronously, so publishing
+ * makes no network calls. Each datum is written as its own single-line JSON document, or as several
+ * if it holds more distinct values than one document may carry.
+ *
+ * An aggregated datum is written as the Values/Counts pair it was recorded with, so CloudWatch computes
+ * percentiles over the real samples. EMF has no StatisticSet representation, so a datum holding only a
+ * StatisticSet is logged and dropped rather than written as made-up samples.
+ *
+ * Ref: https://docs.aws.amazon.com/AmazonCloudWatch/latest/monitoring/CloudWatch_Embedded_Metric_Format_Specification.html
+ */
+public class EmbeddedMetricFormatMetricsSink implements MetricsSink {
+    static final int MAX_VALUES_PER_DOCUMENT = 100;
+
+    private static final Logger logger = LogManager.getLogger(EmbeddedMetricFormatMetricsSink.class);
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final PrintStream outputStream;
+
+    /**
+     * Constructs a new EmbeddedMetricFormatMetricsSink.
+     *
+     * @param outputStream The stream to write EMF documents to, System.out in Lambda.
+     */
+    public EmbeddedMetricFormatMetricsSink(final PrintStream outputStream) {
+        this.outputStream = outputStream;
+    }
+
+    /**
+     * Writes one EMF document per metric datum, splitting datums with more than 100 distinct values across documents.
+     */
+    @Override
+    public void publish(final String namespace, final List<MetricDatum> metricData) {
+        for (final MetricDatum metricDatum : metricData) {
+            if (metricDatum.value() != null) {
+                write(metricDatum, toEmfDocument(namespace, metricDatum).put(metricDatum.metricName(), metricDatum.value()));
+            } else if (metricDatum.hasValues()) {
+                publishValuesAndCounts(namespace, metricDatum);
+            } else {
+                logger.warn("Dropping metric {}, embedded metric format cannot represent a StatisticSet", metricDatum);
+            }
+        }
+    }
+
+    /**
+     * Writes the values of a datum and the number of times each was recorded, at most 100 values per document.
+     */
+    private void publishValuesAndCounts(final String namespace, final MetricDatum metricDatum) {
+        final List<Double> values = metricDatum.values();
+        for (int startIndex = 0; startIndex < values.size(); startIndex += MAX_VALUES_PER_DOCUMENT) {
+            final int endIndex = Math.min(startIndex + MAX_VALUES_PER_DOCUMENT, values.size());
+            final ObjectNode emfDocument = toEmfDocument(namespace, metricDatum);
+            final ObjectNode metricValue = emfDocument.putObject(metricDatum.metricName());
+            final ArrayNode documentValues = metricValue.putArray("Values");
+            final ArrayNode documentCounts = metricValue.putArray("Counts");
+            for (int index = startIndex; index < endIndex; index++) {
+                documentValues.add(values.get(index));
+                // PutMetricData treats missing counts as one sample per value
+                documentCounts.add(metricDatum.hasCounts() ? metricDatum.counts().get(index) : 1.0);
+            }
+            write(metricDatum, emfDocument);
+        }
+    }
+
+    private void write(final MetricDatum metricDatum, final ObjectNode emfDocument) {
+        try {
+            final String serializedDocument = OBJECT_MAPPER.writeValueAsString(emfDocument);
+            synchronized (outputStream) {
+                outputStream.println(serializedDocument);
+            }
+        } catch (final JsonProcessingException e) {
+            logger.error(String.format("Failed to serialize metric %s to embedded metric format", metricDatum), e);
+        }
+    }
+
+    /**
+     * Builds an EMF document holding the metadata of the datum, without its value.
+     */
+    private ObjectNode toEmfDocument(final String namespace, final MetricDatum metricDatum) {
+        final ObjectNode emfDocument = OBJECT_MAPPER.createObjectNode();
+
+        final ObjectNode metadata = emfDocument.putObject("_aws");
+        metadata.put("Timestamp", metricDatum.timestamp().toEpochMilli());
+        final ObjectNode metricDirective = metadata.putArray("CloudWatchMetrics").addObject();
+        metricDirective.put("Namespace", namespace);
+        // Publish without dimensions, matching the metrics published through PutMetricData
+        metricDirective.putArray("Dimensions").addArray();
+        final ArrayNode metricDefinitions = metricDirective.putArray("Metrics");
+        metricDefinitions.addObject()
+            .put("Name", metricDatum.metricName())
+            .put("Unit", metricDatum.unitAsString());
+        return emfDocument;
+    }
+}
@@ -0,0 +1,165 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.metrics;
+
+import com.consentframework.consentexpiryprocessor.domain.metrics.ExpiryRunRecorder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records latency histograms and counters for an expiry run, and reports them once the run finishes.
+ *
+ * Page query and consent update latencies are recorded in microseconds into HdrHistograms, which keep
+ * three significant digits at any latency without storing each sample. When the run finishes, a single
+ * JSON summary is logged with the wall time, latency percentiles, throttles, retries and the consents
+ * scanned and expired per expiry hour, and the p50 and p99 latencies are published as CloudWatch metrics.
+ *
+ * The report is reused across warm invocations, runStarted() resets it at the start of each run.
+ */
+public class ExpiryRunReport implements ExpiryRunRecorder {
+    public static final String PAGE_QUERY_LATENCY_P50_METRIC_NAME = "PageQueryLatencyP50";
+    public static final String PAGE_QUERY_LATENCY_P99_METRIC_NAME = "PageQueryLatencyP99";
+    public static final String CONSENT_UPDATE_LATENCY_P50_METRIC_NAME = "ConsentUpdateLatencyP50";
+    public static final String CONSENT_UPDATE_LATENCY_P99_METRIC_NAME = "ConsentUpdateLatencyP99";
+    public static final String RUN_WALL_TIME_METRIC_NAME = "ExpiryRunWallTime";
+
+    private static final Logger logger = LogManager.getLogger(ExpiryRunReport.class);
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final CloudWatchMetricsHandler metricsHandler;
+    private final Histogram pageQueryLatencyMicros = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+    private final Histogram consentUpdateLatencyMicros = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+    private final LongAdder numThrottles = new LongAdder();
+    private final LongAdder numRetries = new LongAdder();
+    private final Map<String, long[]> consentsPerExpiryHour = new ConcurrentSkipListMap<>();
+
+    private volatile long runStartNanos = System.nanoTime();
+
+    /**
+     * Constructs a new report.
+     *
+     * @param metricsHandler The handler that latency percentiles are published through.
+     */
+    public ExpiryRunReport(final CloudWatchMetricsHandler metricsHandler) {
+        this.metricsHandler = metricsHandler;
+    }
+
+    @Override
+    public void runStarted() {
+        pageQueryLatencyMicros.reset();
+        consentUpdateLatencyMicros.reset();
+        numThrottles.reset();
+        numRetries.reset();
+        consentsPerExpiryHour.clear();
+        runStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public void recordPageQuery(final long latencyNanos) {
+        pageQueryLatencyMicros.recordValue(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+    }
+
+    @Override
+    public void recordConsentUpdate(final long latencyNanos) {
+        consentUpdateLatencyMicros.recordValue(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+    }
+
+    @Override
+    public void recordThrottle() {
+        numThrottles.increment();
+    }
+
+    @Override
+    public void recordRetry() {
+        numRetries.increment();
+    }
+
+    @Override
+    public long numThrottles() {
+        return numThrottles.sum();
+    }
+
+    @Override
+    public long numRetries() {
+        return numRetries.sum();
+    }
+
+    @Override
+    public void recordExpiryHour(final String expiryHour, final int numConsentsScanned, final int numConsentsExpired) {
+        if (numConsentsScanned > 0) {
+            consentsPerExpiryHour.put(expiryHour, new long[] {numConsentsScanned, numConsentsExpired});
+        }
+    }
+
+    /**
+     * Logs the run summary and publishes the latency percentiles.
+     */
+    @Override
+    public void runFinished() {
+        final long wallTimeNanos = System.nanoTime() - runStartNanos;
+        logger.info("Expiry run summary: {}", buildSummary(wallTimeNanos));
+
+        metricsHandler.publishLatencyMetric(RUN_WALL_TIME_METRIC_NAME, TimeUnit.NANOSECONDS.toMicros(wallTimeNanos) / MICROS_PER_MILLI);
+        publishPercentiles(pageQueryLatencyMicros, PAGE_QUERY_LATENCY_P50_METRIC_NAME, PAGE_QUERY_LATENCY_P99_METRIC_NAME);
+        publishPercentiles(consentUpdateLatencyMicros, CONSENT_UPDATE_LATENCY_P50_METRIC_NAME, CONSENT_UPDATE_LATENCY_P99_METRIC_NAME);
+    }
+
+    /**
+     * Builds the structured summary of what was recorded since the run started.
+     *
+     * @param wallTimeNanos The time elapsed since the run started.
+     * @return Run summary.
+     */
+    ObjectNode buildSummary(final long wallTimeNanos) {
+        final ObjectNode summary = OBJECT_MAPPER.createObjectNode();
+        summary.put("wallTimeMillis", TimeUnit.NANOSECONDS.toMillis(wallTimeNanos));
+        putLatencies(summary.putObject("pageQueries"), pageQueryLatencyMicros);
+        putLatencies(summary.putObject("consentUpdates"), consentUpdateLatencyMicros);
+        summary.put("throttles", numThrottles.sum());
+        summary.put("retries", numRetries.sum());
+
+        long totalScanned = 0;
+        long totalExpired = 0;
+        final ObjectNode expiryHours = summary.putObject("expiryHours");
+        for (final Map.Entry<String, long[]> expiryHour : consentsPerExpiryHour.entrySet()) {
+            final long[] counts = expiryHour.getValue();
+            expiryHours.putObject(expiryHour.getKey())
+                .put("scanned", counts[0])
+                .put("expired", counts[1]);
+            totalScanned += counts[0];
+            totalExpired += counts[1];
+        }
+        summary.put("consentsScanned", totalScanned);
+        summary.put("consentsExpired", totalExpired);
+        return summary;
+    }
+
+    private static void putLatencies(final ObjectNode node, final Histogram latencyMicros) {
+        node.put("count", latencyMicros.getTotalCount());
+        if (latencyMicros.getTotalCount() > 0) {
+            node.put("p50Millis", toMillis(latencyMicros.getValueAtPercentile(50)));
+            node.put("p99Millis", toMillis(latencyMicros.getValueAtPercentile(99)));
+            node.put("maxMillis", toMillis(latencyMicros.getMaxValue()));
+        }
+    }
+
+    private void publishPercentiles(final Histogram latencyMicros, final String p50MetricName, final String p99MetricName) {
+        if (latencyMicros.getTotalCount() > 0) {
+            metricsHandler.publishLatencyMetric(p50MetricName, toMillis(latencyMicros.getValueAtPercentile(50)));
+            metricsHandler.publishLatencyMetric(p99MetricName, toMillis(latencyMicros.getValueAtPercentile(99)));
+        }
+    }
+
+    private static double toMillis(final long micros) {
+        return micros / MICROS_PER_MILLI;
+    }
+}
@@ -0,0 +1,20 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.metrics;
+
+import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
+
+import java.util.List;
+
+/**
+ * Destination that CloudWatchMetricsHandler delivers aggregated metric data to.
+ */
+public interface MetricsSink {
+    /**
+     * Publishes metric data to CloudWatch.
+     *
+     * Implementations should log rather than throw on delivery failures, so that metrics never fail a job.
+     *
+     * @param namespace The CloudWatch metric namespace.
+     * @param metricData The metric data to publish.
+     */
+    void publish(final String namespace, final List<MetricDatum> metricData);
+}
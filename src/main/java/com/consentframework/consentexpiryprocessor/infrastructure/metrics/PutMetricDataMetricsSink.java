@@ -0,0 +1,53 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
+import software.amazon.awssdk.services.cloudwatch.model.CloudWatchException;
+import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
+import software.amazon.awssdk.services.cloudwatch.model.PutMetricDataRequest;
+
+import java.util.List;
+
+/**
+ * Publishes metrics through synchronous CloudWatch PutMetricData API calls.
+ */
+public class PutMetricDataMetricsSink implements MetricsSink {
+    static final int MAX_DATUMS_PER_REQUEST = 1000;
+
+    private static final Logger logger = LogManager.getLogger(PutMetricDataMetricsSink.class);
+
+    private final CloudWatchClient cloudWatchClient;
+
+    /**
+     * Constructs a new PutMetricDataMetricsSink.
+     *
+     * @param cloudWatchClient The CloudWatch client used to publish metrics.
+     */
+    public PutMetricDataMetricsSink(final CloudWatchClient cloudWatchClient) {
+        this.cloudWatchClient = cloudWatchClient;
+    }
+
+    /**
+     * Publishes the metric data in as few PutMetricData requests as the API's datum limit allows.
+     */
+    @Override
+    public void publish(final String namespace, final List<MetricDatum> metricData) {
+        for (int startIndex = 0; startIndex < metricData.size(); startIndex += MAX_DATUMS_PER_REQUEST) {
+            putMetricData(namespace, metricData.subList(startIndex, Math.min(startIndex + MAX_DATUMS_PER_REQUEST, metricData.size())));
+        }
+    }
+
+    private void putMetricData(final String namespace, final List<MetricDatum> metricData) {
+        final PutMetricDataRequest putMetricDataRequest = PutMetricDataRequest.builder()
+            .namespace(namespace)
+            .metricData(metricData)
+            .build();
+        try {
+            cloudWatchClient.putMetricData(putMetricDataRequest);
+        } catch (final CloudWatchException e) {
+            final String errorMessage = String.format("Failed to publish CloudWatch metrics %s", metricData.toString());
+            logger.error(errorMessage, e);
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.repositories;
+
+import com.consentframework.consentexpiryprocessor.domain.constants.ConsentExpiryStatus;
+import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
+import com.consentframework.consentexpiryprocessor.domain.entities.ConsentExpiryResult;
+import com.consentframework.consentexpiryprocessor.domain.entities.ExpiryTimeCutoff;
+import com.consentframework.consentexpiryprocessor.domain.metrics.ExpiryRunRecorder;
+import com.consentframework.consentexpiryprocessor.domain.repositories.ConsentPageCursor;
+import com.consentframework.consentexpiryprocessor.domain.repositories.ConsentRepository;
+import com.consentframework.consentexpiryprocessor.domain.repositories.PrefetchingConsentPageCursor;
+import com.consentframework.consentexpiryprocessor.domain.repositories.PrefetchingConsentPageCursor.KeyedPage;
+import com.consentframework.consentexpiryprocessor.infrastructure.mappers.DynamoDbExpiryHourTokenMapper;
+import com.consentframework.consentexpiryprocessor.infrastructure.metrics.CloudWatchMetricsHandler;
+import com.consentframework.consentexpiryprocessor.infrastructure.throttling.AdaptiveRateLimiter;
+import com.consentframework.consentexpiryprocessor.infrastructure.throttling.ThrottlingRetryPolicy;
+import com.consentframework.shared.api.domain.pagination.ListPage;
+import com.consentframework.shared.api.infrastructure.entities.DynamoDbActiveConsentWithExpiryTime;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import software.amazon.awssdk.core.async.SdkPublisher;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * DynamoDB implementation of the consent repository built on the non-blocking DynamoDB client.
+ *
+ * Page queries are issued asynchronously so that callers can prefetch the next page while
+ * expiring the current one, and batch expiries keep up to maxConcurrentWrites UpdateItem
+ * calls in flight without dedicating a thread to each call.
+ */
+public class DynamoDbAsyncConsentRepository implements ConsentRepository {
+    private static final Logger logger = LogManager.getLogger(DynamoDbAsyncConsentRepository.class);
+
+    private final DynamoDbAsyncClient ddbClient;
+    private final DynamoDbAsyncTable<DynamoDbActiveConsentWithExpiryTime> consentTable;
+    private final CloudWatchMetricsHandler metricsHandler;
+    private final int maxConcurrentWrites;
+    private final AdaptiveRateLimiter writeRateLimiter;
+    private final ThrottlingRetryPolicy retryPolicy;
+    private final ExpiryWriteRetries writeRetries;
+    private final int queryPageSize;
+    private final ExpiryRunRecorder runRecorder;
+    private final int expiryHourShardCount;
+
+    /**
+     * Initializes a new asynchronous DynamoDB consent repository with the default settings.
+     *
+     * @param ddbClient The asynchronous DynamoDB client used to update items.
+     * @param consentTable The asynchronous DynamoDB table used to query active consents with expiry times.
+     * @param metricsHandler The handler used to publish expiry metrics.
+     */
+    public DynamoDbAsyncConsentRepository(final DynamoDbAsyncClient ddbClient,
+            final DynamoDbAsyncTable<DynamoDbActiveConsentWithExpiryTime> consentTable,
+            final CloudWatchMetricsHandler metricsHandler) {
+        this(ddbClient, consentTable, metricsHandler, DynamoDbConsentRepositorySettings.builder().build());
+    }
+
+    /**
+     * Initializes a new asynchronous DynamoDB consent repository.
+     *
+     * @param ddbClient The asynchronous DynamoDB client used to update items.
+     * @param consentTable The asynchronous DynamoDB table used to query active consents with expiry times.
+     * @param metricsHandler The handler used to publish expiry metrics.
+     * @param settings The page size, write concurrency and pacing, run recorder and expiry hour shard count.
+     */
+    public DynamoDbAsyncConsentRepository(final DynamoDbAsyncClient ddbClient,
+            final DynamoDbAsyncTable<DynamoDbActiveConsentWithExpiryTime> consentTable,
+            final CloudWatchMetricsHandler metricsHandler,
+            final DynamoDbConsentRepositorySettings settings) {
+        this.ddbClient = ddbClient;
+        this.consentTable = consentTable;
+        this.metricsHandler = metricsHandler;
+        this.maxConcurrentWrites = settings.maxConcurrentWrites();
+        this.writeRateLimiter = settings.writeRateLimiter();
+        this.retryPolicy = settings.retryPolicy();
+        this.writeRetries = new ExpiryWriteRetries(settings);
+        this.queryPageSize = settings.queryPageSize();
+        this.runRecorder = settings.runRecorder();
+        this.expiryHourShardCount = settings.expiryHourShardCount();
+    }
+
+    /**
+     * Retrieves a paginated list of active consents with non-null expiry times.
+     */
+    @Override
+    public ListPage<ActiveConsentWithExpiryTime> getActiveConsentsWithExpiryHour(final String expiryHour,
+            final Optional<String> pageToken) {
+        return DynamoDbConsentRequests.join(getActiveConsentsWithExpiryHourAsync(expiryHour, pageToken));
+    }
+
+    /**
+     * Retrieves a paginated list of active consents that expired before the cutoff, filtered by the query's key condition.
+     */
+    @Override
+    public ListPage<ActiveConsentWithExpiryTime> getActiveConsentsWithExpiryHour(final String expiryHour,
+            final Optional<String> pageToken, final OffsetDateTime expiredBefore) {
+        return DynamoDbConsentRequests.join(getActiveConsentsWithExpiryHourAsync(expiryHour, pageToken, expiredBefore));
+    }
+
+    /**
+     * Asynchronously retrieves a paginated list of active consents with non-null expiry times.
+     */
+    @Override
+    public CompletableFuture<ListPage<ActiveConsentWithExpiryTime>> getActiveConsentsWithExpiryHourAsync(final String expiryHour,
+            final Optional<String> pageToken) {
+        return queryActiveConsentsWithExpiryHour(expiryHour, pageToken, Optional.empty());
+    }
+
+    /**
+     * Asynchronously retrieves a paginated list of active consents that expired before the cutoff,
+     * filtered by the query's key condition.
+     */
+    @Override
+    public CompletableFuture<ListPage<ActiveConsentWithExpiryTime>> getActiveConsentsWithExpiryHourAsync(final String expiryHour,
+            final Optional<String> pageToken, final OffsetDateTime expiredBefore) {
+        return queryActiveConsentsWithExpiryHour(expiryHour, pageToken, Optional.of(expiredBefore));
+    }
+
+    /**
+     * Opens a cursor over the consents that expired before the cutoff, continuing each query from the previous
+     * page's native last evaluated key so that no page token is serialized between pages.
+     *
+     * When expiry hours are sharded, each page queries every partition of the hour concurrently.
+     */
+    @Override
+    public ConsentPageCursor openExpiredConsentPages(final String expiryHour, final Optional<String> pageToken,
+            final ExpiryTimeCutoff cutoff) {
+        final Optional<OffsetDateTime> expiredBefore = Optional.of(cutoff.toOffsetDateTime());
+        if (expiryHourShardCount > 1) {
+            return ShardedExpiryHourQuery.openCursor(expiryHour, expiryHourShardCount, pageToken, cutoff, queryPageSize,
+                toPartitionQuery(expiredBefore));
+        }
+        return new PrefetchingConsentPageCursor<>(Optional.ofNullable(DynamoDbExpiryHourTokenMapper.toDynamoDbPageToken(pageToken)),
+            cutoff,
+            exclusiveStartKey -> DynamoDbConsentRequests.join(
+                queryKeyedPage(expiryHour, exclusiveStartKey.orElse(null), expiredBefore, queryPageSize)),
+            exclusiveStartKey -> queryKeyedPage(expiryHour, exclusiveStartKey.orElse(null), expiredBefore, queryPageSize),
+            DynamoDbConsentRequests::toPageToken);
+    }
+
+    private CompletableFuture<KeyedPage<Map<String, AttributeValue>>> queryKeyedPage(final String expiryHour,
+            final Map<String, AttributeValue> exclusiveStartKey, final Optional<OffsetDateTime> expiredBefore, final int pageSize) {
+        final QueryEnhancedRequest queryRequest = DynamoDbConsentRequests.buildGetConsentsToExpireQueryRequest(
+            expiryHour, exclusiveStartKey, expiredBefore, pageSize);
+        return queryPage(expiryHour, queryRequest)
+            .thenApply(DynamoDbConsentRequests::toKeyedPage);
+    }
+
+    /**
+     * Queries each partition of a sharded expiry hour without blocking, so every partition is queried concurrently.
+     */
+    private ShardedExpiryHourQuery.PartitionQuery toPartitionQuery(final Optional<OffsetDateTime> expiredBefore) {
+        return (partitionKey, exclusiveStartKey, partitionPageSize) ->
+            queryKeyedPage(partitionKey, exclusiveStartKey, expiredBefore, partitionPageSize);
+    }
+
+    private CompletableFuture<ListPage<ActiveConsentWithExpiryTime>> queryActiveConsentsWithExpiryHour(final String expiryHour,
+            final Optional<String> pageToken, final Optional<OffsetDateTime> expiredBefore) {
+        if (expiryHourShardCount > 1) {
+            return ShardedExpiryHourQuery.queryListPage(expiryHour, expiryHourShardCount, pageToken, queryPageSize,
+                toPartitionQuery(expiredBefore));
+        }
+
+        return queryPage(expiryHour,
+                DynamoDbConsentRequests.buildGetConsentsToExpireQueryRequest(expiryHour, pageToken, expiredBefore, queryPageSize))
+            .thenApply(firstPage -> {
+                if (firstPage == null) {
+                    return null;
+                }
+                final ListPage<ActiveConsentWithExpiryTime> consentsPage = DynamoDbConsentRequests.toListPage(firstPage);
+                logger.debug("Received page of {} consents with nextPageToken {} when querying expiry hour {}",
+                    consentsPage.resultsOnPage().size(), consentsPage.nextPageToken(), expiryHour);
+                return consentsPage;
+            });
+    }
+
+    /**
+     * Queries a single page of the ActiveConsentsByExpiryHour GSI.
+     *
+     * Only the requested page is read, the query publisher is cancelled once its first page arrives
+     * so that the SDK does not start fetching the following page.
+     *
+     * @return future completed with the page of GSI items, or null if no results found.
+     */
+    private CompletableFuture<Page<DynamoDbActiveConsentWithExpiryTime>> queryPage(final String expiryHour,
+            final QueryEnhancedRequest queryRequest) {
+        logger.debug("Retrieving active consents with expiry hour {}", expiryHour);
+        final long queryStartNanos = System.nanoTime();
+        final SdkPublisher<Page<DynamoDbActiveConsentWithExpiryTime>> queryResults = consentTable
+            .index(DynamoDbActiveConsentWithExpiryTime.ACTIVE_CONSENTS_BY_EXPIRY_HOUR_GSI_NAME)
+            .query(queryRequest);
+        if (queryResults == null) {
+            logger.debug("Received null query results for expiry hour {}", expiryHour);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        final FirstPageSubscriber firstPageSubscriber = new FirstPageSubscriber();
+        queryResults.subscribe(firstPageSubscriber);
+        return firstPageSubscriber.firstPage
+            .whenComplete((page, exception) -> runRecorder.recordPageQuery(System.nanoTime() - queryStartNanos));
+    }
+
+    /**
+     * Updates the status of a consent to expired, retrying if the write is throttled.
+     *
+     * Conditional check failures, writes still throttled once the retries are exhausted and other DynamoDB errors specific
+     * to the consent are reported through the returned status, as in expireConsents. Errors that every write would fail with are rethrown.
+     */
+    @Override
+    public ConsentExpiryStatus expireConsent(final String id, final String updatedVersion) {
+        final ConsentExpiryStatus status = DynamoDbConsentRequests.join(expireConsentAsync(id, updatedVersion)).status();
+        if (status == ConsentExpiryStatus.SUCCESS) {
+            logger.debug("Successfully expired consent with id {}", id);
+            this.metricsHandler.publishCountMetric(DynamoDbConsentRepository.EXPIRED_CONSENT_METRIC_NAME, 1);
+        }
+        return status;
+    }
+
+    /**
+     * Updates the status of a batch of consents to expired.
+     *
+     * Issues one conditional UpdateItem call per consent, waiting for a free slot whenever
+     * maxConcurrentWrites calls are already in flight, and pacing calls with the shared write rate limiter.
+     * Throttled calls are retried with backoff, conditional check failures and calls still throttled once
+     * the retries are exhausted are reported per consent rather than failing the batch, as are other DynamoDB errors
+     * specific to a consent. Errors that every write would fail with are rethrown.
+     */
+    @Override
+    public List<ConsentExpiryResult> expireConsents(final List<ActiveConsentWithExpiryTime> consents) {
+        if (consents.isEmpty()) {
+            return List.of();
+        }
+        logger.debug("Updating batch of {} consents to expired", consents.size());
+
+        final Semaphore writePermits = new Semaphore(maxConcurrentWrites);
+        final List<CompletableFuture<ConsentExpiryResult>> pendingResults = consents.stream()
+            .map(consent -> {
+                writePermits.acquireUninterruptibly();
+                return expireConsentAsync(consent.id(), String.valueOf(consent.consentVersion() + 1))
+                    .whenComplete((result, exception) -> writePermits.release());
+            })
+            .toList();
+        final List<ConsentExpiryResult> results = pendingResults.stream()
+            .map(DynamoDbConsentRequests::join)
+            .toList();
+
+        final long numExpiredConsents = results.stream()
+            .filter(result -> result.status() == ConsentExpiryStatus.SUCCESS)
+            .count();
+        logger.debug("Successfully expired {} of {} consents in batch", numExpiredConsents, consents.size());
+        if (numExpiredConsents > 0) {
+            this.metricsHandler.publishCountMetric(DynamoDbConsentRepository.EXPIRED_CONSENT_METRIC_NAME, (int) numExpiredConsents);
+        }
+        return results;
+    }
+
+    /**
+     * Waits for a rate limiter permit on the calling thread, then issues the update.
+     *
+     * The recorded update latency includes the wait for the permit, as it does in DynamoDbConsentRepository.
+     */
+    private CompletableFuture<ConsentExpiryResult> expireConsentAsync(final String id, final String updatedVersion) {
+        logger.debug("Updating consent with id {} to expired, with updated version {}", id, updatedVersion);
+        final long updateStartNanos = System.nanoTime();
+        writeRateLimiter.acquire();
+
+        return updateItemWithRetries(id, DynamoDbConsentRequests.buildExpireConsentRequest(id, updatedVersion), 1)
+            .handle((response, exception) -> {
+                runRecorder.recordConsentUpdate(System.nanoTime() - updateStartNanos);
+                if (exception == null) {
+                    return DynamoDbConsentRequests.buildExpiryResult(id, ConsentExpiryStatus.SUCCESS);
+                }
+                final Throwable cause = DynamoDbConsentRequests.unwrap(exception);
+                final ConsentExpiryResult failedResult = DynamoDbConsentRequests.toFailedExpiryResult(id, cause)
+                    .orElseThrow(() -> new CompletionException(cause));
+                DynamoDbConsentRequests.logFailedExpiryResult(failedResult, cause);
+                return failedResult;
+            });
+    }
+
+    /**
+     * Issues the UpdateItem call, retrying with backoff while it is throttled.
+     *
+     * expireConsentAsync acquires the rate limiter permit for the first attempt. Retries are scheduled on a delayed
+     * executor rather than blocking an SDK thread, after both the backoff delay and the wait for a permit.
+     *
+     * @param attempt The attempt being made, starting from 1.
+     */
+    private CompletableFuture<Void> updateItemWithRetries(final String id, final UpdateItemRequest updateItemRequest,
+            final int attempt) {
+        return ddbClient.updateItem(updateItemRequest)
+            .handle((response, exception) -> {
+                if (exception == null) {
+                    writeRetries.onAccepted();
+                    return CompletableFuture.<Void>completedFuture(null);
+                }
+                final Throwable cause = DynamoDbConsentRequests.unwrap(exception);
+                if (!writeRetries.shouldRetry(id, cause, attempt)) {
+                    return CompletableFuture.<Void>failedFuture(cause);
+                }
+                final long delayNanos = retryPolicy.backoffNanos(attempt) + writeRateLimiter.reserve();
+                return CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS))
+                    .thenCompose(ignored -> updateItemWithRetries(id, updateItemRequest, attempt + 1));
+            })
+            .thenCompose(Function.identity());
+    }
+
+    /**
+     * Requests a single page from a query publisher, then cancels the subscription.
+     */
+    private static final class FirstPageSubscriber implements Subscriber<Page<DynamoDbActiveConsentWithExpiryTime>> {
+        private final CompletableFuture<Page<DynamoDbActiveConsentWithExpiryTime>> firstPage = new CompletableFuture<>();
+        private Subscription subscription;
+
+        @Override
+        public void onSubscribe(final Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(final Page<DynamoDbActiveConsentWithExpiryTime> page) {
+            subscription.cancel();
+            firstPage.complete(page);
+        }
+
+        @Override
+        public void onError(final Throwable exception) {
+            firstPage.completeExceptionally(exception);
+        }
+
+        @Override
+        public void onComplete() {
+            firstPage.complete(null);
+        }
+    }
+}
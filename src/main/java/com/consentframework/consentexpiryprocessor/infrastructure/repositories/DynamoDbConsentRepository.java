@@ -1,26 +1,41 @@
 package com.consentframework.consentexpiryprocessor.infrastructure.repositories;
 
+import com.consentframework.consentexpiryprocessor.domain.constants.ConsentExpiryStatus;
 import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
+import com.consentframework.consentexpiryprocessor.domain.entities.ConsentExpiryResult;
+import com.consentframework.consentexpiryprocessor.domain.entities.ExpiryTimeCutoff;
+import com.consentframework.consentexpiryprocessor.domain.metrics.ExpiryRunRecorder;
+import com.consentframework.consentexpiryprocessor.domain.repositories.ConsentPageCursor;
 import com.consentframework.consentexpiryprocessor.domain.repositories.ConsentRepository;
+import com.consentframework.consentexpiryprocessor.domain.repositories.PrefetchingConsentPageCursor;
+import com.consentframework.consentexpiryprocessor.domain.repositories.PrefetchingConsentPageCursor.KeyedPage;
 import com.consentframework.consentexpiryprocessor.infrastructure.mappers.DynamoDbExpiryHourTokenMapper;
 import com.consentframework.consentexpiryprocessor.infrastructure.metrics.CloudWatchMetricsHandler;
+import com.consentframework.consentexpiryprocessor.infrastructure.throttling.AdaptiveRateLimiter;
+import com.consentframework.consentexpiryprocessor.infrastructure.throttling.ThrottlingRetryPolicy;
 import com.consentframework.shared.api.domain.pagination.ListPage;
 import com.consentframework.shared.api.infrastructure.entities.DynamoDbActiveConsentWithExpiryTime;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.core.pagination.sync.SdkIterable;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
-import software.amazon.awssdk.enhanced.dynamodb.Key;
 import software.amazon.awssdk.enhanced.dynamodb.model.Page;
-import software.amazon.awssdk.enhanced.dynamodb.model.QueryConditional;
 import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
 import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * DynamoDB implementation of the consent repository.
@@ -29,24 +44,53 @@ public class DynamoDbConsentRepository implements ConsentRepository {
     private static final Logger logger = LogManager.getLogger(DynamoDbConsentRepository.class);
 
     public static final String EXPIRED_CONSENT_METRIC_NAME = "ExpiredConsent";
-    private static final String EXPIRED_STATUS = "EXPIRED";
 
     private final DynamoDbClient ddbClient;
     private final DynamoDbTable<DynamoDbActiveConsentWithExpiryTime> consentTable;
     private final CloudWatchMetricsHandler metricsHandler;
+    private final int maxConcurrentWrites;
+    private final AdaptiveRateLimiter writeRateLimiter;
+    private final ThrottlingRetryPolicy retryPolicy;
+    private final ExpiryWriteRetries writeRetries;
+    private final int queryPageSize;
+    private final ExpiryRunRecorder runRecorder;
+    private final int expiryHourShardCount;
 
     /**
-     * Initializes a new DynamoDB consent repository.
+     * Initializes a new DynamoDB consent repository with the default settings.
      *
      * @param ddbClient The DynamoDB client used to update items.
      * @param consentTable The DynamoDB table used to query active consents with expiry times.
+     * @param metricsHandler The handler used to publish expiry metrics.
      */
     public DynamoDbConsentRepository(final DynamoDbClient ddbClient,
             final DynamoDbTable<DynamoDbActiveConsentWithExpiryTime> consentTable,
             final CloudWatchMetricsHandler metricsHandler) {
+        this(ddbClient, consentTable, metricsHandler, DynamoDbConsentRepositorySettings.builder().build());
+    }
+
+    /**
+     * Initializes a new DynamoDB consent repository.
+     *
+     * @param ddbClient The DynamoDB client used to update items.
+     * @param consentTable The DynamoDB table used to query active consents with expiry times.
+     * @param metricsHandler The handler used to publish expiry metrics.
+     * @param settings The page size, write concurrency and pacing, run recorder and expiry hour shard count.
+     */
+    public DynamoDbConsentRepository(final DynamoDbClient ddbClient,
+            final DynamoDbTable<DynamoDbActiveConsentWithExpiryTime> consentTable,
+            final CloudWatchMetricsHandler metricsHandler,
+            final DynamoDbConsentRepositorySettings settings) {
         this.ddbClient = ddbClient;
         this.consentTable = consentTable;
         this.metricsHandler = metricsHandler;
+        this.maxConcurrentWrites = settings.maxConcurrentWrites();
+        this.writeRateLimiter = settings.writeRateLimiter();
+        this.retryPolicy = settings.retryPolicy();
+        this.writeRetries = new ExpiryWriteRetries(settings);
+        this.queryPageSize = settings.queryPageSize();
+        this.runRecorder = settings.runRecorder();
+        this.expiryHourShardCount = settings.expiryHourShardCount();
     }
 
     /**
@@ -55,104 +99,200 @@ public class DynamoDbConsentRepository implements ConsentRepository {
     @Override
     public ListPage<ActiveConsentWithExpiryTime> getActiveConsentsWithExpiryHour(final String expiryHour,
             final Optional<String> pageToken) {
-        final String context = String.format("expiry hour %s, pageToken %s", expiryHour, pageToken.orElse("null"));
-        logger.info("Retrieving active consents with {}", context);
-        final QueryEnhancedRequest queryRequest = buildGetConsentsToExpireQueryRequest(expiryHour, pageToken);
+        return queryActiveConsentsWithExpiryHour(expiryHour, pageToken, Optional.empty());
+    }
+
+    /**
+     * Retrieves a paginated list of active consents that expired before the cutoff, filtered by the query's key condition.
+     */
+    @Override
+    public ListPage<ActiveConsentWithExpiryTime> getActiveConsentsWithExpiryHour(final String expiryHour,
+            final Optional<String> pageToken, final OffsetDateTime expiredBefore) {
+        return queryActiveConsentsWithExpiryHour(expiryHour, pageToken, Optional.of(expiredBefore));
+    }
+
+    /**
+     * Opens a cursor over the consents that expired before the cutoff, continuing each query from the previous
+     * page's native last evaluated key so that no page token is serialized between pages.
+     *
+     * When expiry hours are sharded, each page queries every partition of the hour on its own virtual thread.
+     */
+    @Override
+    public ConsentPageCursor openExpiredConsentPages(final String expiryHour, final Optional<String> pageToken,
+            final ExpiryTimeCutoff cutoff) {
+        final Optional<OffsetDateTime> expiredBefore = Optional.of(cutoff.toOffsetDateTime());
+        if (expiryHourShardCount > 1) {
+            return ShardedExpiryHourQuery.openCursor(expiryHour, expiryHourShardCount, pageToken, cutoff, queryPageSize,
+                toPartitionQuery(expiredBefore));
+        }
+        return new PrefetchingConsentPageCursor<>(Optional.ofNullable(DynamoDbExpiryHourTokenMapper.toDynamoDbPageToken(pageToken)),
+            cutoff,
+            exclusiveStartKey -> queryKeyedPage(expiryHour, exclusiveStartKey.orElse(null), expiredBefore, queryPageSize),
+            exclusiveStartKey -> CompletableFuture.supplyAsync(
+                () -> queryKeyedPage(expiryHour, exclusiveStartKey.orElse(null), expiredBefore, queryPageSize),
+                runnable -> Thread.ofVirtual().start(runnable)),
+            DynamoDbConsentRequests::toPageToken);
+    }
+
+    private KeyedPage<Map<String, AttributeValue>> queryKeyedPage(final String expiryHour,
+            final Map<String, AttributeValue> exclusiveStartKey, final Optional<OffsetDateTime> expiredBefore, final int pageSize) {
+        final QueryEnhancedRequest queryRequest = DynamoDbConsentRequests.buildGetConsentsToExpireQueryRequest(
+            expiryHour, exclusiveStartKey, expiredBefore, pageSize);
+        return DynamoDbConsentRequests.toKeyedPage(queryPage(expiryHour, queryRequest));
+    }
+
+    /**
+     * Queries each partition of a sharded expiry hour on its own virtual thread.
+     */
+    private ShardedExpiryHourQuery.PartitionQuery toPartitionQuery(final Optional<OffsetDateTime> expiredBefore) {
+        return (partitionKey, exclusiveStartKey, partitionPageSize) -> CompletableFuture.supplyAsync(
+            () -> queryKeyedPage(partitionKey, exclusiveStartKey, expiredBefore, partitionPageSize),
+            runnable -> Thread.ofVirtual().start(runnable));
+    }
 
+    private ListPage<ActiveConsentWithExpiryTime> queryActiveConsentsWithExpiryHour(final String expiryHour,
+            final Optional<String> pageToken, final Optional<OffsetDateTime> expiredBefore) {
+        if (expiryHourShardCount > 1) {
+            return DynamoDbConsentRequests.join(ShardedExpiryHourQuery.queryListPage(expiryHour, expiryHourShardCount, pageToken,
+                queryPageSize, toPartitionQuery(expiredBefore)));
+        }
+
+        final Page<DynamoDbActiveConsentWithExpiryTime> pageResults = queryPage(expiryHour,
+            DynamoDbConsentRequests.buildGetConsentsToExpireQueryRequest(expiryHour, pageToken, expiredBefore, queryPageSize));
+        if (pageResults == null) {
+            return null;
+        }
+
+        final ListPage<ActiveConsentWithExpiryTime> consentsPage = DynamoDbConsentRequests.toListPage(pageResults);
+        logger.debug("Received page of {} consents with nextPageToken {} when querying expiry hour {}",
+            consentsPage.resultsOnPage().size(), consentsPage.nextPageToken(), expiryHour);
+        return consentsPage;
+    }
+
+    /**
+     * Queries a single page of the ActiveConsentsByExpiryHour GSI.
+     *
+     * @return The page of GSI items, or null if no results found.
+     */
+    private Page<DynamoDbActiveConsentWithExpiryTime> queryPage(final String expiryHour, final QueryEnhancedRequest queryRequest) {
+        logger.debug("Retrieving active consents with expiry hour {}", expiryHour);
+        final long queryStartNanos = System.nanoTime();
         final SdkIterable<Page<DynamoDbActiveConsentWithExpiryTime>> queryResults = consentTable
             .index(DynamoDbActiveConsentWithExpiryTime.ACTIVE_CONSENTS_BY_EXPIRY_HOUR_GSI_NAME)
             .query(queryRequest);
         if (queryResults == null) {
-            logger.info("Received null query results for {}", context);
+            logger.debug("Received null query results for expiry hour {}", expiryHour);
             return null;
         }
-
-        return queryResults.stream()
+        final Page<DynamoDbActiveConsentWithExpiryTime> page = queryResults.stream()
             .findFirst()
-            .map(pageResults -> {
-                final Optional<String> nextPageToken = getNextPageToken(pageResults);
-                final List<ActiveConsentWithExpiryTime> consents = pageResults.items()
-                    .stream()
-                    .map(ddbActiveConsentGsiItem -> ActiveConsentWithExpiryTime.builder()
-                        .id(ddbActiveConsentGsiItem.id())
-                        .consentVersion(ddbActiveConsentGsiItem.consentVersion())
-                        .expiryHour(ddbActiveConsentGsiItem.expiryHour())
-                        .expiryTimeId(ddbActiveConsentGsiItem.expiryTimeId())
-                        .build()
-                    )
-                    .toList();
-                logger.info("Received page of {} consents with nextPageToken {} when querying {}",
-                    consents.size(), nextPageToken, context);
-                return new ListPage<ActiveConsentWithExpiryTime>(consents, nextPageToken);
-            })
             .orElse(null);
+        runRecorder.recordPageQuery(System.nanoTime() - queryStartNanos);
+        return page;
     }
 
     /**
-     * Updates the status of a consent to expired.
+     * Updates the status of a consent to expired, retrying if the write is throttled.
+     *
+     * Conditional check failures, writes still throttled once the retries are exhausted and other DynamoDB errors specific
+     * to the consent are reported through the returned status, as in expireConsents. Errors that every write would fail with are rethrown.
      */
     @Override
-    public void expireConsent(final String id, final String updatedVersion) {
-        logger.info("Updating consent with id {} to expired, with updated version {}", id, updatedVersion);
-        final UpdateItemRequest expireConsentRequest = buildExpireConsentRequest(id, updatedVersion);
-        this.ddbClient.updateItem(expireConsentRequest);
-
-        logger.info("Successfully expired consent with id {}", id);
-        this.metricsHandler.publishCountMetric(EXPIRED_CONSENT_METRIC_NAME, 1);
+    public ConsentExpiryStatus expireConsent(final String id, final String updatedVersion) {
+        final ConsentExpiryStatus status = tryExpireConsent(id, updatedVersion).status();
+        if (status == ConsentExpiryStatus.SUCCESS) {
+            logger.debug("Successfully expired consent with id {}", id);
+            this.metricsHandler.publishCountMetric(EXPIRED_CONSENT_METRIC_NAME, 1);
+        }
+        return status;
     }
 
-    private UpdateItemRequest buildExpireConsentRequest(final String id, final String updatedVersion) {
-        final Integer updatedVersionInt = Integer.parseInt(updatedVersion);
-        final Integer lastVersionInt = updatedVersionInt - 1;
-
-        // Use REMOVE to remove GSI key attributes, and SET to update other attributes.
-        // Ref: https://docs.aws.amazon.com/amazondynamodb/latest/developerguide/Expressions.UpdateExpressions.html#Expressions.UpdateExpressions.Multiple
-        final String updateExpression = "SET #consentStatus = :expiredStatus, "
-            + "#consentVersion = :nextConsentVersion "
-            + "REMOVE #expiryHour, #expiryTimeId";
-
-        final String conditionExpression = "attribute_exists(id) AND #consentVersion = :expectedLastVersion";
-
-        final Map<String, AttributeValue> key = Map.of(
-            "id", AttributeValue.builder().s(id).build()
-        );
-        final Map<String, String> expressionAttributeNames = Map.of(
-            "#consentStatus", "consentStatus",
-            "#consentVersion", "consentVersion",
-            "#expiryHour", "expiryHour",
-            "#expiryTimeId", "expiryTimeId"
-        );
-        final Map<String, AttributeValue> expressionAttributeValues = Map.of(
-            ":expectedLastVersion", AttributeValue.builder().n(lastVersionInt.toString()).build(),
-            ":expiredStatus", AttributeValue.builder().s(EXPIRED_STATUS).build(),
-            ":nextConsentVersion", AttributeValue.builder().n(updatedVersion).build()
-        );
-
-        return UpdateItemRequest.builder()
-            .tableName(DynamoDbActiveConsentWithExpiryTime.TABLE_NAME)
-            .key(key)
-            .updateExpression(updateExpression)
-            .conditionExpression(conditionExpression)
-            .expressionAttributeNames(expressionAttributeNames)
-            .expressionAttributeValues(expressionAttributeValues)
-            .build();
-    }
+    /**
+     * Updates the status of a batch of consents to expired.
+     *
+     * Issues one conditional UpdateItem call per consent, with up to maxConcurrentWrites calls
+     * in flight at a time, paced by the shared write rate limiter. Throttled calls are retried with
+     * backoff, conditional check failures and calls still throttled once the retries are exhausted are
+     * reported per consent rather than failing the batch, as are other DynamoDB errors specific to a consent.
+     * Errors that every write would fail with are rethrown.
+     */
+    @Override
+    public List<ConsentExpiryResult> expireConsents(final List<ActiveConsentWithExpiryTime> consents) {
+        if (consents.isEmpty()) {
+            return List.of();
+        }
+        logger.debug("Updating batch of {} consents to expired", consents.size());
 
-    private QueryEnhancedRequest buildGetConsentsToExpireQueryRequest(final String expiryHour, final Optional<String> pageToken) {
-        final Map<String, AttributeValue> exclusiveStartKey = DynamoDbExpiryHourTokenMapper.toDynamoDbPageToken(pageToken);
+        final List<ConsentExpiryResult> results;
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(maxConcurrentWrites, consents.size()),
+            Thread.ofVirtual().name("expire-consent-", 0).factory());
+        try {
+            final List<Future<ConsentExpiryResult>> pendingResults = consents.stream()
+                .map(consent -> executor.submit(() -> tryExpireConsent(consent.id(), String.valueOf(consent.consentVersion() + 1))))
+                .toList();
+            results = pendingResults.stream()
+                .map(this::awaitExpiryResult)
+                .toList();
+        } finally {
+            executor.shutdownNow();
+        }
 
-        final QueryConditional queryCondition = QueryConditional.keyEqualTo(Key.builder()
-            .partitionValue(expiryHour)
-            .build());
+        final long numExpiredConsents = results.stream()
+            .filter(result -> result.status() == ConsentExpiryStatus.SUCCESS)
+            .count();
+        logger.debug("Successfully expired {} of {} consents in batch", numExpiredConsents, consents.size());
+        if (numExpiredConsents > 0) {
+            this.metricsHandler.publishCountMetric(EXPIRED_CONSENT_METRIC_NAME, (int) numExpiredConsents);
+        }
+        return results;
+    }
 
-        return QueryEnhancedRequest.builder()
-            .queryConditional(queryCondition)
-            .exclusiveStartKey(exclusiveStartKey)
-            .build();
+    private ConsentExpiryResult tryExpireConsent(final String id, final String updatedVersion) {
+        logger.debug("Updating consent with id {} to expired, with updated version {}", id, updatedVersion);
+        final long updateStartNanos = System.nanoTime();
+        try {
+            updateItemWithRetries(id, DynamoDbConsentRequests.buildExpireConsentRequest(id, updatedVersion));
+            return DynamoDbConsentRequests.buildExpiryResult(id, ConsentExpiryStatus.SUCCESS);
+        } catch (final SdkException e) {
+            final ConsentExpiryResult failedResult = DynamoDbConsentRequests.toFailedExpiryResult(id, e)
+                .orElseThrow(() -> e);
+            DynamoDbConsentRequests.logFailedExpiryResult(failedResult, e);
+            return failedResult;
+        } finally {
+            runRecorder.recordConsentUpdate(System.nanoTime() - updateStartNanos);
+        }
     }
 
-    private Optional<String> getNextPageToken(final Page<DynamoDbActiveConsentWithExpiryTime> pageResults) {
-        final Map<String, AttributeValue> lastEvaluatedKey = pageResults.lastEvaluatedKey();
-        return DynamoDbExpiryHourTokenMapper.toJsonString(lastEvaluatedKey);
+    /**
+     * Issues the UpdateItem call once the rate limiter allows it, sleeping before each retry while it is throttled.
+     */
+    private void updateItemWithRetries(final String id, final UpdateItemRequest updateItemRequest) {
+        for (int attempt = 1; ; attempt++) {
+            writeRateLimiter.acquire();
+            try {
+                this.ddbClient.updateItem(updateItemRequest);
+                writeRetries.onAccepted();
+                return;
+            } catch (final DynamoDbException e) {
+                if (!writeRetries.shouldRetry(id, e, attempt)) {
+                    throw e;
+                }
+                retryPolicy.sleepBeforeRetry(attempt);
+            }
+        }
+    }
+
+    private ConsentExpiryResult awaitExpiryResult(final Future<ConsentExpiryResult> pendingResult) {
+        try {
+            return pendingResult.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for consent to be expired", e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Failed to expire consent", e.getCause());
+        }
     }
 }
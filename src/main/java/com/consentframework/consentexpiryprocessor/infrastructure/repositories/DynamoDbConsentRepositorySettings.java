@@ -0,0 +1,102 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.repositories;
+
+import com.consentframework.consentexpiryprocessor.domain.metrics.ExpiryRunRecorder;
+import com.consentframework.consentexpiryprocessor.infrastructure.throttling.AdaptiveRateLimiter;
+import com.consentframework.consentexpiryprocessor.infrastructure.throttling.ThrottlingRetryPolicy;
+import org.immutables.value.Value.Check;
+import org.immutables.value.Value.Default;
+import org.immutables.value.Value.Immutable;
+import org.immutables.value.Value.Style;
+
+/**
+ * Represents how a DynamoDB consent repository pages through expiry hours and paces its expiry writes,
+ * shared by the synchronous and asynchronous repositories.
+ *
+ * Every setting has a default, so only the settings that differ from it need to be set.
+ */
+@Immutable
+@Style(
+    // Enable strict builder mode to prevent initialization errors
+    strictBuilder = true,
+    // Have Builder return original class instead of implementation
+    overshadowImplementation = true
+)
+public interface DynamoDbConsentRepositorySettings {
+    int DEFAULT_MAX_CONCURRENT_WRITES = 10;
+    int DEFAULT_MAX_WRITES_PER_SECOND = 1000;
+    int DEFAULT_QUERY_PAGE_SIZE = 1000;
+    int DEFAULT_EXPIRY_HOUR_SHARD_COUNT = 1;
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * DynamoDbConsentRepositorySettings Builder class, intentionally empty.
+     */
+    class Builder extends ImmutableDynamoDbConsentRepositorySettings.Builder {}
+
+    /**
+     * Maximum number of UpdateItem calls in flight per batch of expiries.
+     */
+    @Default
+    default int maxConcurrentWrites() {
+        return DEFAULT_MAX_CONCURRENT_WRITES;
+    }
+
+    /**
+     * Limiter pacing UpdateItem calls, shared by every batch of expiries.
+     */
+    @Default
+    default AdaptiveRateLimiter writeRateLimiter() {
+        return new AdaptiveRateLimiter(DEFAULT_MAX_WRITES_PER_SECOND);
+    }
+
+    /**
+     * Policy for retrying throttled UpdateItem calls.
+     */
+    @Default
+    default ThrottlingRetryPolicy retryPolicy() {
+        return ThrottlingRetryPolicy.DEFAULT;
+    }
+
+    /**
+     * Maximum number of consents to read per page of query results.
+     */
+    @Default
+    default int queryPageSize() {
+        return DEFAULT_QUERY_PAGE_SIZE;
+    }
+
+    /**
+     * Recorder of query and update latencies, throttles and retries.
+     */
+    @Default
+    default ExpiryRunRecorder runRecorder() {
+        return ExpiryRunRecorder.NONE;
+    }
+
+    /**
+     * Number of "expiryHour#N" partitions writers spread each expiry hour across, 1 if expiry hours are not sharded.
+     */
+    @Default
+    default int expiryHourShardCount() {
+        return DEFAULT_EXPIRY_HOUR_SHARD_COUNT;
+    }
+
+    /**
+     * Validates the settings, called by Immutables on build.
+     */
+    @Check
+    default void validate() {
+        if (maxConcurrentWrites() < 1) {
+            throw new IllegalArgumentException("maxConcurrentWrites must be positive, received: " + maxConcurrentWrites());
+        }
+        if (queryPageSize() < 1) {
+            throw new IllegalArgumentException("queryPageSize must be positive, received: " + queryPageSize());
+        }
+        if (expiryHourShardCount() < 1) {
+            throw new IllegalArgumentException("expiryHourShardCount must be positive, received: " + expiryHourShardCount());
+        }
+    }
+}
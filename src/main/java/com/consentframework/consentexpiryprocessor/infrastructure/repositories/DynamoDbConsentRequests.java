@@ -0,0 +1,315 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.repositories;
+
+import com.consentframework.consentexpiryprocessor.domain.constants.ActiveConsentWithExpiryTimeAttributeName;
+import com.consentframework.consentexpiryprocessor.domain.constants.ConsentExpiryStatus;
+import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
+import com.consentframework.consentexpiryprocessor.domain.entities.ConsentExpiryResult;
+import com.consentframework.consentexpiryprocessor.domain.repositories.PrefetchingConsentPageCursor.KeyedPage;
+import com.consentframework.consentexpiryprocessor.infrastructure.mappers.DynamoDbExpiryHourTokenMapper;
+import com.consentframework.shared.api.domain.pagination.ListPage;
+import com.consentframework.shared.api.infrastructure.entities.DynamoDbActiveConsentWithExpiryTime;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryConditional;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.RequestLimitExceededException;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Builds the DynamoDB requests and maps the responses shared by the synchronous and asynchronous consent repositories.
+ */
+final class DynamoDbConsentRequests {
+    private static final Logger logger = LogManager.getLogger(DynamoDbConsentRequests.class);
+
+    private static final String EXPIRED_STATUS = "EXPIRED";
+    private static final int HTTP_UNAUTHORIZED = 401;
+    private static final int HTTP_FORBIDDEN = 403;
+    // Fixed width to match the stored expiryTimeId prefixes, as ISO formatting drops ":00" seconds and sorts after them
+    private static final DateTimeFormatter EXPIRY_TIME_ID_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'");
+    private static final String EXPIRY_TIME_ID_SEPARATOR = "|";
+    private static final List<String> PROJECTED_ATTRIBUTE_NAMES = Arrays.stream(ActiveConsentWithExpiryTimeAttributeName.values())
+        .map(ActiveConsentWithExpiryTimeAttributeName::getValue)
+        .toList();
+
+    private DynamoDbConsentRequests() {}
+
+    /**
+     * Builds a request to update a consent's status to expired, conditional on the consent still having the prior version.
+     *
+     * @param id The partition key of the consent record.
+     * @param updatedVersion The updated version of the consent record.
+     * @return UpdateItem request.
+     */
+    static UpdateItemRequest buildExpireConsentRequest(final String id, final String updatedVersion) {
+        final Integer updatedVersionInt = Integer.parseInt(updatedVersion);
+        final Integer lastVersionInt = updatedVersionInt - 1;
+
+        // Use REMOVE to remove GSI key attributes, and SET to update other attributes.
+        // Ref: https://docs.aws.amazon.com/amazondynamodb/latest/developerguide/Expressions.UpdateExpressions.html#Expressions.UpdateExpressions.Multiple
+        final String updateExpression = "SET #consentStatus = :expiredStatus, "
+            + "#consentVersion = :nextConsentVersion "
+            + "REMOVE #expiryHour, #expiryTimeId";
+
+        final String conditionExpression = "attribute_exists(id) AND #consentVersion = :expectedLastVersion";
+
+        final Map<String, AttributeValue> key = Map.of(
+            "id", AttributeValue.builder().s(id).build()
+        );
+        final Map<String, String> expressionAttributeNames = Map.of(
+            "#consentStatus", "consentStatus",
+            "#consentVersion", "consentVersion",
+            "#expiryHour", "expiryHour",
+            "#expiryTimeId", "expiryTimeId"
+        );
+        final Map<String, AttributeValue> expressionAttributeValues = Map.of(
+            ":expectedLastVersion", AttributeValue.builder().n(lastVersionInt.toString()).build(),
+            ":expiredStatus", AttributeValue.builder().s(EXPIRED_STATUS).build(),
+            ":nextConsentVersion", AttributeValue.builder().n(updatedVersion).build()
+        );
+
+        return UpdateItemRequest.builder()
+            .tableName(DynamoDbActiveConsentWithExpiryTime.TABLE_NAME)
+            .key(key)
+            .updateExpression(updateExpression)
+            .conditionExpression(conditionExpression)
+            .expressionAttributeNames(expressionAttributeNames)
+            .expressionAttributeValues(expressionAttributeValues)
+            .build();
+    }
+
+    /**
+     * Builds a query for a page of the ActiveConsentsByExpiryHour GSI.
+     *
+     * Only the attributes needed to expire a consent are projected, and each page holds at most
+     * pageSize items, so that a page's read capacity and size stay bounded whatever else the index projects.
+     *
+     * When an expiry cutoff is given, the key condition also bounds the expiryTimeId sort key, so that
+     * DynamoDB only reads consents that expired before the cutoff rather than the whole hour partition.
+     * The bound is the cutoff truncated to whole seconds followed by the "|" separator, which sorts after
+     * every expiryTimeId in earlier seconds and before every expiryTimeId in the cutoff's own second;
+     * consents expiring in that second are left for the next run.
+     *
+     * @param expiryHour The expiry hour partition to query.
+     * @param pageToken The page token to continue from, empty if retrieving the first page.
+     * @param expiredBefore The expiry cutoff, empty to read every consent in the expiry hour.
+     * @param pageSize The maximum number of consents to read per page.
+     * @return Query request.
+     */
+    static QueryEnhancedRequest buildGetConsentsToExpireQueryRequest(final String expiryHour, final Optional<String> pageToken,
+            final Optional<OffsetDateTime> expiredBefore, final int pageSize) {
+        return buildGetConsentsToExpireQueryRequest(expiryHour, DynamoDbExpiryHourTokenMapper.toDynamoDbPageToken(pageToken),
+            expiredBefore, pageSize);
+    }
+
+    /**
+     * Builds a query for a page of the ActiveConsentsByExpiryHour GSI, starting from a native exclusive start key.
+     *
+     * @param expiryHour The expiry hour partition to query.
+     * @param exclusiveStartKey The last evaluated key of the previous page, null if retrieving the first page.
+     * @param expiredBefore The expiry cutoff, empty to read every consent in the expiry hour.
+     * @param pageSize The maximum number of consents to read per page.
+     * @return Query request.
+     */
+    static QueryEnhancedRequest buildGetConsentsToExpireQueryRequest(final String expiryHour,
+            final Map<String, AttributeValue> exclusiveStartKey, final Optional<OffsetDateTime> expiredBefore, final int pageSize) {
+        final QueryConditional queryCondition = expiredBefore
+            .map(cutoffTime -> QueryConditional.sortLessThan(Key.builder()
+                .partitionValue(expiryHour)
+                .sortValue(toExpiryTimeIdBound(cutoffTime))
+                .build()))
+            .orElseGet(() -> QueryConditional.keyEqualTo(Key.builder()
+                .partitionValue(expiryHour)
+                .build()));
+
+        return QueryEnhancedRequest.builder()
+            .queryConditional(queryCondition)
+            .exclusiveStartKey(exclusiveStartKey)
+            .attributesToProject(PROJECTED_ATTRIBUTE_NAMES)
+            .limit(pageSize)
+            .build();
+    }
+
+    /**
+     * Builds the expiryTimeId that sorts before every consent expiring in or after the cutoff's second.
+     *
+     * @param cutoffTime The expiry cutoff.
+     * @return Sort key bound, with format "2021-12-31T23:59:00Z|".
+     */
+    static String toExpiryTimeIdBound(final OffsetDateTime cutoffTime) {
+        return cutoffTime.withOffsetSameInstant(ZoneOffset.UTC).format(EXPIRY_TIME_ID_FORMATTER) + EXPIRY_TIME_ID_SEPARATOR;
+    }
+
+    /**
+     * Converts a page of GSI items to a page of consents.
+     *
+     * @param pageResults The page of GSI items.
+     * @return Page of consents, with the next page token if there are more results.
+     */
+    static ListPage<ActiveConsentWithExpiryTime> toListPage(final Page<DynamoDbActiveConsentWithExpiryTime> pageResults) {
+        final Optional<String> nextPageToken = DynamoDbExpiryHourTokenMapper.toPageToken(pageResults.lastEvaluatedKey());
+        return new ListPage<ActiveConsentWithExpiryTime>(toConsents(pageResults), nextPageToken);
+    }
+
+    /**
+     * Converts a page of GSI items to a page of consents keyed by its native last evaluated key.
+     *
+     * @param pageResults The page of GSI items, null if the query returned no results.
+     * @return Page of consents, with the last evaluated key if there are more results.
+     */
+    static KeyedPage<Map<String, AttributeValue>> toKeyedPage(final Page<DynamoDbActiveConsentWithExpiryTime> pageResults) {
+        if (pageResults == null) {
+            return KeyedPage.empty();
+        }
+        return new KeyedPage<>(toConsents(pageResults), Optional.ofNullable(pageResults.lastEvaluatedKey()));
+    }
+
+    /**
+     * Serializes a native last evaluated key to the page token accepted by the consent repositories.
+     *
+     * @param lastEvaluatedKey The last evaluated key of a page.
+     * @return Page token.
+     */
+    static String toPageToken(final Map<String, AttributeValue> lastEvaluatedKey) {
+        return DynamoDbExpiryHourTokenMapper.toPageToken(lastEvaluatedKey).orElseThrow();
+    }
+
+    private static List<ActiveConsentWithExpiryTime> toConsents(final Page<DynamoDbActiveConsentWithExpiryTime> pageResults) {
+        return pageResults.items()
+            .stream()
+            .map(ddbActiveConsentGsiItem -> ActiveConsentWithExpiryTime.builder()
+                .id(ddbActiveConsentGsiItem.id())
+                .consentVersion(ddbActiveConsentGsiItem.consentVersion())
+                .expiryHour(ddbActiveConsentGsiItem.expiryHour())
+                .expiryTimeId(ddbActiveConsentGsiItem.expiryTimeId())
+                .build()
+            )
+            .toList();
+    }
+
+    /**
+     * Maps a failed expiry write to its per-consent result.
+     *
+     * DynamoDB errors and client errors, such as an I/O error or timeout once the SDK's retries are exhausted, are
+     * reported per consent so that one bad consent does not stop the rest of the batch, except for errors that every
+     * write to the table would fail with, such as a missing table or permission.
+     *
+     * @param id The partition key of the consent record.
+     * @param exception The exception thrown by the write.
+     * @return The expiry result if the failure is expected for a single consent, empty if it should fail the batch.
+     */
+    static Optional<ConsentExpiryResult> toFailedExpiryResult(final String id, final Throwable exception) {
+        if (exception instanceof ConditionalCheckFailedException) {
+            return Optional.of(buildExpiryResult(id, ConsentExpiryStatus.CONDITION_FAILED));
+        }
+        if (isThrottlingException(exception)) {
+            return Optional.of(buildExpiryResult(id, ConsentExpiryStatus.THROTTLED));
+        }
+        if (exception instanceof DynamoDbException ddbException && !isTableWideException(ddbException)
+                || exception instanceof SdkClientException) {
+            return Optional.of(buildExpiryResult(id, ConsentExpiryStatus.FAILED));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Logs a consent left active, only logging an error for consents that failed rather than were skipped or throttled.
+     *
+     * @param failedResult The per-consent result of the failed write.
+     * @param exception The exception thrown by the write.
+     */
+    static void logFailedExpiryResult(final ConsentExpiryResult failedResult, final Throwable exception) {
+        if (failedResult.status() == ConsentExpiryStatus.FAILED) {
+            logger.warn("Failed to expire consent with id {}, leaving it active for the next run.", failedResult.id(), exception);
+        } else {
+            logger.debug("Could not expire consent with id {}, result: {}", failedResult.id(), failedResult.status());
+        }
+    }
+
+    /**
+     * Checks if a failed request was rejected for a reason that applies to every request to the table.
+     *
+     * @param exception The exception thrown by the request.
+     * @return True if the table is missing or the caller is not authorized to write to it.
+     */
+    static boolean isTableWideException(final DynamoDbException exception) {
+        return exception instanceof ResourceNotFoundException
+            || exception.statusCode() == HTTP_UNAUTHORIZED
+            || exception.statusCode() == HTTP_FORBIDDEN;
+    }
+
+    /**
+     * Checks if a failed request was rejected because the table's capacity or the account's request limit was exceeded.
+     *
+     * @param exception The exception thrown by the request.
+     * @return True if the request was throttled and can be retried.
+     */
+    static boolean isThrottlingException(final Throwable exception) {
+        return exception instanceof ProvisionedThroughputExceededException
+            || exception instanceof RequestLimitExceededException
+            || exception instanceof DynamoDbException ddbException && ddbException.isThrottlingException();
+    }
+
+    /**
+     * Builds the result of an expiry write.
+     *
+     * @param id The partition key of the consent record.
+     * @param status The outcome of the write.
+     * @return Expiry result.
+     */
+    static ConsentExpiryResult buildExpiryResult(final String id, final ConsentExpiryStatus status) {
+        return ConsentExpiryResult.builder()
+            .id(id)
+            .status(status)
+            .build();
+    }
+
+    /**
+     * Waits for a request to complete, rethrowing the original exception if it failed.
+     *
+     * @param future The pending request.
+     * @return The result of the request.
+     */
+    static <T> T join(final CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (final CompletionException e) {
+            final Throwable cause = unwrap(e);
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the exception a request failed with, without the CompletionException wrapping it.
+     *
+     * @param exception The exception a future completed with.
+     * @return The original exception.
+     */
+    static Throwable unwrap(final Throwable exception) {
+        Throwable cause = exception;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
@@ -0,0 +1,164 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.repositories;
+
+import com.consentframework.consentexpiryprocessor.domain.repositories.ExpiryCheckpointStore;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Checkpoint store persisting page tokens and drained markers to a DynamoDB table, so they outlive the Lambda container.
+ *
+ * The table is keyed by the "expiryHour" string attribute, with one item per expiry hour holding either its
+ * "pageToken" or a "drained" flag. Shards own disjoint expiry hours, so concurrent shards never write the same item.
+ * Page tokens are written with a conditional put that fails once the expiry hour is drained, so a late write from an
+ * overlapping invocation cannot reopen an hour another invocation drained. The table holds at most one item per
+ * expiry hour in the lookback window, as older items are deleted, so listing the drained hours scans only a few items.
+ * Checkpoints are an optimization, so read and write failures are logged rather than failing the run.
+ */
+public class DynamoDbExpiryCheckpointStore implements ExpiryCheckpointStore {
+    public static final String DEFAULT_TABLE_NAME = "ConsentExpiryCheckpoints";
+    static final String EXPIRY_HOUR_ATTRIBUTE = "expiryHour";
+    static final String PAGE_TOKEN_ATTRIBUTE = "pageToken";
+    static final String DRAINED_ATTRIBUTE = "drained";
+
+    private static final Logger logger = LogManager.getLogger(DynamoDbExpiryCheckpointStore.class);
+    private static final String NOT_DRAINED_CONDITION = "attribute_not_exists(#drained)";
+    private static final Map<String, String> DRAINED_ATTRIBUTE_NAMES = Map.of("#drained", DRAINED_ATTRIBUTE);
+
+    private final DynamoDbClient ddbClient;
+    private final String tableName;
+
+    /**
+     * Constructs a new DynamoDbExpiryCheckpointStore.
+     *
+     * @param ddbClient The DynamoDB client.
+     * @param tableName The checkpoint table, with the "expiryHour" string attribute as its partition key.
+     */
+    public DynamoDbExpiryCheckpointStore(final DynamoDbClient ddbClient, final String tableName) {
+        this.ddbClient = ddbClient;
+        this.tableName = tableName;
+    }
+
+    @Override
+    public Optional<String> getPageToken(final String expiryHour) {
+        final GetItemRequest request = GetItemRequest.builder()
+            .tableName(tableName)
+            .key(toKey(expiryHour))
+            .consistentRead(true)
+            .build();
+        try {
+            return Optional.ofNullable(ddbClient.getItem(request).item().get(PAGE_TOKEN_ATTRIBUTE)).map(AttributeValue::s);
+        } catch (final SdkException e) {
+            logger.warn(String.format("Failed to read checkpoint for expiry hour %s from %s, processing it from its first page",
+                expiryHour, tableName), e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void savePageToken(final String expiryHour, final String pageToken) {
+        final PutItemRequest request = PutItemRequest.builder()
+            .tableName(tableName)
+            .item(Map.of(
+                EXPIRY_HOUR_ATTRIBUTE, AttributeValue.fromS(expiryHour),
+                PAGE_TOKEN_ATTRIBUTE, AttributeValue.fromS(pageToken)))
+            .conditionExpression(NOT_DRAINED_CONDITION)
+            .expressionAttributeNames(DRAINED_ATTRIBUTE_NAMES)
+            .build();
+        try {
+            ddbClient.putItem(request);
+        } catch (final ConditionalCheckFailedException e) {
+            logger.info("Not saving checkpoint for expiry hour {}, it has already been drained.", expiryHour);
+        } catch (final SdkException e) {
+            logger.warn(String.format("Failed to save checkpoint for expiry hour %s to %s", expiryHour, tableName), e);
+        }
+    }
+
+    @Override
+    public void deletePageToken(final String expiryHour) {
+        final DeleteItemRequest request = DeleteItemRequest.builder()
+            .tableName(tableName)
+            .key(toKey(expiryHour))
+            .conditionExpression(NOT_DRAINED_CONDITION)
+            .expressionAttributeNames(DRAINED_ATTRIBUTE_NAMES)
+            .build();
+        try {
+            ddbClient.deleteItem(request);
+        } catch (final ConditionalCheckFailedException e) {
+            logger.debug("Keeping drained marker for expiry hour {}, it has no checkpoint to delete.", expiryHour);
+        } catch (final SdkException e) {
+            logger.warn(String.format("Failed to delete checkpoint for expiry hour %s from %s", expiryHour, tableName), e);
+        }
+    }
+
+    @Override
+    public Set<String> getDrainedExpiryHours() {
+        try {
+            return scanCheckpoints().stream()
+                .filter(item -> item.containsKey(DRAINED_ATTRIBUTE))
+                .map(item -> item.get(EXPIRY_HOUR_ATTRIBUTE).s())
+                .collect(Collectors.toUnmodifiableSet());
+        } catch (final SdkException e) {
+            logger.warn(String.format("Failed to read drained expiry hours from %s, processing every expiry hour", tableName), e);
+            return Set.of();
+        }
+    }
+
+    @Override
+    public void markExpiryHourDrained(final String expiryHour) {
+        // Replaces any page token left for the expiry hour, since there is nothing left to resume
+        final PutItemRequest request = PutItemRequest.builder()
+            .tableName(tableName)
+            .item(Map.of(
+                EXPIRY_HOUR_ATTRIBUTE, AttributeValue.fromS(expiryHour),
+                DRAINED_ATTRIBUTE, AttributeValue.fromBool(true)))
+            .build();
+        try {
+            ddbClient.putItem(request);
+        } catch (final SdkException e) {
+            logger.warn(String.format("Failed to mark expiry hour %s drained in %s", expiryHour, tableName), e);
+        }
+    }
+
+    @Override
+    public void forgetExpiryHoursBefore(final String oldestExpiryHour) {
+        try {
+            scanCheckpoints().stream()
+                .map(item -> item.get(EXPIRY_HOUR_ATTRIBUTE).s())
+                .filter(expiryHour -> expiryHour.compareTo(oldestExpiryHour) < 0)
+                .forEach(expiryHour -> ddbClient.deleteItem(DeleteItemRequest.builder()
+                    .tableName(tableName)
+                    .key(toKey(expiryHour))
+                    .build()));
+        } catch (final SdkException e) {
+            logger.warn(String.format("Failed to forget checkpoints before expiry hour %s in %s", oldestExpiryHour, tableName), e);
+        }
+    }
+
+    private List<Map<String, AttributeValue>> scanCheckpoints() {
+        final ScanRequest request = ScanRequest.builder()
+            .tableName(tableName)
+            .projectionExpression("#expiryHour, #drained")
+            .expressionAttributeNames(Map.of("#expiryHour", EXPIRY_HOUR_ATTRIBUTE, "#drained", DRAINED_ATTRIBUTE))
+            .consistentRead(true)
+            .build();
+        return ddbClient.scanPaginator(request).items().stream().toList();
+    }
+
+    private static Map<String, AttributeValue> toKey(final String expiryHour) {
+        return Map.of(EXPIRY_HOUR_ATTRIBUTE, AttributeValue.fromS(expiryHour));
+    }
+}
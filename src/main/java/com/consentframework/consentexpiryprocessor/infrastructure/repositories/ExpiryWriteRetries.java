@@ -0,0 +1,62 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.repositories;
+
+import com.consentframework.consentexpiryprocessor.domain.metrics.ExpiryRunRecorder;
+import com.consentframework.consentexpiryprocessor.infrastructure.throttling.AdaptiveRateLimiter;
+import com.consentframework.consentexpiryprocessor.infrastructure.throttling.ThrottlingRetryPolicy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Decides whether a failed expiry write is retried, shared by the synchronous and asynchronous consent repositories.
+ *
+ * Each throttled attempt lowers the shared write rate, and each accepted attempt raises it again,
+ * so that concurrent writers converge on the throughput the table can sustain. The repositories only
+ * differ in how they wait before the next attempt.
+ */
+final class ExpiryWriteRetries {
+    private static final Logger logger = LogManager.getLogger(ExpiryWriteRetries.class);
+
+    private final AdaptiveRateLimiter writeRateLimiter;
+    private final ThrottlingRetryPolicy retryPolicy;
+    private final ExpiryRunRecorder runRecorder;
+
+    /**
+     * Initializes the retries with the rate limiter, retry policy and run recorder of the repository settings.
+     *
+     * @param settings The consent repository settings.
+     */
+    ExpiryWriteRetries(final DynamoDbConsentRepositorySettings settings) {
+        this.writeRateLimiter = settings.writeRateLimiter();
+        this.retryPolicy = settings.retryPolicy();
+        this.runRecorder = settings.runRecorder();
+    }
+
+    /**
+     * Records an accepted write, raising the shared write rate.
+     */
+    void onAccepted() {
+        writeRateLimiter.onSuccess();
+    }
+
+    /**
+     * Records a failed write, lowering the shared write rate if it was throttled.
+     *
+     * @param id The partition key of the consent record.
+     * @param exception The exception thrown by the write.
+     * @param attempt The attempt that failed, starting from 1.
+     * @return True if the write was throttled and has attempts left.
+     */
+    boolean shouldRetry(final String id, final Throwable exception, final int attempt) {
+        if (!DynamoDbConsentRequests.isThrottlingException(exception)) {
+            return false;
+        }
+        writeRateLimiter.onThrottle();
+        runRecorder.recordThrottle();
+        if (!retryPolicy.shouldRetry(attempt)) {
+            return false;
+        }
+        logger.debug("Throttled on attempt {} to expire consent with id {}, retrying", attempt, id);
+        runRecorder.recordRetry();
+        return true;
+    }
+}
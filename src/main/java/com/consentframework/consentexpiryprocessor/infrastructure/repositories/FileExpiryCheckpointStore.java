@@ -0,0 +1,150 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.repositories;
+
+import com.consentframework.consentexpiryprocessor.domain.repositories.ExpiryCheckpointStore;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Checkpoint store writing page tokens per expiry hour, and the expiry hours drained, to a local JSON file.
+ *
+ * On Lambda the file lives on the container's local disk, so it only carries checkpoints between invocations
+ * served by the same container, and they are lost whenever a new container starts. Use it for local runs and tests,
+ * and DynamoDbExpiryCheckpointStore for deployed processors.
+ *
+ * The file holds a "pageTokens" object and a "drainedExpiryHours" array. Files written before drained
+ * expiry hours were recorded hold only the page tokens object, and are still read. The file is rewritten
+ * atomically on every change, through a temporary file in the same directory.
+ * Checkpoints are an optimization, so read and write failures are logged rather than failing the run.
+ */
+public class FileExpiryCheckpointStore implements ExpiryCheckpointStore {
+    private static final Logger logger = LogManager.getLogger(FileExpiryCheckpointStore.class);
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final TypeReference<TreeMap<String, String>> PAGE_TOKENS_TYPE = new TypeReference<>() {};
+    private static final TypeReference<TreeSet<String>> DRAINED_EXPIRY_HOURS_TYPE = new TypeReference<>() {};
+    private static final String PAGE_TOKENS_FIELD = "pageTokens";
+    private static final String DRAINED_EXPIRY_HOURS_FIELD = "drainedExpiryHours";
+
+    private final Path checkpointFile;
+    private SortedMap<String, String> pageTokensPerExpiryHour;
+    private SortedSet<String> drainedExpiryHours;
+
+    /**
+     * Constructs a new FileExpiryCheckpointStore.
+     *
+     * @param checkpointFile The file to read and write checkpoints, created on the first checkpoint.
+     */
+    public FileExpiryCheckpointStore(final Path checkpointFile) {
+        this.checkpointFile = checkpointFile;
+    }
+
+    @Override
+    public synchronized Optional<String> getPageToken(final String expiryHour) {
+        return Optional.ofNullable(getPageTokensPerExpiryHour().get(expiryHour));
+    }
+
+    @Override
+    public synchronized void savePageToken(final String expiryHour, final String pageToken) {
+        getPageTokensPerExpiryHour().put(expiryHour, pageToken);
+        writeCheckpoints();
+    }
+
+    @Override
+    public synchronized void deletePageToken(final String expiryHour) {
+        if (getPageTokensPerExpiryHour().remove(expiryHour) != null) {
+            writeCheckpoints();
+        }
+    }
+
+    @Override
+    public synchronized Set<String> getDrainedExpiryHours() {
+        return Set.copyOf(getDrainedExpiryHoursSet());
+    }
+
+    @Override
+    public synchronized void markExpiryHourDrained(final String expiryHour) {
+        if (getDrainedExpiryHoursSet().add(expiryHour)) {
+            writeCheckpoints();
+        }
+    }
+
+    @Override
+    public synchronized void forgetExpiryHoursBefore(final String oldestExpiryHour) {
+        final SortedMap<String, String> expiredPageTokens = getPageTokensPerExpiryHour().headMap(oldestExpiryHour);
+        final SortedSet<String> expiredMarkers = getDrainedExpiryHoursSet().headSet(oldestExpiryHour);
+        if (!expiredPageTokens.isEmpty() || !expiredMarkers.isEmpty()) {
+            expiredPageTokens.clear();
+            expiredMarkers.clear();
+            writeCheckpoints();
+        }
+    }
+
+    private SortedMap<String, String> getPageTokensPerExpiryHour() {
+        if (pageTokensPerExpiryHour == null) {
+            readCheckpoints();
+        }
+        return pageTokensPerExpiryHour;
+    }
+
+    private SortedSet<String> getDrainedExpiryHoursSet() {
+        if (drainedExpiryHours == null) {
+            readCheckpoints();
+        }
+        return drainedExpiryHours;
+    }
+
+    private void readCheckpoints() {
+        pageTokensPerExpiryHour = new TreeMap<>();
+        drainedExpiryHours = new TreeSet<>();
+        if (!Files.exists(checkpointFile)) {
+            return;
+        }
+        try {
+            final JsonNode checkpoints = OBJECT_MAPPER.readTree(checkpointFile.toFile());
+            if (checkpoints.has(PAGE_TOKENS_FIELD)) {
+                pageTokensPerExpiryHour = OBJECT_MAPPER.convertValue(checkpoints.get(PAGE_TOKENS_FIELD), PAGE_TOKENS_TYPE);
+                drainedExpiryHours = OBJECT_MAPPER.convertValue(checkpoints.get(DRAINED_EXPIRY_HOURS_FIELD), DRAINED_EXPIRY_HOURS_TYPE);
+            } else {
+                pageTokensPerExpiryHour = OBJECT_MAPPER.convertValue(checkpoints, PAGE_TOKENS_TYPE);
+            }
+        } catch (final IOException | IllegalArgumentException e) {
+            logger.warn(String.format("Failed to read checkpoints from %s, processing expiry hours from their first page",
+                checkpointFile), e);
+            pageTokensPerExpiryHour = new TreeMap<>();
+            drainedExpiryHours = new TreeSet<>();
+        }
+        if (pageTokensPerExpiryHour == null) {
+            pageTokensPerExpiryHour = new TreeMap<>();
+        }
+        if (drainedExpiryHours == null) {
+            drainedExpiryHours = new TreeSet<>();
+        }
+    }
+
+    private void writeCheckpoints() {
+        final ObjectNode checkpoints = OBJECT_MAPPER.createObjectNode();
+        checkpoints.set(PAGE_TOKENS_FIELD, OBJECT_MAPPER.valueToTree(getPageTokensPerExpiryHour()));
+        checkpoints.set(DRAINED_EXPIRY_HOURS_FIELD, OBJECT_MAPPER.valueToTree(getDrainedExpiryHoursSet()));
+        try {
+            final Path temporaryFile = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+            OBJECT_MAPPER.writeValue(temporaryFile.toFile(), checkpoints);
+            Files.move(temporaryFile, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException e) {
+            logger.warn(String.format("Failed to write checkpoints to %s", checkpointFile), e);
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.repositories;
+
+import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
+import com.consentframework.consentexpiryprocessor.domain.entities.ExpiryTimeCutoff;
+import com.consentframework.consentexpiryprocessor.domain.repositories.ConsentPageCursor;
+import com.consentframework.consentexpiryprocessor.domain.repositories.PrefetchingConsentPageCursor;
+import com.consentframework.consentexpiryprocessor.domain.repositories.PrefetchingConsentPageCursor.KeyedPage;
+import com.consentframework.consentexpiryprocessor.infrastructure.mappers.DynamoDbExpiryHourTokenMapper;
+import com.consentframework.shared.api.domain.pagination.ListPage;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Fans queries for an expiry hour out across its write-sharded partitions of the ActiveConsentsByExpiryHour GSI,
+ * and merges the pages back into expiryTimeId order.
+ *
+ * Writers spread the consents expiring in an hour across shardCount partition keys "expiryHour#N", so that no single
+ * partition takes every read and write for the hour. The unsharded "expiryHour" partition is queried alongside the
+ * shards, so consents written before sharding was enabled are still expired while the table migrates.
+ *
+ * A position in a sharded expiry hour maps each partition key not yet exhausted to the exclusive start key to resume
+ * it from, empty to read the partition from its start. Cursors also carry the consents each partition returned past
+ * the last merged page, so they are not read again.
+ */
+final class ShardedExpiryHourQuery {
+    static final String SHARD_SEPARATOR = "#";
+
+    private static final String ID_ATTRIBUTE_NAME = "id";
+    private static final String EXPIRY_HOUR_ATTRIBUTE_NAME = "expiryHour";
+    private static final String EXPIRY_TIME_ID_ATTRIBUTE_NAME = "expiryTimeId";
+
+    private ShardedExpiryHourQuery() {}
+
+    /**
+     * Position in a sharded expiry hour, with the consents read past the last merged page that have not been returned yet.
+     *
+     * @param exclusiveStartKeys Exclusive start key per partition key not yet exhausted, after its last returned consent.
+     * @param heldBackPages Per partition key, the consents read after its last returned consent, with the key to resume
+     *     reading the partition after them, empty if it was exhausted.
+     */
+    record ShardedPosition(Map<String, Map<String, AttributeValue>> exclusiveStartKeys,
+            Map<String, KeyedPage<Map<String, AttributeValue>>> heldBackPages) {
+        /**
+         * Returns the position to start from, with no consents held back.
+         *
+         * @param exclusiveStartKeys Exclusive start key per partition key not yet exhausted.
+         * @return Position holding no consents.
+         */
+        static ShardedPosition of(final Map<String, Map<String, AttributeValue>> exclusiveStartKeys) {
+            return new ShardedPosition(exclusiveStartKeys, Map.of());
+        }
+
+        /**
+         * Serializes the position to a page token, which only holds the exclusive start keys.
+         *
+         * @return Binary string representation of the page token.
+         */
+        String toPageToken() {
+            return DynamoDbExpiryHourTokenMapper.toShardedPageToken(exclusiveStartKeys);
+        }
+    }
+
+    /**
+     * Queries a page of a single partition of an expiry hour.
+     */
+    @FunctionalInterface
+    interface PartitionQuery {
+        /**
+         * Queries a page of the partition.
+         *
+         * @param partitionKey The partition key to query.
+         * @param exclusiveStartKey The key to start after, null to read the partition from its start.
+         * @param pageSize The maximum number of consents to read.
+         * @return Future completed with the page, with the key to resume the partition from if it has more consents.
+         */
+        CompletableFuture<KeyedPage<Map<String, AttributeValue>>> query(String partitionKey,
+            Map<String, AttributeValue> exclusiveStartKey, int pageSize);
+    }
+
+    /**
+     * Lists the partition keys consents expiring in the hour may be written under.
+     *
+     * @param expiryHour The expiry hour, with format "2021-12-31T23:00Z".
+     * @param shardCount The number of shards writers spread each expiry hour across.
+     * @return The unsharded partition key followed by the key of each shard.
+     */
+    static List<String> toPartitionKeys(final String expiryHour, final int shardCount) {
+        final List<String> partitionKeys = new ArrayList<>(shardCount + 1);
+        partitionKeys.add(expiryHour);
+        for (int shard = 0; shard < shardCount; shard++) {
+            partitionKeys.add(expiryHour + SHARD_SEPARATOR + shard);
+        }
+        return partitionKeys;
+    }
+
+    /**
+     * Returns the position to start reading a sharded expiry hour from.
+     *
+     * A page token saved before sharding was enabled resumes the unsharded partition, and every shard is read from its start.
+     *
+     * @param expiryHour The expiry hour, with format "2021-12-31T23:00Z".
+     * @param shardCount The number of shards writers spread each expiry hour across.
+     * @param pageToken The page token to continue from, empty to read every partition from its start.
+     * @return Exclusive start key per partition key.
+     */
+    static Map<String, Map<String, AttributeValue>> toStartPosition(final String expiryHour, final int shardCount,
+            final Optional<String> pageToken) {
+        if (pageToken.isPresent()) {
+            final Optional<Map<String, Map<String, AttributeValue>>> shardedPosition =
+                DynamoDbExpiryHourTokenMapper.toShardedDynamoDbPageToken(pageToken.get());
+            if (shardedPosition.isPresent()) {
+                return shardedPosition.get();
+            }
+        }
+
+        final Map<String, Map<String, AttributeValue>> position = new LinkedHashMap<>();
+        toPartitionKeys(expiryHour, shardCount).forEach(partitionKey -> position.put(partitionKey, Map.of()));
+        pageToken.ifPresent(unshardedPageToken ->
+            position.put(expiryHour, DynamoDbExpiryHourTokenMapper.toDynamoDbPageToken(Optional.of(unshardedPageToken))));
+        return position;
+    }
+
+    /**
+     * Opens a cursor over the merged pages of a sharded expiry hour, prefetching the next merged page while the
+     * current one is expired.
+     *
+     * The cursor carries the consents held back by each merged page into the next, so no consent is read twice.
+     *
+     * @param expiryHour The expiry hour, with format "2021-12-31T23:00Z".
+     * @param shardCount The number of shards writers spread each expiry hour across.
+     * @param pageToken The page token to continue from, empty to read every partition from its start.
+     * @param cutoff The expiry cutoff the partition queries are bounded by.
+     * @param pageSize The maximum number of consents to read per page of the expiry hour.
+     * @param partitionQuery Queries a page of a partition, starting after the exclusive start key if it is not null.
+     * @return Cursor over the merged pages.
+     */
+    static ConsentPageCursor openCursor(final String expiryHour, final int shardCount, final Optional<String> pageToken,
+            final ExpiryTimeCutoff cutoff, final int pageSize, final PartitionQuery partitionQuery) {
+        return new PrefetchingConsentPageCursor<>(
+            Optional.of(ShardedPosition.of(toStartPosition(expiryHour, shardCount, pageToken))),
+            cutoff,
+            position -> DynamoDbConsentRequests.join(queryMergedPage(position.orElseThrow(), pageSize, partitionQuery)),
+            position -> queryMergedPage(position.orElseThrow(), pageSize, partitionQuery),
+            ShardedPosition::toPageToken);
+    }
+
+    /**
+     * Queries a merged page of a sharded expiry hour, with the page token of the position after it.
+     *
+     * Page tokens only hold the exclusive start keys, so the consents held back by the merged page are read again by
+     * the next page, costing up to (partitions - 1) * partitionPageSize extra consents read per page.
+     *
+     * @param expiryHour The expiry hour, with format "2021-12-31T23:00Z".
+     * @param shardCount The number of shards writers spread each expiry hour across.
+     * @param pageToken The page token to continue from, empty to read every partition from its start.
+     * @param pageSize The maximum number of consents to read per page of the expiry hour.
+     * @param partitionQuery Queries a page of a partition, starting after the exclusive start key if it is not null.
+     * @return Future completed with the merged page, with the next page token if any partition has more consents.
+     */
+    static CompletableFuture<ListPage<ActiveConsentWithExpiryTime>> queryListPage(final String expiryHour, final int shardCount,
+            final Optional<String> pageToken, final int pageSize, final PartitionQuery partitionQuery) {
+        return queryMergedPage(ShardedPosition.of(toStartPosition(expiryHour, shardCount, pageToken)), pageSize, partitionQuery)
+            .thenApply(mergedPage -> new ListPage<>(mergedPage.consents(),
+                mergedPage.lastEvaluatedKey().map(ShardedPosition::toPageToken)));
+    }
+
+    /**
+     * Returns the maximum number of consents to read per partition, so that a merged page holds at most pageSize consents.
+     *
+     * At least one consent is read per partition, so a page size below the number of partitions is exceeded.
+     * Each merged page may hold back up to partitionPageSize consents from every partition but the one ending earliest,
+     * which a cursor carries into the next page and a page token resume reads again.
+     *
+     * @param pageSize The maximum number of consents to read per page of the expiry hour.
+     * @param numPartitions The number of partitions queried for each page.
+     * @return Page size per partition.
+     */
+    static int toPartitionPageSize(final int pageSize, final int numPartitions) {
+        return Math.max(1, pageSize / numPartitions);
+    }
+
+    /**
+     * Queries a page of every partition not yet exhausted at the same time, and merges them into one page.
+     *
+     * The merged page holds the consents up to the earliest last consent of a partition with more pages, since a
+     * later consent in another partition may sort after consents that partition has not returned yet. Consents past
+     * that bound are held back in the position after the page, and the next page only queries the rest of each
+     * partition's page after them, so they are not read again. The partition whose page ends earliest is always
+     * consumed in full, so every page makes progress. The page size is split across the partitions queried, so the
+     * merged page holds at most pageSize consents.
+     *
+     * @param position Exclusive start key per partition key not yet exhausted, with the consents held back by the last page.
+     * @param pageSize The maximum number of consents to read per page of the expiry hour.
+     * @param partitionQuery Queries a page of a partition, starting after the exclusive start key if it is not null.
+     * @return Future completed with the merged page, with the position after it if any partition has more consents.
+     */
+    static CompletableFuture<KeyedPage<ShardedPosition>> queryMergedPage(final ShardedPosition position, final int pageSize,
+            final PartitionQuery partitionQuery) {
+        final int partitionPageSize = toPartitionPageSize(pageSize, position.exclusiveStartKeys().size());
+        final Map<String, CompletableFuture<KeyedPage<Map<String, AttributeValue>>>> pendingPages = new LinkedHashMap<>();
+        position.exclusiveStartKeys().forEach((partitionKey, exclusiveStartKey) -> pendingPages.put(partitionKey,
+            queryPartitionPage(partitionKey, exclusiveStartKey, position.heldBackPages().get(partitionKey), partitionPageSize,
+                partitionQuery)));
+
+        return CompletableFuture.allOf(pendingPages.values().toArray(CompletableFuture[]::new))
+            .thenApply(ignored -> {
+                final Map<String, KeyedPage<Map<String, AttributeValue>>> pages = new LinkedHashMap<>();
+                pendingPages.forEach((partitionKey, pendingPage) -> pages.put(partitionKey, pendingPage.join()));
+                return merge(position.exclusiveStartKeys(), pages);
+            });
+    }
+
+    /**
+     * Queries a page of a partition, topping up the consents held back by the last page rather than reading them again.
+     */
+    private static CompletableFuture<KeyedPage<Map<String, AttributeValue>>> queryPartitionPage(final String partitionKey,
+            final Map<String, AttributeValue> exclusiveStartKey, final KeyedPage<Map<String, AttributeValue>> heldBackPage,
+            final int partitionPageSize, final PartitionQuery partitionQuery) {
+        if (heldBackPage == null) {
+            return partitionQuery.query(partitionKey, exclusiveStartKey.isEmpty() ? null : exclusiveStartKey, partitionPageSize);
+        }
+        final int numHeldBackConsents = heldBackPage.consents().size();
+        if (heldBackPage.lastEvaluatedKey().isEmpty() || numHeldBackConsents >= partitionPageSize) {
+            return CompletableFuture.completedFuture(heldBackPage);
+        }
+        return partitionQuery.query(partitionKey, heldBackPage.lastEvaluatedKey().get(), partitionPageSize - numHeldBackConsents)
+            .thenApply(page -> {
+                final List<ActiveConsentWithExpiryTime> consents = new ArrayList<>(heldBackPage.consents());
+                consents.addAll(page.consents());
+                return new KeyedPage<>(consents, page.lastEvaluatedKey());
+            });
+    }
+
+    private static KeyedPage<ShardedPosition> merge(final Map<String, Map<String, AttributeValue>> position,
+            final Map<String, KeyedPage<Map<String, AttributeValue>>> pages) {
+        // Consents after the earliest last consent of a partition with more pages may not be in order yet
+        final Optional<String> mergeBound = pages.values().stream()
+            .filter(page -> page.lastEvaluatedKey().isPresent())
+            .map(page -> page.consents().isEmpty() ? "" : page.consents().get(page.consents().size() - 1).expiryTimeId())
+            .min(Comparator.naturalOrder());
+
+        final List<ActiveConsentWithExpiryTime> consents = new ArrayList<>();
+        final Map<String, Map<String, AttributeValue>> nextPosition = new LinkedHashMap<>();
+        final Map<String, KeyedPage<Map<String, AttributeValue>>> heldBackPages = new LinkedHashMap<>();
+        pages.forEach((partitionKey, page) -> {
+            final List<ActiveConsentWithExpiryTime> pageConsents = page.consents();
+            int numMergedConsents = 0;
+            while (numMergedConsents < pageConsents.size() && (mergeBound.isEmpty()
+                    || pageConsents.get(numMergedConsents).expiryTimeId().compareTo(mergeBound.get()) <= 0)) {
+                numMergedConsents++;
+            }
+            consents.addAll(pageConsents.subList(0, numMergedConsents));
+
+            if (numMergedConsents == pageConsents.size()) {
+                page.lastEvaluatedKey().ifPresent(lastEvaluatedKey -> nextPosition.put(partitionKey, lastEvaluatedKey));
+                return;
+            }
+            nextPosition.put(partitionKey, numMergedConsents > 0
+                ? toExclusiveStartKey(pageConsents.get(numMergedConsents - 1))
+                : position.get(partitionKey));
+            heldBackPages.put(partitionKey,
+                new KeyedPage<>(List.copyOf(pageConsents.subList(numMergedConsents, pageConsents.size())), page.lastEvaluatedKey()));
+        });
+        consents.sort(Comparator.comparing(ActiveConsentWithExpiryTime::expiryTimeId));
+        return new KeyedPage<>(consents,
+            nextPosition.isEmpty() ? Optional.empty() : Optional.of(new ShardedPosition(nextPosition, heldBackPages)));
+    }
+
+    /**
+     * Builds the GSI exclusive start key that resumes a partition after the given consent.
+     */
+    private static Map<String, AttributeValue> toExclusiveStartKey(final ActiveConsentWithExpiryTime consent) {
+        return Map.of(
+            ID_ATTRIBUTE_NAME, AttributeValue.builder().s(consent.id()).build(),
+            EXPIRY_HOUR_ATTRIBUTE_NAME, AttributeValue.builder().s(consent.expiryHour()).build(),
+            EXPIRY_TIME_ID_ATTRIBUTE_NAME, AttributeValue.builder().s(consent.expiryTimeId()).build());
+    }
+}
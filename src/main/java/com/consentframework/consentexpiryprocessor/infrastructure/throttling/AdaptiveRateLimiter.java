@@ -0,0 +1,123 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.throttling;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket rate limiter whose rate adapts to throttling, using additive increase, multiplicative decrease (AIMD).
+ *
+ * The rate starts at the configured maximum. Each throttled request halves it, at most once per decrease
+ * cooldown so that a burst of requests throttled together only backs off once. Each successful request
+ * raises it again, by a twentieth of the maximum rate per second of successful requests, until the maximum
+ * is reached. The bucket holds up to one second of permits, and permits can be reserved ahead of time,
+ * in which case the caller waits until the reserved permit would have been refilled.
+ */
+public class AdaptiveRateLimiter {
+    static final double MIN_PERMITS_PER_SECOND = 1.0;
+    static final double MULTIPLICATIVE_DECREASE_FACTOR = 0.5;
+    static final double ADDITIVE_INCREASE_FRACTION = 0.05;
+    static final long DECREASE_COOLDOWN_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final double maxPermitsPerSecond;
+    private final double additiveIncreasePerSecond;
+    private final LongSupplier nanoClock;
+
+    private double permitsPerSecond;
+    private double storedPermits = 1.0;
+    private long lastRefillNanos;
+    private long lastDecreaseNanos;
+
+    /**
+     * Constructs a new AdaptiveRateLimiter.
+     *
+     * @param maxPermitsPerSecond The maximum rate to grant permits at, the limiter never exceeds this budget.
+     */
+    public AdaptiveRateLimiter(final double maxPermitsPerSecond) {
+        this(maxPermitsPerSecond, System::nanoTime);
+    }
+
+    /**
+     * Constructs a new AdaptiveRateLimiter with the given clock, used to control timing in tests.
+     */
+    AdaptiveRateLimiter(final double maxPermitsPerSecond, final LongSupplier nanoClock) {
+        if (!(maxPermitsPerSecond >= MIN_PERMITS_PER_SECOND)) {
+            throw new IllegalArgumentException(String.format("maxPermitsPerSecond must be at least %s, received: %s",
+                MIN_PERMITS_PER_SECOND, maxPermitsPerSecond));
+        }
+        this.maxPermitsPerSecond = maxPermitsPerSecond;
+        this.additiveIncreasePerSecond = maxPermitsPerSecond * ADDITIVE_INCREASE_FRACTION;
+        this.nanoClock = nanoClock;
+        this.permitsPerSecond = maxPermitsPerSecond;
+        this.lastRefillNanos = nanoClock.getAsLong();
+        this.lastDecreaseNanos = lastRefillNanos - DECREASE_COOLDOWN_NANOS;
+    }
+
+    /**
+     * Blocks until a permit is available.
+     */
+    public void acquire() {
+        final long waitNanos = reserve();
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a rate limiter permit", e);
+            }
+        }
+    }
+
+    /**
+     * Reserves a permit without blocking.
+     *
+     * @return The number of nanoseconds to wait before using the permit, zero if it can be used immediately.
+     */
+    public synchronized long reserve() {
+        refill();
+        storedPermits -= 1.0;
+        if (storedPermits >= 0) {
+            return 0;
+        }
+        return (long) Math.ceil(-storedPermits / permitsPerSecond * NANOS_PER_SECOND);
+    }
+
+    /**
+     * Records a request that was accepted, additively increasing the rate towards the maximum.
+     */
+    public synchronized void onSuccess() {
+        refill();
+        permitsPerSecond = Math.min(maxPermitsPerSecond, permitsPerSecond + additiveIncreasePerSecond / permitsPerSecond);
+    }
+
+    /**
+     * Records a request that was throttled, multiplicatively decreasing the rate and discarding any stored burst.
+     */
+    public synchronized void onThrottle() {
+        refill();
+        final long currentNanos = nanoClock.getAsLong();
+        if (currentNanos - lastDecreaseNanos < DECREASE_COOLDOWN_NANOS) {
+            return;
+        }
+        lastDecreaseNanos = currentNanos;
+        permitsPerSecond = Math.max(MIN_PERMITS_PER_SECOND, permitsPerSecond * MULTIPLICATIVE_DECREASE_FACTOR);
+        storedPermits = Math.min(storedPermits, 0);
+    }
+
+    /**
+     * Returns the rate permits are currently granted at.
+     *
+     * @return current permits per second.
+     */
+    public synchronized double currentPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    private void refill() {
+        final long currentNanos = nanoClock.getAsLong();
+        final double refilledPermits = (currentNanos - lastRefillNanos) / NANOS_PER_SECOND * permitsPerSecond;
+        storedPermits = Math.min(Math.max(1.0, permitsPerSecond), storedPermits + refilledPermits);
+        lastRefillNanos = currentNanos;
+    }
+}
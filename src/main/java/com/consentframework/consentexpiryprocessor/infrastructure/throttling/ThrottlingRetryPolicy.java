@@ -0,0 +1,109 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.throttling;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Retry policy for throttled requests, using exponential backoff with full jitter.
+ *
+ * The delay before retry n is drawn uniformly between zero and min(maxDelay, baseDelay * 2^(n - 1)),
+ * so that requests throttled at the same time spread their retries out instead of retrying together.
+ *
+ * Ref: https://aws.amazon.com/blogs/architecture/exponential-backoff-and-jitter/
+ */
+public class ThrottlingRetryPolicy {
+    public static final int DEFAULT_MAX_ATTEMPTS = 4;
+    static final Duration DEFAULT_BASE_DELAY = Duration.ofMillis(50);
+    static final Duration DEFAULT_MAX_DELAY = Duration.ofSeconds(2);
+
+    public static final ThrottlingRetryPolicy DEFAULT = new ThrottlingRetryPolicy(DEFAULT_MAX_ATTEMPTS);
+
+    private final int maxAttempts;
+    private final long baseDelayNanos;
+    private final long maxDelayNanos;
+    private final DoubleSupplier random;
+
+    /**
+     * Constructs a new ThrottlingRetryPolicy with the default backoff delays.
+     *
+     * @param maxAttempts The maximum number of attempts per request, including the first one.
+     */
+    public ThrottlingRetryPolicy(final int maxAttempts) {
+        this(maxAttempts, DEFAULT_BASE_DELAY, DEFAULT_MAX_DELAY);
+    }
+
+    /**
+     * Constructs a new ThrottlingRetryPolicy.
+     *
+     * @param maxAttempts The maximum number of attempts per request, including the first one.
+     * @param baseDelay The upper bound of the delay before the first retry.
+     * @param maxDelay The upper bound of the delay before any retry.
+     */
+    public ThrottlingRetryPolicy(final int maxAttempts, final Duration baseDelay, final Duration maxDelay) {
+        this(maxAttempts, baseDelay, maxDelay, () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    /**
+     * Constructs a new ThrottlingRetryPolicy with the given source of jitter, used to control delays in tests.
+     */
+    ThrottlingRetryPolicy(final int maxAttempts, final Duration baseDelay, final Duration maxDelay, final DoubleSupplier random) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be positive, received: " + maxAttempts);
+        }
+        if (baseDelay.isNegative() || maxDelay.compareTo(baseDelay) < 0) {
+            throw new IllegalArgumentException(String.format(
+                "baseDelay must not be negative or greater than maxDelay, received: %s and %s", baseDelay, maxDelay));
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseDelayNanos = baseDelay.toNanos();
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.random = random;
+    }
+
+    /**
+     * Returns the maximum number of attempts per request.
+     *
+     * @return max attempts, including the first one.
+     */
+    public int maxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Returns whether a request throttled on the given attempt should be retried.
+     *
+     * @param attempt The attempt that was throttled, starting from 1.
+     * @return true if there are attempts left.
+     */
+    public boolean shouldRetry(final int attempt) {
+        return attempt < maxAttempts;
+    }
+
+    /**
+     * Computes the delay before retrying a request throttled on the given attempt.
+     *
+     * @param attempt The attempt that was throttled, starting from 1.
+     * @return backoff delay in nanoseconds.
+     */
+    public long backoffNanos(final int attempt) {
+        final int doublings = Math.min(attempt - 1, Long.numberOfLeadingZeros(Math.max(1, baseDelayNanos)) - 1);
+        final long delayCapNanos = Math.min(maxDelayNanos, baseDelayNanos << doublings);
+        return (long) (random.getAsDouble() * delayCapNanos);
+    }
+
+    /**
+     * Blocks for the backoff delay before retrying a request throttled on the given attempt.
+     *
+     * @param attempt The attempt that was throttled, starting from 1.
+     */
+    public void sleepBeforeRetry(final int attempt) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(backoffNanos(attempt));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while backing off before a retry", e);
+        }
+    }
+}
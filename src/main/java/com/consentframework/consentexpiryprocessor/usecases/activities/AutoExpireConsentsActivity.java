@@ -1,15 +1,39 @@
 package com.consentframework.consentexpiryprocessor.usecases.activities;
 
+import com.consentframework.consentexpiryprocessor.domain.constants.ConsentExpiryStatus;
 import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
+import com.consentframework.consentexpiryprocessor.domain.entities.ConsentExpiryResult;
+import com.consentframework.consentexpiryprocessor.domain.entities.ExpiryHourSummary;
+import com.consentframework.consentexpiryprocessor.domain.entities.ExpiryRunSummary;
+import com.consentframework.consentexpiryprocessor.domain.entities.ExpiryShardAssignment;
+import com.consentframework.consentexpiryprocessor.domain.entities.ExpiryTimeCutoff;
+import com.consentframework.consentexpiryprocessor.domain.metrics.ExpiryRunRecorder;
+import com.consentframework.consentexpiryprocessor.domain.repositories.ConsentPageCursor;
 import com.consentframework.consentexpiryprocessor.domain.repositories.ConsentRepository;
-import com.consentframework.shared.api.domain.pagination.ListPage;
+import com.consentframework.consentexpiryprocessor.domain.repositories.ExpiryCheckpointStore;
 import com.consentframework.shared.api.infrastructure.mappers.DynamoDbConsentExpiryTimeConverter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.time.Duration;
 import java.time.OffsetDateTime;
-import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
 
 /**
  * This activity queries for active consents past their expiry time, and updates their status to expired.
@@ -17,21 +41,76 @@ import java.util.Optional;
 public class AutoExpireConsentsActivity {
     private static final Logger logger = LogManager.getLogger(AutoExpireConsentsActivity.class);
 
-    static final int NUMBER_PAST_DAYS_TO_EXPIRE_CONSENTS = 3;
+    /**
+     * Runs each page write in the thread that reads the expiry hour, when hours are processed one at a time.
+     */
+    private static final Executor CALLING_THREAD = Runnable::run;
 
     private final ConsentRepository consentRepository;
+    private final int maxConcurrentExpiryHours;
+    private final ExpiryCheckpointStore checkpointStore;
+    private final ExpiredConsentCache expiredConsentCache;
+    private final ExpiryRunRecorder runRecorder;
+    private final int lookbackHours;
 
     /**
-     * Initialize the activity.
+     * Number of consents expired from a page, skipped because they were recently expired, skipped because their write
+     * failed its condition check, and left active because their write was throttled or failed with an error.
+     */
+    private record PageExpiryCounts(int numExpiredConsents, int numCachedConsents, int numConditionFailedConsents,
+            int numFailedConsents) {}
+
+    /**
+     * Page of an expiry hour whose consents are being expired, with the page token to checkpoint once it is done.
+     */
+    private record PendingPage(Future<PageExpiryCounts> expiry, Optional<String> nextPageToken) {}
+
+    /**
+     * Initialize the activity with the default settings, processing one expiry hour at a time.
      *
      * @param consentRepository The consent repository.
      */
     public AutoExpireConsentsActivity(final ConsentRepository consentRepository) {
+        this(consentRepository, AutoExpireConsentsActivitySettings.builder().build());
+    }
+
+    /**
+     * Initialize the activity.
+     *
+     * @param consentRepository The consent repository.
+     * @param settings The expiry hour concurrency and lookback window, checkpoint store, expired consent cache
+     *     and run recorder.
+     */
+    public AutoExpireConsentsActivity(final ConsentRepository consentRepository, final AutoExpireConsentsActivitySettings settings) {
         this.consentRepository = consentRepository;
+        this.maxConcurrentExpiryHours = settings.maxConcurrentExpiryHours();
+        this.checkpointStore = settings.checkpointStore();
+        this.expiredConsentCache = settings.expiredConsentCache();
+        this.runRecorder = settings.runRecorder();
+        this.lookbackHours = settings.lookbackHours();
+    }
+
+    /**
+     * Execute the activity over every expiry hour.
+     *
+     * @return Summary of the run.
+     */
+    public ExpiryRunSummary execute() {
+        return execute(ExpiryShardAssignment.ALL_EXPIRY_HOURS);
+    }
+
+    /**
+     * Execute the activity over the expiry hours in the given shard.
+     *
+     * @param shardAssignment The expiry hours to process.
+     * @return Summary of the run.
+     */
+    public ExpiryRunSummary execute(final ExpiryShardAssignment shardAssignment) {
+        return execute(shardAssignment, () -> false);
     }
 
     /**
-     * Execute the activity.
+     * Execute the activity over the expiry hours in the given shard, stopping early once the deadline is reached.
      *
      * Makes paginated API calls to retrieve active consents with non-null expiry times,
      * in ascending order of expiry time (oldest to newest), and updates the status of
@@ -39,76 +118,388 @@ public class AutoExpireConsentsActivity {
      *
      * Assumption: the consents returned by the repository are sorted in ascending order
      * of expiry time (oldest to newest).
+     *
+     * When configured with more than one concurrent expiry hour, expiry hours are read on virtual threads, one per
+     * concurrent hour, and their pages are expired by page writers taking pages from a shared queue. Each hour's pages
+     * are read in order, but any writer can expire them, so a few heavy hours are spread across all writers instead of
+     * leaving the writers of light hours idle.
+     *
+     * Consents are expired if their expiry time is before the time the run started, consents
+     * that expire while the run is in progress are left for the next run.
+     *
+     * The deadline is checked before each page is fetched. Once it is reached, the page in hand is
+     * finished and the token of the next page is checkpointed, so the next run resumes from there.
+     * The checkpoint never moves past a page that left consents active, so the next run reads them again.
+     *
+     * Expiry hours that the checkpoint store records as drained by an earlier run are skipped. An hour is recorded as drained
+     * once it has ended before the run started and every consent read from it was expired, so no consent is left in its
+     * partition. Steady-state runs therefore only query the current hour and any hours left behind by throttling or the
+     * deadline, as long as the checkpoint store keeps its drained markers between runs.
+     *
+     * A consent that fails to expire is counted as failed and left active for the next run, rather than failing the run.
+     *
+     * The run recorder is started before the first expiry hour and finished once the run ends, even if it fails.
+     *
+     * @param shardAssignment The expiry hours to process, either listed explicitly or selected by hash
+     *     from the expiry hours in the lookback window.
+     * @param deadlineReached Returns true once there is no longer time to process another page.
+     * @return Summary of the run.
+     */
+    public ExpiryRunSummary execute(final ExpiryShardAssignment shardAssignment, final BooleanSupplier deadlineReached) {
+        final long runStartNanos = System.nanoTime();
+        runRecorder.runStarted();
+        try {
+            final Map<String, ExpiryHourSummary> expiryHourSummaries = processExpiryHours(shardAssignment, deadlineReached);
+            return ExpiryRunSummary.builder()
+                .putAllExpiryHours(expiryHourSummaries)
+                .numThrottles(runRecorder.numThrottles())
+                .numRetries(runRecorder.numRetries())
+                .elapsedTime(Duration.ofNanos(System.nanoTime() - runStartNanos))
+                .build();
+        } finally {
+            runRecorder.runFinished();
+        }
+    }
+
+    private Map<String, ExpiryHourSummary> processExpiryHours(final ExpiryShardAssignment shardAssignment,
+            final BooleanSupplier deadlineReached) {
+        final OffsetDateTime runStartTime = OffsetDateTime.now();
+        final List<String> expiryHours = skipDrainedExpiryHours(shardAssignment.expiryHours().isEmpty()
+            ? getExpiryHoursToProcess(runStartTime, lookbackHours).stream().filter(shardAssignment::includes).toList()
+            : shardAssignment.expiryHours(), runStartTime);
+        final ExpiryTimeCutoff cutoff = new ExpiryTimeCutoff(runStartTime.toInstant());
+        final Map<String, ExpiryHourSummary> expiryHourSummaries = maxConcurrentExpiryHours == 1
+            ? processExpiryHoursSequentially(expiryHours, cutoff, deadlineReached)
+            : processExpiryHoursConcurrently(expiryHours, cutoff, deadlineReached);
+
+        logger.info("Expired {} consents across {} expiry hours, {} failed.",
+            expiryHourSummaries.values().stream().mapToInt(ExpiryHourSummary::numConsentsExpired).sum(), expiryHourSummaries.size(),
+            expiryHourSummaries.values().stream().mapToInt(ExpiryHourSummary::numConsentsFailed).sum());
+        if (expiryHourSummaries.values().stream().anyMatch(ExpiryHourSummary::stoppedAtDeadline)) {
+            logger.warn("Stopped before the invocation deadline, the next run will resume from the saved checkpoints.");
+        } else {
+            logger.info("No more consents to auto-expire, ending auto-expire consent activity.");
+        }
+        return expiryHourSummaries;
+    }
+
+    /**
+     * Removes the expiry hours drained by earlier runs, after forgetting the checkpoints of hours that have left the lookback window.
+     */
+    private List<String> skipDrainedExpiryHours(final List<String> expiryHours, final OffsetDateTime runStartTime) {
+        checkpointStore.forgetExpiryHoursBefore(
+            DynamoDbConsentExpiryTimeConverter.toExpiryHour(runStartTime.minusHours(lookbackHours - 1L)));
+        final Set<String> drainedExpiryHours = checkpointStore.getDrainedExpiryHours();
+        if (drainedExpiryHours.isEmpty()) {
+            return expiryHours;
+        }
+
+        final List<String> undrainedExpiryHours = expiryHours.stream()
+            .filter(expiryHour -> !drainedExpiryHours.contains(expiryHour))
+            .toList();
+        logger.info("Skipping {} of {} expiry hours drained by earlier runs.",
+            expiryHours.size() - undrainedExpiryHours.size(), expiryHours.size());
+        return undrainedExpiryHours;
+    }
+
+    /**
+     * Lists the expiry hours to process in the default lookback window, from oldest to newest, ending with the current hour.
+     *
+     * @param runStartTime The time the run started.
+     * @return Expiry hours in the lookback window.
+     */
+    public static List<String> getExpiryHoursToProcess(final OffsetDateTime runStartTime) {
+        return getExpiryHoursToProcess(runStartTime, AutoExpireConsentsActivitySettings.DEFAULT_LOOKBACK_HOURS);
+    }
+
+    /**
+     * Lists the expiry hours to process, from oldest to newest, ending with the current hour.
+     *
+     * @param runStartTime The time the run started.
+     * @param lookbackHours The number of expiry hours in the lookback window.
+     * @return Expiry hours in the lookback window.
      */
-    public void execute() {
-        for (int hoursAgo = NUMBER_PAST_DAYS_TO_EXPIRE_CONSENTS * 24 - 1; hoursAgo >= 0; hoursAgo--) {
-            final String expiryHour = DynamoDbConsentExpiryTimeConverter.toExpiryHour(
-                OffsetDateTime.now().minusHours(hoursAgo)
-            );
-            processActiveConsentsWithExpiryHour(expiryHour);
+    public static List<String> getExpiryHoursToProcess(final OffsetDateTime runStartTime, final int lookbackHours) {
+        final List<String> expiryHours = new ArrayList<>();
+        for (int hoursAgo = lookbackHours - 1; hoursAgo >= 0; hoursAgo--) {
+            expiryHours.add(DynamoDbConsentExpiryTimeConverter.toExpiryHour(runStartTime.minusHours(hoursAgo)));
         }
+        return expiryHours;
+    }
 
-        logger.info("No more consents to auto-expire, ending auto-expire consent activity.");
+    private Map<String, ExpiryHourSummary> processExpiryHoursSequentially(final List<String> expiryHours,
+            final ExpiryTimeCutoff cutoff, final BooleanSupplier deadlineReached) {
+        final Map<String, ExpiryHourSummary> expiryHourSummaries = new LinkedHashMap<>();
+        for (final String expiryHour : expiryHours) {
+            expiryHourSummaries.put(expiryHour, processActiveConsentsWithExpiryHour(expiryHour, cutoff, deadlineReached, CALLING_THREAD));
+        }
+        return expiryHourSummaries;
     }
 
-    private void processActiveConsentsWithExpiryHour(final String expiryHour) {
-        ListPage<ActiveConsentWithExpiryTime> currentPageConsents = consentRepository.getActiveConsentsWithExpiryHour(
-            expiryHour, Optional.empty());
+    /**
+     * Processes expiry hours in parallel, with at most maxConcurrentExpiryHours hours being read at a time.
+     *
+     * Readers and page writers run on virtual threads, so blocking repository calls do not tie up platform threads.
+     * Each reader reads an hour's pages in order and hands them to a queue shared by maxConcurrentExpiryHours page
+     * writers. Writers that have run out of pages from light hours take pages of the hours still being read, so run
+     * time tracks the total number of pages rather than the largest hour.
+     *
+     * If any expiry hour fails, the remaining hours are cancelled and the first failure is rethrown once every reader
+     * and writer has stopped, so no checkpoint is saved after the run has returned.
+     */
+    private Map<String, ExpiryHourSummary> processExpiryHoursConcurrently(final List<String> expiryHours,
+            final ExpiryTimeCutoff cutoff, final BooleanSupplier deadlineReached) {
+        logger.info("Processing {} expiry hours with {} page writers sharing their pages.", expiryHours.size(), maxConcurrentExpiryHours);
+        final Map<String, ExpiryHourSummary> expiryHourSummaries = new LinkedHashMap<>();
 
-        while (currentPageConsents != null && currentPageConsents.resultsOnPage() != null) {
-            logger.info("Processing page of {} active consents with expiry times.", currentPageConsents.resultsOnPage().size());
+        final ExecutorService expiryHourReaders = Executors.newFixedThreadPool(maxConcurrentExpiryHours,
+            Thread.ofVirtual().name("expiry-hour-reader-", 0).factory());
+        final ExecutorService pageWriters = Executors.newFixedThreadPool(maxConcurrentExpiryHours,
+            Thread.ofVirtual().name("expiry-page-writer-", 0).factory());
+        try {
+            final Map<String, Future<ExpiryHourSummary>> expiryHourResults = new LinkedHashMap<>();
+            expiryHours.forEach(expiryHour ->
+                expiryHourResults.put(expiryHour, expiryHourReaders.submit(() ->
+                    processActiveConsentsWithExpiryHour(expiryHour, cutoff, deadlineReached, pageWriters))));
 
-            for (final ActiveConsentWithExpiryTime consent : currentPageConsents.resultsOnPage()) {
-                final boolean isPastExpiryTime = isPastExpiryTime(consent);
-                if (!isPastExpiryTime) {
-                    logger.info("Remaining consent expiry times are in the future, ending auto-expire consent activity.");
-                    return;
-                }
-                expireConsent(consent);
+            for (final Map.Entry<String, Future<ExpiryHourSummary>> expiryHourResult : expiryHourResults.entrySet()) {
+                expiryHourSummaries.put(expiryHourResult.getKey(), await(expiryHourResult.getValue()));
             }
+        } catch (final RuntimeException e) {
+            // Interrupt the hours still being read, and cancel the pages no writer has started so no reader waits on them
+            expiryHourReaders.shutdownNow();
+            pageWriters.shutdownNow().forEach(pageExpiry -> ((Future<?>) pageExpiry).cancel(false));
+            throw e;
+        } finally {
+            // Wait for readers, which save checkpoints, and for writes already in flight to finish
+            expiryHourReaders.close();
+            pageWriters.close();
+        }
+        return expiryHourSummaries;
+    }
 
-            currentPageConsents = getNextPage(expiryHour, currentPageConsents);
+    /**
+     * Waits for a task to complete, rethrowing the original exception if it failed.
+     */
+    private static <T> T await(final Future<T> task) {
+        try {
+            return task.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for consents to be expired", e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
         }
     }
 
     /**
-     * Update the consent to expired.
+     * Expires the consents in the given expiry hour that are past their expiry time.
+     *
+     * Consents past their expiry time are expired one page at a time through the repository's batch API,
+     * iterating a cursor that stops at the first consent not yet past the cutoff, and the next page is prefetched
+     * while the current one is expired. When hours are processed concurrently, pages are expired by the page writers
+     * while the following pages are read, see {@link ExpiryHourPages}. Processing starts from the expiry hour's
+     * checkpoint if there is one, and the checkpoint is advanced after each page is expired and deleted once the
+     * expiry hour is finished.
+     * A finished expiry hour that ended before the cutoff is marked as drained if none of its consents were left active.
      *
-     * @param consent The consent to update.
+     * @param expiryHour The expiry hour partition to process.
+     * @param cutoff Consents with an expiry time before the cutoff are expired.
+     * @param deadlineReached Returns true once there is no longer time to process another page.
+     * @param pageWriters Runs the write of each page.
+     * @return Summary of the expiry hour.
+     */
+    private ExpiryHourSummary processActiveConsentsWithExpiryHour(final String expiryHour, final ExpiryTimeCutoff cutoff,
+            final BooleanSupplier deadlineReached, final Executor pageWriters) {
+        if (deadlineReached.getAsBoolean()) {
+            logger.info("Skipping expiry hour {}, the invocation deadline has been reached.", expiryHour);
+            return ExpiryHourSummary.SKIPPED_AT_DEADLINE;
+        }
+
+        int numScannedConsents = 0;
+        final ExpiryHourPages expiryHourPages = new ExpiryHourPages(expiryHour, pageWriters);
+        final Optional<String> checkpointPageToken = checkpointStore.getPageToken(expiryHour);
+        if (checkpointPageToken.isPresent()) {
+            logger.info("Resuming expiry hour {} from its checkpoint.", expiryHour);
+        }
+        final ConsentPageCursor expiredConsentPages = consentRepository.openExpiredConsentPages(
+            expiryHour, checkpointPageToken, cutoff);
+
+        while (expiredConsentPages.hasNext()) {
+            final List<ActiveConsentWithExpiryTime> consentsPastExpiryTime = expiredConsentPages.next();
+            numScannedConsents += consentsPastExpiryTime.size();
+            if (!expiredConsentPages.hasNext()) {
+                expiryHourPages.expire(consentsPastExpiryTime, Optional.empty());
+                break;
+            }
+
+            if (deadlineReached.getAsBoolean()) {
+                expiryHourPages.expire(consentsPastExpiryTime, checkpointPageToken(expiredConsentPages));
+                final PageExpiryCounts expiryCounts = expiryHourPages.finish();
+                logger.info("Stopping expiry hour {} at a checkpoint, the invocation deadline has been reached.", expiryHour);
+                runRecorder.recordExpiryHour(expiryHour, numScannedConsents, expiryCounts.numExpiredConsents());
+                return toExpiryHourSummary(numScannedConsents, expiryCounts, true);
+            }
+
+            // Every consent on this page has expired, so the next page is needed: fetch it while this page is updated.
+            // At most one page per expiry hour is prefetched, and each hour has a bounded number of pages being expired.
+            expiredConsentPages.prefetch();
+            expiryHourPages.expire(consentsPastExpiryTime, checkpointPageToken(expiredConsentPages));
+        }
+        final PageExpiryCounts expiryCounts = expiryHourPages.finish();
+        logger.info("Finished processing expiry hour {}, expired {} of {} consents past their expiry time.",
+            expiryHour, expiryCounts.numExpiredConsents(), numScannedConsents);
+        checkpointStore.deletePageToken(expiryHour);
+        // A consent whose write failed its condition check may have been updated rather than expired, and still be in the partition
+        if (expiryCounts.numConditionFailedConsents() == 0 && expiryCounts.numFailedConsents() == 0 && cutoff.isAfterEndOf(expiryHour)) {
+            checkpointStore.markExpiryHourDrained(expiryHour);
+        }
+        runRecorder.recordExpiryHour(expiryHour, numScannedConsents, expiryCounts.numExpiredConsents());
+        return toExpiryHourSummary(numScannedConsents, expiryCounts, false);
+    }
+
+    private static PageExpiryCounts add(final PageExpiryCounts counts, final PageExpiryCounts pageCounts) {
+        return new PageExpiryCounts(counts.numExpiredConsents() + pageCounts.numExpiredConsents(),
+            counts.numCachedConsents() + pageCounts.numCachedConsents(),
+            counts.numConditionFailedConsents() + pageCounts.numConditionFailedConsents(),
+            counts.numFailedConsents() + pageCounts.numFailedConsents());
+    }
+
+    private static ExpiryHourSummary toExpiryHourSummary(final int numScannedConsents, final PageExpiryCounts expiryCounts,
+            final boolean stoppedAtDeadline) {
+        return ExpiryHourSummary.builder()
+            .numConsentsScanned(numScannedConsents)
+            .numConsentsExpired(expiryCounts.numExpiredConsents())
+            .numConsentsSkipped(expiryCounts.numCachedConsents() + expiryCounts.numConditionFailedConsents())
+            .numConsentsFailed(expiryCounts.numFailedConsents())
+            .stoppedAtDeadline(stoppedAtDeadline)
+            .build();
+    }
+
+    /**
+     * Returns the position after the last page read, only serializing a page token if there is a store to save it to.
      */
-    private void expireConsent(final ActiveConsentWithExpiryTime consent) {
-        final String consentPartitionKey = consent.id();
-        logger.info("Consent with partition key {} has expiryTimeId {} with expiryTime in the past, updating status to EXPIRED.",
-            consentPartitionKey, consent.expiryTimeId());
-        final String nextConsentVersion = String.valueOf(consent.consentVersion() + 1);
-        consentRepository.expireConsent(consentPartitionKey, nextConsentVersion);
+    private Optional<String> checkpointPageToken(final ConsentPageCursor expiredConsentPages) {
+        return checkpointStore != ExpiryCheckpointStore.NONE ? expiredConsentPages.nextPageToken() : Optional.empty();
     }
 
     /**
-     * Checks if a consent's expiryTime is in the past.
+     * Pages of an expiry hour whose consents are being expired, oldest first.
      *
-     * @param consent The consent to check.
-     * @return True if the consent's expiryTime is in the past, false otherwise.
+     * Each page is handed to the page writers, so any idle writer can expire it while the hour's reader moves on
+     * to the next page; when hours are processed one at a time it is expired in the calling thread. At most
+     * maxConcurrentExpiryHours pages per hour are in flight, and the checkpoint only advances past a page
+     * once it and every page before it have been expired. Once a page leaves consents active, because their
+     * writes were throttled or failed, the checkpoint stays where it is for the rest of the run.
      */
-    private boolean isPastExpiryTime(final ActiveConsentWithExpiryTime consent) {
-        final OffsetDateTime currentTime = OffsetDateTime.now().withOffsetSameInstant(ZoneOffset.UTC);
-        final OffsetDateTime expiryTime = DynamoDbConsentExpiryTimeConverter.toOffsetDateTimeFromExpiryTimeId(consent.expiryTimeId());
-        return expiryTime.isBefore(currentTime);
+    private final class ExpiryHourPages {
+        private final String expiryHour;
+        private final Executor pageWriters;
+        private final Deque<PendingPage> pendingPages = new ArrayDeque<>();
+        private PageExpiryCounts expiryCounts = new PageExpiryCounts(0, 0, 0, 0);
+        private boolean checkpointHeld;
+
+        ExpiryHourPages(final String expiryHour, final Executor pageWriters) {
+            this.expiryHour = expiryHour;
+            this.pageWriters = pageWriters;
+        }
+
+        /**
+         * Starts expiring the page, then completes the pages at the front of the queue that are done.
+         *
+         * @param consents The consents on the page.
+         * @param nextPageToken The page token to checkpoint once the page is expired, empty to leave the checkpoint.
+         */
+        void expire(final List<ActiveConsentWithExpiryTime> consents, final Optional<String> nextPageToken) {
+            final FutureTask<PageExpiryCounts> expiry = new FutureTask<>(() -> expireConsents(expiryHour, consents));
+            pageWriters.execute(expiry);
+            pendingPages.add(new PendingPage(expiry, nextPageToken));
+
+            while (!pendingPages.isEmpty()
+                    && (pendingPages.peek().expiry().isDone() || pendingPages.size() > maxConcurrentExpiryHours)) {
+                completeOldestPage();
+            }
+        }
+
+        /**
+         * Waits for every page to be expired.
+         *
+         * @return The number of consents expired, skipped and left active across all pages.
+         */
+        PageExpiryCounts finish() {
+            while (!pendingPages.isEmpty()) {
+                completeOldestPage();
+            }
+            return expiryCounts;
+        }
+
+        private void completeOldestPage() {
+            final PendingPage page = pendingPages.remove();
+            final PageExpiryCounts pageCounts = await(page.expiry());
+            expiryCounts = add(expiryCounts, pageCounts);
+            // A run resuming past this page would never retry its consents left active, and could mark the hour drained
+            checkpointHeld |= pageCounts.numFailedConsents() > 0;
+            if (!checkpointHeld) {
+                page.nextPageToken().ifPresent(nextPageToken -> checkpointStore.savePageToken(expiryHour, nextPageToken));
+            }
+        }
     }
 
     /**
-     * Retrieves the next page of consents.
+     * Update the consents to expired, skipping those already known to be expired.
+     *
+     * Consents that are expired, or that fail the version condition because another run already expired them,
+     * are added to the expired consent cache. A single summary is logged per page, condition failures are counted
+     * as skips and only throttled writes and writes that failed with an error are reported as failures.
      *
-     * @param currentPageConsents The current page of consents.
-     * @return The next page of consents, or null if there are no more pages.
+     * @param expiryHour The expiry hour the consents belong to.
+     * @param consents The consents to update.
+     * @return The number of consents expired, skipped and left active.
      */
-    private ListPage<ActiveConsentWithExpiryTime> getNextPage(final String expiryHour,
-            final ListPage<ActiveConsentWithExpiryTime> currentPageConsents) {
-        final Optional<String> nextPageToken = currentPageConsents.nextPageToken();
-        if (nextPageToken.isPresent()) {
-            logger.info("Retrieving next page of consents.");
-            return consentRepository.getActiveConsentsWithExpiryHour(expiryHour, nextPageToken);
+    private PageExpiryCounts expireConsents(final String expiryHour, final List<ActiveConsentWithExpiryTime> consents) {
+        final List<ActiveConsentWithExpiryTime> consentsToExpire = consents.stream()
+            .filter(consent -> !expiredConsentCache.contains(consent))
+            .toList();
+        if (consentsToExpire.isEmpty()) {
+            if (!consents.isEmpty()) {
+                logger.info("Skipped page of {} consents in expiry hour {} already expired by a recent run.", consents.size(), expiryHour);
+            }
+            return new PageExpiryCounts(0, consents.size(), 0, 0);
+        }
+        final List<ConsentExpiryResult> results = consentRepository.expireConsents(consentsToExpire);
+
+        // Results are in the same order as the consents
+        for (int i = 0; i < results.size(); i++) {
+            final ConsentExpiryStatus status = results.get(i).status();
+            if (status == ConsentExpiryStatus.SUCCESS || status == ConsentExpiryStatus.CONDITION_FAILED) {
+                expiredConsentCache.add(consentsToExpire.get(i));
+            }
+        }
+        final Map<ConsentExpiryStatus, Long> resultCounts = results.stream()
+            .collect(Collectors.groupingBy(ConsentExpiryResult::status, () -> new EnumMap<>(ConsentExpiryStatus.class),
+                Collectors.counting()));
+        final int numExpiredConsents = resultCounts.getOrDefault(ConsentExpiryStatus.SUCCESS, 0L).intValue();
+        final int numSkippedConsents = resultCounts.getOrDefault(ConsentExpiryStatus.CONDITION_FAILED, 0L).intValue();
+        logger.info("Expired {} of {} consents on page in expiry hour {}, skipped {} already expired by a recent run "
+            + "and {} already expired or updated.", numExpiredConsents, consents.size(), expiryHour,
+            consents.size() - consentsToExpire.size(), numSkippedConsents);
+        final int numThrottledConsents = resultCounts.getOrDefault(ConsentExpiryStatus.THROTTLED, 0L).intValue();
+        if (numThrottledConsents > 0) {
+            logger.warn("Could not expire {} of {} consents in expiry hour {}, writes were throttled.",
+                numThrottledConsents, consentsToExpire.size(), expiryHour);
+        }
+        final int numFailedConsents = resultCounts.getOrDefault(ConsentExpiryStatus.FAILED, 0L).intValue();
+        if (numFailedConsents > 0) {
+            logger.warn("Could not expire {} of {} consents in expiry hour {}, writes failed with an error.",
+                numFailedConsents, consentsToExpire.size(), expiryHour);
         }
-        return null;
+        return new PageExpiryCounts(numExpiredConsents, consents.size() - consentsToExpire.size(), numSkippedConsents,
+            numThrottledConsents + numFailedConsents);
     }
 }
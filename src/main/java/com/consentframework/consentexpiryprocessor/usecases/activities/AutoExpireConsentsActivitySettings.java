@@ -0,0 +1,92 @@
+package com.consentframework.consentexpiryprocessor.usecases.activities;
+
+import com.consentframework.consentexpiryprocessor.domain.metrics.ExpiryRunRecorder;
+import com.consentframework.consentexpiryprocessor.domain.repositories.ExpiryCheckpointStore;
+import org.immutables.value.Value.Check;
+import org.immutables.value.Value.Default;
+import org.immutables.value.Value.Immutable;
+import org.immutables.value.Value.Style;
+
+/**
+ * Represents how AutoExpireConsentsActivity sweeps expiry hours: how many it processes at a time, how far back it
+ * looks, and where it records its progress.
+ *
+ * Every setting has a default, so only the settings that differ from it need to be set.
+ */
+@Immutable
+@Style(
+    // Enable strict builder mode to prevent initialization errors
+    strictBuilder = true,
+    // Have Builder return original class instead of implementation
+    overshadowImplementation = true
+)
+public interface AutoExpireConsentsActivitySettings {
+    int DEFAULT_LOOKBACK_HOURS = 72;
+    int DEFAULT_MAX_CONCURRENT_EXPIRY_HOURS = 1;
+    int DEFAULT_EXPIRED_CONSENT_CACHE_SIZE = 50_000;
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * AutoExpireConsentsActivitySettings Builder class, intentionally empty.
+     */
+    class Builder extends ImmutableAutoExpireConsentsActivitySettings.Builder {}
+
+    /**
+     * Maximum number of expiry hours to process at the same time, which is also the number of page writers sharing
+     * the pages of those hours.
+     */
+    @Default
+    default int maxConcurrentExpiryHours() {
+        return DEFAULT_MAX_CONCURRENT_EXPIRY_HOURS;
+    }
+
+    /**
+     * Store recording the next page to process in each expiry hour, and the expiry hours drained.
+     */
+    @Default
+    default ExpiryCheckpointStore checkpointStore() {
+        return ExpiryCheckpointStore.NONE;
+    }
+
+    /**
+     * Consent versions recently expired by this process, kept for the lifetime of the activity so that consents
+     * expired by earlier runs in the same process, such as earlier invocations of a warm Lambda execution
+     * environment, are not written again.
+     */
+    @Default
+    default ExpiredConsentCache expiredConsentCache() {
+        return new ExpiredConsentCache(DEFAULT_EXPIRED_CONSENT_CACHE_SIZE);
+    }
+
+    /**
+     * Recorder that is started and finished around each run.
+     */
+    @Default
+    default ExpiryRunRecorder runRecorder() {
+        return ExpiryRunRecorder.NONE;
+    }
+
+    /**
+     * Number of expiry hours, ending with the current hour, to process when no hours are assigned.
+     */
+    @Default
+    default int lookbackHours() {
+        return DEFAULT_LOOKBACK_HOURS;
+    }
+
+    /**
+     * Validates the settings, called by Immutables on build.
+     */
+    @Check
+    default void validate() {
+        if (maxConcurrentExpiryHours() < 1) {
+            throw new IllegalArgumentException("maxConcurrentExpiryHours must be positive, received: " + maxConcurrentExpiryHours());
+        }
+        if (lookbackHours() < 1) {
+            throw new IllegalArgumentException("lookbackHours must be positive, received: " + lookbackHours());
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.consentframework.consentexpiryprocessor.usecases.activities;
+
+import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Hashed timer wheel holding the consents that expire within a fixed horizon, grouped by the tick they are due in.
+ *
+ * Tick k ends at startTime + k * tick, and a consent is due in the first tick ending at or after its expiry time,
+ * so advancing the wheel never returns a consent before it has expired. Consents due further ahead than the wheel
+ * has slots are rejected rather than wrapped around, so every slot only ever holds consents due in a single tick.
+ * Scheduling, cancelling and draining a tick are constant time per consent.
+ *
+ * Not safe to share across threads.
+ */
+public class ConsentExpiryTimerWheel {
+    private final Instant startTime;
+    private final Duration tick;
+    private final List<Map<String, ActiveConsentWithExpiryTime>> slots;
+    private final Map<String, Long> dueTicksById = new HashMap<>();
+
+    // The first tick that has not been drained yet
+    private long nextTick;
+
+    /**
+     * Constructs an empty wheel.
+     *
+     * @param startTime The time the first tick ends at, consents that expired before it are due in the first tick.
+     * @param tick The length of each tick, consents are returned at most this long after they expire.
+     * @param numTicks The number of ticks ahead consents can be scheduled.
+     */
+    public ConsentExpiryTimerWheel(final Instant startTime, final Duration tick, final int numTicks) {
+        if (tick.isNegative() || tick.isZero()) {
+            throw new IllegalArgumentException("tick must be positive, received: " + tick);
+        }
+        if (numTicks < 1) {
+            throw new IllegalArgumentException("numTicks must be positive, received: " + numTicks);
+        }
+        this.startTime = startTime;
+        this.tick = tick;
+        this.slots = new ArrayList<>(numTicks);
+        for (int slot = 0; slot < numTicks; slot++) {
+            slots.add(new LinkedHashMap<>());
+        }
+    }
+
+    /**
+     * Schedules a consent to be returned once its expiry time has passed, replacing any earlier schedule for the consent.
+     *
+     * @param consent The consent to expire.
+     * @param expiryTime The time the consent expires.
+     * @return True if the consent was scheduled, false if it expires after the wheel's horizon, in which case
+     *     any earlier schedule for the consent is cancelled.
+     */
+    public boolean schedule(final ActiveConsentWithExpiryTime consent, final Instant expiryTime) {
+        cancel(consent.id());
+        if (expiryTime.isAfter(tickEndTime(nextTick + slots.size() - 1))) {
+            return false;
+        }
+
+        final long dueTick = Math.max(ticksUntil(expiryTime), nextTick);
+        slots.get(slotIndex(dueTick)).put(consent.id(), consent);
+        dueTicksById.put(consent.id(), dueTick);
+        return true;
+    }
+
+    /**
+     * Cancels the schedule for a consent, if there is one.
+     *
+     * @param id The partition key of the consent record.
+     * @return True if the consent was scheduled, false otherwise.
+     */
+    public boolean cancel(final String id) {
+        final Long dueTick = dueTicksById.remove(id);
+        if (dueTick == null) {
+            return false;
+        }
+        slots.get(slotIndex(dueTick)).remove(id);
+        return true;
+    }
+
+    /**
+     * Advances the wheel to the given time, removing the consents due in every tick that has ended.
+     *
+     * @param currentTime The current time.
+     * @return The consents that have expired, in the order of the ticks they were due in.
+     */
+    public List<ActiveConsentWithExpiryTime> advanceTo(final Instant currentTime) {
+        if (currentTime.isBefore(tickEndTime(nextTick))) {
+            return List.of();
+        }
+
+        final long lastEndedTick = Duration.between(startTime, currentTime).dividedBy(tick);
+        // Each slot holds a single tick, so once every slot has been drained the remaining ticks are empty
+        final long lastTickToDrain = Math.min(lastEndedTick, nextTick + slots.size() - 1);
+        final List<ActiveConsentWithExpiryTime> dueConsents = new ArrayList<>();
+        for (long dueTick = nextTick; dueTick <= lastTickToDrain; dueTick++) {
+            final Map<String, ActiveConsentWithExpiryTime> slot = slots.get(slotIndex(dueTick));
+            slot.keySet().forEach(dueTicksById::remove);
+            dueConsents.addAll(slot.values());
+            slot.clear();
+        }
+        nextTick = lastEndedTick + 1;
+        return dueConsents;
+    }
+
+    /**
+     * Returns the time the next tick with a consent due ends at.
+     *
+     * @return next due time, empty if no consents are scheduled.
+     */
+    public Optional<Instant> nextDueTime() {
+        if (dueTicksById.isEmpty()) {
+            return Optional.empty();
+        }
+        for (long dueTick = nextTick; ; dueTick++) {
+            if (!slots.get(slotIndex(dueTick)).isEmpty()) {
+                return Optional.of(tickEndTime(dueTick));
+            }
+        }
+    }
+
+    /**
+     * Returns the number of consents scheduled.
+     *
+     * @return number of scheduled consents.
+     */
+    public int size() {
+        return dueTicksById.size();
+    }
+
+    private long ticksUntil(final Instant expiryTime) {
+        if (!expiryTime.isAfter(startTime)) {
+            return 0;
+        }
+        // Round up, so that a consent is only due once the tick ending at or after its expiry time has ended
+        final Duration timeUntilExpiry = Duration.between(startTime, expiryTime);
+        final long numWholeTicks = timeUntilExpiry.dividedBy(tick);
+        return tick.multipliedBy(numWholeTicks).equals(timeUntilExpiry) ? numWholeTicks : numWholeTicks + 1;
+    }
+
+    private Instant tickEndTime(final long dueTick) {
+        return startTime.plus(tick.multipliedBy(dueTick));
+    }
+
+    private int slotIndex(final long dueTick) {
+        return (int) (dueTick % slots.size());
+    }
+}
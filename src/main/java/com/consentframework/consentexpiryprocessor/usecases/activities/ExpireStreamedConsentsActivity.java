@@ -0,0 +1,158 @@
+package com.consentframework.consentexpiryprocessor.usecases.activities;
+
+import com.consentframework.consentexpiryprocessor.domain.constants.ConsentExpiryStatus;
+import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
+import com.consentframework.consentexpiryprocessor.domain.entities.ConsentExpiryChange;
+import com.consentframework.consentexpiryprocessor.domain.entities.ConsentExpiryResult;
+import com.consentframework.consentexpiryprocessor.domain.repositories.ConsentRepository;
+import com.consentframework.shared.api.infrastructure.mappers.DynamoDbConsentExpiryTimeConverter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * This activity expires consents read from the consent table's change stream at their expiry time,
+ * rather than waiting for the next periodic sweep to find them.
+ *
+ * Consents expiring within the expiry window of the invocation are held in a timer wheel and expired as their
+ * ticks end. Consents expiring later, and consents still held once the invocation deadline is reached, are left
+ * to the periodic sweep, which remains the backstop for every consent. The wheel only lives for one invocation,
+ * so no consent is held by an execution environment that may never be invoked again.
+ */
+public class ExpireStreamedConsentsActivity {
+    private static final Logger logger = LogManager.getLogger(ExpireStreamedConsentsActivity.class);
+
+    // Expiry times have second resolution, so a shorter tick would not expire consents any closer to their expiry time
+    static final Duration DEFAULT_TICK = Duration.ofSeconds(1);
+
+    private final ConsentRepository consentRepository;
+    private final Duration expiryWindow;
+    private final Duration tick;
+    private final Clock clock;
+    private final Consumer<Duration> sleeper;
+
+    /**
+     * Initialize the activity.
+     *
+     * @param consentRepository The consent repository.
+     * @param expiryWindow How far ahead of the start of an invocation a consent may expire to be expired by it.
+     */
+    public ExpireStreamedConsentsActivity(final ConsentRepository consentRepository, final Duration expiryWindow) {
+        this(consentRepository, expiryWindow, DEFAULT_TICK, Clock.systemUTC(), ExpireStreamedConsentsActivity::sleep);
+    }
+
+    /**
+     * Initialize the activity with the given tick, clock and way of waiting for the next tick.
+     *
+     * @param consentRepository The consent repository.
+     * @param expiryWindow How far ahead of the start of an invocation a consent may expire to be expired by it.
+     * @param tick The timer wheel's tick, consents are expired at most this long after their expiry time.
+     * @param clock The clock the wheel is advanced by.
+     * @param sleeper Waits for the given duration before the wheel is advanced again.
+     */
+    ExpireStreamedConsentsActivity(final ConsentRepository consentRepository, final Duration expiryWindow, final Duration tick,
+            final Clock clock, final Consumer<Duration> sleeper) {
+        if (expiryWindow.isNegative()) {
+            throw new IllegalArgumentException("expiryWindow must not be negative, received: " + expiryWindow);
+        }
+        this.consentRepository = consentRepository;
+        this.expiryWindow = expiryWindow;
+        this.tick = tick;
+        this.clock = clock;
+        this.sleeper = sleeper;
+    }
+
+    /**
+     * Execute the activity over a batch of changes, returning once every consent held has been expired
+     * or the deadline is reached.
+     *
+     * Changes are applied in stream order, so a consent whose expiry time was changed or removed later in the batch
+     * is only expired if its last change left it pending expiry within the window. Expiry writes are conditional on
+     * the consent version in the change, so a consent updated after the batch was read is not expired.
+     *
+     * @param changes The consent expiry changes, in stream order.
+     * @param deadlineReached Returns true once there is no longer time to wait for another tick.
+     */
+    public void execute(final List<ConsentExpiryChange> changes, final BooleanSupplier deadlineReached) {
+        // One slot per tick in the window, plus the tick the invocation starts in
+        final long numTicksInWindow = expiryWindow.dividedBy(tick);
+        final ConsentExpiryTimerWheel timerWheel = new ConsentExpiryTimerWheel(clock.instant(), tick,
+            Math.toIntExact(tick.multipliedBy(numTicksInWindow).equals(expiryWindow) ? numTicksInWindow + 1 : numTicksInWindow + 2));
+        final int numDeferredConsents = scheduleChanges(timerWheel, changes);
+        logger.info("Holding {} consents expiring within {}, left {} expiring later to the periodic sweep.",
+            timerWheel.size(), expiryWindow, numDeferredConsents);
+
+        int numExpiredConsents = 0;
+        int numThrottledConsents = 0;
+        while (timerWheel.size() > 0 && !deadlineReached.getAsBoolean()) {
+            final Instant currentTime = clock.instant();
+            final List<ActiveConsentWithExpiryTime> dueConsents = timerWheel.advanceTo(currentTime);
+            if (dueConsents.isEmpty()) {
+                final Duration timeUntilDue = Duration.between(currentTime, timerWheel.nextDueTime().orElseThrow());
+                // Wait at most one tick at a time, so the deadline is checked while waiting for distant consents
+                sleeper.accept(timeUntilDue.compareTo(tick) < 0 ? timeUntilDue : tick);
+                continue;
+            }
+
+            for (final ConsentExpiryResult result : consentRepository.expireConsents(dueConsents)) {
+                if (result.status() == ConsentExpiryStatus.SUCCESS) {
+                    numExpiredConsents++;
+                } else if (result.status() == ConsentExpiryStatus.THROTTLED) {
+                    numThrottledConsents++;
+                }
+            }
+        }
+
+        logger.info("Expired {} streamed consents at their expiry time, {} writes throttled.", numExpiredConsents, numThrottledConsents);
+        if (timerWheel.size() > 0) {
+            logger.warn("Stopped before the invocation deadline, left {} consents to the periodic sweep.", timerWheel.size());
+        }
+    }
+
+    /**
+     * Schedules or cancels each consent in the wheel.
+     *
+     * @return The number of consents left to the periodic sweep because they expire after the window.
+     */
+    private static int scheduleChanges(final ConsentExpiryTimerWheel timerWheel, final List<ConsentExpiryChange> changes) {
+        int numDeferredConsents = 0;
+        for (final ConsentExpiryChange change : changes) {
+            if (change.activeConsent().isEmpty()) {
+                timerWheel.cancel(change.id());
+                continue;
+            }
+
+            final ActiveConsentWithExpiryTime consent = change.activeConsent().get();
+            try {
+                final Instant expiryTime = DynamoDbConsentExpiryTimeConverter.toOffsetDateTimeFromExpiryTimeId(consent.expiryTimeId())
+                    .toInstant();
+                if (!timerWheel.schedule(consent, expiryTime)) {
+                    numDeferredConsents++;
+                }
+            } catch (final DateTimeParseException e) {
+                // Failing the batch would block the stream shard behind a single consent, the sweep will still expire it
+                logger.warn("Leaving consent {} to the periodic sweep, its expiryTimeId could not be parsed: {}",
+                    consent.id(), consent.expiryTimeId());
+                timerWheel.cancel(consent.id());
+                numDeferredConsents++;
+            }
+        }
+        return numDeferredConsents;
+    }
+
+    private static void sleep(final Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the next consent to expire", e);
+        }
+    }
+}
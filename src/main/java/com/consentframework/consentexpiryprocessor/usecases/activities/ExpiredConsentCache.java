@@ -0,0 +1,74 @@
+package com.consentframework.consentexpiryprocessor.usecases.activities;
+
+import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of the consent versions recently expired, or found to be already expired, by this process.
+ *
+ * Overlapping or retried runs can read a consent again before the index reflects its expiry, and writing it
+ * again would only fail the consentVersion condition check. The cache lets those consents be skipped without
+ * a write. Entries are keyed by id and consent version, so a consent that is updated to a new version is not
+ * skipped, and the least recently used entry is evicted once the cache is full. A maximum size of zero
+ * disables the cache.
+ */
+public final class ExpiredConsentCache {
+    private final int maxEntries;
+    private final Map<ConsentVersionKey, Boolean> entries;
+
+    private record ConsentVersionKey(String id, Integer consentVersion) {
+        ConsentVersionKey(final ActiveConsentWithExpiryTime consent) {
+            this(consent.id(), consent.consentVersion());
+        }
+    }
+
+    /**
+     * Constructs an empty cache.
+     *
+     * @param maxEntries The maximum number of consent versions to remember, zero to disable the cache.
+     */
+    public ExpiredConsentCache(final int maxEntries) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("maxEntries must not be negative, received: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<ConsentVersionKey, Boolean> eldest) {
+                return size() > ExpiredConsentCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Checks whether this version of the consent is known to be expired, marking it as recently used if so.
+     *
+     * @param consent The consent read from the index.
+     * @return True if the consent can be skipped.
+     */
+    public synchronized boolean contains(final ActiveConsentWithExpiryTime consent) {
+        return entries.get(new ConsentVersionKey(consent)) != null;
+    }
+
+    /**
+     * Records that this version of the consent is expired.
+     *
+     * @param consent The consent that was expired, with the version it had before the update.
+     */
+    public synchronized void add(final ActiveConsentWithExpiryTime consent) {
+        if (maxEntries > 0) {
+            entries.put(new ConsentVersionKey(consent), Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Returns the number of consent versions currently remembered.
+     *
+     * @return Number of entries.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,164 @@
+package com.consentframework.consentexpiryprocessor.usecases.activities;
+
+import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
+import com.consentframework.consentexpiryprocessor.domain.entities.ExpiryForecast;
+import com.consentframework.consentexpiryprocessor.domain.repositories.ConsentRepository;
+import com.consentframework.shared.api.domain.pagination.ListPage;
+import com.consentframework.shared.api.infrastructure.mappers.DynamoDbConsentExpiryTimeConverter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.BooleanSupplier;
+
+/**
+ * This activity is a dry run of AutoExpireConsentsActivity, which counts the active consents due to expire in past
+ * and future expiry hours without expiring any, so that capacity and concurrency can be planned ahead of a large
+ * expiry date.
+ *
+ * It only reads from the consent repository, and leaves the checkpoint store and expired consent cache untouched.
+ */
+public class ForecastExpiryCapacityActivity {
+    private static final Logger logger = LogManager.getLogger(ForecastExpiryCapacityActivity.class);
+    private static final DateTimeFormatter EXPIRY_MINUTE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mmX");
+    private static final double NANOS_PER_SECOND = Duration.ofSeconds(1).toNanos();
+
+    private final ConsentRepository consentRepository;
+    private final int lookbackHours;
+    private final double expiryWritesPerSecond;
+
+    /**
+     * Initialize the activity.
+     *
+     * @param consentRepository The consent repository to read consents from.
+     * @param lookbackHours The number of expiry hours, ending with the current hour, that each sweep looks back over.
+     * @param maxConcurrentExpiryHours The maximum number of expiry hour partitions a sweep processes at the same time.
+     * @param maxConcurrentExpiryWrites The maximum number of expiry writes a sweep has in flight for each batch of expiries.
+     * @param maxExpiryWritesPerSecond The write budget for expiring consents.
+     * @param expiryWriteLatency The time an expiry write is assumed to take.
+     */
+    public ForecastExpiryCapacityActivity(final ConsentRepository consentRepository, final int lookbackHours,
+            final int maxConcurrentExpiryHours, final int maxConcurrentExpiryWrites, final int maxExpiryWritesPerSecond,
+            final Duration expiryWriteLatency) {
+        if (lookbackHours < 1) {
+            throw new IllegalArgumentException("lookbackHours must be positive, received: " + lookbackHours);
+        }
+        if (expiryWriteLatency.isNegative() || expiryWriteLatency.isZero()) {
+            throw new IllegalArgumentException("expiryWriteLatency must be positive, received: " + expiryWriteLatency);
+        }
+        this.consentRepository = consentRepository;
+        this.lookbackHours = lookbackHours;
+        this.expiryWritesPerSecond = estimateExpiryWritesPerSecond(maxConcurrentExpiryHours, maxConcurrentExpiryWrites,
+            maxExpiryWritesPerSecond, expiryWriteLatency);
+    }
+
+    /**
+     * Estimates the rate a sweep expires consents at, limited by the number of writes it keeps in flight
+     * or by its write budget, whichever is lower.
+     *
+     * @param maxConcurrentExpiryHours The maximum number of expiry hour partitions a sweep processes at the same time.
+     * @param maxConcurrentExpiryWrites The maximum number of expiry writes a sweep has in flight for each batch of expiries.
+     * @param maxExpiryWritesPerSecond The write budget for expiring consents.
+     * @param expiryWriteLatency The time an expiry write is assumed to take.
+     * @return Expiry writes per second.
+     */
+    static double estimateExpiryWritesPerSecond(final int maxConcurrentExpiryHours, final int maxConcurrentExpiryWrites,
+            final int maxExpiryWritesPerSecond, final Duration expiryWriteLatency) {
+        final double concurrencyLimit = (double) maxConcurrentExpiryHours * maxConcurrentExpiryWrites
+            * NANOS_PER_SECOND / expiryWriteLatency.toNanos();
+        return Math.min(concurrencyLimit, maxExpiryWritesPerSecond);
+    }
+
+    /**
+     * Execute the activity.
+     *
+     * Expiry hours are walked from oldest to newest, starting with the sweep's lookback window and continuing
+     * lookaheadHours past the current hour. If the deadline is reached, the forecast covers the hours walked so far.
+     *
+     * @param lookaheadHours The number of expiry hours after the current hour to forecast.
+     * @param deadlineReached Checked before each page is read, true once the invocation has to stop.
+     * @return Forecast of the consents due to expire and the capacity needed to expire them.
+     */
+    public ExpiryForecast execute(final int lookaheadHours, final BooleanSupplier deadlineReached) {
+        if (lookaheadHours < 0) {
+            throw new IllegalArgumentException("lookaheadHours must not be negative, received: " + lookaheadHours);
+        }
+        final List<String> expiryHours = getExpiryHoursToForecast(OffsetDateTime.now(), lookbackHours, lookaheadHours);
+
+        final Map<String, Integer> consentsPerHour = new LinkedHashMap<>();
+        final Map<String, Integer> consentsPerMinute = new TreeMap<>();
+        boolean stoppedAtDeadline = false;
+        for (final String expiryHour : expiryHours) {
+            Optional<String> pageToken = Optional.empty();
+            int numConsents = 0;
+            do {
+                if (deadlineReached.getAsBoolean()) {
+                    stoppedAtDeadline = true;
+                    break;
+                }
+                final ListPage<ActiveConsentWithExpiryTime> page = consentRepository.getActiveConsentsWithExpiryHour(expiryHour, pageToken);
+                if (page == null || page.resultsOnPage() == null) {
+                    break;
+                }
+                for (final ActiveConsentWithExpiryTime consent : page.resultsOnPage()) {
+                    consentsPerMinute.merge(toExpiryMinute(consent.expiryTimeId()), 1, Integer::sum);
+                }
+                numConsents += page.resultsOnPage().size();
+                pageToken = page.nextPageToken();
+            } while (pageToken.isPresent());
+
+            if (numConsents > 0 || !stoppedAtDeadline) {
+                consentsPerHour.put(expiryHour, numConsents);
+            }
+            if (stoppedAtDeadline) {
+                logger.warn("Stopped forecasting at expiry hour {} before the invocation deadline.", expiryHour);
+                break;
+            }
+        }
+
+        final ExpiryForecast forecast = ExpiryForecast.builder()
+            .putAllConsentsPerHour(consentsPerHour)
+            .putAllConsentsPerMinute(consentsPerMinute)
+            .expiryWritesPerSecond(expiryWritesPerSecond)
+            .stoppedAtDeadline(stoppedAtDeadline)
+            .build();
+        logger.info("Forecast {} consents expiring across {} expiry hours, peaking at {} per minute, "
+            + "needing {} WCU at {} WCU per second over {}.", forecast.numConsents(), consentsPerHour.size(),
+            forecast.peakConsentsPerMinute(), forecast.estimatedWriteCapacityUnits(),
+            forecast.estimatedWriteCapacityUnitsPerSecond(), forecast.estimatedRunTime());
+        return forecast;
+    }
+
+    /**
+     * Lists the expiry hours to forecast, from oldest to newest, the lookback window followed by the lookahead window.
+     *
+     * @param now The time the forecast started.
+     * @param lookbackHours The number of expiry hours, ending with the current hour, that each sweep looks back over.
+     * @param lookaheadHours The number of expiry hours after the current hour to forecast.
+     * @return Expiry hours to forecast.
+     */
+    static List<String> getExpiryHoursToForecast(final OffsetDateTime now, final int lookbackHours, final int lookaheadHours) {
+        final List<String> expiryHours = new ArrayList<>(AutoExpireConsentsActivity.getExpiryHoursToProcess(now, lookbackHours));
+        for (int hour = 1; hour <= lookaheadHours; hour++) {
+            expiryHours.add(DynamoDbConsentExpiryTimeConverter.toExpiryHour(now.plusHours(hour)));
+        }
+        return expiryHours;
+    }
+
+    private static String toExpiryMinute(final String expiryTimeId) {
+        return DynamoDbConsentExpiryTimeConverter.toOffsetDateTimeFromExpiryTimeId(expiryTimeId)
+            .withOffsetSameInstant(ZoneOffset.UTC)
+            .truncatedTo(ChronoUnit.MINUTES)
+            .format(EXPIRY_MINUTE_FORMATTER);
+    }
+}
@@ -0,0 +1,71 @@
+package com.consentframework.consentexpiryprocessor.usecases.activities;
+
+import com.consentframework.consentexpiryprocessor.domain.entities.ExpiryShardAssignment;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This activity splits the expiry hours in the lookback window into shards, each of which can be
+ * processed by a separate AutoExpireConsentsActivity invocation.
+ */
+public class PlanExpiryShardsActivity {
+    private static final Logger logger = LogManager.getLogger(PlanExpiryShardsActivity.class);
+
+    private final int lookbackHours;
+
+    /**
+     * Initialize the activity over the default lookback window.
+     */
+    public PlanExpiryShardsActivity() {
+        this(AutoExpireConsentsActivitySettings.DEFAULT_LOOKBACK_HOURS);
+    }
+
+    /**
+     * Initialize the activity.
+     *
+     * @param lookbackHours The number of expiry hours, ending with the current hour, to split into shards.
+     */
+    public PlanExpiryShardsActivity(final int lookbackHours) {
+        if (lookbackHours < 1) {
+            throw new IllegalArgumentException("lookbackHours must be positive, received: " + lookbackHours);
+        }
+        this.lookbackHours = lookbackHours;
+    }
+
+    /**
+     * Execute the activity.
+     *
+     * Expiry hours are dealt out round-robin, so that each shard gets a mix of older and more recent
+     * expiry hours. Each shard lists its expiry hours explicitly, so shards planned before an hour
+     * boundary still cover the same hours when they run after it.
+     *
+     * @param shardCount The number of shards to split the expiry hours into.
+     * @return Shard assignments, fewer than shardCount if there are fewer expiry hours than shards.
+     */
+    public List<ExpiryShardAssignment> execute(final int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("shardCount must be positive, received: " + shardCount);
+        }
+        final List<String> expiryHours = AutoExpireConsentsActivity.getExpiryHoursToProcess(OffsetDateTime.now(), lookbackHours);
+        final int numShards = Math.min(shardCount, expiryHours.size());
+
+        final List<List<String>> expiryHoursPerShard = new ArrayList<>();
+        for (int shardIndex = 0; shardIndex < numShards; shardIndex++) {
+            expiryHoursPerShard.add(new ArrayList<>());
+        }
+        for (int hourIndex = 0; hourIndex < expiryHours.size(); hourIndex++) {
+            expiryHoursPerShard.get(hourIndex % numShards).add(expiryHours.get(hourIndex));
+        }
+
+        logger.info("Split {} expiry hours into {} shards.", expiryHours.size(), numShards);
+        return expiryHoursPerShard.stream()
+            .map(shardExpiryHours -> (ExpiryShardAssignment) ExpiryShardAssignment.builder()
+                .addAllExpiryHours(shardExpiryHours)
+                .build())
+            .toList();
+    }
+}
@@ -0,0 +1,69 @@
+package com.consentframework.consentexpiryprocessor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.consentframework.consentexpiryprocessor.infrastructure.configuration.ConsentExpiryProcessorConfiguration;
+import com.consentframework.consentexpiryprocessor.infrastructure.mappers.ExpiryShardAssignmentPayloadMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+class ConsentExpiryCoordinatorTest {
+    private Context mockContext;
+
+    @BeforeEach
+    void setup() {
+        mockContext = mock(Context.class);
+        when(mockContext.getAwsRequestId()).thenReturn("test-request-id");
+    }
+
+    @Test
+    void handleRequestWhenShardCountConfigured() {
+        final ConsentExpiryCoordinator coordinator = new ConsentExpiryCoordinator(ConsentExpiryProcessorConfiguration.fromEnvironment(
+            Map.of(ConsentExpiryProcessorConfiguration.EXPIRY_SHARD_COUNT_VARIABLE, "4")));
+
+        final List<Map<String, Object>> payloads = coordinator.handleRequest(Map.of(), mockContext);
+
+        assertEquals(4, payloads.size());
+        payloads.forEach(payload -> assertEquals(18,
+            ((List<?>) payload.get(ExpiryShardAssignmentPayloadMapper.EXPIRY_HOURS_KEY)).size()));
+    }
+
+    @Test
+    void handleRequestWhenShardCountInPayload() {
+        final ConsentExpiryCoordinator coordinator = new ConsentExpiryCoordinator(ConsentExpiryProcessorConfiguration.fromEnvironment(
+            Map.of(ConsentExpiryProcessorConfiguration.EXPIRY_SHARD_COUNT_VARIABLE, "4")));
+
+        final List<Map<String, Object>> payloads = coordinator.handleRequest(
+            Map.of(ExpiryShardAssignmentPayloadMapper.SHARD_COUNT_KEY, 6), mockContext);
+
+        assertEquals(6, payloads.size());
+    }
+
+    @Test
+    void handleRequestWhenLookbackHoursConfigured() {
+        final ConsentExpiryCoordinator coordinator = new ConsentExpiryCoordinator(ConsentExpiryProcessorConfiguration.fromEnvironment(
+            Map.of(ConsentExpiryProcessorConfiguration.EXPIRY_SHARD_COUNT_VARIABLE, "4",
+                ConsentExpiryProcessorConfiguration.LOOKBACK_HOURS_VARIABLE, "8")));
+
+        final List<Map<String, Object>> payloads = coordinator.handleRequest(Map.of(), mockContext);
+
+        assertEquals(4, payloads.size());
+        payloads.forEach(payload -> assertEquals(2,
+            ((List<?>) payload.get(ExpiryShardAssignmentPayloadMapper.EXPIRY_HOURS_KEY)).size()));
+    }
+
+    @Test
+    void handleRequestWhenInvalidShardCount() {
+        final ConsentExpiryCoordinator coordinator = new ConsentExpiryCoordinator();
+
+        assertThrows(IllegalArgumentException.class, () -> coordinator.handleRequest(
+            Map.of(ExpiryShardAssignmentPayloadMapper.SHARD_COUNT_KEY, 0), mockContext));
+    }
+}
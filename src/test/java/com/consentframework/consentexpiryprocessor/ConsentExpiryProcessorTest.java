@@ -1,35 +1,80 @@
 package com.consentframework.consentexpiryprocessor;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.amazonaws.services.lambda.runtime.Context;
+import com.consentframework.consentexpiryprocessor.domain.constants.ConsentExpiryStatus;
+import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
 import com.consentframework.consentexpiryprocessor.domain.repositories.ConsentRepository;
+import com.consentframework.consentexpiryprocessor.infrastructure.configuration.AwsClientFactory;
+import com.consentframework.consentexpiryprocessor.infrastructure.configuration.ConsentExpiryProcessorConfiguration;
+import com.consentframework.consentexpiryprocessor.infrastructure.mappers.ExpiryForecastPayloadMapper;
+import com.consentframework.consentexpiryprocessor.infrastructure.mappers.ExpiryRunSummaryPayloadMapper;
+import com.consentframework.consentexpiryprocessor.infrastructure.mappers.ExpiryShardAssignmentPayloadMapper;
 import com.consentframework.consentexpiryprocessor.infrastructure.metrics.CloudWatchMetricsHandler;
+import com.consentframework.consentexpiryprocessor.infrastructure.metrics.ExpiryRunReport;
+import com.consentframework.consentexpiryprocessor.infrastructure.repositories.DynamoDbAsyncConsentRepository;
+import com.consentframework.consentexpiryprocessor.infrastructure.repositories.DynamoDbConsentRepository;
+import com.consentframework.consentexpiryprocessor.infrastructure.repositories.DynamoDbExpiryCheckpointStore;
+import com.consentframework.consentexpiryprocessor.infrastructure.repositories.FileExpiryCheckpointStore;
 import com.consentframework.consentexpiryprocessor.infrastructure.repositories.InMemoryConsentRepository;
+import com.consentframework.consentexpiryprocessor.infrastructure.repositories.InMemoryExpiryCheckpointStore;
+import com.consentframework.consentexpiryprocessor.testcommon.dynamodb.FakeDynamoDbServer;
 import com.consentframework.consentexpiryprocessor.testcommon.matchers.PutMetricDataRequestMatcher;
+import com.consentframework.consentexpiryprocessor.testcommon.utils.ActiveConsentWithExpiryTimeGenerator;
+import com.consentframework.consentexpiryprocessor.usecases.activities.AutoExpireConsentsActivity;
+import com.consentframework.consentexpiryprocessor.usecases.activities.AutoExpireConsentsActivitySettings;
+import com.consentframework.shared.api.infrastructure.mappers.DynamoDbConsentExpiryTimeConverter;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
 import software.amazon.awssdk.services.cloudwatch.model.PutMetricDataRequest;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
+
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 class ConsentExpiryProcessorTest {
+    private static final String AWS_REGION_PROPERTY = "aws.region";
+    private static final String AWS_ACCESS_KEY_ID_PROPERTY = "aws.accessKeyId";
+    private static final String AWS_SECRET_ACCESS_KEY_PROPERTY = "aws.secretAccessKey";
+    private static final int LAMBDA_TIMEOUT_MILLIS = 15 * 60 * 1000;
+
     @Test
     void handleRequestWhenSuccess() {
-        final Context mockContext = mock(Context.class);
-        when(mockContext.getAwsRequestId()).thenReturn("test-request-id");
+        final Context mockContext = mockContext(LAMBDA_TIMEOUT_MILLIS);
 
         final CloudWatchClient cloudWatchClient = mock(CloudWatchClient.class);
         when(cloudWatchClient.putMetricData(any(PutMetricDataRequest.class))).thenReturn(null);
 
         final ConsentRepository consentRepository = new InMemoryConsentRepository();
         final ConsentExpiryProcessor processor = new ConsentExpiryProcessor(consentRepository, cloudWatchClient);
-        processor.handleRequest(mockContext);
+        processor.handleRequest(Map.of(), mockContext);
 
         verify(cloudWatchClient).putMetricData(argThat(new PutMetricDataRequestMatcher(
             CloudWatchMetricsHandler.METRIC_NAMESPACE,
@@ -38,20 +83,65 @@ class ConsentExpiryProcessorTest {
         )));
     }
 
+    @Test
+    void handleRequestPublishesRunReport() {
+        final Context mockContext = mockContext(LAMBDA_TIMEOUT_MILLIS);
+        final CloudWatchClient cloudWatchClient = mock(CloudWatchClient.class);
+        final OffsetDateTime expiryTime = OffsetDateTime.now().minusHours(1).truncatedTo(ChronoUnit.HOURS);
+        final ActiveConsentWithExpiryTime consent = ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), expiryTime);
+        final ConsentRepository consentRepository = new InMemoryConsentRepository(Map.of(consent.expiryHour(), List.of(consent)));
+
+        new ConsentExpiryProcessor(consentRepository, cloudWatchClient).handleRequest(Map.of(), mockContext);
+
+        verify(cloudWatchClient).putMetricData(argThat((PutMetricDataRequest request) -> request.metricData().stream()
+            .anyMatch(datum -> ExpiryRunReport.RUN_WALL_TIME_METRIC_NAME.equals(datum.metricName())
+                && datum.unit() == StandardUnit.MILLISECONDS)));
+    }
+
+    @Test
+    void handleRequestWhenConsentFailsToExpire() {
+        final Context mockContext = mockContext(LAMBDA_TIMEOUT_MILLIS);
+        final CloudWatchClient cloudWatchClient = mock(CloudWatchClient.class);
+        final OffsetDateTime expiryTime = OffsetDateTime.now().minusHours(1).truncatedTo(ChronoUnit.HOURS);
+        final List<ActiveConsentWithExpiryTime> consents = List.of(
+            ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), expiryTime),
+            ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), expiryTime.plusMinutes(1)));
+        final ConsentRepository consentRepository = spy(new InMemoryConsentRepository(Map.of(consents.get(0).expiryHour(), consents)));
+        doReturn(ConsentExpiryStatus.FAILED).when(consentRepository).expireConsent(consents.get(0).id(), "2");
+
+        final Map<String, Object> response = new ConsentExpiryProcessor(consentRepository, cloudWatchClient)
+            .handleRequest(Map.of(), mockContext);
+
+        assertEquals(2, response.get(ExpiryRunSummaryPayloadMapper.CONSENTS_SCANNED_KEY));
+        assertEquals(1, response.get(ExpiryRunSummaryPayloadMapper.CONSENTS_EXPIRED_KEY));
+        assertEquals(1, response.get(ExpiryRunSummaryPayloadMapper.CONSENTS_FAILED_KEY));
+        assertEquals(false, response.get(ExpiryRunSummaryPayloadMapper.STOPPED_EARLY_KEY));
+        verify(consentRepository).expireConsent(consents.get(1).id(), "2");
+        verify(cloudWatchClient).putMetricData(argThat(new PutMetricDataRequestMatcher(
+            CloudWatchMetricsHandler.METRIC_NAMESPACE,
+            ConsentExpiryProcessor.EXPIRY_JOB_FAILURE_METRIC_NAME,
+            0.0
+        )));
+        verify(cloudWatchClient).putMetricData(argThat(new PutMetricDataRequestMatcher(
+            CloudWatchMetricsHandler.METRIC_NAMESPACE,
+            ConsentExpiryProcessor.FAILED_CONSENT_EXPIRY_METRIC_NAME,
+            1.0
+        )));
+    }
+
     @Test
     void handleRequestWhenFailure() {
-        final Context mockContext = mock(Context.class);
-        when(mockContext.getAwsRequestId()).thenReturn("test-request-id");
+        final Context mockContext = mockContext(LAMBDA_TIMEOUT_MILLIS);
 
         final CloudWatchClient cloudWatchClient = mock(CloudWatchClient.class);
         when(cloudWatchClient.putMetricData(any(PutMetricDataRequest.class))).thenReturn(null);
 
         final Exception testException = new RuntimeException("Test error message");
         final ConsentRepository consentRepository = spy(new InMemoryConsentRepository());
-        when(consentRepository.getActiveConsentsWithExpiryHour(any(), any())).thenThrow(testException);
+        when(consentRepository.getActiveConsentsWithExpiryHour(any(), any(), any())).thenThrow(testException);
 
         final ConsentExpiryProcessor processor = new ConsentExpiryProcessor(consentRepository, cloudWatchClient);
-        final RuntimeException thrownException = assertThrows(RuntimeException.class, () -> processor.handleRequest(mockContext));
+        final RuntimeException thrownException = assertThrows(RuntimeException.class, () -> processor.handleRequest(Map.of(), mockContext));
         assertEquals(testException, thrownException);
 
         verify(cloudWatchClient).putMetricData(argThat(new PutMetricDataRequestMatcher(
@@ -60,4 +150,279 @@ class ConsentExpiryProcessorTest {
             1.0
         )));
     }
+
+    @Test
+    void handleRequestWhenShardedAcrossProcessors() throws Exception {
+        final Context mockContext = mockContext(LAMBDA_TIMEOUT_MILLIS);
+
+        final OffsetDateTime firstHourDatetime = OffsetDateTime.now().minusHours(12).truncatedTo(ChronoUnit.HOURS);
+        final Map<String, List<ActiveConsentWithExpiryTime>> consentsExpiringPerHour = new HashMap<>();
+        final List<String> expiredPartitionKeys = new ArrayList<>();
+        for (int hour = 0; hour < 12; hour++) {
+            final OffsetDateTime hourDatetime = firstHourDatetime.plusHours(hour);
+            final List<ActiveConsentWithExpiryTime> consentsExpiringInHour = List.of(
+                ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), hourDatetime.plusMinutes(5)),
+                ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), hourDatetime.plusMinutes(25)),
+                ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), hourDatetime.plusMinutes(45))
+            );
+            consentsExpiringPerHour.put(DynamoDbConsentExpiryTimeConverter.toExpiryHour(hourDatetime), consentsExpiringInHour);
+            consentsExpiringInHour.forEach(consent -> expiredPartitionKeys.add(consent.id()));
+        }
+        final InMemoryConsentRepository consentRepository = spy(new InMemoryConsentRepository(consentsExpiringPerHour));
+
+        final List<Map<String, Object>> shardPayloads = new ConsentExpiryCoordinator(ConsentExpiryProcessorConfiguration.fromEnvironment(
+            Map.of(ConsentExpiryProcessorConfiguration.EXPIRY_SHARD_COUNT_VARIABLE, "4"))).handleRequest(Map.of(), mockContext);
+        assertEquals(4, shardPayloads.size());
+
+        // Each shard is handled by its own processor, as separate Lambda invocations would be
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            final List<Future<?>> shardResults = new ArrayList<>();
+            for (final Map<String, Object> shardPayload : shardPayloads) {
+                final ConsentExpiryProcessor processor = new ConsentExpiryProcessor(consentRepository, mock(CloudWatchClient.class));
+                shardResults.add(executor.submit(() -> processor.handleRequest(shardPayload, mockContext)));
+            }
+            for (final Future<?> shardResult : shardResults) {
+                shardResult.get();
+            }
+        }
+
+        final int numExpiryHours = AutoExpireConsentsActivity.getExpiryHoursToProcess(OffsetDateTime.now()).size();
+        verify(consentRepository, times(numExpiryHours)).getActiveConsentsWithExpiryHour(anyString(), eq(Optional.empty()), any());
+        expiredPartitionKeys.forEach(partitionKey -> verify(consentRepository).expireConsent(partitionKey, "2"));
+        verify(consentRepository, times(expiredPartitionKeys.size())).expireConsent(anyString(), anyString());
+    }
+
+    @Test
+    void handleRequestWhenInvalidShardPayload() {
+        final Context mockContext = mockContext(LAMBDA_TIMEOUT_MILLIS);
+        final CloudWatchClient cloudWatchClient = mock(CloudWatchClient.class);
+
+        final ConsentExpiryProcessor processor = new ConsentExpiryProcessor(new InMemoryConsentRepository(), cloudWatchClient);
+        assertThrows(IllegalArgumentException.class, () -> processor.handleRequest(
+            Map.of(ExpiryShardAssignmentPayloadMapper.SHARD_COUNT_KEY, 0), mockContext));
+
+        verify(cloudWatchClient).putMetricData(argThat(new PutMetricDataRequestMatcher(
+            CloudWatchMetricsHandler.METRIC_NAMESPACE,
+            ConsentExpiryProcessor.EXPIRY_JOB_FAILURE_METRIC_NAME,
+            1.0
+        )));
+    }
+
+    @Test
+    void handleRequestWhenDryRun() {
+        final CloudWatchClient cloudWatchClient = mock(CloudWatchClient.class);
+        final ActiveConsentWithExpiryTime pastConsent = ActiveConsentWithExpiryTimeGenerator.generate(
+            UUID.randomUUID().toString(), OffsetDateTime.now().minusHours(1));
+        final ActiveConsentWithExpiryTime futureConsent = ActiveConsentWithExpiryTimeGenerator.generate(
+            UUID.randomUUID().toString(), OffsetDateTime.now().plusHours(2));
+        final ConsentRepository consentRepository = spy(new InMemoryConsentRepository(Map.of(
+            pastConsent.expiryHour(), List.of(pastConsent),
+            futureConsent.expiryHour(), List.of(futureConsent))));
+
+        final ConsentExpiryProcessor processor = new ConsentExpiryProcessor(consentRepository, cloudWatchClient,
+            ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(ConsentExpiryProcessorConfiguration.LOOKBACK_HOURS_VARIABLE, "6")));
+        final Map<String, Object> response = processor.handleRequest(Map.of(
+            ExpiryForecastPayloadMapper.DRY_RUN_KEY, true,
+            ExpiryForecastPayloadMapper.LOOKAHEAD_HOURS_KEY, 3), mockContext(LAMBDA_TIMEOUT_MILLIS));
+
+        assertEquals(2, response.get(ExpiryForecastPayloadMapper.CONSENTS_KEY));
+        assertEquals(6 + 3, ((Map<?, ?>) response.get(ExpiryForecastPayloadMapper.EXPIRY_HOURS_KEY)).size());
+        assertEquals(false, response.get(ExpiryForecastPayloadMapper.STOPPED_EARLY_KEY));
+        verify(consentRepository, never()).expireConsent(any(), any());
+        verify(cloudWatchClient, never()).putMetricData(any(PutMetricDataRequest.class));
+    }
+
+    @Test
+    void handleRequestWhenDeadlineReached() {
+        final Context mockContext = mockContext(1000);
+        final CloudWatchClient cloudWatchClient = mock(CloudWatchClient.class);
+        final InMemoryConsentRepository consentRepository = spy(new InMemoryConsentRepository());
+
+        final ConsentExpiryProcessor processor = new ConsentExpiryProcessor(consentRepository, cloudWatchClient);
+        final Map<String, Object> response = processor.handleRequest(Map.of(), mockContext);
+
+        assertEquals(true, response.get(ExpiryRunSummaryPayloadMapper.STOPPED_EARLY_KEY));
+        verify(consentRepository, never()).getActiveConsentsWithExpiryHour(any(), any(), any());
+        verify(cloudWatchClient).putMetricData(argThat(new PutMetricDataRequestMatcher(
+            CloudWatchMetricsHandler.METRIC_NAMESPACE,
+            ConsentExpiryProcessor.EXPIRY_JOB_FAILURE_METRIC_NAME,
+            0.0
+        )));
+    }
+
+    @Test
+    void handleRequestResumesFromCheckpoint() {
+        final ActiveConsentWithExpiryTime checkpointedConsent = ActiveConsentWithExpiryTimeGenerator.generate(
+            UUID.randomUUID().toString(), OffsetDateTime.now().minusMinutes(1));
+        final InMemoryConsentRepository consentRepository = spy(new InMemoryConsentRepository(Map.of(
+            checkpointedConsent.expiryHour(), List.of(checkpointedConsent))));
+        final InMemoryExpiryCheckpointStore checkpointStore = new InMemoryExpiryCheckpointStore();
+        checkpointStore.savePageToken(checkpointedConsent.expiryHour(), checkpointedConsent.id());
+
+        final ConsentExpiryProcessor processor = new ConsentExpiryProcessor(consentRepository, mock(CloudWatchClient.class),
+            ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of()), checkpointStore);
+        processor.handleRequest(Map.of(), mockContext(LAMBDA_TIMEOUT_MILLIS));
+
+        verify(consentRepository).getActiveConsentsWithExpiryHour(eq(checkpointedConsent.expiryHour()),
+            eq(Optional.of(checkpointedConsent.id())), any());
+        verify(consentRepository).expireConsent(checkpointedConsent.id(), "2");
+        assertTrue(checkpointStore.getPageToken(checkpointedConsent.expiryHour()).isEmpty());
+    }
+
+    @Test
+    void constructorWhenCheckpointFileConfigured(@TempDir final Path checkpointDirectory) {
+        final ConsentExpiryProcessor processor = new ConsentExpiryProcessor(new InMemoryConsentRepository(),
+            mock(CloudWatchClient.class), ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+                ConsentExpiryProcessorConfiguration.CHECKPOINT_FILE_VARIABLE, checkpointDirectory.resolve("checkpoints.json").toString())));
+
+        processor.handleRequest(Map.of(), mockContext(LAMBDA_TIMEOUT_MILLIS));
+    }
+
+    @Test
+    void buildCheckpointStoreWhenCheckpointFileNotConfigured() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+            ConsentExpiryProcessorConfiguration.AWS_REGION_VARIABLE, "us-west-2"));
+
+        assertInstanceOf(DynamoDbExpiryCheckpointStore.class,
+            ConsentExpiryProcessor.buildCheckpointStore(configuration, new AwsClientFactory(configuration)));
+    }
+
+    @Test
+    void buildCheckpointStoreWhenCheckpointFileConfigured(@TempDir final Path checkpointDirectory) {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+            ConsentExpiryProcessorConfiguration.CHECKPOINT_FILE_VARIABLE, checkpointDirectory.resolve("checkpoints.json").toString()));
+
+        assertInstanceOf(FileExpiryCheckpointStore.class,
+            ConsentExpiryProcessor.buildCheckpointStore(configuration, new AwsClientFactory(configuration)));
+    }
+
+    @Test
+    void constructorWhenSyncDynamoDbClient() {
+        final ConsentExpiryProcessor processor = withTestRegion(() -> new ConsentExpiryProcessor(
+            ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of())));
+
+        assertInstanceOf(DynamoDbConsentRepository.class, processor.consentRepository);
+    }
+
+    @Test
+    void constructorWhenAsyncDynamoDbClient() {
+        final ConsentExpiryProcessor processor = withTestRegion(() -> new ConsentExpiryProcessor(
+            ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+                ConsentExpiryProcessorConfiguration.USE_ASYNC_DYNAMODB_CLIENT_VARIABLE, "true"))));
+
+        assertInstanceOf(DynamoDbAsyncConsentRepository.class, processor.consentRepository);
+    }
+
+    @Test
+    void constructorWhenEmbeddedMetricFormatBackend() {
+        final ConsentExpiryProcessor processor = withTestRegion(() -> new ConsentExpiryProcessor(
+            ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+                ConsentExpiryProcessorConfiguration.METRICS_BACKEND_VARIABLE, "EMBEDDED_METRIC_FORMAT"))));
+
+        assertInstanceOf(DynamoDbConsentRepository.class, processor.consentRepository);
+    }
+
+    @Test
+    void constructorWhenLambdaEnvironment() {
+        final ConsentExpiryProcessor processor = new ConsentExpiryProcessor(ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+            ConsentExpiryProcessorConfiguration.AWS_REGION_VARIABLE, "us-west-2",
+            ConsentExpiryProcessorConfiguration.AWS_ACCESS_KEY_ID_VARIABLE, "TestAccessKeyId",
+            ConsentExpiryProcessorConfiguration.AWS_SECRET_ACCESS_KEY_VARIABLE, "TestSecretAccessKey")));
+
+        assertInstanceOf(DynamoDbConsentRepository.class, processor.consentRepository);
+    }
+
+    @Test
+    void handleRequestWhenDynamoDbEndpointConfigured() {
+        final OffsetDateTime expiryTime = OffsetDateTime.now().minusHours(1).truncatedTo(ChronoUnit.HOURS);
+        final ActiveConsentWithExpiryTime consent = ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), expiryTime);
+        System.setProperty(AWS_ACCESS_KEY_ID_PROPERTY, "TestAccessKeyId");
+        System.setProperty(AWS_SECRET_ACCESS_KEY_PROPERTY, "TestSecretAccessKey");
+        try (FakeDynamoDbServer server = new FakeDynamoDbServer()) {
+            server.putConsent(consent);
+            final ConsentExpiryProcessor processor = new ConsentExpiryProcessor(ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+                ConsentExpiryProcessorConfiguration.DYNAMODB_ENDPOINT_VARIABLE, server.endpoint().toString(),
+                ConsentExpiryProcessorConfiguration.METRICS_BACKEND_VARIABLE, "EMBEDDED_METRIC_FORMAT",
+                ConsentExpiryProcessorConfiguration.AWS_REGION_VARIABLE, "us-west-2")));
+
+            processor.handleRequest(Map.of(), mockContext(LAMBDA_TIMEOUT_MILLIS));
+
+            assertEquals(0, server.countIndexedConsents());
+            assertEquals(1, server.getRequestCount("UpdateItem"));
+            assertTrue(server.getCheckpoint(consent.expiryHour()).orElseThrow().path("drained").path("BOOL").asBoolean());
+        } finally {
+            System.clearProperty(AWS_ACCESS_KEY_ID_PROPERTY);
+            System.clearProperty(AWS_SECRET_ACCESS_KEY_PROPERTY);
+        }
+    }
+
+    @Test
+    void handleRequestSkipsExpiryHoursDrainedByEarlierProcessor() {
+        final Map<String, String> environment = new HashMap<>(Map.of(
+            ConsentExpiryProcessorConfiguration.METRICS_BACKEND_VARIABLE, "EMBEDDED_METRIC_FORMAT",
+            ConsentExpiryProcessorConfiguration.AWS_REGION_VARIABLE, "us-west-2"));
+        System.setProperty(AWS_ACCESS_KEY_ID_PROPERTY, "TestAccessKeyId");
+        System.setProperty(AWS_SECRET_ACCESS_KEY_PROPERTY, "TestSecretAccessKey");
+        try (FakeDynamoDbServer server = new FakeDynamoDbServer()) {
+            environment.put(ConsentExpiryProcessorConfiguration.DYNAMODB_ENDPOINT_VARIABLE, server.endpoint().toString());
+            new ConsentExpiryProcessor(ConsentExpiryProcessorConfiguration.fromEnvironment(environment))
+                .handleRequest(Map.of(), mockContext(LAMBDA_TIMEOUT_MILLIS));
+            final long firstRunQueries = server.getRequestCount("Query");
+
+            // A new processor keeps nothing in memory from the first, as after a cold start
+            new ConsentExpiryProcessor(ConsentExpiryProcessorConfiguration.fromEnvironment(environment))
+                .handleRequest(Map.of(), mockContext(LAMBDA_TIMEOUT_MILLIS));
+
+            assertEquals(AutoExpireConsentsActivitySettings.DEFAULT_LOOKBACK_HOURS, firstRunQueries);
+            // Only the current hour is queried again, and the next one if the hour turned between the runs
+            assertTrue(server.getRequestCount("Query") - firstRunQueries <= 2);
+        } finally {
+            System.clearProperty(AWS_ACCESS_KEY_ID_PROPERTY);
+            System.clearProperty(AWS_SECRET_ACCESS_KEY_PROPERTY);
+        }
+    }
+
+    @Test
+    void checkpointAndRestorePrimeConsentRepository() {
+        final ConsentRepository consentRepository = spy(new InMemoryConsentRepository());
+        final ConsentExpiryProcessor processor = new ConsentExpiryProcessor(consentRepository, mock(CloudWatchClient.class));
+
+        processor.beforeCheckpoint(null);
+        processor.afterRestore(null);
+
+        verify(consentRepository, times(2)).getActiveConsentsWithExpiryHour(ConsentExpiryProcessor.PRIMING_EXPIRY_HOUR, Optional.empty());
+        verify(consentRepository, never()).expireConsent(any(), any());
+    }
+
+    @Test
+    void primeWhenConsentRepositoryFails() {
+        final ConsentRepository consentRepository = spy(new InMemoryConsentRepository());
+        when(consentRepository.getActiveConsentsWithExpiryHour(anyString(), any())).thenThrow(new RuntimeException("Test error message"));
+        final ConsentExpiryProcessor processor = new ConsentExpiryProcessor(consentRepository, mock(CloudWatchClient.class));
+
+        processor.prime();
+
+        verify(consentRepository).getActiveConsentsWithExpiryHour(ConsentExpiryProcessor.PRIMING_EXPIRY_HOUR, Optional.empty());
+    }
+
+    private Context mockContext(final int remainingTimeMillis) {
+        final Context mockContext = mock(Context.class);
+        when(mockContext.getAwsRequestId()).thenReturn("test-request-id");
+        when(mockContext.getRemainingTimeInMillis()).thenReturn(remainingTimeMillis);
+        return mockContext;
+    }
+
+    private ConsentExpiryProcessor withTestRegion(final Supplier<ConsentExpiryProcessor> processorSupplier) {
+        final String originalRegion = System.getProperty(AWS_REGION_PROPERTY);
+        System.setProperty(AWS_REGION_PROPERTY, "us-west-2");
+        try {
+            return processorSupplier.get();
+        } finally {
+            if (originalRegion == null) {
+                System.clearProperty(AWS_REGION_PROPERTY);
+            } else {
+                System.setProperty(AWS_REGION_PROPERTY, originalRegion);
+            }
+        }
+    }
 }
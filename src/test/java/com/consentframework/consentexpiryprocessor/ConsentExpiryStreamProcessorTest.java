@@ -0,0 +1,120 @@
+package com.consentframework.consentexpiryprocessor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
+import com.consentframework.consentexpiryprocessor.infrastructure.configuration.ConsentExpiryProcessorConfiguration;
+import com.consentframework.consentexpiryprocessor.infrastructure.mappers.DynamoDbStreamEventMapper;
+import com.consentframework.consentexpiryprocessor.infrastructure.metrics.CloudWatchMetricsHandler;
+import com.consentframework.consentexpiryprocessor.infrastructure.repositories.InMemoryConsentRepository;
+import com.consentframework.consentexpiryprocessor.testcommon.dynamodb.FakeDynamoDbServer;
+import com.consentframework.consentexpiryprocessor.testcommon.matchers.PutMetricDataRequestMatcher;
+import com.consentframework.consentexpiryprocessor.testcommon.utils.ActiveConsentWithExpiryTimeGenerator;
+import com.consentframework.consentexpiryprocessor.testcommon.utils.DynamoDbStreamEventGenerator;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
+import software.amazon.awssdk.services.cloudwatch.model.PutMetricDataRequest;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+class ConsentExpiryStreamProcessorTest {
+    private static final String AWS_ACCESS_KEY_ID_PROPERTY = "aws.accessKeyId";
+    private static final String AWS_SECRET_ACCESS_KEY_PROPERTY = "aws.secretAccessKey";
+    private static final int LAMBDA_TIMEOUT_MILLIS = 15 * 60 * 1000;
+
+    @Test
+    void handleRequestWhenSuccess() {
+        final ActiveConsentWithExpiryTime consent = ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(),
+            OffsetDateTime.now().minusSeconds(1));
+        final InMemoryConsentRepository consentRepository = new InMemoryConsentRepository(
+            Map.of(consent.expiryHour(), List.of(consent)));
+        final CloudWatchClient cloudWatchClient = mockCloudWatchClient();
+
+        final ConsentExpiryStreamProcessor processor = new ConsentExpiryStreamProcessor(consentRepository, cloudWatchClient,
+            ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of()));
+        processor.handleRequest(DynamoDbStreamEventGenerator.generateEvent(
+            DynamoDbStreamEventGenerator.generateActiveConsentRecord("INSERT", consent)), mockContext());
+
+        assertEquals(List.of(), consentRepository.getActiveConsentsWithExpiryHour(consent.expiryHour(), Optional.empty()).resultsOnPage());
+        verify(cloudWatchClient).putMetricData(argThat(new PutMetricDataRequestMatcher(
+            CloudWatchMetricsHandler.METRIC_NAMESPACE,
+            ConsentExpiryStreamProcessor.STREAM_EXPIRY_JOB_FAILURE_METRIC_NAME,
+            0.0
+        )));
+    }
+
+    @Test
+    void handleRequestWhenFailure() {
+        final CloudWatchClient cloudWatchClient = mockCloudWatchClient();
+
+        final ConsentExpiryStreamProcessor processor = new ConsentExpiryStreamProcessor(new InMemoryConsentRepository(), cloudWatchClient,
+            ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of()));
+
+        assertThrows(IllegalArgumentException.class, () -> processor.handleRequest(
+            Map.of(DynamoDbStreamEventMapper.RECORDS_KEY, "records"), mockContext()));
+        verify(cloudWatchClient).putMetricData(argThat(new PutMetricDataRequestMatcher(
+            CloudWatchMetricsHandler.METRIC_NAMESPACE,
+            ConsentExpiryStreamProcessor.STREAM_EXPIRY_JOB_FAILURE_METRIC_NAME,
+            1.0
+        )));
+    }
+
+    @Test
+    void handleRequestWhenDynamoDbEndpointConfigured() {
+        assertExpiresStreamedConsentThroughDynamoDb("false");
+    }
+
+    @Test
+    void handleRequestWhenDynamoDbEndpointConfiguredWithAsyncClient() {
+        assertExpiresStreamedConsentThroughDynamoDb("true");
+    }
+
+    private static void assertExpiresStreamedConsentThroughDynamoDb(final String useAsyncDynamoDbClient) {
+        final ActiveConsentWithExpiryTime consent = ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(),
+            OffsetDateTime.now().minusSeconds(1));
+        System.setProperty(AWS_ACCESS_KEY_ID_PROPERTY, "TestAccessKeyId");
+        System.setProperty(AWS_SECRET_ACCESS_KEY_PROPERTY, "TestSecretAccessKey");
+        try (FakeDynamoDbServer server = new FakeDynamoDbServer()) {
+            server.putConsent(consent);
+            final ConsentExpiryStreamProcessor processor = new ConsentExpiryStreamProcessor(
+                ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+                    ConsentExpiryProcessorConfiguration.DYNAMODB_ENDPOINT_VARIABLE, server.endpoint().toString(),
+                    ConsentExpiryProcessorConfiguration.METRICS_BACKEND_VARIABLE, "EMBEDDED_METRIC_FORMAT",
+                    ConsentExpiryProcessorConfiguration.USE_ASYNC_DYNAMODB_CLIENT_VARIABLE, useAsyncDynamoDbClient,
+                    ConsentExpiryProcessorConfiguration.AWS_REGION_VARIABLE, "us-west-2")));
+
+            processor.handleRequest(DynamoDbStreamEventGenerator.generateEvent(
+                DynamoDbStreamEventGenerator.generateActiveConsentRecord("INSERT", consent)), mockContext());
+
+            assertEquals(0, server.countIndexedConsents());
+            assertEquals(0, server.getRequestCount("Query"));
+        } finally {
+            System.clearProperty(AWS_ACCESS_KEY_ID_PROPERTY);
+            System.clearProperty(AWS_SECRET_ACCESS_KEY_PROPERTY);
+        }
+    }
+
+    private static CloudWatchClient mockCloudWatchClient() {
+        final CloudWatchClient cloudWatchClient = mock(CloudWatchClient.class);
+        when(cloudWatchClient.putMetricData(any(PutMetricDataRequest.class))).thenReturn(null);
+        return cloudWatchClient;
+    }
+
+    private static Context mockContext() {
+        final Context mockContext = mock(Context.class);
+        when(mockContext.getAwsRequestId()).thenReturn("test-request-id");
+        when(mockContext.getRemainingTimeInMillis()).thenReturn(LAMBDA_TIMEOUT_MILLIS);
+        return mockContext;
+    }
+}
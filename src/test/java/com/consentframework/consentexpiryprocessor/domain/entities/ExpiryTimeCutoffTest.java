@@ -0,0 +1,142 @@
+package com.consentframework.consentexpiryprocessor.domain.entities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.consentframework.consentexpiryprocessor.testcommon.constants.TestConstants;
+import com.consentframework.shared.api.infrastructure.mappers.DynamoDbConsentExpiryTimeConverter;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+class ExpiryTimeCutoffTest {
+    private static final Instant CUTOFF_TIME = Instant.parse("2011-12-03T10:15:12.500Z");
+    private static final ExpiryTimeCutoff CUTOFF = new ExpiryTimeCutoff(CUTOFF_TIME);
+
+    @Test
+    void toOffsetDateTime() {
+        assertEquals(OffsetDateTime.parse("2011-12-03T10:15:12.500Z"), CUTOFF.toOffsetDateTime());
+        assertEquals(ZoneOffset.UTC, CUTOFF.toOffsetDateTime().getOffset());
+    }
+
+    @Test
+    void isAfterEndOfWhenExpiryHourEndedBeforeCutoff() {
+        assertTrue(CUTOFF.isAfterEndOf("2011-12-03T09:00Z"));
+        assertTrue(CUTOFF.isAfterEndOf("2011-12-02T23:00Z"));
+    }
+
+    @Test
+    void isAfterEndOfWhenCutoffWithinOrBeforeExpiryHour() {
+        assertFalse(CUTOFF.isAfterEndOf("2011-12-03T10:00Z"));
+        assertFalse(CUTOFF.isAfterEndOf("2011-12-03T11:00Z"));
+        assertTrue(new ExpiryTimeCutoff(Instant.parse("2011-12-03T11:00:00Z")).isAfterEndOf("2011-12-03T10:00Z"));
+    }
+
+    @Test
+    void isAfterWhenExpiryTimeBeforeCutoff() {
+        assertTrue(CUTOFF.isAfter(TestConstants.TEST_EXPIRY_TIME_ID));
+        assertTrue(CUTOFF.isAfter("2011-12-03T10:15:11Z|" + TestConstants.TEST_PARTITION_KEY));
+        assertTrue(CUTOFF.isAfter("2011-12-02T23:59:59Z|" + TestConstants.TEST_PARTITION_KEY));
+    }
+
+    @Test
+    void isAfterWhenExpiryTimeNotBeforeCutoff() {
+        assertFalse(CUTOFF.isAfter("2011-12-03T10:15:13Z|" + TestConstants.TEST_PARTITION_KEY));
+        assertFalse(CUTOFF.isAfter("2011-12-03T10:15:12.500Z|" + TestConstants.TEST_PARTITION_KEY));
+        assertFalse(CUTOFF.isAfter("2012-01-01T00:00:00Z|" + TestConstants.TEST_PARTITION_KEY));
+    }
+
+    @Test
+    void isAfterWhenFractionalSeconds() {
+        assertTrue(CUTOFF.isAfter("2011-12-03T10:15:12.4Z|" + TestConstants.TEST_PARTITION_KEY));
+        assertTrue(CUTOFF.isAfter("2011-12-03T10:15:12.499999999Z|" + TestConstants.TEST_PARTITION_KEY));
+        assertFalse(CUTOFF.isAfter("2011-12-03T10:15:12.5000001Z|" + TestConstants.TEST_PARTITION_KEY));
+    }
+
+    @Test
+    void isAfterWhenMinutePrecision() {
+        assertTrue(CUTOFF.isAfter("2011-12-03T10:15Z|" + TestConstants.TEST_PARTITION_KEY));
+        assertFalse(CUTOFF.isAfter("2011-12-03T10:16Z|" + TestConstants.TEST_PARTITION_KEY));
+    }
+
+    @Test
+    void isAfterWhenLeapDay() {
+        final ExpiryTimeCutoff cutoff = new ExpiryTimeCutoff(Instant.parse("2024-03-01T00:00:00Z"));
+        assertTrue(cutoff.isAfter("2024-02-29T23:59:59Z|" + TestConstants.TEST_PARTITION_KEY));
+    }
+
+    @Test
+    void isAfterMatchesConverterAcrossDates() {
+        final OffsetDateTime firstExpiryTime = OffsetDateTime.of(1999, 12, 31, 23, 0, 0, 0, ZoneOffset.UTC);
+        IntStream.range(0, 24 * 3 * 366).forEach(hoursLater -> {
+            final OffsetDateTime expiryTime = firstExpiryTime.plusHours(hoursLater).plusSeconds(hoursLater % 60);
+            final String expiryTimeId = DynamoDbConsentExpiryTimeConverter.toExpiryTimeId(expiryTime, TestConstants.TEST_PARTITION_KEY);
+            final ExpiryTimeCutoff cutoff = new ExpiryTimeCutoff(expiryTime.plusSeconds(1).toInstant());
+
+            assertTrue(cutoff.isAfter(expiryTimeId), expiryTimeId);
+            assertFalse(new ExpiryTimeCutoff(expiryTime.toInstant()).isAfter(expiryTimeId), expiryTimeId);
+        });
+    }
+
+    @Test
+    void isAfterWhenNotUtcFallsBackToConverter() {
+        final String expiryTimeId = "2011-12-03T11:15:11+01:00|" + TestConstants.TEST_PARTITION_KEY;
+        assertEquals(
+            DynamoDbConsentExpiryTimeConverter.toOffsetDateTimeFromExpiryTimeId(expiryTimeId).toInstant().isBefore(CUTOFF_TIME),
+            CUTOFF.isAfter(expiryTimeId));
+    }
+
+    @Test
+    void isAfterWhenInvalidExpiryTime() {
+        assertThrows(DateTimeException.class, () -> CUTOFF.isAfter("2011-02-30T10:15:12Z|" + TestConstants.TEST_PARTITION_KEY));
+        assertThrows(DateTimeException.class, () -> CUTOFF.isAfter("not-a-time|" + TestConstants.TEST_PARTITION_KEY));
+    }
+
+    @Test
+    void isAfterDoesNotAllocatePerConsent() {
+        final com.sun.management.ThreadMXBean threadMxBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().threadId();
+        final String[] expiryTimeIds = IntStream.range(0, 1000)
+            .mapToObj(i -> String.format("2011-12-03T%02d:%02d:%02dZ|%s", i % 24, i % 60, (i * 7) % 60, TestConstants.TEST_PARTITION_KEY))
+            .toArray(String[]::new);
+        final long expectedPastExpiryTimePerPass = Arrays.stream(expiryTimeIds)
+            .filter(expiryTimeId -> DynamoDbConsentExpiryTimeConverter.toOffsetDateTimeFromExpiryTimeId(expiryTimeId)
+                .toInstant()
+                .isBefore(CUTOFF_TIME))
+            .count();
+        final int numIterations = 100;
+
+        // Warm up, so that one-time class loading and allocation measurement overhead are excluded
+        int numPastExpiryTime = countPastExpiryTime(expiryTimeIds);
+        threadMxBean.getThreadAllocatedBytes(threadId);
+
+        final long allocatedBytesBefore = threadMxBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < numIterations; i++) {
+            numPastExpiryTime += countPastExpiryTime(expiryTimeIds);
+        }
+        final long allocatedBytes = threadMxBean.getThreadAllocatedBytes(threadId) - allocatedBytesBefore;
+
+        assertEquals((numIterations + 1) * expectedPastExpiryTimePerPass, numPastExpiryTime);
+        // Under one byte per checked consent, parsing a single OffsetDateTime allocates well over 100 bytes
+        assertTrue(allocatedBytes < (long) numIterations * expiryTimeIds.length,
+            "Expected no per-consent allocation, allocated " + allocatedBytes + " bytes");
+    }
+
+    private static int countPastExpiryTime(final String[] expiryTimeIds) {
+        int numPastExpiryTime = 0;
+        for (final String expiryTimeId : expiryTimeIds) {
+            if (CUTOFF.isAfter(expiryTimeId)) {
+                numPastExpiryTime++;
+            }
+        }
+        return numPastExpiryTime;
+    }
+}
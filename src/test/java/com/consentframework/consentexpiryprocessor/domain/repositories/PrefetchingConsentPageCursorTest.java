@@ -0,0 +1,141 @@
+package com.consentframework.consentexpiryprocessor.domain.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
+import com.consentframework.consentexpiryprocessor.domain.entities.ExpiryTimeCutoff;
+import com.consentframework.consentexpiryprocessor.domain.repositories.PrefetchingConsentPageCursor.KeyedPage;
+import com.consentframework.consentexpiryprocessor.testcommon.utils.ActiveConsentWithExpiryTimeGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+class PrefetchingConsentPageCursorTest {
+    private static final OffsetDateTime EXPIRY_HOUR_START = OffsetDateTime.of(2011, 12, 3, 10, 0, 0, 0, ZoneOffset.UTC);
+    private static final int PAGE_SIZE = 3;
+    private static final List<ActiveConsentWithExpiryTime> CONSENTS = IntStream.range(0, 10)
+        .mapToObj(minute -> ActiveConsentWithExpiryTimeGenerator.generate("TestConsentId" + minute, EXPIRY_HOUR_START.plusMinutes(minute)))
+        .toList();
+
+    private final List<Optional<Integer>> queriedPageKeys = new ArrayList<>();
+    private final List<Optional<Integer>> prefetchedPageKeys = new ArrayList<>();
+    private final AtomicInteger numPageTokensMapped = new AtomicInteger();
+
+    @Test
+    void nextWhenAllConsentsExpired() {
+        final PrefetchingConsentPageCursor<Integer> cursor = openCursor(Optional.empty(), EXPIRY_HOUR_START.plusHours(1));
+
+        final List<ActiveConsentWithExpiryTime> consents = new ArrayList<>();
+        cursor.forEachRemaining(consents::addAll);
+
+        assertEquals(CONSENTS, consents);
+        assertEquals(List.of(Optional.empty(), Optional.of(3), Optional.of(6), Optional.of(9)), queriedPageKeys);
+        assertTrue(cursor.nextPageToken().isEmpty());
+        assertEquals(0, numPageTokensMapped.get());
+    }
+
+    @Test
+    void nextStopsAtCutoff() {
+        final PrefetchingConsentPageCursor<Integer> cursor = openCursor(Optional.empty(), EXPIRY_HOUR_START.plusMinutes(4));
+
+        assertEquals(CONSENTS.subList(0, 3), cursor.next());
+        assertTrue(cursor.hasNext());
+        assertEquals(Optional.of("3"), cursor.nextPageToken());
+        assertEquals(CONSENTS.subList(3, 4), cursor.next());
+
+        // The rest of the page is not yet expired, so the following pages are never requested
+        assertFalse(cursor.hasNext());
+        cursor.prefetch();
+        assertEquals(List.of(Optional.empty(), Optional.of(3)), queriedPageKeys);
+        assertTrue(prefetchedPageKeys.isEmpty());
+        assertTrue(cursor.nextPageToken().isEmpty());
+        assertThrows(NoSuchElementException.class, cursor::next);
+    }
+
+    @Test
+    void nextWhenStartingFromPageKey() {
+        final PrefetchingConsentPageCursor<Integer> cursor = openCursor(Optional.of(6), EXPIRY_HOUR_START.plusHours(1));
+
+        assertEquals(Optional.of("6"), cursor.nextPageToken());
+        assertEquals(CONSENTS.subList(6, 9), cursor.next());
+    }
+
+    @Test
+    void nextWhenPageEmpty() {
+        final PrefetchingConsentPageCursor<Integer> cursor = new PrefetchingConsentPageCursor<>(Optional.empty(),
+            new ExpiryTimeCutoff(EXPIRY_HOUR_START.plusHours(1).toInstant()),
+            pageKey -> KeyedPage.empty(),
+            pageKey -> CompletableFuture.completedFuture(KeyedPage.empty()),
+            String::valueOf);
+
+        assertTrue(cursor.next().isEmpty());
+        assertFalse(cursor.hasNext());
+    }
+
+    @Test
+    void prefetchRetrievesNextPageOnce() {
+        final PrefetchingConsentPageCursor<Integer> cursor = openCursor(Optional.empty(), EXPIRY_HOUR_START.plusHours(1));
+
+        final List<ActiveConsentWithExpiryTime> firstPage = cursor.next();
+        cursor.prefetch();
+        cursor.prefetch();
+        final List<ActiveConsentWithExpiryTime> secondPage = cursor.next();
+
+        assertEquals(CONSENTS.subList(0, 3), firstPage);
+        assertEquals(CONSENTS.subList(3, 6), secondPage);
+        assertEquals(List.of(Optional.empty()), queriedPageKeys);
+        assertEquals(List.of(Optional.of(3)), prefetchedPageKeys);
+    }
+
+    @Test
+    void nextWhenPrefetchFailed() {
+        final RuntimeException testException = new IllegalStateException("Test error message");
+        final PrefetchingConsentPageCursor<Integer> cursor = new PrefetchingConsentPageCursor<>(Optional.empty(),
+            new ExpiryTimeCutoff(EXPIRY_HOUR_START.plusHours(1).toInstant()),
+            this::queryPage,
+            pageKey -> CompletableFuture.failedFuture(testException),
+            String::valueOf);
+
+        cursor.next();
+        cursor.prefetch();
+
+        assertSame(testException, assertThrows(IllegalStateException.class, cursor::next));
+    }
+
+    private PrefetchingConsentPageCursor<Integer> openCursor(final Optional<Integer> startPageKey, final OffsetDateTime cutoffTime) {
+        return new PrefetchingConsentPageCursor<>(startPageKey, new ExpiryTimeCutoff(cutoffTime.toInstant()),
+            this::queryPage,
+            pageKey -> {
+                prefetchedPageKeys.add(pageKey);
+                return CompletableFuture.completedFuture(getPage(pageKey));
+            },
+            pageKey -> {
+                numPageTokensMapped.incrementAndGet();
+                return String.valueOf(pageKey);
+            });
+    }
+
+    private KeyedPage<Integer> queryPage(final Optional<Integer> pageKey) {
+        queriedPageKeys.add(pageKey);
+        return getPage(pageKey);
+    }
+
+    private static KeyedPage<Integer> getPage(final Optional<Integer> pageKey) {
+        final int startIndex = pageKey.orElse(0);
+        final int endIndex = Math.min(startIndex + PAGE_SIZE, CONSENTS.size());
+        return new KeyedPage<>(CONSENTS.subList(startIndex, endIndex),
+            endIndex < CONSENTS.size() ? Optional.of(endIndex) : Optional.empty());
+    }
+}
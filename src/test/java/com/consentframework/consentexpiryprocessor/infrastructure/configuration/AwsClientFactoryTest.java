@@ -0,0 +1,134 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.configuration;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.retries.api.AcquireInitialTokenRequest;
+import software.amazon.awssdk.retries.api.RefreshRetryTokenRequest;
+import software.amazon.awssdk.retries.api.RetryStrategy;
+import software.amazon.awssdk.retries.api.RetryToken;
+import software.amazon.awssdk.retries.api.TokenAcquisitionFailedException;
+import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+class AwsClientFactoryTest {
+    private static final Map<String, String> LAMBDA_ENVIRONMENT = Map.of(
+        ConsentExpiryProcessorConfiguration.AWS_REGION_VARIABLE, "eu-west-1",
+        ConsentExpiryProcessorConfiguration.AWS_ACCESS_KEY_ID_VARIABLE, "TestAccessKeyId",
+        ConsentExpiryProcessorConfiguration.AWS_SECRET_ACCESS_KEY_VARIABLE, "TestSecretAccessKey");
+
+    @Test
+    void clientsWhenLambdaEnvironment() {
+        final AwsClientFactory awsClientFactory = new AwsClientFactory(
+            ConsentExpiryProcessorConfiguration.fromEnvironment(LAMBDA_ENVIRONMENT));
+
+        final DynamoDbClient dynamoDbClient = awsClientFactory.dynamoDbClient();
+        final DynamoDbAsyncClient dynamoDbAsyncClient = awsClientFactory.dynamoDbAsyncClient();
+        final CloudWatchClient cloudWatchClient = awsClientFactory.cloudWatchClient();
+
+        assertEquals(Region.EU_WEST_1, dynamoDbClient.serviceClientConfiguration().region());
+        assertEquals(Region.EU_WEST_1, dynamoDbAsyncClient.serviceClientConfiguration().region());
+        assertEquals(Region.EU_WEST_1, cloudWatchClient.serviceClientConfiguration().region());
+        assertInstanceOf(EnvironmentVariableCredentialsProvider.class,
+            dynamoDbClient.serviceClientConfiguration().credentialsProvider());
+        assertInstanceOf(EnvironmentVariableCredentialsProvider.class,
+            cloudWatchClient.serviceClientConfiguration().credentialsProvider());
+    }
+
+    @Test
+    void clientsWhenNoEnvironmentCredentials() {
+        final AwsClientFactory awsClientFactory = new AwsClientFactory(ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+            ConsentExpiryProcessorConfiguration.AWS_REGION_VARIABLE, "eu-west-1")));
+
+        assertInstanceOf(DefaultCredentialsProvider.class,
+            awsClientFactory.dynamoDbClient().serviceClientConfiguration().credentialsProvider());
+    }
+
+    @Test
+    void dynamoDbClientsWhenEndpointConfigured() {
+        final Map<String, String> environment = new HashMap<>(LAMBDA_ENVIRONMENT);
+        environment.put(ConsentExpiryProcessorConfiguration.DYNAMODB_ENDPOINT_VARIABLE, "http://localhost:8000");
+        final AwsClientFactory awsClientFactory = new AwsClientFactory(ConsentExpiryProcessorConfiguration.fromEnvironment(environment));
+
+        assertEquals(URI.create("http://localhost:8000"),
+            awsClientFactory.dynamoDbClient().serviceClientConfiguration().endpointOverride().orElseThrow());
+        assertEquals(URI.create("http://localhost:8000"),
+            awsClientFactory.dynamoDbAsyncClient().serviceClientConfiguration().endpointOverride().orElseThrow());
+        assertTrue(awsClientFactory.cloudWatchClient().serviceClientConfiguration().endpointOverride().isEmpty());
+    }
+
+    @Test
+    void dynamoDbClientsShareRetryStrategy() {
+        final AwsClientFactory awsClientFactory = new AwsClientFactory(
+            ConsentExpiryProcessorConfiguration.fromEnvironment(LAMBDA_ENVIRONMENT));
+
+        assertEquals(3, awsClientFactory.dynamoDbClient().serviceClientConfiguration().overrideConfiguration()
+            .retryStrategy().orElseThrow().maxAttempts());
+        assertEquals(3, awsClientFactory.dynamoDbAsyncClient().serviceClientConfiguration().overrideConfiguration()
+            .retryStrategy().orElseThrow().maxAttempts());
+    }
+
+    @Test
+    void dynamoDbRetryStrategyRetriesTransientErrors() {
+        final RetryStrategy retryStrategy = AwsClientFactory.dynamoDbRetryStrategy();
+
+        assertDoesNotThrow(() -> refreshRetryToken(retryStrategy, DynamoDbException.builder().statusCode(503).build()));
+        assertDoesNotThrow(() -> refreshRetryToken(retryStrategy,
+            SdkClientException.create("Test connection reset", new IOException("Connection reset"))));
+    }
+
+    @Test
+    void dynamoDbRetryStrategyDoesNotRetryThrottlingErrors() {
+        final RetryStrategy retryStrategy = AwsClientFactory.dynamoDbRetryStrategy();
+
+        assertThrows(TokenAcquisitionFailedException.class, () -> refreshRetryToken(retryStrategy,
+            ProvisionedThroughputExceededException.builder()
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("ProvisionedThroughputExceededException").build())
+                .statusCode(400)
+                .build()));
+        assertThrows(TokenAcquisitionFailedException.class, () -> refreshRetryToken(retryStrategy,
+            DynamoDbException.builder().statusCode(429).build()));
+    }
+
+    @Test
+    void dynamoDbRetryStrategyDoesNotRetryClientErrors() {
+        final RetryStrategy retryStrategy = AwsClientFactory.dynamoDbRetryStrategy();
+
+        assertThrows(TokenAcquisitionFailedException.class, () -> refreshRetryToken(retryStrategy,
+            ConditionalCheckFailedException.builder().statusCode(400).build()));
+    }
+
+    private static void refreshRetryToken(final RetryStrategy retryStrategy, final Throwable failure) {
+        final RetryToken token = retryStrategy.acquireInitialToken(AcquireInitialTokenRequest.create("dynamodb")).token();
+        retryStrategy.refreshRetryToken(RefreshRetryTokenRequest.builder().token(token).failure(failure).build());
+    }
+
+    @Test
+    void clientsAreShared() {
+        final AwsClientFactory awsClientFactory = new AwsClientFactory(
+            ConsentExpiryProcessorConfiguration.fromEnvironment(LAMBDA_ENVIRONMENT));
+
+        assertSame(awsClientFactory.dynamoDbClient(), awsClientFactory.dynamoDbClient());
+        assertSame(awsClientFactory.dynamoDbAsyncClient(), awsClientFactory.dynamoDbAsyncClient());
+        assertSame(awsClientFactory.cloudWatchClient(), awsClientFactory.cloudWatchClient());
+    }
+}
@@ -0,0 +1,341 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.configuration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.consentframework.consentexpiryprocessor.infrastructure.repositories.DynamoDbConsentRepositorySettings;
+import com.consentframework.consentexpiryprocessor.infrastructure.repositories.DynamoDbExpiryCheckpointStore;
+import com.consentframework.consentexpiryprocessor.infrastructure.throttling.ThrottlingRetryPolicy;
+import com.consentframework.consentexpiryprocessor.usecases.activities.AutoExpireConsentsActivitySettings;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.regions.Region;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+class ConsentExpiryProcessorConfigurationTest {
+    @Test
+    void maxConcurrentExpiryHoursWhenNotSet() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of());
+        assertEquals(ConsentExpiryProcessorConfiguration.DEFAULT_MAX_CONCURRENT_EXPIRY_HOURS, configuration.maxConcurrentExpiryHours());
+    }
+
+    @Test
+    void defaultsMatchDirectlyBuiltSettings() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of());
+        final DynamoDbConsentRepositorySettings repositorySettings = DynamoDbConsentRepositorySettings.builder().build();
+        final AutoExpireConsentsActivitySettings activitySettings = AutoExpireConsentsActivitySettings.builder().build();
+
+        assertEquals(repositorySettings.maxConcurrentWrites(), configuration.maxConcurrentExpiryWrites());
+        assertEquals(repositorySettings.queryPageSize(), configuration.queryPageSize());
+        assertEquals(repositorySettings.expiryHourShardCount(), configuration.expiryHourWriteShardCount());
+        assertEquals(repositorySettings.writeRateLimiter().currentPermitsPerSecond(), configuration.maxExpiryWritesPerSecond());
+        assertEquals(activitySettings.maxConcurrentExpiryHours(), configuration.maxConcurrentExpiryHours());
+        assertEquals(activitySettings.lookbackHours(), configuration.lookbackHours());
+        assertEquals(ThrottlingRetryPolicy.DEFAULT_MAX_ATTEMPTS, configuration.maxExpiryWriteAttempts());
+    }
+
+    @Test
+    void maxConcurrentExpiryHoursWhenSet() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+            ConsentExpiryProcessorConfiguration.MAX_CONCURRENT_EXPIRY_HOURS_VARIABLE, "24"));
+        assertEquals(24, configuration.maxConcurrentExpiryHours());
+    }
+
+    @Test
+    void maxConcurrentExpiryHoursWhenNotAnInteger() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+            ConsentExpiryProcessorConfiguration.MAX_CONCURRENT_EXPIRY_HOURS_VARIABLE, "many"));
+        assertThrows(IllegalArgumentException.class, configuration::maxConcurrentExpiryHours);
+    }
+
+    @Test
+    void maxConcurrentExpiryHoursWhenNotPositive() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+            ConsentExpiryProcessorConfiguration.MAX_CONCURRENT_EXPIRY_HOURS_VARIABLE, "0"));
+        assertThrows(IllegalArgumentException.class, configuration::maxConcurrentExpiryHours);
+    }
+
+    @Test
+    void maxConcurrentExpiryWritesWhenNotSet() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of());
+        assertEquals(ConsentExpiryProcessorConfiguration.DEFAULT_MAX_CONCURRENT_EXPIRY_WRITES, configuration.maxConcurrentExpiryWrites());
+    }
+
+    @Test
+    void maxConcurrentExpiryWritesWhenSet() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+            ConsentExpiryProcessorConfiguration.MAX_CONCURRENT_EXPIRY_WRITES_VARIABLE, "25"));
+        assertEquals(25, configuration.maxConcurrentExpiryWrites());
+    }
+
+    @Test
+    void useAsyncDynamoDbClientWhenNotSet() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of());
+        assertFalse(configuration.useAsyncDynamoDbClient());
+    }
+
+    @Test
+    void useAsyncDynamoDbClientWhenEnabled() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+            ConsentExpiryProcessorConfiguration.USE_ASYNC_DYNAMODB_CLIENT_VARIABLE, "true"));
+        assertTrue(configuration.useAsyncDynamoDbClient());
+    }
+
+    @Test
+    void metricsFlushIntervalWhenNotSet() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of());
+        assertEquals(Duration.ofSeconds(ConsentExpiryProcessorConfiguration.DEFAULT_METRICS_FLUSH_INTERVAL_SECONDS),
+            configuration.metricsFlushInterval());
+    }
+
+    @Test
+    void metricsFlushIntervalWhenZero() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+            ConsentExpiryProcessorConfiguration.METRICS_FLUSH_INTERVAL_SECONDS_VARIABLE, "0"));
+        assertEquals(Duration.ZERO, configuration.metricsFlushInterval());
+    }
+
+    @Test
+    void metricsBackendWhenNotSet() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of());
+        assertEquals(MetricsBackend.PUT_METRIC_DATA, configuration.metricsBackend());
+    }
+
+    @Test
+    void metricsBackendWhenSet() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+            ConsentExpiryProcessorConfiguration.METRICS_BACKEND_VARIABLE, "embedded_metric_format"));
+        assertEquals(MetricsBackend.EMBEDDED_METRIC_FORMAT, configuration.metricsBackend());
+    }
+
+    @Test
+    void metricsBackendWhenUnknown() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+            ConsentExpiryProcessorConfiguration.METRICS_BACKEND_VARIABLE, "STATSD"));
+        assertThrows(IllegalArgumentException.class, configuration::metricsBackend);
+    }
+
+    @Test
+    void expiryShardCountWhenNotSet() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of());
+        assertEquals(ConsentExpiryProcessorConfiguration.DEFAULT_EXPIRY_SHARD_COUNT, configuration.expiryShardCount());
+    }
+
+    @Test
+    void checkpointFileWhenNotSet() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of());
+        assertTrue(configuration.checkpointFile().isEmpty());
+    }
+
+    @Test
+    void checkpointFileWhenSet() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+            ConsentExpiryProcessorConfiguration.CHECKPOINT_FILE_VARIABLE, "/tmp/checkpoints.json"));
+        assertEquals(Optional.of(Path.of("/tmp/checkpoints.json")), configuration.checkpointFile());
+    }
+
+    @Test
+    void checkpointTableNameWhenNotSet() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of());
+        assertEquals(DynamoDbExpiryCheckpointStore.DEFAULT_TABLE_NAME, configuration.checkpointTableName());
+    }
+
+    @Test
+    void checkpointTableNameWhenSet() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+            ConsentExpiryProcessorConfiguration.CHECKPOINT_TABLE_NAME_VARIABLE, " TestCheckpoints "));
+        assertEquals("TestCheckpoints", configuration.checkpointTableName());
+    }
+
+    @Test
+    void deadlineSafetyMarginWhenNotSet() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of());
+        assertEquals(Duration.ofSeconds(ConsentExpiryProcessorConfiguration.DEFAULT_DEADLINE_SAFETY_MARGIN_SECONDS),
+            configuration.deadlineSafetyMargin());
+    }
+
+    @Test
+    void deadlineSafetyMarginWhenSet() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+            ConsentExpiryProcessorConfiguration.DEADLINE_SAFETY_MARGIN_SECONDS_VARIABLE, "90"));
+        assertEquals(Duration.ofSeconds(90), configuration.deadlineSafetyMargin());
+    }
+
+    @Test
+    void expiryWriteThrottlingWhenNotSet() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of());
+        assertEquals(ConsentExpiryProcessorConfiguration.DEFAULT_MAX_EXPIRY_WRITES_PER_SECOND, configuration.maxExpiryWritesPerSecond());
+        assertEquals(ConsentExpiryProcessorConfiguration.DEFAULT_MAX_EXPIRY_WRITE_ATTEMPTS, configuration.maxExpiryWriteAttempts());
+    }
+
+    @Test
+    void expiryWriteThrottlingWhenSet() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+            ConsentExpiryProcessorConfiguration.MAX_EXPIRY_WRITES_PER_SECOND_VARIABLE, "250",
+            ConsentExpiryProcessorConfiguration.MAX_EXPIRY_WRITE_ATTEMPTS_VARIABLE, "6"));
+        assertEquals(250, configuration.maxExpiryWritesPerSecond());
+        assertEquals(6, configuration.maxExpiryWriteAttempts());
+    }
+
+    @Test
+    void maxExpiryWritesPerSecondWhenNotPositive() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+            ConsentExpiryProcessorConfiguration.MAX_EXPIRY_WRITES_PER_SECOND_VARIABLE, "0"));
+        assertThrows(IllegalArgumentException.class, configuration::maxExpiryWritesPerSecond);
+    }
+
+    @Test
+    void queryPageSizeWhenNotSet() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of());
+        assertEquals(ConsentExpiryProcessorConfiguration.DEFAULT_QUERY_PAGE_SIZE, configuration.queryPageSize());
+    }
+
+    @Test
+    void queryPageSizeWhenSet() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+            ConsentExpiryProcessorConfiguration.QUERY_PAGE_SIZE_VARIABLE, "200"));
+        assertEquals(200, configuration.queryPageSize());
+    }
+
+    @Test
+    void expiryHourWriteShardCountWhenNotSet() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of());
+        assertEquals(ConsentExpiryProcessorConfiguration.DEFAULT_EXPIRY_HOUR_WRITE_SHARD_COUNT, configuration.expiryHourWriteShardCount());
+    }
+
+    @Test
+    void expiryHourWriteShardCountWhenSet() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+            ConsentExpiryProcessorConfiguration.EXPIRY_HOUR_WRITE_SHARD_COUNT_VARIABLE, "8"));
+        assertEquals(8, configuration.expiryHourWriteShardCount());
+    }
+
+    @Test
+    void expiredConsentCacheSizeWhenNotSet() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of());
+        assertEquals(ConsentExpiryProcessorConfiguration.DEFAULT_EXPIRED_CONSENT_CACHE_SIZE, configuration.expiredConsentCacheSize());
+    }
+
+    @Test
+    void expiredConsentCacheSizeWhenZero() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+            ConsentExpiryProcessorConfiguration.EXPIRED_CONSENT_CACHE_SIZE_VARIABLE, "0"));
+        assertEquals(0, configuration.expiredConsentCacheSize());
+    }
+
+    @Test
+    void lookbackHoursWhenNotSet() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of());
+        assertEquals(ConsentExpiryProcessorConfiguration.DEFAULT_LOOKBACK_HOURS, configuration.lookbackHours());
+    }
+
+    @Test
+    void lookbackHoursWhenSet() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+            ConsentExpiryProcessorConfiguration.LOOKBACK_HOURS_VARIABLE, "24"));
+        assertEquals(24, configuration.lookbackHours());
+    }
+
+    @Test
+    void streamExpiryWindowWhenNotSet() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of());
+        assertEquals(Duration.ofSeconds(ConsentExpiryProcessorConfiguration.DEFAULT_STREAM_EXPIRY_WINDOW_SECONDS),
+            configuration.streamExpiryWindow());
+    }
+
+    @Test
+    void streamExpiryWindowWhenSet() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+            ConsentExpiryProcessorConfiguration.STREAM_EXPIRY_WINDOW_SECONDS_VARIABLE, "600"));
+        assertEquals(Duration.ofSeconds(600), configuration.streamExpiryWindow());
+    }
+
+    @Test
+    void forecastLookaheadHoursWhenNotSet() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of());
+        assertEquals(ConsentExpiryProcessorConfiguration.DEFAULT_FORECAST_LOOKAHEAD_HOURS, configuration.forecastLookaheadHours());
+    }
+
+    @Test
+    void forecastLookaheadHoursWhenZero() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+            ConsentExpiryProcessorConfiguration.FORECAST_LOOKAHEAD_HOURS_VARIABLE, "0"));
+        assertEquals(0, configuration.forecastLookaheadHours());
+    }
+
+    @Test
+    void forecastLookaheadHoursWhenNegative() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+            ConsentExpiryProcessorConfiguration.FORECAST_LOOKAHEAD_HOURS_VARIABLE, "-1"));
+        assertThrows(IllegalArgumentException.class, configuration::forecastLookaheadHours);
+    }
+
+    @Test
+    void forecastExpiryWriteLatencyWhenNotSet() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of());
+        assertEquals(Duration.ofMillis(ConsentExpiryProcessorConfiguration.DEFAULT_FORECAST_EXPIRY_WRITE_LATENCY_MILLIS),
+            configuration.forecastExpiryWriteLatency());
+    }
+
+    @Test
+    void forecastExpiryWriteLatencyWhenSet() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+            ConsentExpiryProcessorConfiguration.FORECAST_EXPIRY_WRITE_LATENCY_MILLIS_VARIABLE, "25"));
+        assertEquals(Duration.ofMillis(25), configuration.forecastExpiryWriteLatency());
+    }
+
+    @Test
+    void dynamoDbEndpointWhenNotSet() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of());
+        assertTrue(configuration.dynamoDbEndpoint().isEmpty());
+    }
+
+    @Test
+    void dynamoDbEndpointWhenSet() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+            ConsentExpiryProcessorConfiguration.DYNAMODB_ENDPOINT_VARIABLE, " http://localhost:8000 "));
+        assertEquals(Optional.of(URI.create("http://localhost:8000")), configuration.dynamoDbEndpoint());
+    }
+
+    @Test
+    void dynamoDbEndpointWhenInvalid() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+            ConsentExpiryProcessorConfiguration.DYNAMODB_ENDPOINT_VARIABLE, "http://local host"));
+        assertThrows(IllegalArgumentException.class, configuration::dynamoDbEndpoint);
+    }
+
+    @Test
+    void awsRegionWhenNotSet() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of());
+        assertTrue(configuration.awsRegion().isEmpty());
+    }
+
+    @Test
+    void awsRegionWhenSet() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+            ConsentExpiryProcessorConfiguration.AWS_REGION_VARIABLE, " us-west-2 "));
+        assertEquals(Optional.of(Region.US_WEST_2), configuration.awsRegion());
+    }
+
+    @Test
+    void hasEnvironmentCredentialsWhenSet() {
+        final ConsentExpiryProcessorConfiguration configuration = ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+            ConsentExpiryProcessorConfiguration.AWS_ACCESS_KEY_ID_VARIABLE, "TestAccessKeyId",
+            ConsentExpiryProcessorConfiguration.AWS_SECRET_ACCESS_KEY_VARIABLE, "TestSecretAccessKey"));
+        assertTrue(configuration.hasEnvironmentCredentials());
+    }
+
+    @Test
+    void hasEnvironmentCredentialsWhenPartiallySet() {
+        assertFalse(ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of()).hasEnvironmentCredentials());
+        assertFalse(ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+            ConsentExpiryProcessorConfiguration.AWS_ACCESS_KEY_ID_VARIABLE, "TestAccessKeyId",
+            ConsentExpiryProcessorConfiguration.AWS_SECRET_ACCESS_KEY_VARIABLE, " ")).hasEnvironmentCredentials());
+    }
+}
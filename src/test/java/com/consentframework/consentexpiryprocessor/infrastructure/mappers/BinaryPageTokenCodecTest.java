@@ -0,0 +1,122 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.mappers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.consentframework.consentexpiryprocessor.testcommon.constants.TestConstants;
+import com.consentframework.consentexpiryprocessor.testcommon.utils.JsonPageTokenEncoder;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.Base64;
+import java.util.Map;
+
+class BinaryPageTokenCodecTest {
+    private static final Map<String, AttributeValue> LAST_EVALUATED_KEY = Map.of(
+        "id", AttributeValue.fromS(TestConstants.TEST_PARTITION_KEY),
+        "consentVersion", AttributeValue.fromN("12"),
+        "expiryHour", AttributeValue.fromS(TestConstants.TEST_EXPIRY_HOUR),
+        "expiryTimeId", AttributeValue.fromS("2011-12-03T10:15:30Z|" + TestConstants.TEST_PARTITION_KEY));
+
+    @Test
+    void encodeAndDecode() {
+        final String pageToken = BinaryPageTokenCodec.encode(LAST_EVALUATED_KEY);
+
+        assertTrue(BinaryPageTokenCodec.isBinaryToken(pageToken));
+        assertTrue(pageToken.matches("[A-Za-z0-9_-]+"));
+        assertEquals(LAST_EVALUATED_KEY, BinaryPageTokenCodec.decode(pageToken));
+    }
+
+    @Test
+    void encodeIsSmallerThanJson() {
+        assertTrue(BinaryPageTokenCodec.encode(LAST_EVALUATED_KEY).length()
+            < JsonPageTokenEncoder.toJsonString(LAST_EVALUATED_KEY).length());
+    }
+
+    @Test
+    void encodeAndDecodeNestedMapsAndBinaries() {
+        final Map<String, AttributeValue> attributes = Map.of(
+            "shards", AttributeValue.fromM(Map.of(
+                "2011-12-03T10:00Z#0", AttributeValue.fromM(LAST_EVALUATED_KEY),
+                "2011-12-03T10:00Z#1", AttributeValue.fromM(Map.of()))),
+            "binary", AttributeValue.fromB(SdkBytes.fromByteArray(new byte[] {0, 1, (byte) 0xFF})),
+            "long", AttributeValue.fromS("é".repeat(200)));
+
+        assertEquals(attributes, BinaryPageTokenCodec.decode(BinaryPageTokenCodec.encode(attributes)));
+    }
+
+    @Test
+    void encodeAndDecodeWhenExpiryTimeIdNotSuffixedWithId() {
+        final Map<String, AttributeValue> attributes = Map.of(
+            "id", AttributeValue.fromS(TestConstants.TEST_PARTITION_KEY),
+            "expiryTimeId", AttributeValue.fromS("2011-12-03T10:15:30Z|" + TestConstants.TEST_PARTITION_KEY_2));
+
+        assertEquals(attributes, BinaryPageTokenCodec.decode(BinaryPageTokenCodec.encode(attributes)));
+    }
+
+    @Test
+    void isBinaryTokenWhenJson() {
+        assertFalse(BinaryPageTokenCodec.isBinaryToken(JsonPageTokenEncoder.toJsonString(LAST_EVALUATED_KEY)));
+    }
+
+    @Test
+    void encodeWhenUnsupportedType() {
+        assertThrows(IllegalArgumentException.class, () -> BinaryPageTokenCodec.encode(Map.of("flag", AttributeValue.fromBool(true))));
+    }
+
+    @Test
+    void decodeWhenUnsupportedVersion() {
+        assertThrows(IllegalArgumentException.class, () -> BinaryPageTokenCodec.decode(toPageToken(new byte[] {2, 0})));
+    }
+
+    @Test
+    void decodeWhenTruncated() {
+        final byte[] bytes = Base64.getUrlDecoder().decode(BinaryPageTokenCodec.encode(LAST_EVALUATED_KEY));
+        final byte[] truncatedBytes = new byte[bytes.length - 1];
+        System.arraycopy(bytes, 0, truncatedBytes, 0, truncatedBytes.length);
+
+        assertThrows(IllegalArgumentException.class, () -> BinaryPageTokenCodec.decode(toPageToken(truncatedBytes)));
+    }
+
+    @Test
+    void decodeWhenTrailingBytes() {
+        assertThrows(IllegalArgumentException.class,
+            () -> BinaryPageTokenCodec.decode(toPageToken(new byte[] {BinaryPageTokenCodec.VERSION, 0, 0})));
+    }
+
+    @Test
+    void decodeWhenUnsupportedTypeTag() {
+        assertThrows(IllegalArgumentException.class,
+            () -> BinaryPageTokenCodec.decode(toPageToken(new byte[] {BinaryPageTokenCodec.VERSION, 1, 1, 'a', 'X'})));
+    }
+
+    @Test
+    void decodeWhenOversizedLength() {
+        assertThrows(IllegalArgumentException.class, () -> BinaryPageTokenCodec.decode(toPageToken(
+            new byte[] {BinaryPageTokenCodec.VERSION, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0})));
+    }
+
+    @Test
+    void decodeWhenIdSuffixedAttributeWithoutId() {
+        assertThrows(IllegalArgumentException.class,
+            () -> BinaryPageTokenCodec.decode(toPageToken(new byte[] {BinaryPageTokenCodec.VERSION, 1, 7, 'I', 1, 'a'})));
+    }
+
+    @Test
+    void decodeWhenUnknownNameIndex() {
+        assertThrows(IllegalArgumentException.class,
+            () -> BinaryPageTokenCodec.decode(toPageToken(new byte[] {BinaryPageTokenCodec.VERSION, 1, 19, 'S', 0})));
+    }
+
+    @Test
+    void decodeWhenNotBase64() {
+        assertThrows(IllegalArgumentException.class, () -> BinaryPageTokenCodec.decode("not a page token"));
+    }
+
+    private static String toPageToken(final byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
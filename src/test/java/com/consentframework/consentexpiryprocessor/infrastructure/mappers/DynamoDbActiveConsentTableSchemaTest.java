@@ -0,0 +1,63 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.mappers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.consentframework.consentexpiryprocessor.testcommon.constants.TestConstants;
+import com.consentframework.shared.api.infrastructure.entities.DynamoDbActiveConsentWithExpiryTime;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.enhanced.dynamodb.TableMetadata;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.Map;
+
+class DynamoDbActiveConsentTableSchemaTest {
+    private static final Map<String, AttributeValue> ITEM_ATTRIBUTES = Map.of(
+        "id", AttributeValue.builder().s(TestConstants.TEST_PARTITION_KEY).build(),
+        "consentVersion", AttributeValue.builder().n("3").build(),
+        "expiryHour", AttributeValue.builder().s(TestConstants.TEST_EXPIRY_HOUR).build(),
+        "expiryTimeId", AttributeValue.builder().s(TestConstants.TEST_EXPIRY_TIME_ID).build()
+    );
+
+    @Test
+    void mapToItem() {
+        final DynamoDbActiveConsentWithExpiryTime item = DynamoDbActiveConsentTableSchema.TABLE_SCHEMA.mapToItem(ITEM_ATTRIBUTES);
+
+        assertEquals(TestConstants.TEST_PARTITION_KEY, item.id());
+        assertEquals(3, item.consentVersion());
+        assertEquals(TestConstants.TEST_EXPIRY_HOUR, item.expiryHour());
+        assertEquals(TestConstants.TEST_EXPIRY_TIME_ID, item.expiryTimeId());
+    }
+
+    @Test
+    void mapToItemWhenAttributesMissing() {
+        final DynamoDbActiveConsentWithExpiryTime item = DynamoDbActiveConsentTableSchema.TABLE_SCHEMA.mapToItem(Map.of(
+            "id", ITEM_ATTRIBUTES.get("id")));
+
+        assertEquals(TestConstants.TEST_PARTITION_KEY, item.id());
+        assertNull(item.consentVersion());
+        assertNull(item.expiryTimeId());
+    }
+
+    @Test
+    void itemToMap() {
+        final DynamoDbActiveConsentWithExpiryTime item = DynamoDbActiveConsentWithExpiryTime.builder()
+            .id(TestConstants.TEST_PARTITION_KEY)
+            .consentVersion(3)
+            .expiryHour(TestConstants.TEST_EXPIRY_HOUR)
+            .expiryTimeId(TestConstants.TEST_EXPIRY_TIME_ID)
+            .build();
+
+        assertEquals(ITEM_ATTRIBUTES, DynamoDbActiveConsentTableSchema.TABLE_SCHEMA.itemToMap(item, true));
+    }
+
+    @Test
+    void tableMetadataDefinesIndexKeys() {
+        final TableMetadata tableMetadata = DynamoDbActiveConsentTableSchema.TABLE_SCHEMA.tableMetadata();
+        final String indexName = DynamoDbActiveConsentWithExpiryTime.ACTIVE_CONSENTS_BY_EXPIRY_HOUR_GSI_NAME;
+
+        assertEquals("id", tableMetadata.primaryPartitionKey());
+        assertEquals("expiryHour", tableMetadata.indexPartitionKey(indexName));
+        assertEquals("expiryTimeId", tableMetadata.indexSortKey(indexName).orElseThrow());
+    }
+}
@@ -5,11 +5,11 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.consentframework.consentexpiryprocessor.testcommon.utils.JsonPageTokenEncoder;
 import org.junit.jupiter.api.Test;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 
@@ -43,19 +43,42 @@ class DynamoDbExpiryHourTokenMapperTest {
     }
 
     @Test
-    void toJsonStringWhenNull() {
-        final Optional<String> parsedJsonString = DynamoDbExpiryHourTokenMapper.toJsonString(null);
-        assertTrue(parsedJsonString.isEmpty());
+    void toPageTokenWhenNull() {
+        assertTrue(DynamoDbExpiryHourTokenMapper.toPageToken(null).isEmpty());
     }
 
     @Test
-    void toJsonStringWhenPresent() throws Exception {
-        final Optional<String> parsedJsonString = DynamoDbExpiryHourTokenMapper.toJsonString(NEXT_TOKEN_ATTRIBUTE_VALUE_MAP);
-        assertTrue(parsedJsonString.isPresent());
-
-        final ObjectMapper objectMapper = new ObjectMapper();
-        final JsonNode expectedJson = objectMapper.readTree(NEXT_TOKEN_JSON_STRING);
-        final JsonNode parsedJson = objectMapper.readTree(parsedJsonString.get());
-        assertEquals(expectedJson, parsedJson);
+    void toPageTokenWhenPresent() {
+        final Optional<String> pageToken = DynamoDbExpiryHourTokenMapper.toPageToken(NEXT_TOKEN_ATTRIBUTE_VALUE_MAP);
+
+        assertTrue(BinaryPageTokenCodec.isBinaryToken(pageToken.orElseThrow()));
+        assertEquals(NEXT_TOKEN_ATTRIBUTE_VALUE_MAP, DynamoDbExpiryHourTokenMapper.toDynamoDbPageToken(pageToken));
+    }
+
+    @Test
+    void toShardedDynamoDbPageTokenWhenBinary() {
+        final Map<String, Map<String, AttributeValue>> exclusiveStartKeys = new LinkedHashMap<>();
+        exclusiveStartKeys.put("2011-12-03T10:00Z#0", NEXT_TOKEN_ATTRIBUTE_VALUE_MAP);
+        exclusiveStartKeys.put("2011-12-03T10:00Z#1", Map.of());
+
+        final String pageToken = DynamoDbExpiryHourTokenMapper.toShardedPageToken(exclusiveStartKeys);
+
+        assertEquals(Optional.of(exclusiveStartKeys), DynamoDbExpiryHourTokenMapper.toShardedDynamoDbPageToken(pageToken));
+    }
+
+    @Test
+    void toShardedDynamoDbPageTokenWhenJson() {
+        final Map<String, Map<String, AttributeValue>> exclusiveStartKeys = new LinkedHashMap<>();
+        exclusiveStartKeys.put("2011-12-03T10:00Z#0", NEXT_TOKEN_ATTRIBUTE_VALUE_MAP);
+        exclusiveStartKeys.put("2011-12-03T10:00Z#1", Map.of());
+
+        final String pageToken = JsonPageTokenEncoder.toShardedJsonString(exclusiveStartKeys);
+
+        assertEquals(Optional.of(exclusiveStartKeys), DynamoDbExpiryHourTokenMapper.toShardedDynamoDbPageToken(pageToken));
+    }
+
+    @Test
+    void toShardedDynamoDbPageTokenWhenSinglePartitionToken() {
+        assertTrue(DynamoDbExpiryHourTokenMapper.toShardedDynamoDbPageToken(NEXT_TOKEN_JSON_STRING).isEmpty());
     }
 }
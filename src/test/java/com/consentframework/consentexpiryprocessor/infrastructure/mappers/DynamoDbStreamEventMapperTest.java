@@ -0,0 +1,105 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.mappers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
+import com.consentframework.consentexpiryprocessor.domain.entities.ConsentExpiryChange;
+import com.consentframework.consentexpiryprocessor.testcommon.constants.TestConstants;
+import com.consentframework.consentexpiryprocessor.testcommon.utils.DynamoDbStreamEventGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+class DynamoDbStreamEventMapperTest {
+    private static final ActiveConsentWithExpiryTime CONSENT = ActiveConsentWithExpiryTime.builder()
+        .id(TestConstants.TEST_PARTITION_KEY)
+        .consentVersion(2)
+        .expiryHour(TestConstants.TEST_EXPIRY_HOUR)
+        .expiryTimeId(TestConstants.TEST_EXPIRY_TIME_ID)
+        .build();
+
+    @Test
+    void toConsentExpiryChangesWhenNoEvent() {
+        assertEquals(List.of(), DynamoDbStreamEventMapper.toConsentExpiryChanges(null));
+        assertEquals(List.of(), DynamoDbStreamEventMapper.toConsentExpiryChanges(Map.of()));
+    }
+
+    @Test
+    void toConsentExpiryChangesWhenActiveConsents() {
+        final Map<String, Object> event = DynamoDbStreamEventGenerator.generateEvent(
+            DynamoDbStreamEventGenerator.generateActiveConsentRecord("INSERT", CONSENT),
+            DynamoDbStreamEventGenerator.generateActiveConsentRecord("MODIFY", CONSENT));
+        final List<ConsentExpiryChange> changes = DynamoDbStreamEventMapper.toConsentExpiryChanges(event);
+
+        final ConsentExpiryChange expectedChange = ConsentExpiryChange.builder()
+            .id(TestConstants.TEST_PARTITION_KEY)
+            .activeConsent(CONSENT)
+            .build();
+        assertEquals(List.of(expectedChange, expectedChange), changes);
+    }
+
+    @Test
+    void toConsentExpiryChangesWhenConsentVersionIsJsonNumber() {
+        final Map<String, Object> event = DynamoDbStreamEventGenerator.generateEvent(
+            DynamoDbStreamEventGenerator.generateRecord("INSERT", CONSENT.id(), Map.of(
+                "consentVersion", Map.of("N", 2),
+                "expiryHour", Map.of("S", CONSENT.expiryHour()),
+                "expiryTimeId", Map.of("S", CONSENT.expiryTimeId()))));
+        final List<ConsentExpiryChange> changes = DynamoDbStreamEventMapper.toConsentExpiryChanges(event);
+
+        assertEquals(CONSENT, changes.get(0).activeConsent().orElseThrow());
+    }
+
+    @Test
+    void toConsentExpiryChangesWhenNoLongerPendingExpiry() {
+        final Map<String, Object> event = DynamoDbStreamEventGenerator.generateEvent(
+            DynamoDbStreamEventGenerator.generateExpiredConsentRecord(TestConstants.TEST_PARTITION_KEY, 3),
+            DynamoDbStreamEventGenerator.generateRemoveRecord(TestConstants.TEST_PARTITION_KEY_2),
+            DynamoDbStreamEventGenerator.generateRecord("MODIFY", TestConstants.TEST_PARTITION_KEY_3, Map.of(
+                "consentVersion", Map.of("N", "1"),
+                "consentStatus", Map.of("S", "ACTIVE"))));
+        final List<ConsentExpiryChange> changes = DynamoDbStreamEventMapper.toConsentExpiryChanges(event);
+
+        assertEquals(List.of(TestConstants.TEST_PARTITION_KEY, TestConstants.TEST_PARTITION_KEY_2, TestConstants.TEST_PARTITION_KEY_3),
+            changes.stream().map(ConsentExpiryChange::id).toList());
+        changes.forEach(change -> assertTrue(change.activeConsent().isEmpty()));
+    }
+
+    @Test
+    void toConsentExpiryChangesWhenNoNewImage() {
+        final Map<String, Object> event = DynamoDbStreamEventGenerator.generateEvent(Map.of(
+            DynamoDbStreamEventMapper.EVENT_NAME_KEY, "MODIFY",
+            DynamoDbStreamEventMapper.DYNAMODB_KEY, Map.of(
+                DynamoDbStreamEventMapper.KEYS_KEY, Map.of("id", Map.of("S", TestConstants.TEST_PARTITION_KEY)))));
+
+        assertThrows(IllegalArgumentException.class, () -> DynamoDbStreamEventMapper.toConsentExpiryChanges(event));
+    }
+
+    @Test
+    void toConsentExpiryChangesWhenInvalidEvent() {
+        assertThrows(IllegalArgumentException.class, () -> DynamoDbStreamEventMapper.toConsentExpiryChanges(Map.of(
+            DynamoDbStreamEventMapper.RECORDS_KEY, "records")));
+        assertThrows(IllegalArgumentException.class, () -> DynamoDbStreamEventMapper.toConsentExpiryChanges(
+            DynamoDbStreamEventGenerator.generateEvent(Map.of(DynamoDbStreamEventMapper.EVENT_NAME_KEY, "INSERT"))));
+        assertThrows(IllegalArgumentException.class, () -> DynamoDbStreamEventMapper.toConsentExpiryChanges(
+            DynamoDbStreamEventGenerator.generateEvent(Map.of(
+                DynamoDbStreamEventMapper.EVENT_NAME_KEY, "REMOVE",
+                DynamoDbStreamEventMapper.DYNAMODB_KEY, Map.of(DynamoDbStreamEventMapper.KEYS_KEY, Map.of())))));
+    }
+
+    @Test
+    void toConsentExpiryChangesWhenInvalidConsentVersion() {
+        assertThrows(IllegalArgumentException.class, () -> DynamoDbStreamEventMapper.toConsentExpiryChanges(
+            DynamoDbStreamEventGenerator.generateEvent(DynamoDbStreamEventGenerator.generateRecord("INSERT", CONSENT.id(), Map.of(
+                "consentVersion", Map.of("N", "two"),
+                "expiryHour", Map.of("S", CONSENT.expiryHour()),
+                "expiryTimeId", Map.of("S", CONSENT.expiryTimeId()))))));
+        assertThrows(IllegalArgumentException.class, () -> DynamoDbStreamEventMapper.toConsentExpiryChanges(
+            DynamoDbStreamEventGenerator.generateEvent(DynamoDbStreamEventGenerator.generateRecord("INSERT", CONSENT.id(), Map.of(
+                "expiryHour", Map.of("S", CONSENT.expiryHour()),
+                "expiryTimeId", Map.of("S", CONSENT.expiryTimeId()))))));
+    }
+}
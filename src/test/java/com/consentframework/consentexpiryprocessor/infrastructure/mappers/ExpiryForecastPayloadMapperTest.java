@@ -0,0 +1,84 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.mappers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.consentframework.consentexpiryprocessor.domain.entities.ExpiryForecast;
+import com.consentframework.consentexpiryprocessor.testcommon.constants.TestConstants;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+class ExpiryForecastPayloadMapperTest {
+    @Test
+    void isDryRun() {
+        assertTrue(ExpiryForecastPayloadMapper.isDryRun(Map.of(ExpiryForecastPayloadMapper.DRY_RUN_KEY, true)));
+        assertTrue(ExpiryForecastPayloadMapper.isDryRun(Map.of(ExpiryForecastPayloadMapper.DRY_RUN_KEY, " true ")));
+        assertFalse(ExpiryForecastPayloadMapper.isDryRun(Map.of(ExpiryForecastPayloadMapper.DRY_RUN_KEY, false)));
+        assertFalse(ExpiryForecastPayloadMapper.isDryRun(Map.of(ExpiryForecastPayloadMapper.DRY_RUN_KEY, 1)));
+        assertFalse(ExpiryForecastPayloadMapper.isDryRun(Map.of()));
+        assertFalse(ExpiryForecastPayloadMapper.isDryRun(null));
+    }
+
+    @Test
+    void toLookaheadHoursWhenSet() {
+        assertEquals(48, ExpiryForecastPayloadMapper.toLookaheadHours(Map.of(
+            ExpiryForecastPayloadMapper.DRY_RUN_KEY, true,
+            ExpiryForecastPayloadMapper.LOOKAHEAD_HOURS_KEY, 48), 24));
+    }
+
+    @Test
+    void toLookaheadHoursWhenNotSet() {
+        assertEquals(24, ExpiryForecastPayloadMapper.toLookaheadHours(Map.of(ExpiryForecastPayloadMapper.DRY_RUN_KEY, true), 24));
+    }
+
+    @Test
+    void toLookaheadHoursWhenInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> ExpiryForecastPayloadMapper.toLookaheadHours(Map.of(
+            ExpiryForecastPayloadMapper.LOOKAHEAD_HOURS_KEY, "tomorrow"), 24));
+    }
+
+    @Test
+    void toPayload() {
+        final ExpiryForecast forecast = ExpiryForecast.builder()
+            .putConsentsPerHour(TestConstants.TEST_EXPIRY_HOUR, 150)
+            .putConsentsPerHour("2011-12-03T11:00Z", 0)
+            .putConsentsPerMinute("2011-12-03T10:15Z", 120)
+            .putConsentsPerMinute("2011-12-03T10:40Z", 30)
+            .expiryWritesPerSecond(100.0)
+            .stoppedAtDeadline(false)
+            .build();
+
+        final Map<String, Object> payload = ExpiryForecastPayloadMapper.toPayload(forecast);
+
+        assertEquals(150, payload.get(ExpiryForecastPayloadMapper.CONSENTS_KEY));
+        assertEquals(120, payload.get(ExpiryForecastPayloadMapper.PEAK_CONSENTS_PER_MINUTE_KEY));
+        assertEquals(300L, payload.get(ExpiryForecastPayloadMapper.WRITE_CAPACITY_UNITS_KEY));
+        assertEquals(200L, payload.get(ExpiryForecastPayloadMapper.WRITE_CAPACITY_UNITS_PER_SECOND_KEY));
+        assertEquals(4L, payload.get(ExpiryForecastPayloadMapper.PEAK_MINUTE_WRITE_CAPACITY_UNITS_PER_SECOND_KEY));
+        assertEquals(100.0, payload.get(ExpiryForecastPayloadMapper.EXPIRY_WRITES_PER_SECOND_KEY));
+        assertEquals(1500L, payload.get(ExpiryForecastPayloadMapper.ESTIMATED_RUN_MILLIS_KEY));
+        assertEquals(false, payload.get(ExpiryForecastPayloadMapper.STOPPED_EARLY_KEY));
+        assertEquals(Map.of(TestConstants.TEST_EXPIRY_HOUR, 150, "2011-12-03T11:00Z", 0),
+            payload.get(ExpiryForecastPayloadMapper.EXPIRY_HOURS_KEY));
+        assertEquals(Map.of("2011-12-03T10:15Z", 120, "2011-12-03T10:40Z", 30),
+            payload.get(ExpiryForecastPayloadMapper.EXPIRY_MINUTES_KEY));
+    }
+
+    @Test
+    void toPayloadWhenNoConsents() {
+        final ExpiryForecast forecast = ExpiryForecast.builder()
+            .expiryWritesPerSecond(100.0)
+            .stoppedAtDeadline(true)
+            .build();
+
+        final Map<String, Object> payload = ExpiryForecastPayloadMapper.toPayload(forecast);
+
+        assertEquals(0, payload.get(ExpiryForecastPayloadMapper.CONSENTS_KEY));
+        assertEquals(0, payload.get(ExpiryForecastPayloadMapper.PEAK_CONSENTS_PER_MINUTE_KEY));
+        assertEquals(0L, payload.get(ExpiryForecastPayloadMapper.ESTIMATED_RUN_MILLIS_KEY));
+        assertEquals(true, payload.get(ExpiryForecastPayloadMapper.STOPPED_EARLY_KEY));
+    }
+}
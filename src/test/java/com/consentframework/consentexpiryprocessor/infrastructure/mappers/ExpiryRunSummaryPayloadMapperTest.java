@@ -0,0 +1,55 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.mappers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.consentframework.consentexpiryprocessor.domain.entities.ExpiryHourSummary;
+import com.consentframework.consentexpiryprocessor.domain.entities.ExpiryRunSummary;
+import com.consentframework.consentexpiryprocessor.testcommon.constants.TestConstants;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+class ExpiryRunSummaryPayloadMapperTest {
+    @Test
+    void toPayload() {
+        final ExpiryRunSummary runSummary = ExpiryRunSummary.builder()
+            .putExpiryHours(TestConstants.TEST_EXPIRY_HOUR, ExpiryHourSummary.builder()
+                .numConsentsScanned(4)
+                .numConsentsExpired(2)
+                .numConsentsSkipped(1)
+                .numConsentsFailed(1)
+                .stoppedAtDeadline(false)
+                .build())
+            .putExpiryHours("2011-12-03T11:00Z", ExpiryHourSummary.SKIPPED_AT_DEADLINE)
+            .numThrottles(2)
+            .numRetries(1)
+            .elapsedTime(Duration.ofMillis(1500))
+            .build();
+
+        final Map<String, Object> payload = ExpiryRunSummaryPayloadMapper.toPayload(runSummary);
+
+        assertEquals(4, payload.get(ExpiryRunSummaryPayloadMapper.CONSENTS_SCANNED_KEY));
+        assertEquals(2, payload.get(ExpiryRunSummaryPayloadMapper.CONSENTS_EXPIRED_KEY));
+        assertEquals(1, payload.get(ExpiryRunSummaryPayloadMapper.CONSENTS_SKIPPED_KEY));
+        assertEquals(1, payload.get(ExpiryRunSummaryPayloadMapper.CONSENTS_FAILED_KEY));
+        assertEquals(2L, payload.get(ExpiryRunSummaryPayloadMapper.THROTTLES_KEY));
+        assertEquals(1L, payload.get(ExpiryRunSummaryPayloadMapper.RETRIES_KEY));
+        assertEquals(1500L, payload.get(ExpiryRunSummaryPayloadMapper.ELAPSED_MILLIS_KEY));
+        assertEquals(true, payload.get(ExpiryRunSummaryPayloadMapper.STOPPED_EARLY_KEY));
+        assertEquals(Map.of(
+            TestConstants.TEST_EXPIRY_HOUR, Map.of(
+                ExpiryRunSummaryPayloadMapper.SCANNED_KEY, 4,
+                ExpiryRunSummaryPayloadMapper.EXPIRED_KEY, 2,
+                ExpiryRunSummaryPayloadMapper.SKIPPED_KEY, 1,
+                ExpiryRunSummaryPayloadMapper.FAILED_KEY, 1,
+                ExpiryRunSummaryPayloadMapper.STOPPED_AT_DEADLINE_KEY, false),
+            "2011-12-03T11:00Z", Map.of(
+                ExpiryRunSummaryPayloadMapper.SCANNED_KEY, 0,
+                ExpiryRunSummaryPayloadMapper.EXPIRED_KEY, 0,
+                ExpiryRunSummaryPayloadMapper.SKIPPED_KEY, 0,
+                ExpiryRunSummaryPayloadMapper.FAILED_KEY, 0,
+                ExpiryRunSummaryPayloadMapper.STOPPED_AT_DEADLINE_KEY, true)),
+            payload.get(ExpiryRunSummaryPayloadMapper.EXPIRY_HOURS_KEY));
+    }
+}
@@ -0,0 +1,94 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.mappers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.consentframework.consentexpiryprocessor.domain.entities.ExpiryShardAssignment;
+import com.consentframework.consentexpiryprocessor.testcommon.constants.TestConstants;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class ExpiryShardAssignmentPayloadMapperTest {
+    @Test
+    void toExpiryShardAssignmentWhenNoPayload() {
+        assertEquals(ExpiryShardAssignment.ALL_EXPIRY_HOURS, ExpiryShardAssignmentPayloadMapper.toExpiryShardAssignment(null));
+        assertEquals(ExpiryShardAssignment.ALL_EXPIRY_HOURS, ExpiryShardAssignmentPayloadMapper.toExpiryShardAssignment(Map.of()));
+        assertTrue(ExpiryShardAssignment.ALL_EXPIRY_HOURS.includes(TestConstants.TEST_EXPIRY_HOUR));
+    }
+
+    @Test
+    void toExpiryShardAssignmentWhenExpiryHours() {
+        final ExpiryShardAssignment shardAssignment = ExpiryShardAssignmentPayloadMapper.toExpiryShardAssignment(Map.of(
+            ExpiryShardAssignmentPayloadMapper.EXPIRY_HOURS_KEY, List.of(TestConstants.TEST_EXPIRY_HOUR)));
+
+        assertEquals(List.of(TestConstants.TEST_EXPIRY_HOUR), shardAssignment.expiryHours());
+        assertTrue(shardAssignment.includes(TestConstants.TEST_EXPIRY_HOUR));
+        assertFalse(shardAssignment.includes("2011-12-03T11:00Z"));
+    }
+
+    @Test
+    void toExpiryShardAssignmentWhenHashRange() {
+        final ExpiryShardAssignment shardAssignment = ExpiryShardAssignmentPayloadMapper.toExpiryShardAssignment(Map.of(
+            ExpiryShardAssignmentPayloadMapper.SHARD_INDEX_KEY, 2L,
+            ExpiryShardAssignmentPayloadMapper.SHARD_COUNT_KEY, "4"));
+
+        assertEquals(2, shardAssignment.shardIndex());
+        assertEquals(4, shardAssignment.shardCount());
+        assertEquals(Math.floorMod(TestConstants.TEST_EXPIRY_HOUR.hashCode(), 4) == 2,
+            shardAssignment.includes(TestConstants.TEST_EXPIRY_HOUR));
+    }
+
+    @Test
+    void toExpiryShardAssignmentWhenInvalidExpiryHours() {
+        assertThrows(IllegalArgumentException.class, () -> ExpiryShardAssignmentPayloadMapper.toExpiryShardAssignment(Map.of(
+            ExpiryShardAssignmentPayloadMapper.EXPIRY_HOURS_KEY, TestConstants.TEST_EXPIRY_HOUR)));
+        assertThrows(IllegalArgumentException.class, () -> ExpiryShardAssignmentPayloadMapper.toExpiryShardAssignment(Map.of(
+            ExpiryShardAssignmentPayloadMapper.EXPIRY_HOURS_KEY, List.of(1))));
+    }
+
+    @Test
+    void toExpiryShardAssignmentWhenInvalidShard() {
+        assertThrows(IllegalArgumentException.class, () -> ExpiryShardAssignmentPayloadMapper.toExpiryShardAssignment(Map.of(
+            ExpiryShardAssignmentPayloadMapper.SHARD_INDEX_KEY, 4,
+            ExpiryShardAssignmentPayloadMapper.SHARD_COUNT_KEY, 4)));
+        assertThrows(IllegalArgumentException.class, () -> ExpiryShardAssignmentPayloadMapper.toExpiryShardAssignment(Map.of(
+            ExpiryShardAssignmentPayloadMapper.SHARD_COUNT_KEY, 0)));
+        assertThrows(IllegalArgumentException.class, () -> ExpiryShardAssignmentPayloadMapper.toExpiryShardAssignment(Map.of(
+            ExpiryShardAssignmentPayloadMapper.SHARD_COUNT_KEY, "many")));
+        assertThrows(IllegalArgumentException.class, () -> ExpiryShardAssignmentPayloadMapper.toExpiryShardAssignment(Map.of(
+            ExpiryShardAssignmentPayloadMapper.SHARD_COUNT_KEY, 1.5)));
+        assertThrows(IllegalArgumentException.class, () -> ExpiryShardAssignmentPayloadMapper.toExpiryShardAssignment(Map.of(
+            ExpiryShardAssignmentPayloadMapper.EXPIRY_HOURS_KEY, List.of(TestConstants.TEST_EXPIRY_HOUR),
+            ExpiryShardAssignmentPayloadMapper.SHARD_COUNT_KEY, 2)));
+    }
+
+    @Test
+    void toPayloadRoundTrips() {
+        final ExpiryShardAssignment expiryHoursShard = ExpiryShardAssignment.builder()
+            .addExpiryHours(TestConstants.TEST_EXPIRY_HOUR)
+            .build();
+        final ExpiryShardAssignment hashRangeShard = ExpiryShardAssignment.builder()
+            .shardIndex(1)
+            .shardCount(3)
+            .build();
+
+        for (final ExpiryShardAssignment shardAssignment : List.of(expiryHoursShard, hashRangeShard,
+                ExpiryShardAssignment.ALL_EXPIRY_HOURS)) {
+            assertEquals(shardAssignment, ExpiryShardAssignmentPayloadMapper.toExpiryShardAssignment(
+                new HashMap<>(ExpiryShardAssignmentPayloadMapper.toPayload(shardAssignment))));
+        }
+        assertEquals(Map.of(), ExpiryShardAssignmentPayloadMapper.toPayload(ExpiryShardAssignment.ALL_EXPIRY_HOURS));
+    }
+
+    @Test
+    void toShardCount() {
+        assertEquals(3, ExpiryShardAssignmentPayloadMapper.toShardCount(null, 3));
+        assertEquals(3, ExpiryShardAssignmentPayloadMapper.toShardCount(Map.of(), 3));
+        assertEquals(8, ExpiryShardAssignmentPayloadMapper.toShardCount(Map.of(ExpiryShardAssignmentPayloadMapper.SHARD_COUNT_KEY, 8), 3));
+    }
+}
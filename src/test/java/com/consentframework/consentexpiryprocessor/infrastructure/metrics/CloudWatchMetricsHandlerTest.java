@@ -1,16 +1,30 @@
 package com.consentframework.consentexpiryprocessor.infrastructure.metrics;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.consentframework.consentexpiryprocessor.testcommon.matchers.PutMetricDataRequestMatcher;
+import com.consentframework.consentexpiryprocessor.testcommon.utils.MutableClock;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
 import software.amazon.awssdk.services.cloudwatch.model.CloudWatchException;
+import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
 import software.amazon.awssdk.services.cloudwatch.model.PutMetricDataRequest;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
 
 class CloudWatchMetricsHandlerTest {
     @Test
@@ -47,4 +61,118 @@ class CloudWatchMetricsHandlerTest {
             metricValue.doubleValue()
         )));
     }
+
+    @Test
+    void testPublishLatencyMetric() {
+        final MetricsSink metricsSink = mock(MetricsSink.class);
+        final Instant currentTime = Instant.parse("2024-01-01T00:00:00Z");
+        final CloudWatchMetricsHandler metricsHandler = new CloudWatchMetricsHandler(metricsSink, Duration.ZERO,
+            new MutableClock(currentTime));
+
+        metricsHandler.publishLatencyMetric("TestLatencyMetricName", 12.5);
+
+        verify(metricsSink).publish(CloudWatchMetricsHandler.METRIC_NAMESPACE, List.of(MetricDatum.builder()
+            .metricName("TestLatencyMetricName")
+            .unit(StandardUnit.MILLISECONDS)
+            .timestamp(currentTime)
+            .value(12.5)
+            .build()));
+    }
+
+    @Test
+    void testPublishMetricBuffersUntilFlush() {
+        final CloudWatchClient cloudWatchClient = mock(CloudWatchClient.class);
+        final MutableClock clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+        final CloudWatchMetricsHandler metricsHandler = new CloudWatchMetricsHandler(
+            new PutMetricDataMetricsSink(cloudWatchClient), Duration.ofMinutes(1), clock);
+
+        metricsHandler.publishCountMetric("TestMetricName", 1);
+        metricsHandler.publishCountMetric("TestMetricName", 4);
+        metricsHandler.publishCountMetric("TestMetricName", 1);
+        metricsHandler.publishCountMetric("OtherMetricName", 2);
+        verify(cloudWatchClient, never()).putMetricData(any(PutMetricDataRequest.class));
+
+        metricsHandler.flush();
+
+        final ArgumentCaptor<PutMetricDataRequest> requestCaptor = ArgumentCaptor.forClass(PutMetricDataRequest.class);
+        verify(cloudWatchClient).putMetricData(requestCaptor.capture());
+        final PutMetricDataRequest request = requestCaptor.getValue();
+        assertEquals(CloudWatchMetricsHandler.METRIC_NAMESPACE, request.namespace());
+        assertEquals(2, request.metricData().size());
+
+        final MetricDatum aggregatedDatum = request.metricData().get(0);
+        assertEquals("TestMetricName", aggregatedDatum.metricName());
+        assertNull(aggregatedDatum.value());
+        assertEquals(List.of(1.0, 4.0), aggregatedDatum.values());
+        assertEquals(List.of(2.0, 1.0), aggregatedDatum.counts());
+        assertNull(aggregatedDatum.statisticValues());
+
+        final MetricDatum singleValueDatum = request.metricData().get(1);
+        assertEquals("OtherMetricName", singleValueDatum.metricName());
+        assertEquals(2.0, singleValueDatum.value());
+        assertFalse(singleValueDatum.hasValues());
+    }
+
+    @Test
+    void testPublishMetricFlushesAfterInterval() {
+        final CloudWatchClient cloudWatchClient = mock(CloudWatchClient.class);
+        final MutableClock clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+        final CloudWatchMetricsHandler metricsHandler = new CloudWatchMetricsHandler(
+            new PutMetricDataMetricsSink(cloudWatchClient), Duration.ofMinutes(1), clock);
+
+        metricsHandler.publishCountMetric("TestMetricName", 1);
+        clock.advance(Duration.ofSeconds(59));
+        metricsHandler.publishCountMetric("TestMetricName", 1);
+        verify(cloudWatchClient, never()).putMetricData(any(PutMetricDataRequest.class));
+
+        clock.advance(Duration.ofSeconds(1));
+        metricsHandler.publishCountMetric("TestMetricName", 1);
+        verify(cloudWatchClient, times(1)).putMetricData(any(PutMetricDataRequest.class));
+
+        metricsHandler.flush();
+        metricsHandler.flush();
+        verify(cloudWatchClient, times(1)).putMetricData(any(PutMetricDataRequest.class));
+    }
+
+    @Test
+    void testPublishMetricFlushesWhenBufferFull() {
+        final CloudWatchClient cloudWatchClient = mock(CloudWatchClient.class);
+        final MutableClock clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+        final CloudWatchMetricsHandler metricsHandler = new CloudWatchMetricsHandler(
+            new PutMetricDataMetricsSink(cloudWatchClient), Duration.ofMinutes(1), clock);
+
+        for (int i = 0; i < CloudWatchMetricsHandler.MAX_DATUMS_PER_REQUEST; i++) {
+            metricsHandler.publishCountMetric("TestMetricName" + i, i);
+        }
+
+        final ArgumentCaptor<PutMetricDataRequest> requestCaptor = ArgumentCaptor.forClass(PutMetricDataRequest.class);
+        verify(cloudWatchClient).putMetricData(requestCaptor.capture());
+        assertEquals(CloudWatchMetricsHandler.MAX_DATUMS_PER_REQUEST, requestCaptor.getValue().metricData().size());
+    }
+
+    @Test
+    void testPublishMetricFlushesWhenMetricHoldsMaxValues() {
+        final CloudWatchClient cloudWatchClient = mock(CloudWatchClient.class);
+        final MutableClock clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+        final CloudWatchMetricsHandler metricsHandler = new CloudWatchMetricsHandler(
+            new PutMetricDataMetricsSink(cloudWatchClient), Duration.ofMinutes(1), clock);
+
+        for (int i = 0; i < CloudWatchMetricsHandler.MAX_VALUES_PER_DATUM; i++) {
+            metricsHandler.publishLatencyMetric("TestLatencyMetricName", i);
+            metricsHandler.publishLatencyMetric("TestLatencyMetricName", i);
+        }
+
+        final ArgumentCaptor<PutMetricDataRequest> requestCaptor = ArgumentCaptor.forClass(PutMetricDataRequest.class);
+        verify(cloudWatchClient).putMetricData(requestCaptor.capture());
+        final MetricDatum metricDatum = requestCaptor.getValue().metricData().get(0);
+        assertEquals(CloudWatchMetricsHandler.MAX_VALUES_PER_DATUM, metricDatum.values().size());
+        assertEquals(CloudWatchMetricsHandler.MAX_VALUES_PER_DATUM * 2 - 1,
+            metricDatum.counts().stream().mapToDouble(Double::doubleValue).sum());
+    }
+
+    @Test
+    void testConstructorWhenNegativeFlushInterval() {
+        final CloudWatchClient cloudWatchClient = mock(CloudWatchClient.class);
+        assertThrows(IllegalArgumentException.class, () -> new CloudWatchMetricsHandler(cloudWatchClient, Duration.ofSeconds(-1)));
+    }
 }
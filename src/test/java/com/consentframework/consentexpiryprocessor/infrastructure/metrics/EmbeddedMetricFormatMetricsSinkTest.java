@@ -0,0 +1,137 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
+import software.amazon.awssdk.services.cloudwatch.model.StatisticSet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+class EmbeddedMetricFormatMetricsSinkTest {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final Instant TIMESTAMP = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Test
+    void publishWritesOneDocumentPerDatum() throws Exception {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final EmbeddedMetricFormatMetricsSink sink = new EmbeddedMetricFormatMetricsSink(
+            new PrintStream(output, true, StandardCharsets.UTF_8));
+
+        sink.publish(CloudWatchMetricsHandler.METRIC_NAMESPACE, List.of(
+            MetricDatum.builder().metricName("ExpiredConsent").unit(StandardUnit.COUNT).timestamp(TIMESTAMP).value(3.0).build(),
+            MetricDatum.builder().metricName("ConsentExpiryJobFailure").unit(StandardUnit.COUNT).timestamp(TIMESTAMP).value(0.0).build()
+        ));
+
+        final List<String> lines = output.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(2, lines.size());
+
+        final JsonNode document = OBJECT_MAPPER.readTree(lines.get(0));
+        final JsonNode metadata = document.get("_aws");
+        assertEquals(TIMESTAMP.toEpochMilli(), metadata.get("Timestamp").asLong());
+        final JsonNode metricDirective = metadata.get("CloudWatchMetrics").get(0);
+        assertEquals(CloudWatchMetricsHandler.METRIC_NAMESPACE, metricDirective.get("Namespace").asText());
+        assertEquals(1, metricDirective.get("Dimensions").size());
+        assertTrue(metricDirective.get("Dimensions").get(0).isEmpty());
+        final JsonNode metricDefinition = metricDirective.get("Metrics").get(0);
+        assertEquals("ExpiredConsent", metricDefinition.get("Name").asText());
+        assertEquals("Count", metricDefinition.get("Unit").asText());
+        assertEquals(3.0, document.get("ExpiredConsent").asDouble());
+
+        assertEquals(0.0, OBJECT_MAPPER.readTree(lines.get(1)).get("ConsentExpiryJobFailure").asDouble());
+    }
+
+    @Test
+    void publishWritesRecordedValuesAndCounts() throws Exception {
+        final List<JsonNode> documents = publishDatum(MetricDatum.builder()
+            .values(1.0, 3.0, 10.0)
+            .counts(1.0, 3.0, 1.0));
+
+        assertEquals(1, documents.size());
+        final JsonNode metricValue = documents.get(0).get("ExpiredConsent");
+        assertEquals(List.of(1.0, 3.0, 10.0), toDoubles(metricValue.get("Values")));
+        assertEquals(List.of(1.0, 3.0, 1.0), toDoubles(metricValue.get("Counts")));
+    }
+
+    @Test
+    void publishWritesOneSamplePerValueWhenNoCounts() throws Exception {
+        final List<JsonNode> documents = publishDatum(MetricDatum.builder().values(3.0, 4.0));
+
+        final JsonNode metricValue = documents.get(0).get("ExpiredConsent");
+        assertEquals(List.of(3.0, 4.0), toDoubles(metricValue.get("Values")));
+        assertEquals(List.of(1.0, 1.0), toDoubles(metricValue.get("Counts")));
+    }
+
+    @Test
+    void publishSplitsValuesAcrossDocuments() throws Exception {
+        final int valueCount = EmbeddedMetricFormatMetricsSink.MAX_VALUES_PER_DOCUMENT + 50;
+        final List<Double> values = IntStream.range(0, valueCount).mapToObj(value -> (double) value).toList();
+        final List<Double> counts = IntStream.range(0, valueCount).mapToObj(value -> 2.0).toList();
+
+        final List<JsonNode> documents = publishDatum(MetricDatum.builder().values(values).counts(counts));
+
+        assertEquals(2, documents.size());
+        final JsonNode firstValue = documents.get(0).get("ExpiredConsent");
+        assertEquals(values.subList(0, EmbeddedMetricFormatMetricsSink.MAX_VALUES_PER_DOCUMENT), toDoubles(firstValue.get("Values")));
+        assertEquals(counts.subList(0, EmbeddedMetricFormatMetricsSink.MAX_VALUES_PER_DOCUMENT), toDoubles(firstValue.get("Counts")));
+        final JsonNode secondValue = documents.get(1).get("ExpiredConsent");
+        assertEquals(values.subList(EmbeddedMetricFormatMetricsSink.MAX_VALUES_PER_DOCUMENT, valueCount),
+            toDoubles(secondValue.get("Values")));
+        assertEquals(TIMESTAMP.toEpochMilli(), documents.get(1).get("_aws").get("Timestamp").asLong());
+    }
+
+    @Test
+    void publishDropsStatisticSet() throws Exception {
+        final List<JsonNode> documents = publishDatum(MetricDatum.builder()
+            .statisticValues(StatisticSet.builder().sampleCount(5.0).sum(20.0).minimum(1.0).maximum(10.0).build()));
+
+        assertTrue(documents.isEmpty());
+    }
+
+    @Test
+    void handlerPublishesThroughEmbeddedMetricFormatWithoutCloudWatchClient() throws Exception {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final CloudWatchMetricsHandler metricsHandler = new CloudWatchMetricsHandler(
+            new EmbeddedMetricFormatMetricsSink(new PrintStream(output, true, StandardCharsets.UTF_8)), Duration.ZERO);
+
+        metricsHandler.publishCountMetric("ExpiredConsent", 5);
+
+        final JsonNode document = OBJECT_MAPPER.readTree(output.toString(StandardCharsets.UTF_8).trim());
+        assertEquals(5.0, document.get("ExpiredConsent").asDouble());
+    }
+
+    private static List<JsonNode> publishDatum(final MetricDatum.Builder metricDatum) throws Exception {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final EmbeddedMetricFormatMetricsSink sink = new EmbeddedMetricFormatMetricsSink(
+            new PrintStream(output, true, StandardCharsets.UTF_8));
+
+        sink.publish(CloudWatchMetricsHandler.METRIC_NAMESPACE, List.of(metricDatum
+            .metricName("ExpiredConsent")
+            .unit(StandardUnit.COUNT)
+            .timestamp(TIMESTAMP)
+            .build()));
+
+        final List<JsonNode> documents = new ArrayList<>();
+        for (final String line : output.toString(StandardCharsets.UTF_8).lines().toList()) {
+            documents.add(OBJECT_MAPPER.readTree(line));
+        }
+        return documents;
+    }
+
+    private static List<Double> toDoubles(final JsonNode arrayNode) {
+        final List<Double> doubles = new ArrayList<>();
+        arrayNode.forEach(element -> doubles.add(element.asDouble()));
+        return doubles;
+    }
+}
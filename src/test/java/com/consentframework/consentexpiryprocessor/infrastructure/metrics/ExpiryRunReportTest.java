@@ -0,0 +1,130 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+class ExpiryRunReportTest {
+    private final MetricsSink metricsSink = mock(MetricsSink.class);
+    private final CloudWatchMetricsHandler metricsHandler = new CloudWatchMetricsHandler(metricsSink, Duration.ofHours(1));
+
+    @Test
+    void buildSummary() {
+        final ExpiryRunReport report = new ExpiryRunReport(metricsHandler);
+        report.runStarted();
+        for (int latencyMillis = 1; latencyMillis <= 100; latencyMillis++) {
+            report.recordConsentUpdate(TimeUnit.MILLISECONDS.toNanos(latencyMillis));
+        }
+        report.recordPageQuery(TimeUnit.MILLISECONDS.toNanos(20));
+        report.recordThrottle();
+        report.recordThrottle();
+        report.recordRetry();
+        report.recordExpiryHour("2011-12-03T11:00Z", 4, 3);
+        report.recordExpiryHour("2011-12-03T10:00Z", 96, 96);
+        report.recordExpiryHour("2011-12-03T12:00Z", 0, 0);
+
+        final ObjectNode summary = report.buildSummary(TimeUnit.SECONDS.toNanos(2));
+
+        assertEquals(2000, summary.get("wallTimeMillis").asLong());
+        assertEquals(1, summary.get("pageQueries").get("count").asLong());
+        assertEquals(20.0, summary.get("pageQueries").get("p99Millis").asDouble(), 0.02);
+        assertEquals(100, summary.get("consentUpdates").get("count").asLong());
+        assertEquals(50.0, summary.get("consentUpdates").get("p50Millis").asDouble(), 0.05);
+        assertEquals(99.0, summary.get("consentUpdates").get("p99Millis").asDouble(), 0.1);
+        assertEquals(100.0, summary.get("consentUpdates").get("maxMillis").asDouble(), 0.1);
+        assertEquals(2, summary.get("throttles").asLong());
+        assertEquals(1, summary.get("retries").asLong());
+        assertEquals(2, report.numThrottles());
+        assertEquals(1, report.numRetries());
+        assertEquals(List.of("2011-12-03T10:00Z", "2011-12-03T11:00Z"), fieldNames(summary.get("expiryHours")));
+        assertEquals(4, summary.get("expiryHours").get("2011-12-03T11:00Z").get("scanned").asLong());
+        assertEquals(3, summary.get("expiryHours").get("2011-12-03T11:00Z").get("expired").asLong());
+        assertEquals(100, summary.get("consentsScanned").asLong());
+        assertEquals(99, summary.get("consentsExpired").asLong());
+    }
+
+    @Test
+    void runStartedResetsRecordedValues() {
+        final ExpiryRunReport report = new ExpiryRunReport(metricsHandler);
+        report.recordPageQuery(TimeUnit.MILLISECONDS.toNanos(20));
+        report.recordConsentUpdate(TimeUnit.MILLISECONDS.toNanos(5));
+        report.recordThrottle();
+        report.recordRetry();
+        report.recordExpiryHour("2011-12-03T10:00Z", 1, 1);
+
+        report.runStarted();
+        final ObjectNode summary = report.buildSummary(0);
+
+        assertEquals(0, summary.get("pageQueries").get("count").asLong());
+        assertFalse(summary.get("pageQueries").has("p50Millis"));
+        assertEquals(0, summary.get("consentUpdates").get("count").asLong());
+        assertEquals(0, summary.get("throttles").asLong());
+        assertEquals(0, summary.get("retries").asLong());
+        assertEquals(0, report.numThrottles());
+        assertTrue(summary.get("expiryHours").isEmpty());
+    }
+
+    @Test
+    void runFinishedPublishesLatencyPercentiles() {
+        final ExpiryRunReport report = new ExpiryRunReport(metricsHandler);
+        report.runStarted();
+        report.recordPageQuery(TimeUnit.MILLISECONDS.toNanos(20));
+        report.recordConsentUpdate(TimeUnit.MILLISECONDS.toNanos(5));
+
+        report.runFinished();
+        metricsHandler.flush();
+
+        final Map<String, MetricDatum> metricData = captureMetricData();
+        assertEquals(Set.of(
+            ExpiryRunReport.RUN_WALL_TIME_METRIC_NAME,
+            ExpiryRunReport.PAGE_QUERY_LATENCY_P50_METRIC_NAME,
+            ExpiryRunReport.PAGE_QUERY_LATENCY_P99_METRIC_NAME,
+            ExpiryRunReport.CONSENT_UPDATE_LATENCY_P50_METRIC_NAME,
+            ExpiryRunReport.CONSENT_UPDATE_LATENCY_P99_METRIC_NAME), metricData.keySet());
+        metricData.values().forEach(metricDatum -> assertEquals(StandardUnit.MILLISECONDS, metricDatum.unit()));
+        assertEquals(5.0, metricData.get(ExpiryRunReport.CONSENT_UPDATE_LATENCY_P99_METRIC_NAME).value(), 0.01);
+    }
+
+    @Test
+    void runFinishedWhenNothingRecorded() {
+        final ExpiryRunReport report = new ExpiryRunReport(metricsHandler);
+        report.runStarted();
+
+        report.runFinished();
+        metricsHandler.flush();
+
+        assertEquals(Set.of(ExpiryRunReport.RUN_WALL_TIME_METRIC_NAME), captureMetricData().keySet());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, MetricDatum> captureMetricData() {
+        final ArgumentCaptor<List<MetricDatum>> metricDataCaptor = ArgumentCaptor.forClass(List.class);
+        verify(metricsSink).publish(eq(CloudWatchMetricsHandler.METRIC_NAMESPACE), metricDataCaptor.capture());
+        return metricDataCaptor.getValue().stream()
+            .collect(Collectors.toMap(MetricDatum::metricName, metricDatum -> metricDatum));
+    }
+
+    private static List<String> fieldNames(final JsonNode node) {
+        final List<String> fieldNames = new ArrayList<>();
+        node.fieldNames().forEachRemaining(fieldNames::add);
+        return fieldNames;
+    }
+}
@@ -0,0 +1,62 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
+import software.amazon.awssdk.services.cloudwatch.model.CloudWatchException;
+import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
+import software.amazon.awssdk.services.cloudwatch.model.PutMetricDataRequest;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+class PutMetricDataMetricsSinkTest {
+    private static final String NAMESPACE = "TestNamespace";
+
+    @Test
+    void publishWhenNoMetricData() {
+        final CloudWatchClient cloudWatchClient = mock(CloudWatchClient.class);
+        new PutMetricDataMetricsSink(cloudWatchClient).publish(NAMESPACE, List.of());
+
+        verify(cloudWatchClient, never()).putMetricData(any(PutMetricDataRequest.class));
+    }
+
+    @Test
+    void publishSplitsRequestsAtDatumLimit() {
+        final CloudWatchClient cloudWatchClient = mock(CloudWatchClient.class);
+        final List<MetricDatum> metricData = IntStream.range(0, PutMetricDataMetricsSink.MAX_DATUMS_PER_REQUEST + 1)
+            .mapToObj(i -> MetricDatum.builder().metricName("TestMetricName" + i).value(1.0).build())
+            .toList();
+
+        new PutMetricDataMetricsSink(cloudWatchClient).publish(NAMESPACE, metricData);
+
+        final ArgumentCaptor<PutMetricDataRequest> requestCaptor = ArgumentCaptor.forClass(PutMetricDataRequest.class);
+        verify(cloudWatchClient, times(2)).putMetricData(requestCaptor.capture());
+        final List<PutMetricDataRequest> requests = requestCaptor.getAllValues();
+        assertEquals(NAMESPACE, requests.get(0).namespace());
+        assertEquals(PutMetricDataMetricsSink.MAX_DATUMS_PER_REQUEST, requests.get(0).metricData().size());
+        assertEquals(List.of(metricData.getLast()), requests.get(1).metricData());
+    }
+
+    @Test
+    void publishContinuesAfterCloudWatchError() {
+        final CloudWatchClient cloudWatchClient = mock(CloudWatchClient.class);
+        when(cloudWatchClient.putMetricData(any(PutMetricDataRequest.class)))
+            .thenThrow(CloudWatchException.builder().message("Test CloudWatch error").build());
+        final List<MetricDatum> metricData = IntStream.range(0, PutMetricDataMetricsSink.MAX_DATUMS_PER_REQUEST + 1)
+            .mapToObj(i -> MetricDatum.builder().metricName("TestMetricName" + i).value(1.0).build())
+            .toList();
+
+        new PutMetricDataMetricsSink(cloudWatchClient).publish(NAMESPACE, metricData);
+
+        verify(cloudWatchClient, times(2)).putMetricData(any(PutMetricDataRequest.class));
+    }
+}
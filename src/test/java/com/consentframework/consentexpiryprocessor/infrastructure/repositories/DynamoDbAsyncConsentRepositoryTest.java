@@ -0,0 +1,480 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.longThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.consentframework.consentexpiryprocessor.domain.constants.ActiveConsentWithExpiryTimeAttributeName;
+import com.consentframework.consentexpiryprocessor.domain.constants.ConsentExpiryStatus;
+import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
+import com.consentframework.consentexpiryprocessor.domain.entities.ConsentExpiryResult;
+import com.consentframework.consentexpiryprocessor.domain.entities.ExpiryTimeCutoff;
+import com.consentframework.consentexpiryprocessor.domain.metrics.ExpiryRunRecorder;
+import com.consentframework.consentexpiryprocessor.domain.repositories.ConsentPageCursor;
+import com.consentframework.consentexpiryprocessor.domain.repositories.ConsentRepository;
+import com.consentframework.consentexpiryprocessor.infrastructure.mappers.DynamoDbActiveConsentTableSchema;
+import com.consentframework.consentexpiryprocessor.infrastructure.mappers.DynamoDbExpiryHourTokenMapper;
+import com.consentframework.consentexpiryprocessor.infrastructure.metrics.CloudWatchMetricsHandler;
+import com.consentframework.consentexpiryprocessor.infrastructure.throttling.AdaptiveRateLimiter;
+import com.consentframework.consentexpiryprocessor.infrastructure.throttling.ThrottlingRetryPolicy;
+import com.consentframework.consentexpiryprocessor.testcommon.constants.TestConstants;
+import com.consentframework.consentexpiryprocessor.testcommon.matchers.PutMetricDataRequestMatcher;
+import com.consentframework.consentexpiryprocessor.testcommon.utils.IterablePublisher;
+import com.consentframework.shared.api.domain.pagination.ListPage;
+import com.consentframework.shared.api.infrastructure.entities.DynamoDbActiveConsentWithExpiryTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.async.SdkPublisher;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncIndex;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.Expression;
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest;
+import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
+import software.amazon.awssdk.services.cloudwatch.model.PutMetricDataRequest;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+class DynamoDbAsyncConsentRepositoryTest {
+    private static final long RATE_LIMITER_WAIT_MILLIS = 20;
+    private static final List<DynamoDbActiveConsentWithExpiryTime> ACTIVE_CONSENTS_WITH_EXPIRY = List.of(
+        DynamoDbActiveConsentWithExpiryTime.builder()
+            .id(TestConstants.TEST_PARTITION_KEY)
+            .consentVersion(1)
+            .expiryHour(TestConstants.TEST_EXPIRY_HOUR)
+            .expiryTimeId(TestConstants.TEST_EXPIRY_TIME_ID)
+            .build(),
+        DynamoDbActiveConsentWithExpiryTime.builder()
+            .id(TestConstants.TEST_PARTITION_KEY_2)
+            .consentVersion(3)
+            .expiryHour(TestConstants.TEST_EXPIRY_HOUR)
+            .expiryTimeId(TestConstants.TEST_EXPIRY_TIME_ID)
+            .build()
+    );
+    private static final Map<String, AttributeValue> NEXT_TOKEN_ATTRIBUTE_VALUE_MAP = Map.of(
+        ActiveConsentWithExpiryTimeAttributeName.ID.getValue(),
+        AttributeValue.builder().s(TestConstants.TEST_PARTITION_KEY_2).build(),
+        ActiveConsentWithExpiryTimeAttributeName.EXPIRY_HOUR.getValue(),
+        AttributeValue.builder().s(TestConstants.TEST_EXPIRY_HOUR).build()
+    );
+
+    private CloudWatchClient cloudWatchClient;
+    private CloudWatchMetricsHandler metricsHandler;
+    private DynamoDbAsyncClient ddbClient;
+    private DynamoDbAsyncTable<DynamoDbActiveConsentWithExpiryTime> consentTable;
+
+    @SuppressWarnings("unchecked")
+    @BeforeEach
+    void setup() {
+        cloudWatchClient = mock(CloudWatchClient.class);
+        metricsHandler = new CloudWatchMetricsHandler(cloudWatchClient);
+        ddbClient = mock(DynamoDbAsyncClient.class);
+        consentTable = (DynamoDbAsyncTable<DynamoDbActiveConsentWithExpiryTime>) mock(DynamoDbAsyncTable.class);
+    }
+
+    @Test
+    void getActiveConsentsWithExpiryHourWhenNullQueryResults() {
+        mockIndexQueryResults(null);
+
+        final ConsentRepository repository = new DynamoDbAsyncConsentRepository(ddbClient, consentTable, metricsHandler,
+            DynamoDbConsentRepositorySettings.builder().maxConcurrentWrites(4).build());
+        assertNull(repository.getActiveConsentsWithExpiryHour(TestConstants.TEST_EXPIRY_HOUR, Optional.empty()));
+    }
+
+    @Test
+    void getActiveConsentsWithExpiryHourWhenNoPages() {
+        mockIndexQueryResults(new IterablePublisher<>(List.of()));
+
+        final ConsentRepository repository = new DynamoDbAsyncConsentRepository(ddbClient, consentTable, metricsHandler,
+            DynamoDbConsentRepositorySettings.builder().maxConcurrentWrites(4).build());
+        assertNull(repository.getActiveConsentsWithExpiryHour(TestConstants.TEST_EXPIRY_HOUR, Optional.empty()));
+    }
+
+    @Test
+    void getActiveConsentsWithExpiryHourAsyncOnlyReadsFirstPage() {
+        final Page<DynamoDbActiveConsentWithExpiryTime> page1 = Page.builder(DynamoDbActiveConsentWithExpiryTime.class)
+            .items(ACTIVE_CONSENTS_WITH_EXPIRY)
+            .lastEvaluatedKey(NEXT_TOKEN_ATTRIBUTE_VALUE_MAP)
+            .build();
+        final Page<DynamoDbActiveConsentWithExpiryTime> page2 = Page.builder(DynamoDbActiveConsentWithExpiryTime.class)
+            .items(List.of(ACTIVE_CONSENTS_WITH_EXPIRY.get(0)))
+            .build();
+        final IterablePublisher<Page<DynamoDbActiveConsentWithExpiryTime>> queryResults = new IterablePublisher<>(List.of(page1, page2));
+        mockIndexQueryResults(queryResults);
+
+        final ConsentRepository repository = new DynamoDbAsyncConsentRepository(ddbClient, consentTable, metricsHandler,
+            DynamoDbConsentRepositorySettings.builder().maxConcurrentWrites(4).build());
+        final ListPage<ActiveConsentWithExpiryTime> consentsPage = repository
+            .getActiveConsentsWithExpiryHourAsync(TestConstants.TEST_EXPIRY_HOUR, Optional.empty())
+            .join();
+
+        assertNotNull(consentsPage);
+        assertEquals(ACTIVE_CONSENTS_WITH_EXPIRY.size(), consentsPage.resultsOnPage().size());
+        assertEquals(TestConstants.TEST_PARTITION_KEY_2, consentsPage.resultsOnPage().get(1).id());
+        assertEquals(3, consentsPage.resultsOnPage().get(1).consentVersion());
+        assertTrue(consentsPage.nextPageToken().isPresent());
+        assertEquals(1, queryResults.numItemsEmitted());
+    }
+
+    @Test
+    void expireConsent() {
+        when(ddbClient.updateItem(any(UpdateItemRequest.class)))
+            .thenReturn(CompletableFuture.completedFuture(UpdateItemResponse.builder().build()));
+        final ConsentRepository repository = new DynamoDbAsyncConsentRepository(ddbClient, consentTable, metricsHandler,
+            DynamoDbConsentRepositorySettings.builder().maxConcurrentWrites(4).build());
+
+        assertEquals(ConsentExpiryStatus.SUCCESS, repository.expireConsent(TestConstants.TEST_PARTITION_KEY, "2"));
+
+        verify(ddbClient).updateItem(any(UpdateItemRequest.class));
+        verify(cloudWatchClient).putMetricData(argThat(new PutMetricDataRequestMatcher(
+            CloudWatchMetricsHandler.METRIC_NAMESPACE,
+            DynamoDbConsentRepository.EXPIRED_CONSENT_METRIC_NAME,
+            1.0
+        )));
+    }
+
+    @Test
+    void expireConsentWhenConditionFails() {
+        final ConditionalCheckFailedException testException = ConditionalCheckFailedException.builder()
+            .message("Test condition failure")
+            .build();
+        when(ddbClient.updateItem(any(UpdateItemRequest.class))).thenReturn(CompletableFuture.failedFuture(testException));
+        final ConsentRepository repository = new DynamoDbAsyncConsentRepository(ddbClient, consentTable, metricsHandler,
+            DynamoDbConsentRepositorySettings.builder().maxConcurrentWrites(4).build());
+
+        assertEquals(ConsentExpiryStatus.CONDITION_FAILED, repository.expireConsent(TestConstants.TEST_PARTITION_KEY, "2"));
+
+        verify(ddbClient).updateItem(any(UpdateItemRequest.class));
+        verify(cloudWatchClient, never()).putMetricData(any(PutMetricDataRequest.class));
+    }
+
+    @Test
+    void expireConsentWhenAccessDenied() {
+        final DynamoDbException testException = (DynamoDbException) DynamoDbException.builder()
+            .message("Test error message")
+            .statusCode(403)
+            .build();
+        when(ddbClient.updateItem(any(UpdateItemRequest.class))).thenReturn(CompletableFuture.failedFuture(testException));
+        final ConsentRepository repository = new DynamoDbAsyncConsentRepository(ddbClient, consentTable, metricsHandler,
+            DynamoDbConsentRepositorySettings.builder().maxConcurrentWrites(4).build());
+
+        final DynamoDbException thrownException = assertThrows(DynamoDbException.class,
+            () -> repository.expireConsent(TestConstants.TEST_PARTITION_KEY, "2"));
+        assertEquals(testException, thrownException);
+        verify(cloudWatchClient, never()).putMetricData(any(PutMetricDataRequest.class));
+    }
+
+    @Test
+    void expireConsentsWhenEmpty() {
+        final ConsentRepository repository = new DynamoDbAsyncConsentRepository(ddbClient, consentTable, metricsHandler,
+            DynamoDbConsentRepositorySettings.builder().maxConcurrentWrites(4).build());
+
+        assertTrue(repository.expireConsents(List.of()).isEmpty());
+        verify(ddbClient, never()).updateItem(any(UpdateItemRequest.class));
+    }
+
+    @Test
+    void expireConsentsWhenMixedResults() {
+        when(ddbClient.updateItem(any(UpdateItemRequest.class)))
+            .thenReturn(CompletableFuture.completedFuture(UpdateItemResponse.builder().build()))
+            .thenReturn(CompletableFuture.failedFuture(ConditionalCheckFailedException.builder().build()))
+            .thenReturn(CompletableFuture.failedFuture(ProvisionedThroughputExceededException.builder().build()));
+        final List<ActiveConsentWithExpiryTime> consents = List.of(
+            buildConsent(TestConstants.TEST_PARTITION_KEY),
+            buildConsent(TestConstants.TEST_PARTITION_KEY_2),
+            buildConsent(TestConstants.TEST_PARTITION_KEY_3)
+        );
+        final ConsentRepository repository = new DynamoDbAsyncConsentRepository(ddbClient, consentTable, metricsHandler,
+            DynamoDbConsentRepositorySettings.builder().maxConcurrentWrites(1).build());
+
+        final List<ConsentExpiryResult> results = repository.expireConsents(consents);
+
+        assertEquals(List.of(ConsentExpiryStatus.SUCCESS, ConsentExpiryStatus.CONDITION_FAILED, ConsentExpiryStatus.THROTTLED),
+            results.stream().map(ConsentExpiryResult::status).toList());
+        assertEquals(List.of(TestConstants.TEST_PARTITION_KEY, TestConstants.TEST_PARTITION_KEY_2, TestConstants.TEST_PARTITION_KEY_3),
+            results.stream().map(ConsentExpiryResult::id).toList());
+        // The throttled consent is retried until its attempts are exhausted
+        verify(ddbClient, times(consents.size() - 1 + ThrottlingRetryPolicy.DEFAULT.maxAttempts()))
+            .updateItem(any(UpdateItemRequest.class));
+        verify(cloudWatchClient).putMetricData(argThat(new PutMetricDataRequestMatcher(
+            CloudWatchMetricsHandler.METRIC_NAMESPACE,
+            DynamoDbConsentRepository.EXPIRED_CONSENT_METRIC_NAME,
+            1.0
+        )));
+    }
+
+    @Test
+    void expireConsentsWhenUnexpectedError() {
+        final DynamoDbException testException = (DynamoDbException) DynamoDbException.builder()
+            .message("Test error message")
+            .statusCode(500)
+            .build();
+        when(ddbClient.updateItem(any(UpdateItemRequest.class))).thenReturn(CompletableFuture.failedFuture(testException));
+        final ConsentRepository repository = new DynamoDbAsyncConsentRepository(ddbClient, consentTable, metricsHandler,
+            DynamoDbConsentRepositorySettings.builder().maxConcurrentWrites(4).build());
+
+        final List<ConsentExpiryResult> results = repository.expireConsents(List.of(buildConsent(TestConstants.TEST_PARTITION_KEY)));
+
+        assertEquals(ConsentExpiryStatus.FAILED, results.get(0).status());
+        verify(cloudWatchClient, never()).putMetricData(any(PutMetricDataRequest.class));
+    }
+
+    @Test
+    void expireConsentsWhenClientError() {
+        final SdkClientException testException = SdkClientException.create("Test timeout", new IOException("Read timed out"));
+        when(ddbClient.updateItem(any(UpdateItemRequest.class))).thenReturn(CompletableFuture.failedFuture(testException));
+        final ConsentRepository repository = new DynamoDbAsyncConsentRepository(ddbClient, consentTable, metricsHandler,
+            DynamoDbConsentRepositorySettings.builder().maxConcurrentWrites(4).build());
+
+        final List<ConsentExpiryResult> results = repository.expireConsents(List.of(buildConsent(TestConstants.TEST_PARTITION_KEY)));
+
+        assertEquals(ConsentExpiryStatus.FAILED, results.get(0).status());
+        verify(cloudWatchClient, never()).putMetricData(any(PutMetricDataRequest.class));
+    }
+
+    @Test
+    void expireConsentsWhenAccessDenied() {
+        final DynamoDbException testException = (DynamoDbException) DynamoDbException.builder()
+            .message("Test error message")
+            .statusCode(403)
+            .build();
+        when(ddbClient.updateItem(any(UpdateItemRequest.class))).thenReturn(CompletableFuture.failedFuture(testException));
+        final ConsentRepository repository = new DynamoDbAsyncConsentRepository(ddbClient, consentTable, metricsHandler,
+            DynamoDbConsentRepositorySettings.builder().maxConcurrentWrites(4).build());
+
+        final List<ActiveConsentWithExpiryTime> consents = List.of(buildConsent(TestConstants.TEST_PARTITION_KEY));
+        final DynamoDbException thrownException = assertThrows(DynamoDbException.class, () -> repository.expireConsents(consents));
+        assertEquals(testException, thrownException);
+    }
+
+    @Test
+    void expireConsentsWhenThrottledThenAccepted() {
+        when(ddbClient.updateItem(any(UpdateItemRequest.class)))
+            .thenReturn(CompletableFuture.failedFuture(ProvisionedThroughputExceededException.builder().message("Test throttle").build()))
+            .thenReturn(CompletableFuture.completedFuture(UpdateItemResponse.builder().build()));
+        final AdaptiveRateLimiter writeRateLimiter = new AdaptiveRateLimiter(100);
+        final ConsentRepository repository = new DynamoDbAsyncConsentRepository(ddbClient, consentTable, metricsHandler,
+            DynamoDbConsentRepositorySettings.builder()
+                .maxConcurrentWrites(4)
+                .writeRateLimiter(writeRateLimiter)
+                .retryPolicy(new ThrottlingRetryPolicy(2, Duration.ZERO, Duration.ZERO))
+                .build());
+
+        final List<ConsentExpiryResult> results = repository.expireConsents(List.of(buildConsent(TestConstants.TEST_PARTITION_KEY)));
+
+        assertEquals(ConsentExpiryStatus.SUCCESS, results.get(0).status());
+        verify(ddbClient, times(2)).updateItem(any(UpdateItemRequest.class));
+        assertTrue(writeRateLimiter.currentPermitsPerSecond() < 100);
+    }
+
+    @Test
+    void runRecorderReceivesQueryAndUpdateLatenciesWithThrottlesAndRetries() {
+        mockIndexQueryResults(new IterablePublisher<>(List.of(Page.builder(DynamoDbActiveConsentWithExpiryTime.class)
+            .items(ACTIVE_CONSENTS_WITH_EXPIRY)
+            .build())));
+        when(ddbClient.updateItem(any(UpdateItemRequest.class)))
+            .thenReturn(CompletableFuture.failedFuture(ProvisionedThroughputExceededException.builder().message("Test throttle").build()))
+            .thenReturn(CompletableFuture.completedFuture(UpdateItemResponse.builder().build()));
+        final ExpiryRunRecorder runRecorder = mock(ExpiryRunRecorder.class);
+        final ConsentRepository repository = new DynamoDbAsyncConsentRepository(ddbClient, consentTable, metricsHandler,
+            DynamoDbConsentRepositorySettings.builder()
+                .maxConcurrentWrites(4)
+                .writeRateLimiter(new AdaptiveRateLimiter(100))
+                .retryPolicy(new ThrottlingRetryPolicy(2, Duration.ZERO, Duration.ZERO))
+                .runRecorder(runRecorder)
+                .build());
+
+        repository.getActiveConsentsWithExpiryHour(TestConstants.TEST_EXPIRY_HOUR, Optional.empty());
+        repository.expireConsents(List.of(buildConsent(TestConstants.TEST_PARTITION_KEY)));
+
+        verify(runRecorder).recordPageQuery(anyLong());
+        verify(runRecorder).recordConsentUpdate(anyLong());
+        verify(runRecorder).recordThrottle();
+        verify(runRecorder).recordRetry();
+    }
+
+    @Test
+    void recordedUpdateLatencyIncludesRateLimiterWait() {
+        when(ddbClient.updateItem(any(UpdateItemRequest.class)))
+            .thenReturn(CompletableFuture.completedFuture(UpdateItemResponse.builder().build()));
+        final AdaptiveRateLimiter writeRateLimiter = mock(AdaptiveRateLimiter.class);
+        doAnswer(invocation -> {
+            TimeUnit.MILLISECONDS.sleep(RATE_LIMITER_WAIT_MILLIS);
+            return null;
+        }).when(writeRateLimiter).acquire();
+        final ExpiryRunRecorder runRecorder = mock(ExpiryRunRecorder.class);
+        final ConsentRepository repository = new DynamoDbAsyncConsentRepository(ddbClient, consentTable, metricsHandler,
+            DynamoDbConsentRepositorySettings.builder()
+                .maxConcurrentWrites(4)
+                .writeRateLimiter(writeRateLimiter)
+                .runRecorder(runRecorder)
+                .build());
+
+        repository.expireConsent(TestConstants.TEST_PARTITION_KEY, "2");
+        repository.expireConsents(List.of(buildConsent(TestConstants.TEST_PARTITION_KEY)));
+
+        verify(runRecorder, times(2)).recordConsentUpdate(
+            longThat(updateNanos -> updateNanos >= TimeUnit.MILLISECONDS.toNanos(RATE_LIMITER_WAIT_MILLIS)));
+    }
+
+    @Test
+    void expireConsentWhenThrottledUntilRetriesExhausted() {
+        when(ddbClient.updateItem(any(UpdateItemRequest.class))).thenReturn(CompletableFuture.failedFuture(
+            ProvisionedThroughputExceededException.builder().message("Test throttle").build()));
+        final ConsentRepository repository = new DynamoDbAsyncConsentRepository(ddbClient, consentTable, metricsHandler,
+            DynamoDbConsentRepositorySettings.builder()
+                .maxConcurrentWrites(4)
+                .writeRateLimiter(new AdaptiveRateLimiter(100))
+                .retryPolicy(new ThrottlingRetryPolicy(3, Duration.ZERO, Duration.ZERO))
+                .build());
+
+        assertEquals(ConsentExpiryStatus.THROTTLED, repository.expireConsent(TestConstants.TEST_PARTITION_KEY, "2"));
+        verify(ddbClient, times(3)).updateItem(any(UpdateItemRequest.class));
+        verify(cloudWatchClient, never()).putMetricData(any(PutMetricDataRequest.class));
+    }
+
+    @Test
+    void getActiveConsentsWithExpiryHourProjectsExpiryAttributesWithPageSize() {
+        mockIndexQueryResults(new IterablePublisher<>(List.of()));
+        final ConsentRepository repository = new DynamoDbAsyncConsentRepository(ddbClient, consentTable, metricsHandler,
+            DynamoDbConsentRepositorySettings.builder()
+                .maxConcurrentWrites(4)
+                .writeRateLimiter(new AdaptiveRateLimiter(100))
+                .queryPageSize(25)
+                .build());
+
+        repository.getActiveConsentsWithExpiryHour(TestConstants.TEST_EXPIRY_HOUR, Optional.empty());
+
+        verify(consentTable.index(DynamoDbActiveConsentWithExpiryTime.ACTIVE_CONSENTS_BY_EXPIRY_HOUR_GSI_NAME))
+            .query(argThat((QueryEnhancedRequest request) -> request.limit() == 25
+                && List.of("id", "consentVersion", "expiryHour", "expiryTimeId").equals(request.attributesToProject())));
+    }
+
+    @Test
+    void getActiveConsentsWithExpiryHourWhenExpiredBeforeCutoff() {
+        mockIndexQueryResults(new IterablePublisher<>(List.of()));
+        final ConsentRepository repository = new DynamoDbAsyncConsentRepository(ddbClient, consentTable, metricsHandler,
+            DynamoDbConsentRepositorySettings.builder().maxConcurrentWrites(4).build());
+
+        repository.getActiveConsentsWithExpiryHour(TestConstants.TEST_EXPIRY_HOUR, Optional.empty(),
+            OffsetDateTime.parse("2011-12-03T10:15:12.700Z"));
+
+        verify(consentTable.index(DynamoDbActiveConsentWithExpiryTime.ACTIVE_CONSENTS_BY_EXPIRY_HOUR_GSI_NAME))
+            .query(argThat((QueryEnhancedRequest request) -> {
+                final Expression keyCondition = request.queryConditional().expression(DynamoDbActiveConsentTableSchema.TABLE_SCHEMA,
+                    DynamoDbActiveConsentWithExpiryTime.ACTIVE_CONSENTS_BY_EXPIRY_HOUR_GSI_NAME);
+                return keyCondition.expression().contains(" < ")
+                    && keyCondition.expressionValues().containsValue(AttributeValue.builder().s("2011-12-03T10:15:12Z|").build())
+                    && keyCondition.expressionValues().containsValue(AttributeValue.builder().s(TestConstants.TEST_EXPIRY_HOUR).build());
+            }));
+    }
+
+    @Test
+    void getActiveConsentsWithExpiryHourWhenNoCutoff() {
+        mockIndexQueryResults(new IterablePublisher<>(List.of()));
+        final ConsentRepository repository = new DynamoDbAsyncConsentRepository(ddbClient, consentTable, metricsHandler,
+            DynamoDbConsentRepositorySettings.builder().maxConcurrentWrites(4).build());
+
+        repository.getActiveConsentsWithExpiryHour(TestConstants.TEST_EXPIRY_HOUR, Optional.empty());
+
+        verify(consentTable.index(DynamoDbActiveConsentWithExpiryTime.ACTIVE_CONSENTS_BY_EXPIRY_HOUR_GSI_NAME))
+            .query(argThat((QueryEnhancedRequest request) -> !request.queryConditional()
+                .expression(DynamoDbActiveConsentTableSchema.TABLE_SCHEMA,
+                    DynamoDbActiveConsentWithExpiryTime.ACTIVE_CONSENTS_BY_EXPIRY_HOUR_GSI_NAME)
+                .expression()
+                .contains(" < ")));
+    }
+
+    @Test
+    void openExpiredConsentPagesStartsEachQueryFromLastEvaluatedKey() {
+        final Page<DynamoDbActiveConsentWithExpiryTime> page1 = Page.builder(DynamoDbActiveConsentWithExpiryTime.class)
+            .items(List.of(ACTIVE_CONSENTS_WITH_EXPIRY.get(0)))
+            .lastEvaluatedKey(NEXT_TOKEN_ATTRIBUTE_VALUE_MAP)
+            .build();
+        final Page<DynamoDbActiveConsentWithExpiryTime> page2 = Page.builder(DynamoDbActiveConsentWithExpiryTime.class)
+            .items(List.of(ACTIVE_CONSENTS_WITH_EXPIRY.get(1)))
+            .build();
+        @SuppressWarnings("unchecked")
+        final DynamoDbAsyncIndex<DynamoDbActiveConsentWithExpiryTime> index = mock(DynamoDbAsyncIndex.class);
+        when(index.query(any(QueryEnhancedRequest.class)))
+            .thenReturn(new IterablePublisher<>(List.of(page1)), new IterablePublisher<>(List.of(page2)));
+        when(consentTable.index(DynamoDbActiveConsentWithExpiryTime.ACTIVE_CONSENTS_BY_EXPIRY_HOUR_GSI_NAME)).thenReturn(index);
+        final ConsentRepository repository = new DynamoDbAsyncConsentRepository(ddbClient, consentTable, metricsHandler,
+            DynamoDbConsentRepositorySettings.builder().maxConcurrentWrites(4).build());
+
+        final ConsentPageCursor cursor = repository.openExpiredConsentPages(TestConstants.TEST_EXPIRY_HOUR, Optional.empty(),
+            new ExpiryTimeCutoff(OffsetDateTime.parse("2011-12-03T11:00Z").toInstant()));
+        assertEquals(TestConstants.TEST_PARTITION_KEY, cursor.next().get(0).id());
+        assertEquals(NEXT_TOKEN_ATTRIBUTE_VALUE_MAP, DynamoDbExpiryHourTokenMapper.toDynamoDbPageToken(cursor.nextPageToken()));
+        cursor.prefetch();
+        assertEquals(TestConstants.TEST_PARTITION_KEY_2, cursor.next().get(0).id());
+
+        assertFalse(cursor.hasNext());
+        verify(index).query(argThat((QueryEnhancedRequest request) -> request.exclusiveStartKey() == null));
+        verify(index).query(argThat((QueryEnhancedRequest request) -> NEXT_TOKEN_ATTRIBUTE_VALUE_MAP.equals(request.exclusiveStartKey())));
+    }
+
+    @Test
+    void settingsWhenInvalidQueryPageSize() {
+        final DynamoDbConsentRepositorySettings.Builder settingsBuilder = DynamoDbConsentRepositorySettings.builder().queryPageSize(0);
+        assertThrows(IllegalArgumentException.class, settingsBuilder::build);
+    }
+
+    @Test
+    void settingsWhenInvalidExpiryHourShardCount() {
+        final DynamoDbConsentRepositorySettings.Builder settingsBuilder = DynamoDbConsentRepositorySettings.builder()
+            .expiryHourShardCount(0);
+        assertThrows(IllegalArgumentException.class, settingsBuilder::build);
+    }
+
+    @Test
+    void settingsWhenInvalidMaxConcurrentWrites() {
+        final DynamoDbConsentRepositorySettings.Builder settingsBuilder = DynamoDbConsentRepositorySettings.builder()
+            .maxConcurrentWrites(0);
+        assertThrows(IllegalArgumentException.class, settingsBuilder::build);
+    }
+
+    private ActiveConsentWithExpiryTime buildConsent(final String id) {
+        return ActiveConsentWithExpiryTime.builder()
+            .id(id)
+            .consentVersion(1)
+            .expiryHour(TestConstants.TEST_EXPIRY_HOUR)
+            .expiryTimeId(TestConstants.TEST_EXPIRY_TIME_ID)
+            .build();
+    }
+
+    private void mockIndexQueryResults(final SdkPublisher<Page<DynamoDbActiveConsentWithExpiryTime>> queryResults) {
+        @SuppressWarnings("unchecked")
+        final DynamoDbAsyncIndex<DynamoDbActiveConsentWithExpiryTime> index = mock(DynamoDbAsyncIndex.class);
+        when(index.query(any(QueryEnhancedRequest.class))).thenReturn(queryResults);
+        when(consentTable.index(DynamoDbActiveConsentWithExpiryTime.ACTIVE_CONSENTS_BY_EXPIRY_HOUR_GSI_NAME)).thenReturn(index);
+    }
+}
@@ -0,0 +1,414 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import com.consentframework.consentexpiryprocessor.domain.constants.ConsentExpiryStatus;
+import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
+import com.consentframework.consentexpiryprocessor.domain.entities.ConsentExpiryResult;
+import com.consentframework.consentexpiryprocessor.domain.entities.ExpiryTimeCutoff;
+import com.consentframework.consentexpiryprocessor.domain.repositories.ConsentPageCursor;
+import com.consentframework.consentexpiryprocessor.domain.repositories.ConsentRepository;
+import com.consentframework.consentexpiryprocessor.infrastructure.configuration.AwsClientFactory;
+import com.consentframework.consentexpiryprocessor.infrastructure.configuration.ConsentExpiryProcessorConfiguration;
+import com.consentframework.consentexpiryprocessor.infrastructure.mappers.DynamoDbActiveConsentTableSchema;
+import com.consentframework.consentexpiryprocessor.infrastructure.metrics.CloudWatchMetricsHandler;
+import com.consentframework.consentexpiryprocessor.infrastructure.metrics.MetricsSink;
+import com.consentframework.consentexpiryprocessor.infrastructure.throttling.ThrottlingRetryPolicy;
+import com.consentframework.consentexpiryprocessor.testcommon.dynamodb.FakeDynamoDbServer;
+import com.consentframework.consentexpiryprocessor.testcommon.utils.ActiveConsentWithExpiryTimeGenerator;
+import com.consentframework.shared.api.domain.pagination.ListPage;
+import com.consentframework.shared.api.infrastructure.entities.DynamoDbActiveConsentWithExpiryTime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.CancellationReason;
+import software.amazon.awssdk.services.dynamodb.model.ConditionCheck;
+import software.amazon.awssdk.services.dynamodb.model.DeleteRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+import software.amazon.awssdk.services.dynamodb.model.Update;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Runs the DynamoDB consent repositories over HTTP against FakeDynamoDbServer,
+ * covering the SDK's request marshalling and error unmarshalling that the mocked client tests skip.
+ */
+class DynamoDbConsentRepositoryEndToEndTest {
+    private static final String AWS_ACCESS_KEY_ID_PROPERTY = "aws.accessKeyId";
+    private static final String AWS_SECRET_ACCESS_KEY_PROPERTY = "aws.secretAccessKey";
+    private static final OffsetDateTime EXPIRY_HOUR_START = OffsetDateTime.now(ZoneOffset.UTC).minusHours(2)
+        .withMinute(0).withSecond(0).withNano(0);
+    private static final String EXPIRY_HOUR = ActiveConsentWithExpiryTimeGenerator.generate("consent", EXPIRY_HOUR_START).expiryHour();
+
+    private final CloudWatchMetricsHandler metricsHandler = new CloudWatchMetricsHandler(mock(MetricsSink.class), Duration.ZERO);
+    private final List<AutoCloseable> resources = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        System.setProperty(AWS_ACCESS_KEY_ID_PROPERTY, "TestAccessKeyId");
+        System.setProperty(AWS_SECRET_ACCESS_KEY_PROPERTY, "TestSecretAccessKey");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (final AutoCloseable resource : resources.reversed()) {
+            resource.close();
+        }
+        System.clearProperty(AWS_ACCESS_KEY_ID_PROPERTY);
+        System.clearProperty(AWS_SECRET_ACCESS_KEY_PROPERTY);
+    }
+
+    @Test
+    void expireConsentsAcrossPages() {
+        final FakeDynamoDbServer server = startServer(new FakeDynamoDbServer(Duration.ZERO, Duration.ZERO, 0.0, 2));
+        final List<ActiveConsentWithExpiryTime> consents = generateConsents(5);
+        server.putConsents(consents);
+        final ConsentRepository repository = buildRepository(server, 4);
+
+        final List<ActiveConsentWithExpiryTime> expiredConsents = readExpiredConsents(repository, consents.get(0).expiryHour(),
+            new ExpiryTimeCutoff(OffsetDateTime.now().toInstant()));
+        final List<ConsentExpiryResult> results = repository.expireConsents(expiredConsents);
+
+        assertEquals(consents, expiredConsents);
+        results.forEach(result -> assertEquals(ConsentExpiryStatus.SUCCESS, result.status()));
+        assertEquals(0, server.countIndexedConsents(consents.get(0).expiryHour()));
+        assertEquals("EXPIRED", server.getItem(consents.get(0).id()).orElseThrow().path("consentStatus").path("S").asText());
+        assertEquals("2", server.getItem(consents.get(0).id()).orElseThrow().path("consentVersion").path("N").asText());
+        assertFalse(server.getItem(consents.get(0).id()).orElseThrow().has("expiryHour"));
+        assertEquals(3, server.getRequestCount("Query"));
+    }
+
+    @Test
+    void openExpiredConsentPagesStopsAtCutoff() {
+        final FakeDynamoDbServer server = startServer(new FakeDynamoDbServer());
+        final List<ActiveConsentWithExpiryTime> consents = generateConsents(4);
+        server.putConsents(consents);
+        final ConsentRepository repository = buildRepository(server, 1);
+        final ExpiryTimeCutoff cutoff = new ExpiryTimeCutoff(EXPIRY_HOUR_START.plusMinutes(3).toInstant());
+
+        final List<ActiveConsentWithExpiryTime> expiredConsents = readExpiredConsents(repository, consents.get(0).expiryHour(), cutoff);
+
+        assertEquals(consents.subList(0, 2), expiredConsents);
+    }
+
+    @Test
+    void expireConsentsWhenVersionChanged() {
+        final FakeDynamoDbServer server = startServer(new FakeDynamoDbServer());
+        final ActiveConsentWithExpiryTime consent = generateConsents(1).get(0);
+        server.putConsent(ActiveConsentWithExpiryTime.builder()
+            .id(consent.id())
+            .consentVersion(2)
+            .expiryHour(consent.expiryHour())
+            .expiryTimeId(consent.expiryTimeId())
+            .build());
+
+        final List<ConsentExpiryResult> results = buildRepository(server, 1).expireConsents(List.of(consent));
+
+        assertEquals(ConsentExpiryStatus.CONDITION_FAILED, results.get(0).status());
+        assertEquals("ACTIVE", server.getItem(consent.id()).orElseThrow().path("consentStatus").path("S").asText());
+    }
+
+    @Test
+    void expireConsentsWhenThrottled() {
+        final FakeDynamoDbServer server = startServer(new FakeDynamoDbServer(Duration.ZERO, Duration.ZERO, 1.0, Integer.MAX_VALUE));
+        final List<ActiveConsentWithExpiryTime> consents = generateConsents(2);
+        server.putConsents(consents);
+
+        final List<ConsentExpiryResult> results = buildRepository(server, 2).expireConsents(consents);
+
+        results.forEach(result -> assertEquals(ConsentExpiryStatus.THROTTLED, result.status()));
+        assertEquals(2, server.getNumThrottledRequests());
+        assertEquals(2, server.countIndexedConsents(consents.get(0).expiryHour()));
+    }
+
+    @Test
+    void expireConsentsThroughAsyncRepository() {
+        final FakeDynamoDbServer server = startServer(new FakeDynamoDbServer(Duration.ofMillis(1), Duration.ofMillis(1), 0.0, 2));
+        final List<ActiveConsentWithExpiryTime> consents = generateConsents(3);
+        server.putConsents(consents);
+        final ConsentRepository repository = buildAsyncRepository(server, 1);
+
+        final List<ActiveConsentWithExpiryTime> expiredConsents = readExpiredConsents(repository, consents.get(0).expiryHour(),
+            new ExpiryTimeCutoff(OffsetDateTime.now().toInstant()));
+        final List<ConsentExpiryResult> results = repository.expireConsents(expiredConsents);
+
+        assertEquals(consents, expiredConsents);
+        results.forEach(result -> assertEquals(ConsentExpiryStatus.SUCCESS, result.status()));
+        assertEquals(0, server.countIndexedConsents(consents.get(0).expiryHour()));
+    }
+
+    @Test
+    void expireConsentsAcrossWriteShardedPartitions() {
+        final FakeDynamoDbServer server = startServer(new FakeDynamoDbServer(Duration.ZERO, Duration.ZERO, 0.0, 2));
+        final List<ActiveConsentWithExpiryTime> consents = generateShardedConsents(7, 2);
+        server.putConsents(consents);
+        final ConsentRepository repository = buildRepository(server, 4, 2);
+
+        final List<ActiveConsentWithExpiryTime> expiredConsents = readExpiredConsents(repository, EXPIRY_HOUR,
+            new ExpiryTimeCutoff(OffsetDateTime.now().toInstant()));
+        repository.expireConsents(expiredConsents);
+
+        assertEquals(consents, expiredConsents);
+        assertEquals(0, server.countIndexedConsents(EXPIRY_HOUR));
+        assertEquals(0, server.countIndexedConsents(EXPIRY_HOUR + "#0"));
+        assertEquals(0, server.countIndexedConsents(EXPIRY_HOUR + "#1"));
+    }
+
+    @Test
+    void openExpiredConsentPagesResumesWriteShardedPartitionsFromPageToken() {
+        final FakeDynamoDbServer server = startServer(new FakeDynamoDbServer(Duration.ZERO, Duration.ZERO, 0.0, 2));
+        final List<ActiveConsentWithExpiryTime> consents = generateShardedConsents(7, 2);
+        server.putConsents(consents);
+        final ConsentRepository repository = buildRepository(server, 1, 2);
+        final ExpiryTimeCutoff cutoff = new ExpiryTimeCutoff(OffsetDateTime.now().toInstant());
+
+        final ConsentPageCursor firstCursor = repository.openExpiredConsentPages(EXPIRY_HOUR, Optional.empty(), cutoff);
+        final List<ActiveConsentWithExpiryTime> expiredConsents = new ArrayList<>(firstCursor.next());
+        final ConsentPageCursor resumedCursor = repository.openExpiredConsentPages(EXPIRY_HOUR, firstCursor.nextPageToken(), cutoff);
+        while (resumedCursor.hasNext()) {
+            expiredConsents.addAll(resumedCursor.next());
+        }
+
+        assertEquals(consents, expiredConsents);
+    }
+
+    @Test
+    void openExpiredConsentPagesResumesUnshardedPageTokenAcrossWriteShardedPartitions() {
+        final FakeDynamoDbServer server = startServer(new FakeDynamoDbServer(Duration.ZERO, Duration.ZERO, 0.0, 2));
+        final List<ActiveConsentWithExpiryTime> consents = generateShardedConsents(7, 2);
+        server.putConsents(consents);
+        final ExpiryTimeCutoff cutoff = new ExpiryTimeCutoff(OffsetDateTime.now().toInstant());
+        final ConsentPageCursor unshardedCursor = buildRepository(server, 1)
+            .openExpiredConsentPages(EXPIRY_HOUR, Optional.empty(), cutoff);
+        final List<ActiveConsentWithExpiryTime> expiredConsents = new ArrayList<>(unshardedCursor.next());
+
+        final ConsentPageCursor shardedCursor = buildRepository(server, 1, 2)
+            .openExpiredConsentPages(EXPIRY_HOUR, unshardedCursor.nextPageToken(), cutoff);
+        while (shardedCursor.hasNext()) {
+            expiredConsents.addAll(shardedCursor.next());
+        }
+
+        assertEquals(consents.size(), expiredConsents.size());
+        assertEquals(Set.copyOf(consents), Set.copyOf(expiredConsents));
+    }
+
+    @Test
+    void getActiveConsentsWithExpiryHourAcrossWriteShardedPartitionsBeforeCutoff() {
+        final FakeDynamoDbServer server = startServer(new FakeDynamoDbServer(Duration.ZERO, Duration.ZERO, 0.0, 2));
+        final List<ActiveConsentWithExpiryTime> consents = generateShardedConsents(7, 2);
+        server.putConsents(consents);
+        final ConsentRepository repository = buildRepository(server, 1, 2);
+
+        final List<ActiveConsentWithExpiryTime> activeConsents = new ArrayList<>();
+        Optional<String> pageToken = Optional.empty();
+        do {
+            final ListPage<ActiveConsentWithExpiryTime> page = repository.getActiveConsentsWithExpiryHour(EXPIRY_HOUR, pageToken,
+                EXPIRY_HOUR_START.plusMinutes(5));
+            activeConsents.addAll(page.resultsOnPage());
+            pageToken = page.nextPageToken();
+        } while (pageToken.isPresent());
+
+        assertEquals(consents.subList(0, 4), activeConsents);
+    }
+
+    @Test
+    void openExpiredConsentPagesAcrossWriteShardedPartitionsWhenQueryFails() {
+        final FakeDynamoDbServer server = startServer(new FakeDynamoDbServer(Duration.ZERO, Duration.ZERO, 0.0, 2));
+        final ConsentRepository repository = buildRepository(server, 1, 2);
+        server.close();
+
+        assertThrows(SdkClientException.class, () ->
+            readExpiredConsents(repository, EXPIRY_HOUR, new ExpiryTimeCutoff(OffsetDateTime.now().toInstant())));
+    }
+
+    @Test
+    void getActiveConsentsWithExpiryHourAcrossWriteShardedPartitionsThroughAsyncRepository() {
+        final FakeDynamoDbServer server = startServer(new FakeDynamoDbServer(Duration.ZERO, Duration.ZERO, 0.0, 2));
+        final List<ActiveConsentWithExpiryTime> consents = generateShardedConsents(7, 3);
+        server.putConsents(consents);
+        final ConsentRepository repository = buildAsyncRepository(server, 3);
+
+        final List<ActiveConsentWithExpiryTime> activeConsents = new ArrayList<>();
+        Optional<String> pageToken = Optional.empty();
+        do {
+            final ListPage<ActiveConsentWithExpiryTime> page = repository.getActiveConsentsWithExpiryHour(EXPIRY_HOUR, pageToken);
+            activeConsents.addAll(page.resultsOnPage());
+            pageToken = page.nextPageToken();
+        } while (pageToken.isPresent());
+
+        assertEquals(consents, activeConsents);
+    }
+
+    @Test
+    void batchWriteItemPutsAndDeletesItems() {
+        final FakeDynamoDbServer server = startServer(new FakeDynamoDbServer());
+        final ActiveConsentWithExpiryTime deletedConsent = generateConsents(1).get(0);
+        server.putConsent(deletedConsent);
+
+        buildClient(server).batchWriteItem(BatchWriteItemRequest.builder()
+            .requestItems(Map.of(DynamoDbActiveConsentWithExpiryTime.TABLE_NAME, List.of(
+                WriteRequest.builder().putRequest(PutRequest.builder().item(Map.of(
+                    "id", AttributeValue.fromS("put-consent"),
+                    "consentVersion", AttributeValue.fromN("1"))).build()).build(),
+                WriteRequest.builder().deleteRequest(DeleteRequest.builder().key(Map.of(
+                    "id", AttributeValue.fromS(deletedConsent.id()))).build()).build())))
+            .build());
+
+        assertTrue(server.getItem("put-consent").isPresent());
+        assertTrue(server.getItem(deletedConsent.id()).isEmpty());
+        assertEquals(0, server.countIndexedConsents(deletedConsent.expiryHour()));
+    }
+
+    @Test
+    void transactWriteItemsWhenConditionFails() {
+        final FakeDynamoDbServer server = startServer(new FakeDynamoDbServer());
+        final List<ActiveConsentWithExpiryTime> consents = generateConsents(2);
+        server.putConsents(consents);
+        final DynamoDbClient ddbClient = buildClient(server);
+        final UpdateItemRequest expireRequest = DynamoDbConsentRequests.buildExpireConsentRequest(consents.get(0).id(), "2");
+
+        final TransactionCanceledException exception = assertThrows(TransactionCanceledException.class, () ->
+            ddbClient.transactWriteItems(TransactWriteItemsRequest.builder()
+                .transactItems(
+                    TransactWriteItem.builder().update(toUpdate(expireRequest)).build(),
+                    TransactWriteItem.builder().conditionCheck(ConditionCheck.builder()
+                        .tableName(DynamoDbActiveConsentWithExpiryTime.TABLE_NAME)
+                        .key(Map.of("id", AttributeValue.fromS(consents.get(1).id())))
+                        .conditionExpression("attribute_not_exists(id)")
+                        .build()).build())
+                .build()));
+
+        assertEquals(List.of("None", "ConditionalCheckFailed"),
+            exception.cancellationReasons().stream().map(CancellationReason::code).toList());
+        assertEquals("ACTIVE", server.getItem(consents.get(0).id()).orElseThrow().path("consentStatus").path("S").asText());
+
+        ddbClient.transactWriteItems(TransactWriteItemsRequest.builder()
+            .transactItems(TransactWriteItem.builder().update(toUpdate(expireRequest)).build())
+            .build());
+
+        assertEquals("EXPIRED", server.getItem(consents.get(0).id()).orElseThrow().path("consentStatus").path("S").asText());
+    }
+
+    private FakeDynamoDbServer startServer(final FakeDynamoDbServer server) {
+        resources.add(server);
+        return server;
+    }
+
+    /**
+     * Builds clients through the processor's client factory, so requests are sent with the production retry strategy.
+     */
+    private static AwsClientFactory buildClientFactory(final FakeDynamoDbServer server) {
+        return new AwsClientFactory(ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+            ConsentExpiryProcessorConfiguration.AWS_REGION_VARIABLE, "us-west-2",
+            ConsentExpiryProcessorConfiguration.DYNAMODB_ENDPOINT_VARIABLE, server.endpoint().toString())));
+    }
+
+    private DynamoDbClient buildClient(final FakeDynamoDbServer server) {
+        final DynamoDbClient ddbClient = buildClientFactory(server).dynamoDbClient();
+        resources.add(ddbClient);
+        return ddbClient;
+    }
+
+    private ConsentRepository buildRepository(final FakeDynamoDbServer server, final int maxConcurrentWrites) {
+        return buildRepository(server, maxConcurrentWrites, 1);
+    }
+
+    private ConsentRepository buildRepository(final FakeDynamoDbServer server, final int maxConcurrentWrites,
+            final int expiryHourShardCount) {
+        final DynamoDbClient ddbClient = buildClient(server);
+        return new DynamoDbConsentRepository(ddbClient,
+            DynamoDbEnhancedClient.builder().dynamoDbClient(ddbClient).build()
+                .table(DynamoDbActiveConsentWithExpiryTime.TABLE_NAME, DynamoDbActiveConsentTableSchema.TABLE_SCHEMA),
+            metricsHandler, buildSettings(maxConcurrentWrites, expiryHourShardCount));
+    }
+
+    private ConsentRepository buildAsyncRepository(final FakeDynamoDbServer server, final int expiryHourShardCount) {
+        final DynamoDbAsyncClient ddbClient = buildClientFactory(server).dynamoDbAsyncClient();
+        resources.add(ddbClient);
+        return new DynamoDbAsyncConsentRepository(ddbClient,
+            DynamoDbEnhancedAsyncClient.builder().dynamoDbClient(ddbClient).build()
+                .table(DynamoDbActiveConsentWithExpiryTime.TABLE_NAME, DynamoDbActiveConsentTableSchema.TABLE_SCHEMA),
+            metricsHandler, buildSettings(2, expiryHourShardCount));
+    }
+
+    private static DynamoDbConsentRepositorySettings buildSettings(final int maxConcurrentWrites, final int expiryHourShardCount) {
+        return DynamoDbConsentRepositorySettings.builder()
+            .maxConcurrentWrites(maxConcurrentWrites)
+            .retryPolicy(new ThrottlingRetryPolicy(1))
+            .expiryHourShardCount(expiryHourShardCount)
+            .build();
+    }
+
+    /**
+     * Reads every page of expired consents, as AutoExpireConsentsActivity does.
+     */
+    private static List<ActiveConsentWithExpiryTime> readExpiredConsents(final ConsentRepository repository, final String expiryHour,
+            final ExpiryTimeCutoff cutoff) {
+        final ConsentPageCursor cursor = repository.openExpiredConsentPages(expiryHour, Optional.empty(), cutoff);
+        final List<ActiveConsentWithExpiryTime> expiredConsents = new ArrayList<>();
+        while (cursor.hasNext()) {
+            expiredConsents.addAll(cursor.next());
+        }
+        return expiredConsents;
+    }
+
+    private static List<ActiveConsentWithExpiryTime> generateConsents(final int numConsents) {
+        final List<ActiveConsentWithExpiryTime> consents = new ArrayList<>();
+        for (int i = 0; i < numConsents; i++) {
+            consents.add(ActiveConsentWithExpiryTimeGenerator.generate("consent-" + i, EXPIRY_HOUR_START.plusMinutes(i + 1)));
+        }
+        return consents;
+    }
+
+    /**
+     * Generates consents in expiryTimeId order, writing every third one to the unsharded expiry hour partition
+     * as before sharding was enabled, and the rest across the "expiryHour#N" partitions.
+     */
+    private static List<ActiveConsentWithExpiryTime> generateShardedConsents(final int numConsents, final int shardCount) {
+        final List<ActiveConsentWithExpiryTime> consents = new ArrayList<>();
+        for (final ActiveConsentWithExpiryTime consent : generateConsents(numConsents)) {
+            final int index = consents.size();
+            consents.add(index % 3 == 0 ? consent : ActiveConsentWithExpiryTime.builder()
+                .id(consent.id())
+                .consentVersion(consent.consentVersion())
+                .expiryHour(consent.expiryHour() + "#" + (index % shardCount))
+                .expiryTimeId(consent.expiryTimeId())
+                .build());
+        }
+        return consents;
+    }
+
+    private static Update toUpdate(final UpdateItemRequest updateItemRequest) {
+        return Update.builder()
+            .tableName(updateItemRequest.tableName())
+            .key(updateItemRequest.key())
+            .updateExpression(updateItemRequest.updateExpression())
+            .conditionExpression(updateItemRequest.conditionExpression())
+            .expressionAttributeNames(updateItemRequest.expressionAttributeNames())
+            .expressionAttributeValues(updateItemRequest.expressionAttributeValues())
+            .build();
+    }
+}
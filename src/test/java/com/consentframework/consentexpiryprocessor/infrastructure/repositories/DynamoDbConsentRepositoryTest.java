@@ -1,34 +1,51 @@
 package com.consentframework.consentexpiryprocessor.infrastructure.repositories;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.longThat;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.consentframework.consentexpiryprocessor.domain.constants.ActiveConsentWithExpiryTimeAttributeName;
+import com.consentframework.consentexpiryprocessor.domain.constants.ConsentExpiryStatus;
 import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
+import com.consentframework.consentexpiryprocessor.domain.entities.ConsentExpiryResult;
+import com.consentframework.consentexpiryprocessor.domain.entities.ExpiryTimeCutoff;
+import com.consentframework.consentexpiryprocessor.domain.metrics.ExpiryRunRecorder;
+import com.consentframework.consentexpiryprocessor.domain.repositories.ConsentPageCursor;
 import com.consentframework.consentexpiryprocessor.domain.repositories.ConsentRepository;
+import com.consentframework.consentexpiryprocessor.infrastructure.mappers.DynamoDbActiveConsentTableSchema;
+import com.consentframework.consentexpiryprocessor.infrastructure.mappers.DynamoDbExpiryHourTokenMapper;
 import com.consentframework.consentexpiryprocessor.infrastructure.metrics.CloudWatchMetricsHandler;
+import com.consentframework.consentexpiryprocessor.infrastructure.throttling.AdaptiveRateLimiter;
+import com.consentframework.consentexpiryprocessor.infrastructure.throttling.ThrottlingRetryPolicy;
 import com.consentframework.consentexpiryprocessor.testcommon.constants.TestConstants;
 import com.consentframework.consentexpiryprocessor.testcommon.matchers.PutMetricDataRequestMatcher;
 import com.consentframework.shared.api.domain.pagination.ListPage;
 import com.consentframework.shared.api.infrastructure.entities.DynamoDbActiveConsentWithExpiryTime;
 import com.consentframework.shared.api.infrastructure.mappers.DynamoDbConsentExpiryTimeConverter;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import software.amazon.awssdk.core.exception.SdkClientException;
 import software.amazon.awssdk.core.pagination.sync.SdkIterable;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbIndex;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.Expression;
 import software.amazon.awssdk.enhanced.dynamodb.model.Page;
 import software.amazon.awssdk.enhanced.dynamodb.model.PageIterable;
 import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest;
@@ -36,16 +53,23 @@ import software.amazon.awssdk.services.cloudwatch.CloudWatchClient;
 import software.amazon.awssdk.services.cloudwatch.model.PutMetricDataRequest;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
 import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
 
+import java.io.IOException;
 import java.time.OffsetDateTime;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 class DynamoDbConsentRepositoryTest {
+    private static final long RATE_LIMITER_WAIT_MILLIS = 20;
     private static final OffsetDateTime FUTURE_EXPIRY_TIME = OffsetDateTime.now().plusMinutes(10);
     private static final List<DynamoDbActiveConsentWithExpiryTime> ACTIVE_CONSENTS_WITH_EXPIRY = List.of(
         DynamoDbActiveConsentWithExpiryTime.builder()
@@ -150,7 +174,7 @@ class DynamoDbConsentRepositoryTest {
     }
 
     @Test
-    void getActiveConsentsWithExpiryTimes_whenMultiplePageQueryResults() throws Exception {
+    void getActiveConsentsWithExpiryTimes_whenMultiplePageQueryResults() {
         final Page<DynamoDbActiveConsentWithExpiryTime> page1 = Page.builder(DynamoDbActiveConsentWithExpiryTime.class)
             .items(ACTIVE_CONSENTS_WITH_EXPIRY)
             .lastEvaluatedKey(NEXT_TOKEN_ATTRIBUTE_VALUE_MAP)
@@ -171,10 +195,8 @@ class DynamoDbConsentRepositoryTest {
         validateFieldsEqual(ACTIVE_CONSENTS_WITH_EXPIRY, consents);
 
         assertTrue(matchingConsentsPage.nextPageToken().isPresent());
-        final ObjectMapper objectMapper = new ObjectMapper();
-        final JsonNode expectedJson = objectMapper.readTree(NEXT_TOKEN_JSON_STRING);
-        final JsonNode parsedJson = objectMapper.readTree(matchingConsentsPage.nextPageToken().get());
-        assertEquals(expectedJson, parsedJson);
+        assertEquals(NEXT_TOKEN_ATTRIBUTE_VALUE_MAP,
+            DynamoDbExpiryHourTokenMapper.toDynamoDbPageToken(matchingConsentsPage.nextPageToken()));
     }
 
     @Test
@@ -184,7 +206,7 @@ class DynamoDbConsentRepositoryTest {
         metricsHandler = new CloudWatchMetricsHandler(cloudWatchClient);
         final ConsentRepository repository = new DynamoDbConsentRepository(ddbClient, consentTable, metricsHandler);
 
-        repository.expireConsent(TestConstants.TEST_PARTITION_KEY, "2");
+        assertEquals(ConsentExpiryStatus.SUCCESS, repository.expireConsent(TestConstants.TEST_PARTITION_KEY, "2"));
 
         verify(ddbClient).updateItem(any(UpdateItemRequest.class));
 
@@ -195,6 +217,357 @@ class DynamoDbConsentRepositoryTest {
         )));
     }
 
+    @Test
+    void expireConsentWhenConditionFails() {
+        doThrow(ConditionalCheckFailedException.builder().message("Test condition failure").build())
+            .when(ddbClient).updateItem(any(UpdateItemRequest.class));
+        final ConsentRepository repository = new DynamoDbConsentRepository(ddbClient, consentTable, metricsHandler);
+
+        assertEquals(ConsentExpiryStatus.CONDITION_FAILED, repository.expireConsent(TestConstants.TEST_PARTITION_KEY, "2"));
+
+        verify(ddbClient).updateItem(any(UpdateItemRequest.class));
+        verify(cloudWatchClient, never()).putMetricData(any(PutMetricDataRequest.class));
+    }
+
+    @Test
+    void expireConsentWhenAccessDenied() {
+        final DynamoDbException testException = (DynamoDbException) DynamoDbException.builder()
+            .message("Test error message")
+            .statusCode(403)
+            .build();
+        when(ddbClient.updateItem(any(UpdateItemRequest.class))).thenThrow(testException);
+        final ConsentRepository repository = new DynamoDbConsentRepository(ddbClient, consentTable, metricsHandler);
+
+        final DynamoDbException thrownException = assertThrows(DynamoDbException.class,
+            () -> repository.expireConsent(TestConstants.TEST_PARTITION_KEY, "2"));
+        assertEquals(testException, thrownException);
+        verify(cloudWatchClient, never()).putMetricData(any(PutMetricDataRequest.class));
+    }
+
+    @Test
+    void expireConsentsWhenEmpty() {
+        final ConsentRepository repository = new DynamoDbConsentRepository(ddbClient, consentTable, metricsHandler,
+            DynamoDbConsentRepositorySettings.builder().maxConcurrentWrites(4).build());
+
+        assertTrue(repository.expireConsents(List.of()).isEmpty());
+
+        verify(ddbClient, never()).updateItem(any(UpdateItemRequest.class));
+        verify(cloudWatchClient, never()).putMetricData(any(PutMetricDataRequest.class));
+    }
+
+    @Test
+    void expireConsentsWhenMixedResults() {
+        final List<ActiveConsentWithExpiryTime> consents = List.of(
+            toActiveConsent(ACTIVE_CONSENTS_WITH_EXPIRY.get(0)),
+            toActiveConsent(ACTIVE_CONSENTS_WITH_EXPIRY.get(1)),
+            toActiveConsent(ACTIVE_CONSENTS_WITH_EXPIRY.get(2))
+        );
+        when(ddbClient.updateItem(any(UpdateItemRequest.class))).thenAnswer(invocation -> {
+            final UpdateItemRequest request = invocation.getArgument(0);
+            final String id = request.key().get(ActiveConsentWithExpiryTimeAttributeName.ID.getValue()).s();
+            if (TestConstants.TEST_PARTITION_KEY_2.equals(id)) {
+                throw ConditionalCheckFailedException.builder().message("Test condition failure").build();
+            }
+            if (TestConstants.TEST_PARTITION_KEY_3.equals(id)) {
+                throw ProvisionedThroughputExceededException.builder().message("Test throttle").build();
+            }
+            return UpdateItemResponse.builder().build();
+        });
+        when(cloudWatchClient.putMetricData(any(PutMetricDataRequest.class))).thenReturn(null);
+        metricsHandler = new CloudWatchMetricsHandler(cloudWatchClient);
+        final ConsentRepository repository = new DynamoDbConsentRepository(ddbClient, consentTable, metricsHandler,
+            DynamoDbConsentRepositorySettings.builder().maxConcurrentWrites(4).build());
+
+        final List<ConsentExpiryResult> results = repository.expireConsents(consents);
+
+        assertEquals(List.of(
+            ConsentExpiryResult.builder().id(TestConstants.TEST_PARTITION_KEY).status(ConsentExpiryStatus.SUCCESS).build(),
+            ConsentExpiryResult.builder().id(TestConstants.TEST_PARTITION_KEY_2).status(ConsentExpiryStatus.CONDITION_FAILED).build(),
+            ConsentExpiryResult.builder().id(TestConstants.TEST_PARTITION_KEY_3).status(ConsentExpiryStatus.THROTTLED).build()
+        ), results);
+        // The throttled consent is retried until its attempts are exhausted
+        verify(ddbClient, times(consents.size() - 1 + ThrottlingRetryPolicy.DEFAULT.maxAttempts()))
+            .updateItem(any(UpdateItemRequest.class));
+        verify(ddbClient).updateItem(argThat((UpdateItemRequest request) ->
+            TestConstants.TEST_PARTITION_KEY_2.equals(request.key().get("id").s())
+                && "4".equals(request.expressionAttributeValues().get(":nextConsentVersion").n())
+                && "3".equals(request.expressionAttributeValues().get(":expectedLastVersion").n())));
+        verify(cloudWatchClient).putMetricData(argThat(new PutMetricDataRequestMatcher(
+            CloudWatchMetricsHandler.METRIC_NAMESPACE,
+            DynamoDbConsentRepository.EXPIRED_CONSENT_METRIC_NAME,
+            1.0
+        )));
+    }
+
+    @Test
+    void expireConsentsWhenThrottlingErrorCode() {
+        final DynamoDbException throttlingException = (DynamoDbException) DynamoDbException.builder()
+            .message("Test throttle")
+            .statusCode(429)
+            .build();
+        when(ddbClient.updateItem(any(UpdateItemRequest.class))).thenThrow(throttlingException);
+        final ConsentRepository repository = new DynamoDbConsentRepository(ddbClient, consentTable, metricsHandler,
+            DynamoDbConsentRepositorySettings.builder().maxConcurrentWrites(4).build());
+
+        final List<ConsentExpiryResult> results = repository.expireConsents(
+            List.of(toActiveConsent(ACTIVE_CONSENTS_WITH_EXPIRY.get(0))));
+
+        assertEquals(ConsentExpiryStatus.THROTTLED, results.get(0).status());
+        verify(cloudWatchClient, never()).putMetricData(any(PutMetricDataRequest.class));
+    }
+
+    @Test
+    void expireConsentsWhenUnexpectedError() {
+        final DynamoDbException testException = (DynamoDbException) DynamoDbException.builder()
+            .message("Test error message")
+            .statusCode(500)
+            .build();
+        when(ddbClient.updateItem(any(UpdateItemRequest.class))).thenThrow(testException);
+        final ConsentRepository repository = new DynamoDbConsentRepository(ddbClient, consentTable, metricsHandler,
+            DynamoDbConsentRepositorySettings.builder().maxConcurrentWrites(4).build());
+
+        final List<ConsentExpiryResult> results = repository.expireConsents(List.of(toActiveConsent(ACTIVE_CONSENTS_WITH_EXPIRY.get(0))));
+
+        assertEquals(ConsentExpiryStatus.FAILED, results.get(0).status());
+        verify(cloudWatchClient, never()).putMetricData(any(PutMetricDataRequest.class));
+    }
+
+    @Test
+    void expireConsentsWhenClientError() {
+        final SdkClientException testException = SdkClientException.create("Test timeout", new IOException("Read timed out"));
+        when(ddbClient.updateItem(any(UpdateItemRequest.class))).thenThrow(testException);
+        final ConsentRepository repository = new DynamoDbConsentRepository(ddbClient, consentTable, metricsHandler,
+            DynamoDbConsentRepositorySettings.builder().maxConcurrentWrites(4).build());
+
+        final List<ConsentExpiryResult> results = repository.expireConsents(List.of(toActiveConsent(ACTIVE_CONSENTS_WITH_EXPIRY.get(0))));
+
+        assertEquals(ConsentExpiryStatus.FAILED, results.get(0).status());
+        verify(cloudWatchClient, never()).putMetricData(any(PutMetricDataRequest.class));
+    }
+
+    @Test
+    void expireConsentsWhenAccessDenied() {
+        final DynamoDbException testException = (DynamoDbException) DynamoDbException.builder()
+            .message("Test error message")
+            .statusCode(403)
+            .build();
+        when(ddbClient.updateItem(any(UpdateItemRequest.class))).thenThrow(testException);
+        final ConsentRepository repository = new DynamoDbConsentRepository(ddbClient, consentTable, metricsHandler,
+            DynamoDbConsentRepositorySettings.builder().maxConcurrentWrites(4).build());
+
+        final List<ActiveConsentWithExpiryTime> consents = List.of(toActiveConsent(ACTIVE_CONSENTS_WITH_EXPIRY.get(0)));
+        final DynamoDbException thrownException = assertThrows(DynamoDbException.class, () -> repository.expireConsents(consents));
+        assertEquals(testException, thrownException);
+    }
+
+    @Test
+    void expireConsentsWhenThrottledThenAccepted() {
+        when(ddbClient.updateItem(any(UpdateItemRequest.class)))
+            .thenThrow(ProvisionedThroughputExceededException.builder().message("Test throttle").build())
+            .thenReturn(UpdateItemResponse.builder().build());
+        final AdaptiveRateLimiter writeRateLimiter = new AdaptiveRateLimiter(100);
+        final ConsentRepository repository = new DynamoDbConsentRepository(ddbClient, consentTable, metricsHandler,
+            DynamoDbConsentRepositorySettings.builder()
+                .maxConcurrentWrites(4)
+                .writeRateLimiter(writeRateLimiter)
+                .retryPolicy(new ThrottlingRetryPolicy(2, Duration.ZERO, Duration.ZERO))
+                .build());
+
+        final List<ConsentExpiryResult> results = repository.expireConsents(List.of(toActiveConsent(ACTIVE_CONSENTS_WITH_EXPIRY.get(0))));
+
+        assertEquals(ConsentExpiryStatus.SUCCESS, results.get(0).status());
+        verify(ddbClient, times(2)).updateItem(any(UpdateItemRequest.class));
+        assertTrue(writeRateLimiter.currentPermitsPerSecond() < 100);
+    }
+
+    @Test
+    void runRecorderReceivesQueryAndUpdateLatenciesWithThrottlesAndRetries() {
+        when(queryResults.stream()).thenReturn(Stream.of(Page.builder(DynamoDbActiveConsentWithExpiryTime.class)
+            .items(ACTIVE_CONSENTS_WITH_EXPIRY)
+            .build()));
+        mockIndexQueryResults(queryResults);
+        when(ddbClient.updateItem(any(UpdateItemRequest.class)))
+            .thenThrow(ProvisionedThroughputExceededException.builder().message("Test throttle").build())
+            .thenReturn(UpdateItemResponse.builder().build());
+        final ExpiryRunRecorder runRecorder = mock(ExpiryRunRecorder.class);
+        final ConsentRepository repository = new DynamoDbConsentRepository(ddbClient, consentTable, metricsHandler,
+            DynamoDbConsentRepositorySettings.builder()
+                .maxConcurrentWrites(4)
+                .writeRateLimiter(new AdaptiveRateLimiter(100))
+                .retryPolicy(new ThrottlingRetryPolicy(2, Duration.ZERO, Duration.ZERO))
+                .runRecorder(runRecorder)
+                .build());
+
+        repository.getActiveConsentsWithExpiryHour(TestConstants.TEST_EXPIRY_HOUR, Optional.empty());
+        repository.expireConsents(List.of(toActiveConsent(ACTIVE_CONSENTS_WITH_EXPIRY.get(0))));
+
+        verify(runRecorder).recordPageQuery(anyLong());
+        verify(runRecorder).recordConsentUpdate(anyLong());
+        verify(runRecorder).recordThrottle();
+        verify(runRecorder).recordRetry();
+    }
+
+    @Test
+    void recordedUpdateLatencyIncludesRateLimiterWait() {
+        when(ddbClient.updateItem(any(UpdateItemRequest.class))).thenReturn(UpdateItemResponse.builder().build());
+        final AdaptiveRateLimiter writeRateLimiter = mock(AdaptiveRateLimiter.class);
+        doAnswer(invocation -> {
+            TimeUnit.MILLISECONDS.sleep(RATE_LIMITER_WAIT_MILLIS);
+            return null;
+        }).when(writeRateLimiter).acquire();
+        final ExpiryRunRecorder runRecorder = mock(ExpiryRunRecorder.class);
+        final ConsentRepository repository = new DynamoDbConsentRepository(ddbClient, consentTable, metricsHandler,
+            DynamoDbConsentRepositorySettings.builder()
+                .maxConcurrentWrites(4)
+                .writeRateLimiter(writeRateLimiter)
+                .runRecorder(runRecorder)
+                .build());
+
+        repository.expireConsent(TestConstants.TEST_PARTITION_KEY, "2");
+        repository.expireConsents(List.of(toActiveConsent(ACTIVE_CONSENTS_WITH_EXPIRY.get(0))));
+
+        verify(runRecorder, times(2)).recordConsentUpdate(
+            longThat(updateNanos -> updateNanos >= TimeUnit.MILLISECONDS.toNanos(RATE_LIMITER_WAIT_MILLIS)));
+    }
+
+    @Test
+    void expireConsentWhenThrottledUntilRetriesExhausted() {
+        when(ddbClient.updateItem(any(UpdateItemRequest.class)))
+            .thenThrow(ProvisionedThroughputExceededException.builder().message("Test throttle").build());
+        final ConsentRepository repository = new DynamoDbConsentRepository(ddbClient, consentTable, metricsHandler,
+            DynamoDbConsentRepositorySettings.builder()
+                .maxConcurrentWrites(4)
+                .writeRateLimiter(new AdaptiveRateLimiter(100))
+                .retryPolicy(new ThrottlingRetryPolicy(3, Duration.ZERO, Duration.ZERO))
+                .build());
+
+        assertEquals(ConsentExpiryStatus.THROTTLED, repository.expireConsent(TestConstants.TEST_PARTITION_KEY, "2"));
+        verify(ddbClient, times(3)).updateItem(any(UpdateItemRequest.class));
+        verify(cloudWatchClient, never()).putMetricData(any(PutMetricDataRequest.class));
+    }
+
+    @Test
+    void getActiveConsentsWithExpiryHourProjectsExpiryAttributesWithPageSize() {
+        mockIndexQueryResults(null);
+        final ConsentRepository repository = new DynamoDbConsentRepository(ddbClient, consentTable, metricsHandler,
+            DynamoDbConsentRepositorySettings.builder()
+                .maxConcurrentWrites(4)
+                .writeRateLimiter(new AdaptiveRateLimiter(100))
+                .queryPageSize(25)
+                .build());
+
+        repository.getActiveConsentsWithExpiryHour(TestConstants.TEST_EXPIRY_HOUR, Optional.empty());
+
+        verify(consentTable.index(DynamoDbActiveConsentWithExpiryTime.ACTIVE_CONSENTS_BY_EXPIRY_HOUR_GSI_NAME))
+            .query(argThat((QueryEnhancedRequest request) -> request.limit() == 25
+                && List.of("id", "consentVersion", "expiryHour", "expiryTimeId").equals(request.attributesToProject())));
+    }
+
+    @Test
+    void getActiveConsentsWithExpiryHourWhenExpiredBeforeCutoff() {
+        mockIndexQueryResults(null);
+        final ConsentRepository repository = new DynamoDbConsentRepository(ddbClient, consentTable, metricsHandler);
+
+        repository.getActiveConsentsWithExpiryHour(TestConstants.TEST_EXPIRY_HOUR, Optional.empty(),
+            OffsetDateTime.parse("2011-12-03T10:15:12.700Z"));
+
+        verifyQueriedBeforeSortKey("2011-12-03T10:15:12Z|");
+    }
+
+    @Test
+    void getActiveConsentsWithExpiryHourWhenCutoffOnWholeMinute() {
+        mockIndexQueryResults(null);
+        final ConsentRepository repository = new DynamoDbConsentRepository(ddbClient, consentTable, metricsHandler);
+
+        repository.getActiveConsentsWithExpiryHour(TestConstants.TEST_EXPIRY_HOUR, Optional.empty(),
+            OffsetDateTime.parse("2011-12-03T10:15:00Z"));
+
+        // Keeps the ":00" seconds, as "2011-12-03T10:15Z|" would sort after the consents expiring within that minute
+        verifyQueriedBeforeSortKey("2011-12-03T10:15:00Z|");
+    }
+
+    @Test
+    void getActiveConsentsWithExpiryHourWhenCutoffHasOffset() {
+        mockIndexQueryResults(null);
+        final ConsentRepository repository = new DynamoDbConsentRepository(ddbClient, consentTable, metricsHandler);
+
+        repository.getActiveConsentsWithExpiryHour(TestConstants.TEST_EXPIRY_HOUR, Optional.empty(),
+            OffsetDateTime.parse("2011-12-03T11:15:00+01:00"));
+
+        verifyQueriedBeforeSortKey("2011-12-03T10:15:00Z|");
+    }
+
+    @Test
+    void getActiveConsentsWithExpiryHourWhenNoCutoff() {
+        mockIndexQueryResults(null);
+        final ConsentRepository repository = new DynamoDbConsentRepository(ddbClient, consentTable, metricsHandler);
+
+        repository.getActiveConsentsWithExpiryHour(TestConstants.TEST_EXPIRY_HOUR, Optional.empty());
+
+        verify(consentTable.index(DynamoDbActiveConsentWithExpiryTime.ACTIVE_CONSENTS_BY_EXPIRY_HOUR_GSI_NAME))
+            .query(argThat((QueryEnhancedRequest request) -> !request.queryConditional()
+                .expression(DynamoDbActiveConsentTableSchema.TABLE_SCHEMA,
+                    DynamoDbActiveConsentWithExpiryTime.ACTIVE_CONSENTS_BY_EXPIRY_HOUR_GSI_NAME)
+                .expression()
+                .contains(" < ")));
+    }
+
+    @Test
+    void openExpiredConsentPagesStartsEachQueryFromLastEvaluatedKey() {
+        final Page<DynamoDbActiveConsentWithExpiryTime> page1 = Page.builder(DynamoDbActiveConsentWithExpiryTime.class)
+            .items(ACTIVE_CONSENTS_WITH_EXPIRY.subList(0, 2))
+            .lastEvaluatedKey(NEXT_TOKEN_ATTRIBUTE_VALUE_MAP)
+            .build();
+        final Page<DynamoDbActiveConsentWithExpiryTime> page2 = Page.builder(DynamoDbActiveConsentWithExpiryTime.class)
+            .items(List.of(ACTIVE_CONSENTS_WITH_EXPIRY.get(2)))
+            .build();
+        when(queryResults.stream()).thenReturn(Stream.of(page1), Stream.of(page2));
+        mockIndexQueryResults(queryResults);
+        final ConsentRepository repository = new DynamoDbConsentRepository(ddbClient, consentTable, metricsHandler);
+
+        final ConsentPageCursor cursor = repository.openExpiredConsentPages(TestConstants.TEST_EXPIRY_HOUR, Optional.empty(),
+            new ExpiryTimeCutoff(FUTURE_EXPIRY_TIME.plusHours(1).toInstant()));
+        validateFieldsEqual(ACTIVE_CONSENTS_WITH_EXPIRY.subList(0, 2), cursor.next());
+        assertEquals(NEXT_TOKEN_ATTRIBUTE_VALUE_MAP, DynamoDbExpiryHourTokenMapper.toDynamoDbPageToken(cursor.nextPageToken()));
+        cursor.prefetch();
+        validateFieldsEqual(List.of(ACTIVE_CONSENTS_WITH_EXPIRY.get(2)), cursor.next());
+
+        assertFalse(cursor.hasNext());
+        final DynamoDbIndex<DynamoDbActiveConsentWithExpiryTime> index = consentTable.index(
+            DynamoDbActiveConsentWithExpiryTime.ACTIVE_CONSENTS_BY_EXPIRY_HOUR_GSI_NAME);
+        verify(index).query(argThat((QueryEnhancedRequest request) -> request.exclusiveStartKey() == null));
+        verify(index).query(argThat((QueryEnhancedRequest request) -> NEXT_TOKEN_ATTRIBUTE_VALUE_MAP.equals(request.exclusiveStartKey())));
+    }
+
+    @Test
+    void settingsWhenInvalidQueryPageSize() {
+        final DynamoDbConsentRepositorySettings.Builder settingsBuilder = DynamoDbConsentRepositorySettings.builder().queryPageSize(0);
+        assertThrows(IllegalArgumentException.class, settingsBuilder::build);
+    }
+
+    @Test
+    void settingsWhenInvalidExpiryHourShardCount() {
+        final DynamoDbConsentRepositorySettings.Builder settingsBuilder = DynamoDbConsentRepositorySettings.builder()
+            .expiryHourShardCount(0);
+        assertThrows(IllegalArgumentException.class, settingsBuilder::build);
+    }
+
+    @Test
+    void settingsWhenInvalidMaxConcurrentWrites() {
+        final DynamoDbConsentRepositorySettings.Builder settingsBuilder = DynamoDbConsentRepositorySettings.builder()
+            .maxConcurrentWrites(0);
+        assertThrows(IllegalArgumentException.class, settingsBuilder::build);
+    }
+
+    private ActiveConsentWithExpiryTime toActiveConsent(final DynamoDbActiveConsentWithExpiryTime ddbItem) {
+        return ActiveConsentWithExpiryTime.builder()
+            .id(ddbItem.id())
+            .consentVersion(ddbItem.consentVersion())
+            .expiryHour(ddbItem.expiryHour())
+            .expiryTimeId(ddbItem.expiryTimeId())
+            .build();
+    }
+
     private void validateFieldsEqual(final List<DynamoDbActiveConsentWithExpiryTime> originalDbItems,
             final List<ActiveConsentWithExpiryTime> parsedConsents) {
         assertEquals(originalDbItems.size(), parsedConsents.size());
@@ -211,6 +584,17 @@ class DynamoDbConsentRepositoryTest {
         assertEquals(originalDbItem.expiryTimeId(), parsedConsent.expiryTimeId());
     }
 
+    private void verifyQueriedBeforeSortKey(final String expiryTimeIdBound) {
+        verify(consentTable.index(DynamoDbActiveConsentWithExpiryTime.ACTIVE_CONSENTS_BY_EXPIRY_HOUR_GSI_NAME))
+            .query(argThat((QueryEnhancedRequest request) -> {
+                final Expression keyCondition = request.queryConditional().expression(DynamoDbActiveConsentTableSchema.TABLE_SCHEMA,
+                    DynamoDbActiveConsentWithExpiryTime.ACTIVE_CONSENTS_BY_EXPIRY_HOUR_GSI_NAME);
+                return keyCondition.expression().contains(" < ")
+                    && keyCondition.expressionValues().containsValue(AttributeValue.builder().s(expiryTimeIdBound).build())
+                    && keyCondition.expressionValues().containsValue(AttributeValue.builder().s(TestConstants.TEST_EXPIRY_HOUR).build());
+            }));
+    }
+
     private void mockIndexQueryResults(final SdkIterable<Page<DynamoDbActiveConsentWithExpiryTime>> queryResults) {
         @SuppressWarnings("unchecked")
         final DynamoDbIndex<DynamoDbActiveConsentWithExpiryTime> index = mock(DynamoDbIndex.class);
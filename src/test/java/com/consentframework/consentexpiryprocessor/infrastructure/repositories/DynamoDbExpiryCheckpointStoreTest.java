@@ -0,0 +1,151 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.consentframework.consentexpiryprocessor.infrastructure.configuration.AwsClientFactory;
+import com.consentframework.consentexpiryprocessor.infrastructure.configuration.ConsentExpiryProcessorConfiguration;
+import com.consentframework.consentexpiryprocessor.testcommon.constants.TestConstants;
+import com.consentframework.consentexpiryprocessor.testcommon.dynamodb.FakeDynamoDbServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Runs the DynamoDB checkpoint store over HTTP against FakeDynamoDbServer, so requests are marshalled as they are in production.
+ */
+class DynamoDbExpiryCheckpointStoreTest {
+    private static final String PAGE_TOKEN = "{\"id\":\"" + TestConstants.TEST_PARTITION_KEY + "\"}";
+    private static final String AWS_ACCESS_KEY_ID_PROPERTY = "aws.accessKeyId";
+    private static final String AWS_SECRET_ACCESS_KEY_PROPERTY = "aws.secretAccessKey";
+
+    private FakeDynamoDbServer server;
+    private DynamoDbClient ddbClient;
+
+    @BeforeEach
+    void setup() {
+        System.setProperty(AWS_ACCESS_KEY_ID_PROPERTY, "TestAccessKeyId");
+        System.setProperty(AWS_SECRET_ACCESS_KEY_PROPERTY, "TestSecretAccessKey");
+        server = new FakeDynamoDbServer();
+        ddbClient = new AwsClientFactory(ConsentExpiryProcessorConfiguration.fromEnvironment(Map.of(
+            ConsentExpiryProcessorConfiguration.AWS_REGION_VARIABLE, "us-west-2",
+            ConsentExpiryProcessorConfiguration.DYNAMODB_ENDPOINT_VARIABLE, server.endpoint().toString()))).dynamoDbClient();
+    }
+
+    @AfterEach
+    void teardown() {
+        ddbClient.close();
+        server.close();
+        System.clearProperty(AWS_ACCESS_KEY_ID_PROPERTY);
+        System.clearProperty(AWS_SECRET_ACCESS_KEY_PROPERTY);
+    }
+
+    private DynamoDbExpiryCheckpointStore buildCheckpointStore() {
+        return new DynamoDbExpiryCheckpointStore(ddbClient, DynamoDbExpiryCheckpointStore.DEFAULT_TABLE_NAME);
+    }
+
+    @Test
+    void getPageTokenWhenNoCheckpoint() {
+        assertTrue(buildCheckpointStore().getPageToken(TestConstants.TEST_EXPIRY_HOUR).isEmpty());
+    }
+
+    @Test
+    void savePageTokenPersistsAcrossInstances() {
+        buildCheckpointStore().savePageToken(TestConstants.TEST_EXPIRY_HOUR, PAGE_TOKEN);
+
+        assertEquals(Optional.of(PAGE_TOKEN), buildCheckpointStore().getPageToken(TestConstants.TEST_EXPIRY_HOUR));
+    }
+
+    @Test
+    void savePageTokenWhenExpiryHourDrained() {
+        final DynamoDbExpiryCheckpointStore checkpointStore = buildCheckpointStore();
+        checkpointStore.markExpiryHourDrained(TestConstants.TEST_EXPIRY_HOUR);
+
+        checkpointStore.savePageToken(TestConstants.TEST_EXPIRY_HOUR, PAGE_TOKEN);
+
+        assertTrue(checkpointStore.getPageToken(TestConstants.TEST_EXPIRY_HOUR).isEmpty());
+        assertEquals(Set.of(TestConstants.TEST_EXPIRY_HOUR), checkpointStore.getDrainedExpiryHours());
+    }
+
+    @Test
+    void deletePageTokenPersistsAcrossInstances() {
+        final DynamoDbExpiryCheckpointStore checkpointStore = buildCheckpointStore();
+        checkpointStore.savePageToken(TestConstants.TEST_EXPIRY_HOUR, PAGE_TOKEN);
+        checkpointStore.savePageToken("2011-12-03T11:00Z", PAGE_TOKEN);
+
+        checkpointStore.deletePageToken(TestConstants.TEST_EXPIRY_HOUR);
+        checkpointStore.deletePageToken(TestConstants.TEST_EXPIRY_HOUR);
+
+        final DynamoDbExpiryCheckpointStore reloadedCheckpointStore = buildCheckpointStore();
+        assertTrue(reloadedCheckpointStore.getPageToken(TestConstants.TEST_EXPIRY_HOUR).isEmpty());
+        assertEquals(Optional.of(PAGE_TOKEN), reloadedCheckpointStore.getPageToken("2011-12-03T11:00Z"));
+        assertTrue(server.getCheckpoint(TestConstants.TEST_EXPIRY_HOUR).isEmpty());
+    }
+
+    @Test
+    void deletePageTokenKeepsDrainedMarker() {
+        final DynamoDbExpiryCheckpointStore checkpointStore = buildCheckpointStore();
+        checkpointStore.markExpiryHourDrained(TestConstants.TEST_EXPIRY_HOUR);
+
+        checkpointStore.deletePageToken(TestConstants.TEST_EXPIRY_HOUR);
+
+        assertEquals(Set.of(TestConstants.TEST_EXPIRY_HOUR), buildCheckpointStore().getDrainedExpiryHours());
+    }
+
+    @Test
+    void markExpiryHourDrainedPersistsAcrossInstances() {
+        final DynamoDbExpiryCheckpointStore checkpointStore = buildCheckpointStore();
+        checkpointStore.savePageToken(TestConstants.TEST_EXPIRY_HOUR, PAGE_TOKEN);
+        checkpointStore.savePageToken("2011-12-03T11:00Z", PAGE_TOKEN);
+
+        checkpointStore.markExpiryHourDrained(TestConstants.TEST_EXPIRY_HOUR);
+
+        final DynamoDbExpiryCheckpointStore reloadedCheckpointStore = buildCheckpointStore();
+        assertEquals(Set.of(TestConstants.TEST_EXPIRY_HOUR), reloadedCheckpointStore.getDrainedExpiryHours());
+        assertTrue(reloadedCheckpointStore.getPageToken(TestConstants.TEST_EXPIRY_HOUR).isEmpty());
+        assertEquals(Optional.of(PAGE_TOKEN), reloadedCheckpointStore.getPageToken("2011-12-03T11:00Z"));
+    }
+
+    @Test
+    void forgetExpiryHoursBeforePersistsAcrossInstances() {
+        final DynamoDbExpiryCheckpointStore checkpointStore = buildCheckpointStore();
+        checkpointStore.markExpiryHourDrained("2011-12-03T09:00Z");
+        checkpointStore.markExpiryHourDrained("2011-12-03T10:00Z");
+        checkpointStore.markExpiryHourDrained("2011-12-03T11:00Z");
+        checkpointStore.savePageToken("2011-12-03T08:00Z", PAGE_TOKEN);
+        checkpointStore.savePageToken("2011-12-03T12:00Z", PAGE_TOKEN);
+
+        checkpointStore.forgetExpiryHoursBefore("2011-12-03T10:00Z");
+        checkpointStore.forgetExpiryHoursBefore("2011-12-03T10:00Z");
+
+        final DynamoDbExpiryCheckpointStore reloadedCheckpointStore = buildCheckpointStore();
+        assertEquals(Set.of("2011-12-03T10:00Z", "2011-12-03T11:00Z"), reloadedCheckpointStore.getDrainedExpiryHours());
+        assertTrue(reloadedCheckpointStore.getPageToken("2011-12-03T08:00Z").isEmpty());
+        assertEquals(Optional.of(PAGE_TOKEN), reloadedCheckpointStore.getPageToken("2011-12-03T12:00Z"));
+    }
+
+    @Test
+    void readsWhenTableMissing() {
+        final DynamoDbClient failingClient = mock(DynamoDbClient.class);
+        final ResourceNotFoundException tableMissingException = ResourceNotFoundException.builder()
+            .message("Requested resource not found")
+            .build();
+        when(failingClient.getItem(any(GetItemRequest.class))).thenThrow(tableMissingException);
+        when(failingClient.scanPaginator(any(ScanRequest.class))).thenThrow(tableMissingException);
+        final DynamoDbExpiryCheckpointStore checkpointStore = new DynamoDbExpiryCheckpointStore(failingClient, "MissingTable");
+
+        assertTrue(checkpointStore.getPageToken(TestConstants.TEST_EXPIRY_HOUR).isEmpty());
+        assertTrue(checkpointStore.getDrainedExpiryHours().isEmpty());
+    }
+}
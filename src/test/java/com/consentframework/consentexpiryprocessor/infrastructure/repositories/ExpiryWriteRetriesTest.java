@@ -0,0 +1,80 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.consentframework.consentexpiryprocessor.domain.metrics.ExpiryRunRecorder;
+import com.consentframework.consentexpiryprocessor.infrastructure.throttling.AdaptiveRateLimiter;
+import com.consentframework.consentexpiryprocessor.infrastructure.throttling.ThrottlingRetryPolicy;
+import com.consentframework.consentexpiryprocessor.testcommon.constants.TestConstants;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+
+class ExpiryWriteRetriesTest {
+    private final ProvisionedThroughputExceededException throttlingException = ProvisionedThroughputExceededException.builder()
+        .message("Test throttle")
+        .build();
+
+    private AdaptiveRateLimiter writeRateLimiter;
+    private ExpiryRunRecorder runRecorder;
+    private ExpiryWriteRetries writeRetries;
+
+    @BeforeEach
+    void setup() {
+        writeRateLimiter = new AdaptiveRateLimiter(100);
+        runRecorder = mock(ExpiryRunRecorder.class);
+        writeRetries = new ExpiryWriteRetries(DynamoDbConsentRepositorySettings.builder()
+            .writeRateLimiter(writeRateLimiter)
+            .retryPolicy(new ThrottlingRetryPolicy(2))
+            .runRecorder(runRecorder)
+            .build());
+    }
+
+    @Test
+    void shouldRetryThrottledWriteWithAttemptsLeft() {
+        assertTrue(writeRetries.shouldRetry(TestConstants.TEST_PARTITION_KEY, throttlingException, 1));
+
+        assertTrue(writeRateLimiter.currentPermitsPerSecond() < 100);
+        verify(runRecorder).recordThrottle();
+        verify(runRecorder).recordRetry();
+    }
+
+    @Test
+    void shouldNotRetryThrottledWriteWhenAttemptsExhausted() {
+        assertFalse(writeRetries.shouldRetry(TestConstants.TEST_PARTITION_KEY, throttlingException, 2));
+
+        assertTrue(writeRateLimiter.currentPermitsPerSecond() < 100);
+        verify(runRecorder).recordThrottle();
+        verify(runRecorder, never()).recordRetry();
+    }
+
+    @Test
+    void shouldNotRetryWriteThatWasNotThrottled() {
+        final ConditionalCheckFailedException conditionFailedException = ConditionalCheckFailedException.builder()
+            .message("Test condition failure")
+            .build();
+
+        assertFalse(writeRetries.shouldRetry(TestConstants.TEST_PARTITION_KEY, conditionFailedException, 1));
+
+        assertEquals(100, writeRateLimiter.currentPermitsPerSecond());
+        verify(runRecorder, never()).recordThrottle();
+    }
+
+    @Test
+    void onAcceptedRaisesWriteRateAfterThrottle() {
+        writeRetries.shouldRetry(TestConstants.TEST_PARTITION_KEY, throttlingException, 1);
+        final double throttledPermitsPerSecond = writeRateLimiter.currentPermitsPerSecond();
+
+        writeRetries.onAccepted();
+
+        assertTrue(writeRateLimiter.currentPermitsPerSecond() > throttledPermitsPerSecond);
+        verify(runRecorder, times(1)).recordThrottle();
+    }
+}
@@ -0,0 +1,114 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.consentframework.consentexpiryprocessor.testcommon.constants.TestConstants;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.Set;
+
+class FileExpiryCheckpointStoreTest {
+    private static final String PAGE_TOKEN = "{\"id\":\"" + TestConstants.TEST_PARTITION_KEY + "\"}";
+
+    @TempDir
+    private Path checkpointDirectory;
+
+    @Test
+    void getPageTokenWhenNoCheckpointFile() {
+        final FileExpiryCheckpointStore checkpointStore = new FileExpiryCheckpointStore(checkpointDirectory.resolve("checkpoints.json"));
+
+        assertTrue(checkpointStore.getPageToken(TestConstants.TEST_EXPIRY_HOUR).isEmpty());
+    }
+
+    @Test
+    void savePageTokenPersistsAcrossInstances() {
+        final Path checkpointFile = checkpointDirectory.resolve("checkpoints.json");
+        new FileExpiryCheckpointStore(checkpointFile).savePageToken(TestConstants.TEST_EXPIRY_HOUR, PAGE_TOKEN);
+
+        assertTrue(Files.exists(checkpointFile));
+        assertEquals(Optional.of(PAGE_TOKEN), new FileExpiryCheckpointStore(checkpointFile).getPageToken(TestConstants.TEST_EXPIRY_HOUR));
+    }
+
+    @Test
+    void deletePageTokenPersistsAcrossInstances() {
+        final Path checkpointFile = checkpointDirectory.resolve("checkpoints.json");
+        final FileExpiryCheckpointStore checkpointStore = new FileExpiryCheckpointStore(checkpointFile);
+        checkpointStore.savePageToken(TestConstants.TEST_EXPIRY_HOUR, PAGE_TOKEN);
+        checkpointStore.savePageToken("2011-12-03T11:00Z", PAGE_TOKEN);
+
+        checkpointStore.deletePageToken(TestConstants.TEST_EXPIRY_HOUR);
+        checkpointStore.deletePageToken(TestConstants.TEST_EXPIRY_HOUR);
+
+        final FileExpiryCheckpointStore reloadedCheckpointStore = new FileExpiryCheckpointStore(checkpointFile);
+        assertTrue(reloadedCheckpointStore.getPageToken(TestConstants.TEST_EXPIRY_HOUR).isEmpty());
+        assertEquals(Optional.of(PAGE_TOKEN), reloadedCheckpointStore.getPageToken("2011-12-03T11:00Z"));
+    }
+
+    @Test
+    void markExpiryHourDrainedPersistsAcrossInstances() {
+        final Path checkpointFile = checkpointDirectory.resolve("checkpoints.json");
+        final FileExpiryCheckpointStore checkpointStore = new FileExpiryCheckpointStore(checkpointFile);
+        checkpointStore.savePageToken("2011-12-03T11:00Z", PAGE_TOKEN);
+
+        checkpointStore.markExpiryHourDrained(TestConstants.TEST_EXPIRY_HOUR);
+
+        final FileExpiryCheckpointStore reloadedCheckpointStore = new FileExpiryCheckpointStore(checkpointFile);
+        assertEquals(Set.of(TestConstants.TEST_EXPIRY_HOUR), reloadedCheckpointStore.getDrainedExpiryHours());
+        assertEquals(Optional.of(PAGE_TOKEN), reloadedCheckpointStore.getPageToken("2011-12-03T11:00Z"));
+    }
+
+    @Test
+    void forgetExpiryHoursBeforePersistsAcrossInstances() {
+        final Path checkpointFile = checkpointDirectory.resolve("checkpoints.json");
+        final FileExpiryCheckpointStore checkpointStore = new FileExpiryCheckpointStore(checkpointFile);
+        checkpointStore.markExpiryHourDrained("2011-12-03T09:00Z");
+        checkpointStore.markExpiryHourDrained("2011-12-03T10:00Z");
+        checkpointStore.markExpiryHourDrained("2011-12-03T11:00Z");
+        checkpointStore.savePageToken("2011-12-03T09:00Z", PAGE_TOKEN);
+        checkpointStore.savePageToken("2011-12-03T12:00Z", PAGE_TOKEN);
+
+        checkpointStore.forgetExpiryHoursBefore("2011-12-03T10:00Z");
+        checkpointStore.forgetExpiryHoursBefore("2011-12-03T10:00Z");
+
+        final FileExpiryCheckpointStore reloadedCheckpointStore = new FileExpiryCheckpointStore(checkpointFile);
+        assertEquals(Set.of("2011-12-03T10:00Z", "2011-12-03T11:00Z"), reloadedCheckpointStore.getDrainedExpiryHours());
+        assertEquals(Optional.empty(), reloadedCheckpointStore.getPageToken("2011-12-03T09:00Z"));
+        assertEquals(Optional.of(PAGE_TOKEN), reloadedCheckpointStore.getPageToken("2011-12-03T12:00Z"));
+    }
+
+    @Test
+    void getPageTokenWhenCheckpointFileHasOnlyPageTokens() throws Exception {
+        final Path checkpointFile = checkpointDirectory.resolve("checkpoints.json");
+        Files.writeString(checkpointFile, "{\"" + TestConstants.TEST_EXPIRY_HOUR + "\":\"next-page\"}");
+
+        final FileExpiryCheckpointStore checkpointStore = new FileExpiryCheckpointStore(checkpointFile);
+
+        assertEquals(Optional.of("next-page"), checkpointStore.getPageToken(TestConstants.TEST_EXPIRY_HOUR));
+        assertTrue(checkpointStore.getDrainedExpiryHours().isEmpty());
+    }
+
+    @Test
+    void getPageTokenWhenCheckpointFileCorrupt() throws Exception {
+        final Path checkpointFile = checkpointDirectory.resolve("checkpoints.json");
+        Files.writeString(checkpointFile, "not json");
+
+        assertTrue(new FileExpiryCheckpointStore(checkpointFile).getPageToken(TestConstants.TEST_EXPIRY_HOUR).isEmpty());
+    }
+
+    @Test
+    void savePageTokenWhenCheckpointFileNotWritable() {
+        final Path checkpointFile = checkpointDirectory.resolve("missing-directory").resolve("checkpoints.json");
+        final FileExpiryCheckpointStore checkpointStore = new FileExpiryCheckpointStore(checkpointFile);
+
+        checkpointStore.savePageToken(TestConstants.TEST_EXPIRY_HOUR, PAGE_TOKEN);
+
+        assertFalse(Files.exists(checkpointFile));
+        assertEquals(Optional.of(PAGE_TOKEN), checkpointStore.getPageToken(TestConstants.TEST_EXPIRY_HOUR));
+    }
+}
@@ -1,10 +1,14 @@
 package com.consentframework.consentexpiryprocessor.infrastructure.repositories;
 
+import com.consentframework.consentexpiryprocessor.domain.constants.ConsentExpiryStatus;
 import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
 import com.consentframework.consentexpiryprocessor.domain.repositories.ConsentRepository;
 import com.consentframework.shared.api.domain.pagination.ListPage;
+import com.consentframework.shared.api.infrastructure.mappers.DynamoDbConsentExpiryTimeConverter;
 
+import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -14,15 +18,17 @@ import java.util.Optional;
  * In-memory implementation of the consent repository, used for testing.
  *
  * Once have implemented the DynamoDB consent repository, this class will be moved to the test directory.
+ *
+ * Safe to share across threads, each expiry hour's consent list is locked while a page is read from it.
  */
 public class InMemoryConsentRepository implements ConsentRepository {
     public static final Integer MAX_PAGE_SIZE = 2;
 
     // In-memory map from expiry hour to active consents with expiry times during that hour
-    final Map<String, List<ActiveConsentWithExpiryTime>> activeConsentsPerExpiryHour = new HashMap<>();
+    final Map<String, List<ActiveConsentWithExpiryTime>> activeConsentsPerExpiryHour = Collections.synchronizedMap(new HashMap<>());
 
     // Map from consent partition key to consent object, enables expiring consents by id
-    final Map<String, ActiveConsentWithExpiryTime> consentsByPartitionKey = new HashMap<>();
+    final Map<String, ActiveConsentWithExpiryTime> consentsByPartitionKey = Collections.synchronizedMap(new HashMap<>());
 
     /**
      * Constructs an in-memory consent repository.
@@ -36,7 +42,7 @@ public class InMemoryConsentRepository implements ConsentRepository {
         consentsByExpiryHour.forEach((expiryHour, consents) -> {
             // Make a mutable copy of the input list to avoid modifying the caller's list,
             // and to allow adding/removing consents from the in-memory repository.
-            final List<ActiveConsentWithExpiryTime> consentsExpiringInHour = new ArrayList<>();
+            final List<ActiveConsentWithExpiryTime> consentsExpiringInHour = Collections.synchronizedList(new ArrayList<>());
             consentsExpiringInHour.addAll(consents);
 
             activeConsentsPerExpiryHour.put(expiryHour, consentsExpiringInHour);
@@ -56,20 +62,49 @@ public class InMemoryConsentRepository implements ConsentRepository {
             return new ListPage<>(List.of(), Optional.empty());
         }
 
+        synchronized (consents) {
+            return getPage(consents, pageToken);
+        }
+    }
+
+    /**
+     * Retrieves a paginated list of active consents that expired before the cutoff.
+     *
+     * Consents are filtered before the page is cut, like a DynamoDB sort key condition,
+     * so that consents which have not expired yet are never returned.
+     */
+    @Override
+    public ListPage<ActiveConsentWithExpiryTime> getActiveConsentsWithExpiryHour(final String expiryHour,
+            final Optional<String> pageToken, final OffsetDateTime expiredBefore) {
+        final List<ActiveConsentWithExpiryTime> consents = activeConsentsPerExpiryHour.get(expiryHour);
+        if (consents == null) {
+            return new ListPage<>(List.of(), Optional.empty());
+        }
+
+        synchronized (consents) {
+            final List<ActiveConsentWithExpiryTime> expiredConsents = consents.stream()
+                .filter(consent -> DynamoDbConsentExpiryTimeConverter.toOffsetDateTimeFromExpiryTimeId(consent.expiryTimeId())
+                    .isBefore(expiredBefore))
+                .toList();
+            return getPage(expiredConsents, pageToken);
+        }
+    }
+
+    private ListPage<ActiveConsentWithExpiryTime> getPage(final List<ActiveConsentWithExpiryTime> consents,
+            final Optional<String> pageToken) {
         final int firstIndex = pageToken.map(partitionKey -> consents.indexOf(consentsByPartitionKey.get(partitionKey)))
             .orElse(0);
         final int nextIndex = Math.min(firstIndex + MAX_PAGE_SIZE, consents.size());
 
         // Copy to a new list to avoid callers indirectly modifying the repository's consent list.
         final List<ActiveConsentWithExpiryTime> consentsOnPage = List.copyOf(consents.subList(firstIndex, nextIndex));
-        final Optional<String> nextPageToken = getNextPageToken(expiryHour, nextIndex);
+        final Optional<String> nextPageToken = getNextPageToken(consents, nextIndex);
 
         return new ListPage<>(consentsOnPage, nextPageToken);
     }
 
-    private Optional<String> getNextPageToken(final String expiryHour, final int nextIndex) {
-        final List<ActiveConsentWithExpiryTime> consents = activeConsentsPerExpiryHour.get(expiryHour);
-        if (consents == null || consents.size() <= nextIndex) {
+    private Optional<String> getNextPageToken(final List<ActiveConsentWithExpiryTime> consents, final int nextIndex) {
+        if (consents.size() <= nextIndex) {
             return Optional.empty();
         }
 
@@ -78,11 +113,15 @@ public class InMemoryConsentRepository implements ConsentRepository {
     }
 
     /**
-     * Updates the status of a consent to expired.
+     * Updates the status of a consent to expired, failing its condition if the consent is no longer active
+     * or has a different version, as the DynamoDB conditional update would.
      */
     @Override
-    public void expireConsent(final String id, final String updatedVersion) {
+    public ConsentExpiryStatus expireConsent(final String id, final String updatedVersion) {
         final ActiveConsentWithExpiryTime consent = consentsByPartitionKey.get(id);
+        if (consent == null || !updatedVersion.equals(String.valueOf(consent.consentVersion() + 1))) {
+            return ConsentExpiryStatus.CONDITION_FAILED;
+        }
         consentsByPartitionKey.remove(id);
 
         final String expiryHour = consent.expiryHour();
@@ -90,5 +129,6 @@ public class InMemoryConsentRepository implements ConsentRepository {
         if (consentsExpiringThisHour != null) {
             consentsExpiringThisHour.remove(consent);
         }
+        return ConsentExpiryStatus.SUCCESS;
     }
 }
@@ -2,9 +2,17 @@ package com.consentframework.consentexpiryprocessor.infrastructure.repositories;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
 
+import com.consentframework.consentexpiryprocessor.domain.constants.ConsentExpiryStatus;
 import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
+import com.consentframework.consentexpiryprocessor.domain.entities.ConsentExpiryResult;
+import com.consentframework.consentexpiryprocessor.domain.entities.ExpiryTimeCutoff;
+import com.consentframework.consentexpiryprocessor.domain.repositories.ConsentPageCursor;
 import com.consentframework.consentexpiryprocessor.testcommon.constants.TestConstants;
 import com.consentframework.consentexpiryprocessor.testcommon.utils.ActiveConsentWithExpiryTimeGenerator;
 import com.consentframework.shared.api.domain.pagination.ListPage;
@@ -13,6 +21,7 @@ import org.junit.jupiter.api.Test;
 
 import java.time.OffsetDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -108,6 +117,49 @@ class InMemoryConsentRepositoryTest {
         assertTrue(pageConsents.nextPageToken().isEmpty());
     }
 
+    @Test
+    void getActiveConsentsWithExpiryHourWhenExpiredBeforeCutoff() {
+        final InMemoryConsentRepository repository = new InMemoryConsentRepository(TEST_CONSENTS_BY_EXPIRY_HOUR);
+
+        // Only the first three consents expire before the cutoff, the rest must not be read
+        final OffsetDateTime expiredBefore = FIRST_HOUR_DATETIME.plusMinutes(25);
+        final ListPage<ActiveConsentWithExpiryTime> firstPage = repository.getActiveConsentsWithExpiryHour(
+            FIRST_EXPIRY_HOUR, Optional.empty(), expiredBefore);
+        final ListPage<ActiveConsentWithExpiryTime> lastPage = repository.getActiveConsentsWithExpiryHour(
+            FIRST_EXPIRY_HOUR, firstPage.nextPageToken(), expiredBefore);
+
+        assertEquals(CONSENTS_EXPIRING_FIRST_HOUR.subList(0, 2), firstPage.resultsOnPage());
+        assertEquals(List.of(CONSENTS_EXPIRING_FIRST_HOUR.get(2)), lastPage.resultsOnPage());
+        assertTrue(lastPage.nextPageToken().isEmpty());
+    }
+
+    @Test
+    void getActiveConsentsWithExpiryHourWhenNoneExpiredBeforeCutoff() {
+        final InMemoryConsentRepository repository = new InMemoryConsentRepository(TEST_CONSENTS_BY_EXPIRY_HOUR);
+
+        final ListPage<ActiveConsentWithExpiryTime> pageConsents = repository.getActiveConsentsWithExpiryHour(
+            SECOND_EXPIRY_HOUR, Optional.empty(), FIRST_HOUR_DATETIME.plusMinutes(70));
+
+        assertTrue(pageConsents.resultsOnPage().isEmpty());
+        assertTrue(pageConsents.nextPageToken().isEmpty());
+        assertTrue(repository.getActiveConsentsWithExpiryHour(TestConstants.TEST_EXPIRY_HOUR, Optional.empty(),
+            FIRST_HOUR_DATETIME).resultsOnPage().isEmpty());
+    }
+
+    @Test
+    void openExpiredConsentPages() {
+        final InMemoryConsentRepository repository = new InMemoryConsentRepository(TEST_CONSENTS_BY_EXPIRY_HOUR);
+
+        final ConsentPageCursor cursor = repository.openExpiredConsentPages(FIRST_EXPIRY_HOUR, Optional.empty(),
+            new ExpiryTimeCutoff(FIRST_HOUR_DATETIME.plusMinutes(25).toInstant()));
+        final List<ActiveConsentWithExpiryTime> expiredConsents = new ArrayList<>();
+        while (cursor.hasNext()) {
+            expiredConsents.addAll(cursor.next());
+        }
+
+        assertEquals(CONSENTS_EXPIRING_FIRST_HOUR.subList(0, 3), expiredConsents);
+    }
+
     @Test
     void expireConsent() {
         final InMemoryConsentRepository repository = new InMemoryConsentRepository(TEST_CONSENTS_BY_EXPIRY_HOUR);
@@ -123,4 +175,53 @@ class InMemoryConsentRepositoryTest {
         assertEquals(CONSENTS_EXPIRING_FIRST_HOUR.get(0), activeConsents.get(0));
         assertEquals(CONSENTS_EXPIRING_FIRST_HOUR.get(3), activeConsents.get(1));
     }
+
+    @Test
+    void expireConsentWhenVersionChanged() {
+        final InMemoryConsentRepository repository = new InMemoryConsentRepository(TEST_CONSENTS_BY_EXPIRY_HOUR);
+        final ActiveConsentWithExpiryTime consent = CONSENTS_EXPIRING_FIRST_HOUR.get(0);
+
+        assertEquals(ConsentExpiryStatus.CONDITION_FAILED,
+            repository.expireConsent(consent.id(), String.valueOf(consent.consentVersion() + 2)));
+        assertEquals(consent, repository.getActiveConsentsWithExpiryHour(FIRST_EXPIRY_HOUR, Optional.empty()).resultsOnPage().get(0));
+    }
+
+    @Test
+    void expireConsentsWhenConsentAlreadyExpired() {
+        final InMemoryConsentRepository repository = new InMemoryConsentRepository(TEST_CONSENTS_BY_EXPIRY_HOUR);
+        final ActiveConsentWithExpiryTime unknownConsent = ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(),
+            FIRST_HOUR_DATETIME.plusMinutes(50));
+
+        final List<ConsentExpiryResult> results = repository.expireConsents(List.of(unknownConsent, CONSENTS_EXPIRING_FIRST_HOUR.get(0)));
+
+        assertEquals(List.of(
+            ConsentExpiryResult.builder().id(unknownConsent.id()).status(ConsentExpiryStatus.CONDITION_FAILED).build(),
+            ConsentExpiryResult.builder().id(CONSENTS_EXPIRING_FIRST_HOUR.get(0).id()).status(ConsentExpiryStatus.SUCCESS).build()
+        ), results);
+        assertEquals(CONSENTS_EXPIRING_FIRST_HOUR.get(1),
+            repository.getActiveConsentsWithExpiryHour(FIRST_EXPIRY_HOUR, Optional.empty()).resultsOnPage().get(0));
+    }
+
+    @Test
+    void expireConsentsReportsStatusOfEachConsent() {
+        final InMemoryConsentRepository repository = spy(new InMemoryConsentRepository(TEST_CONSENTS_BY_EXPIRY_HOUR));
+        doReturn(ConsentExpiryStatus.THROTTLED).when(repository).expireConsent(CONSENTS_EXPIRING_FIRST_HOUR.get(0).id(), "2");
+
+        final List<ConsentExpiryResult> results = repository.expireConsents(CONSENTS_EXPIRING_FIRST_HOUR.subList(0, 2));
+
+        assertEquals(List.of(
+            ConsentExpiryResult.builder().id(CONSENTS_EXPIRING_FIRST_HOUR.get(0).id()).status(ConsentExpiryStatus.THROTTLED).build(),
+            ConsentExpiryResult.builder().id(CONSENTS_EXPIRING_FIRST_HOUR.get(1).id()).status(ConsentExpiryStatus.SUCCESS).build()
+        ), results);
+    }
+
+    @Test
+    void expireConsentsRethrowsErrors() {
+        final InMemoryConsentRepository repository = spy(new InMemoryConsentRepository(TEST_CONSENTS_BY_EXPIRY_HOUR));
+        final IllegalStateException testException = new IllegalStateException("Test table failure");
+        doThrow(testException).when(repository).expireConsent(CONSENTS_EXPIRING_FIRST_HOUR.get(0).id(), "2");
+
+        final List<ActiveConsentWithExpiryTime> consents = CONSENTS_EXPIRING_FIRST_HOUR.subList(0, 2);
+        assertEquals(testException, assertThrows(IllegalStateException.class, () -> repository.expireConsents(consents)));
+    }
 }
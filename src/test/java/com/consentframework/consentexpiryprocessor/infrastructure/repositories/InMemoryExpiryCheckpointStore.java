@@ -0,0 +1,50 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.repositories;
+
+import com.consentframework.consentexpiryprocessor.domain.repositories.ExpiryCheckpointStore;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * In-memory implementation of the checkpoint store, used for testing.
+ */
+public class InMemoryExpiryCheckpointStore implements ExpiryCheckpointStore {
+    // In-memory map from expiry hour to the token of the next page to process
+    final ConcurrentSkipListMap<String, String> pageTokensPerExpiryHour = new ConcurrentSkipListMap<>();
+
+    // In-memory set of expiry hours with no active consents left to expire
+    final ConcurrentSkipListSet<String> drainedExpiryHours = new ConcurrentSkipListSet<>();
+
+    @Override
+    public Optional<String> getPageToken(final String expiryHour) {
+        return Optional.ofNullable(pageTokensPerExpiryHour.get(expiryHour));
+    }
+
+    @Override
+    public void savePageToken(final String expiryHour, final String pageToken) {
+        pageTokensPerExpiryHour.put(expiryHour, pageToken);
+    }
+
+    @Override
+    public void deletePageToken(final String expiryHour) {
+        pageTokensPerExpiryHour.remove(expiryHour);
+    }
+
+    @Override
+    public Set<String> getDrainedExpiryHours() {
+        return Set.copyOf(drainedExpiryHours);
+    }
+
+    @Override
+    public void markExpiryHourDrained(final String expiryHour) {
+        drainedExpiryHours.add(expiryHour);
+    }
+
+    @Override
+    public void forgetExpiryHoursBefore(final String oldestExpiryHour) {
+        pageTokensPerExpiryHour.headMap(oldestExpiryHour).clear();
+        drainedExpiryHours.headSet(oldestExpiryHour).clear();
+    }
+}
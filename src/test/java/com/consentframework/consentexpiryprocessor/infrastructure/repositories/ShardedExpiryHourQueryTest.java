@@ -0,0 +1,187 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
+import com.consentframework.consentexpiryprocessor.domain.repositories.PrefetchingConsentPageCursor.KeyedPage;
+import com.consentframework.consentexpiryprocessor.infrastructure.repositories.ShardedExpiryHourQuery.ShardedPosition;
+import com.consentframework.consentexpiryprocessor.testcommon.constants.TestConstants;
+import com.consentframework.consentexpiryprocessor.testcommon.utils.JsonPageTokenEncoder;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+class ShardedExpiryHourQueryTest {
+    private static final String EXPIRY_HOUR = TestConstants.TEST_EXPIRY_HOUR;
+    private static final String SHARD_0 = EXPIRY_HOUR + "#0";
+    private static final String SHARD_1 = EXPIRY_HOUR + "#1";
+    private static final Map<String, AttributeValue> LAST_EVALUATED_KEY = Map.of("id", AttributeValue.fromS("lastEvaluated"));
+    private static final int PAGE_SIZE = 10;
+
+    @Test
+    void toPartitionKeys() {
+        assertEquals(List.of(EXPIRY_HOUR, SHARD_0, SHARD_1), ShardedExpiryHourQuery.toPartitionKeys(EXPIRY_HOUR, 2));
+    }
+
+    @Test
+    void toStartPositionWhenNoPageToken() {
+        assertEquals(Map.of(EXPIRY_HOUR, Map.of(), SHARD_0, Map.of(), SHARD_1, Map.of()),
+            ShardedExpiryHourQuery.toStartPosition(EXPIRY_HOUR, 2, Optional.empty()));
+    }
+
+    @Test
+    void toStartPositionWhenUnshardedPageToken() {
+        final String pageToken = JsonPageTokenEncoder.toJsonString(LAST_EVALUATED_KEY);
+
+        assertEquals(Map.of(EXPIRY_HOUR, LAST_EVALUATED_KEY, SHARD_0, Map.of(), SHARD_1, Map.of()),
+            ShardedExpiryHourQuery.toStartPosition(EXPIRY_HOUR, 2, Optional.of(pageToken)));
+    }
+
+    @Test
+    void toStartPositionWhenShardedPageToken() {
+        final Map<String, Map<String, AttributeValue>> position = Map.of(SHARD_1, LAST_EVALUATED_KEY);
+
+        assertEquals(position, ShardedExpiryHourQuery.toStartPosition(EXPIRY_HOUR, 2,
+            Optional.of(JsonPageTokenEncoder.toShardedJsonString(position))));
+    }
+
+    @Test
+    void toPartitionPageSize() {
+        assertEquals(333, ShardedExpiryHourQuery.toPartitionPageSize(1000, 3));
+        assertEquals(1, ShardedExpiryHourQuery.toPartitionPageSize(1, 4));
+    }
+
+    @Test
+    void queryMergedPageNeverExceedsPageSize() {
+        // The unsharded partition is queried alongside the shards
+        final Map<String, Map<String, AttributeValue>> position = ShardedExpiryHourQuery.toStartPosition(EXPIRY_HOUR, 2, Optional.empty());
+
+        for (int pageSize = position.size(); pageSize <= 100; pageSize++) {
+            // Every partition fills its page and is then exhausted, so every consent read is merged
+            final KeyedPage<ShardedPosition> mergedPage = ShardedExpiryHourQuery
+                .queryMergedPage(ShardedPosition.of(position), pageSize, (partitionKey, exclusiveStartKey, partitionPageSize) ->
+                    CompletableFuture.completedFuture(new KeyedPage<>(IntStream.range(0, partitionPageSize)
+                        .mapToObj(i -> consent(partitionKey + i, partitionKey, String.format("%03d", i)))
+                        .toList(), Optional.empty())))
+                .join();
+
+            assertTrue(mergedPage.consents().size() <= pageSize,
+                "Merged page of " + mergedPage.consents().size() + " consents exceeds page size " + pageSize);
+            assertTrue(mergedPage.consents().size() > pageSize - position.size());
+        }
+    }
+
+    @Test
+    void queryMergedPageHoldsBackConsentsAfterEarliestPartitionEnd() {
+        final Map<String, Map<String, AttributeValue>> position = new LinkedHashMap<>();
+        position.put(SHARD_0, Map.of());
+        position.put(SHARD_1, Map.of());
+        final Map<String, KeyedPage<Map<String, AttributeValue>>> pages = Map.of(
+            SHARD_0, new KeyedPage<>(List.of(consent("a", SHARD_0, "1"), consent("b", SHARD_0, "3")), Optional.of(LAST_EVALUATED_KEY)),
+            SHARD_1, new KeyedPage<>(List.of(consent("c", SHARD_1, "2"), consent("d", SHARD_1, "4")), Optional.empty()));
+
+        final KeyedPage<ShardedPosition> mergedPage = ShardedExpiryHourQuery
+            .queryMergedPage(ShardedPosition.of(position), PAGE_SIZE,
+                (partitionKey, exclusiveStartKey, partitionPageSize) -> CompletableFuture.completedFuture(pages.get(partitionKey)))
+            .join();
+
+        assertEquals(List.of("a", "c", "b"), mergedPage.consents().stream().map(ActiveConsentWithExpiryTime::id).toList());
+        assertEquals(Optional.of(Map.of(
+            SHARD_0, LAST_EVALUATED_KEY,
+            SHARD_1, Map.of(
+                "id", AttributeValue.fromS("c"),
+                "expiryHour", AttributeValue.fromS(SHARD_1),
+                "expiryTimeId", AttributeValue.fromS("2")))), mergedPage.lastEvaluatedKey().map(ShardedPosition::exclusiveStartKeys));
+        assertEquals(Map.of(SHARD_1, new KeyedPage<>(List.of(consent("d", SHARD_1, "4")), Optional.empty())),
+            mergedPage.lastEvaluatedKey().orElseThrow().heldBackPages());
+    }
+
+    @Test
+    void queryMergedPageTopsUpHeldBackConsentsWithoutReadingThemAgain() {
+        final Map<String, AttributeValue> shard1LastEvaluatedKey = Map.of("id", AttributeValue.fromS("shard1LastEvaluated"));
+        final ShardedPosition position = new ShardedPosition(
+            Map.of(SHARD_0, LAST_EVALUATED_KEY, SHARD_1, Map.of("id", AttributeValue.fromS("c"))),
+            Map.of(SHARD_1, new KeyedPage<>(List.of(consent("d", SHARD_1, "4")), Optional.of(shard1LastEvaluatedKey))));
+        final List<String> queries = new ArrayList<>();
+
+        final KeyedPage<ShardedPosition> mergedPage = ShardedExpiryHourQuery
+            .queryMergedPage(position, PAGE_SIZE, (partitionKey, exclusiveStartKey, partitionPageSize) -> {
+                queries.add(partitionKey + " after " + exclusiveStartKey.get("id").s() + " limit " + partitionPageSize);
+                return CompletableFuture.completedFuture(SHARD_0.equals(partitionKey)
+                    ? new KeyedPage<>(List.of(consent("e", SHARD_0, "5")), Optional.empty())
+                    : new KeyedPage<>(List.of(consent("f", SHARD_1, "6")), Optional.empty()));
+            })
+            .join();
+
+        assertEquals(List.of("d", "e", "f"), mergedPage.consents().stream().map(ActiveConsentWithExpiryTime::id).toList());
+        assertEquals(List.of(SHARD_0 + " after lastEvaluated limit 5", SHARD_1 + " after shard1LastEvaluated limit 4"),
+            queries.stream().sorted().toList());
+        assertEquals(Optional.empty(), mergedPage.lastEvaluatedKey());
+    }
+
+    @Test
+    void queryMergedPageReturnsExhaustedPartitionHeldBackConsentsWithoutQuery() {
+        final ShardedPosition position = new ShardedPosition(
+            Map.of(SHARD_1, Map.of("id", AttributeValue.fromS("c"))),
+            Map.of(SHARD_1, new KeyedPage<>(List.of(consent("d", SHARD_1, "4")), Optional.empty())));
+
+        final KeyedPage<ShardedPosition> mergedPage = ShardedExpiryHourQuery
+            .queryMergedPage(position, PAGE_SIZE, (partitionKey, exclusiveStartKey, partitionPageSize) -> {
+                throw new AssertionError("Queried exhausted partition " + partitionKey);
+            })
+            .join();
+
+        assertEquals(List.of("d"), mergedPage.consents().stream().map(ActiveConsentWithExpiryTime::id).toList());
+        assertEquals(Optional.empty(), mergedPage.lastEvaluatedKey());
+    }
+
+    @Test
+    void queryMergedPageWhenPartitionReturnsEmptyPageWithMorePages() {
+        final Map<String, Map<String, AttributeValue>> position = new LinkedHashMap<>();
+        position.put(SHARD_0, LAST_EVALUATED_KEY);
+        position.put(SHARD_1, Map.of());
+        final Map<String, KeyedPage<Map<String, AttributeValue>>> pages = Map.of(
+            SHARD_0, new KeyedPage<>(List.of(), Optional.of(LAST_EVALUATED_KEY)),
+            SHARD_1, new KeyedPage<>(List.of(consent("c", SHARD_1, "2")), Optional.empty()));
+
+        final KeyedPage<ShardedPosition> mergedPage = ShardedExpiryHourQuery
+            .queryMergedPage(ShardedPosition.of(position), PAGE_SIZE,
+                (partitionKey, exclusiveStartKey, partitionPageSize) -> CompletableFuture.completedFuture(pages.get(partitionKey)))
+            .join();
+
+        assertEquals(List.of(), mergedPage.consents());
+        assertEquals(Optional.of(new ShardedPosition(position, Map.of(SHARD_1, pages.get(SHARD_1)))), mergedPage.lastEvaluatedKey());
+    }
+
+    @Test
+    void queryMergedPageWhenEveryPartitionExhausted() {
+        final Map<String, KeyedPage<Map<String, AttributeValue>>> pages = Map.of(
+            EXPIRY_HOUR, new KeyedPage<>(List.of(consent("b", EXPIRY_HOUR, "2")), Optional.empty()),
+            SHARD_0, new KeyedPage<>(List.of(consent("a", SHARD_0, "1")), Optional.empty()));
+
+        final KeyedPage<ShardedPosition> mergedPage = ShardedExpiryHourQuery
+            .queryMergedPage(ShardedPosition.of(Map.of(EXPIRY_HOUR, Map.of(), SHARD_0, Map.of())), PAGE_SIZE,
+                (partitionKey, exclusiveStartKey, partitionPageSize) -> CompletableFuture.completedFuture(pages.get(partitionKey)))
+            .join();
+
+        assertEquals(List.of("a", "b"), mergedPage.consents().stream().map(ActiveConsentWithExpiryTime::id).toList());
+        assertEquals(Optional.empty(), mergedPage.lastEvaluatedKey());
+    }
+
+    private static ActiveConsentWithExpiryTime consent(final String id, final String partitionKey, final String expiryTimeId) {
+        return ActiveConsentWithExpiryTime.builder()
+            .id(id)
+            .consentVersion(1)
+            .expiryHour(partitionKey)
+            .expiryTimeId(expiryTimeId)
+            .build();
+    }
+}
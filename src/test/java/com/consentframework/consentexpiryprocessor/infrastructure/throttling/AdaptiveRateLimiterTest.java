@@ -0,0 +1,126 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.throttling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+class AdaptiveRateLimiterTest {
+    private static final long NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AtomicLong nanoClock = new AtomicLong();
+
+    @Test
+    void reserveWhenPermitsAvailable() {
+        final AdaptiveRateLimiter rateLimiter = new AdaptiveRateLimiter(100, nanoClock::get);
+
+        assertEquals(0, rateLimiter.reserve());
+    }
+
+    @Test
+    void reserveWhenPermitsExhausted() {
+        final AdaptiveRateLimiter rateLimiter = new AdaptiveRateLimiter(100, nanoClock::get);
+
+        assertEquals(0, rateLimiter.reserve());
+        assertEquals(10 * NANOS_PER_MILLI, rateLimiter.reserve());
+        assertEquals(20 * NANOS_PER_MILLI, rateLimiter.reserve());
+
+        nanoClock.addAndGet(30 * NANOS_PER_MILLI);
+        assertEquals(0, rateLimiter.reserve());
+    }
+
+    @Test
+    void reserveWhenIdleAllowsBurstOfOneSecond() {
+        final AdaptiveRateLimiter rateLimiter = new AdaptiveRateLimiter(100, nanoClock::get);
+
+        nanoClock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, rateLimiter.reserve());
+        }
+        assertEquals(10 * NANOS_PER_MILLI, rateLimiter.reserve());
+    }
+
+    @Test
+    void onThrottleHalvesRateOncePerCooldown() {
+        final AdaptiveRateLimiter rateLimiter = new AdaptiveRateLimiter(100, nanoClock::get);
+
+        rateLimiter.onThrottle();
+        rateLimiter.onThrottle();
+        assertEquals(50, rateLimiter.currentPermitsPerSecond());
+
+        nanoClock.addAndGet(AdaptiveRateLimiter.DECREASE_COOLDOWN_NANOS);
+        rateLimiter.onThrottle();
+        assertEquals(25, rateLimiter.currentPermitsPerSecond());
+    }
+
+    @Test
+    void onThrottleDiscardsStoredBurst() {
+        final AdaptiveRateLimiter rateLimiter = new AdaptiveRateLimiter(100, nanoClock::get);
+        nanoClock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+        rateLimiter.onThrottle();
+
+        assertEquals(20 * NANOS_PER_MILLI, rateLimiter.reserve());
+    }
+
+    @Test
+    void onThrottleDoesNotDecreaseBelowMinimumRate() {
+        final AdaptiveRateLimiter rateLimiter = new AdaptiveRateLimiter(2, nanoClock::get);
+
+        for (int i = 0; i < 5; i++) {
+            rateLimiter.onThrottle();
+            nanoClock.addAndGet(AdaptiveRateLimiter.DECREASE_COOLDOWN_NANOS);
+        }
+
+        assertEquals(AdaptiveRateLimiter.MIN_PERMITS_PER_SECOND, rateLimiter.currentPermitsPerSecond());
+    }
+
+    @Test
+    void onSuccessIncreasesRateUpToMaximum() {
+        final AdaptiveRateLimiter rateLimiter = new AdaptiveRateLimiter(100, nanoClock::get);
+        rateLimiter.onThrottle();
+
+        // About one second of successful requests at the lowered rate raises it by a twentieth of the maximum
+        for (int i = 0; i < 50; i++) {
+            rateLimiter.onSuccess();
+        }
+        final double increasedRate = rateLimiter.currentPermitsPerSecond();
+        assertTrue(increasedRate > 54.5 && increasedRate < 55, "Unexpected rate " + increasedRate);
+
+        for (int i = 0; i < 10_000; i++) {
+            rateLimiter.onSuccess();
+        }
+        assertEquals(100, rateLimiter.currentPermitsPerSecond());
+    }
+
+    @Test
+    void acquireWaitsForReservedPermit() {
+        final AdaptiveRateLimiter rateLimiter = new AdaptiveRateLimiter(100);
+
+        final long startNanos = System.nanoTime();
+        rateLimiter.acquire();
+        rateLimiter.acquire();
+
+        assertTrue(System.nanoTime() - startNanos >= 9 * NANOS_PER_MILLI);
+    }
+
+    @Test
+    void acquireWhenInterrupted() {
+        final AdaptiveRateLimiter rateLimiter = new AdaptiveRateLimiter(1, nanoClock::get);
+        rateLimiter.reserve();
+
+        Thread.currentThread().interrupt();
+        assertThrows(IllegalStateException.class, rateLimiter::acquire);
+        assertTrue(Thread.interrupted());
+    }
+
+    @Test
+    void constructorWhenInvalidMaxPermitsPerSecond() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveRateLimiter(0.5));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveRateLimiter(Double.NaN));
+    }
+}
@@ -0,0 +1,65 @@
+package com.consentframework.consentexpiryprocessor.infrastructure.throttling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.stream.IntStream;
+
+class ThrottlingRetryPolicyTest {
+    private static final Duration BASE_DELAY = Duration.ofMillis(50);
+    private static final Duration MAX_DELAY = Duration.ofMillis(300);
+
+    @Test
+    void shouldRetryUntilMaxAttempts() {
+        final ThrottlingRetryPolicy retryPolicy = new ThrottlingRetryPolicy(3);
+
+        assertEquals(3, retryPolicy.maxAttempts());
+        assertTrue(retryPolicy.shouldRetry(1));
+        assertTrue(retryPolicy.shouldRetry(2));
+        assertFalse(retryPolicy.shouldRetry(3));
+    }
+
+    @Test
+    void backoffNanosDoublesUpToMaxDelay() {
+        final ThrottlingRetryPolicy retryPolicy = new ThrottlingRetryPolicy(10, BASE_DELAY, MAX_DELAY, () -> 1.0);
+
+        assertEquals(BASE_DELAY.toNanos(), retryPolicy.backoffNanos(1));
+        assertEquals(BASE_DELAY.multipliedBy(2).toNanos(), retryPolicy.backoffNanos(2));
+        assertEquals(BASE_DELAY.multipliedBy(4).toNanos(), retryPolicy.backoffNanos(3));
+        assertEquals(MAX_DELAY.toNanos(), retryPolicy.backoffNanos(4));
+        assertEquals(MAX_DELAY.toNanos(), retryPolicy.backoffNanos(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void backoffNanosIsJittered() {
+        final ThrottlingRetryPolicy retryPolicy = new ThrottlingRetryPolicy(10, BASE_DELAY, MAX_DELAY);
+
+        final long numDistinctDelays = IntStream.range(0, 100)
+            .mapToLong(i -> retryPolicy.backoffNanos(2))
+            .peek(delayNanos -> assertTrue(delayNanos >= 0 && delayNanos < BASE_DELAY.multipliedBy(2).toNanos()))
+            .distinct()
+            .count();
+        assertTrue(numDistinctDelays > 1);
+    }
+
+    @Test
+    void sleepBeforeRetryWhenInterrupted() {
+        final ThrottlingRetryPolicy retryPolicy = new ThrottlingRetryPolicy(2, BASE_DELAY, MAX_DELAY, () -> 1.0);
+
+        Thread.currentThread().interrupt();
+        assertThrows(IllegalStateException.class, () -> retryPolicy.sleepBeforeRetry(1));
+        assertTrue(Thread.interrupted());
+    }
+
+    @Test
+    void constructorWhenInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new ThrottlingRetryPolicy(0));
+        assertThrows(IllegalArgumentException.class, () -> new ThrottlingRetryPolicy(2, Duration.ofMillis(-1), MAX_DELAY));
+        assertThrows(IllegalArgumentException.class, () -> new ThrottlingRetryPolicy(2, MAX_DELAY, BASE_DELAY));
+    }
+}
@@ -0,0 +1,678 @@
+package com.consentframework.consentexpiryprocessor.testcommon.dynamodb;
+
+import com.consentframework.consentexpiryprocessor.domain.constants.ActiveConsentWithExpiryTimeAttributeName;
+import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
+import com.consentframework.consentexpiryprocessor.infrastructure.repositories.DynamoDbExpiryCheckpointStore;
+import com.consentframework.shared.api.infrastructure.entities.DynamoDbActiveConsentWithExpiryTime;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Embedded HTTP server speaking enough of the DynamoDB JSON protocol to run the consent repositories against it,
+ * so the real request path can be load tested and exercised end to end without DynamoDB Local or an AWS account.
+ *
+ * Supports Query on the ActiveConsentsByExpiryHour index, conditional UpdateItem, BatchWriteItem and TransactWriteItems,
+ * with the expressions the consent repositories send: key conditions and conditions made of comparisons joined by AND,
+ * attribute_exists and attribute_not_exists, and update expressions made of SET and REMOVE clauses. Requests to the
+ * default expiry checkpoint table are served from a separate table keyed by expiryHour, supporting GetItem, conditional
+ * PutItem and DeleteItem, and Scan. Other table names are not checked, those requests are served from the consent table keyed by id.
+ *
+ * Each query and write can be delayed by a fixed latency, writes can be rejected as throttled at a given rate,
+ * and query pages can be capped below the requested limit.
+ */
+public final class FakeDynamoDbServer implements AutoCloseable {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final String ERROR_TYPE_PREFIX = "com.amazonaws.dynamodb.v20120810#";
+    private static final String CONTENT_TYPE = "application/x-amz-json-1.0";
+    private static final String ID = ActiveConsentWithExpiryTimeAttributeName.ID.getValue();
+    private static final String CONSENT_VERSION = ActiveConsentWithExpiryTimeAttributeName.CONSENT_VERSION.getValue();
+    private static final String EXPIRY_HOUR = ActiveConsentWithExpiryTimeAttributeName.EXPIRY_HOUR.getValue();
+    private static final String EXPIRY_TIME_ID = ActiveConsentWithExpiryTimeAttributeName.EXPIRY_TIME_ID.getValue();
+    private static final String CHECKPOINT_TABLE_NAME = DynamoDbExpiryCheckpointStore.DEFAULT_TABLE_NAME;
+    private static final Pattern COMPARISON = Pattern.compile("\\s*(#?\\w+)\\s*(=|<>|<=|<|>=|>)\\s*(:\\w+)\\s*");
+    private static final Pattern ATTRIBUTE_FUNCTION = Pattern.compile(
+        "\\s*(attribute_exists|attribute_not_exists)\\s*\\(\\s*(#?\\w+)\\s*\\)\\s*");
+    private static final Pattern CONJUNCTION = Pattern.compile("\\s+AND\\s+", Pattern.CASE_INSENSITIVE);
+    private static final Pattern UPDATE_CLAUSE = Pattern.compile("(SET|REMOVE)\\s+(.+?)(?=\\s+(?:SET|REMOVE)\\s+|$)",
+        Pattern.CASE_INSENSITIVE);
+    private static final Pattern ASSIGNMENT = Pattern.compile("\\s*(#?\\w+)\\s*=\\s*(:\\w+)\\s*");
+
+    private final Duration queryLatency;
+    private final Duration writeLatency;
+    private final double throttleRate;
+    private final int maxPageSize;
+
+    private final Map<String, ObjectNode> items = new ConcurrentHashMap<>();
+    private final Map<String, NavigableMap<String, String>> idsPerExpiryHour = new ConcurrentHashMap<>();
+    private final Map<String, ObjectNode> checkpointItems = new ConcurrentHashMap<>();
+    // Single-item writes share the lock, transactions take it exclusively so that they apply atomically
+    private final ReadWriteLock transactionLock = new ReentrantReadWriteLock();
+    private final Map<String, LongAdder> requestCounts = new ConcurrentHashMap<>();
+    private final LongAdder numThrottledRequests = new LongAdder();
+
+    private final ExecutorService executor;
+    private final HttpServer server;
+
+    /**
+     * Starts a server without latency or throttling, returning up to the requested number of items per page.
+     */
+    public FakeDynamoDbServer() {
+        this(Duration.ZERO, Duration.ZERO, 0.0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Starts a server on a free loopback port.
+     *
+     * @param queryLatency The delay before each query is answered.
+     * @param writeLatency The delay before each write request is answered.
+     * @param throttleRate The fraction of write requests rejected with ProvisionedThroughputExceededException, from 0 to 1.
+     * @param maxPageSize The maximum number of items returned per query page, whatever limit is requested.
+     */
+    public FakeDynamoDbServer(final Duration queryLatency, final Duration writeLatency, final double throttleRate,
+            final int maxPageSize) {
+        if (throttleRate < 0.0 || throttleRate > 1.0) {
+            throw new IllegalArgumentException("throttleRate must be between 0 and 1, received: " + throttleRate);
+        }
+        if (maxPageSize < 1) {
+            throw new IllegalArgumentException("maxPageSize must be positive, received: " + maxPageSize);
+        }
+        this.queryLatency = queryLatency;
+        this.writeLatency = writeLatency;
+        this.throttleRate = throttleRate;
+        this.maxPageSize = maxPageSize;
+
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        } catch (final IOException e) {
+            executor.close();
+            throw new UncheckedIOException("Failed to start fake DynamoDB server", e);
+        }
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * Returns the endpoint to point DynamoDB clients at.
+     *
+     * @return Server endpoint.
+     */
+    public URI endpoint() {
+        return URI.create("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort());
+    }
+
+    /**
+     * Stores an active consent, indexed by its expiry hour and expiryTimeId, replacing any consent with the same id.
+     *
+     * @param consent The consent to store.
+     */
+    public void putConsent(final ActiveConsentWithExpiryTime consent) {
+        final ObjectNode item = OBJECT_MAPPER.createObjectNode();
+        item.set(ID, stringValue(consent.id()));
+        item.set(CONSENT_VERSION, OBJECT_MAPPER.createObjectNode().put("N", String.valueOf(consent.consentVersion())));
+        item.set(EXPIRY_HOUR, stringValue(consent.expiryHour()));
+        item.set(EXPIRY_TIME_ID, stringValue(consent.expiryTimeId()));
+        item.set("consentStatus", stringValue("ACTIVE"));
+        write(consent.id(), existing -> item);
+    }
+
+    /**
+     * Stores active consents, as putConsent does for each.
+     *
+     * @param consents The consents to store.
+     */
+    public void putConsents(final Collection<ActiveConsentWithExpiryTime> consents) {
+        consents.forEach(this::putConsent);
+    }
+
+    /**
+     * Removes every item and resets the request counts.
+     */
+    public void clear() {
+        transactionLock.writeLock().lock();
+        try {
+            items.clear();
+            idsPerExpiryHour.clear();
+            checkpointItems.clear();
+            requestCounts.clear();
+            numThrottledRequests.reset();
+        } finally {
+            transactionLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves an item in DynamoDB JSON form, e.g. {"id": {"S": "..."}}.
+     *
+     * @param id The item's partition key.
+     * @return The item, empty if there is none with this id.
+     */
+    public Optional<JsonNode> getItem(final String id) {
+        return Optional.ofNullable(items.get(id)).map(JsonNode::deepCopy);
+    }
+
+    /**
+     * Retrieves an expiry checkpoint item in DynamoDB JSON form, e.g. {"expiryHour": {"S": "..."}, "drained": {"BOOL": true}}.
+     *
+     * @param expiryHour The expiry hour, with format "2021-12-31T23:00Z".
+     * @return The checkpoint item, empty if there is none for this expiry hour.
+     */
+    public Optional<JsonNode> getCheckpoint(final String expiryHour) {
+        return Optional.ofNullable(checkpointItems.get(expiryHour)).map(JsonNode::deepCopy);
+    }
+
+    /**
+     * Counts the consents still in an expiry hour's partition of the index.
+     *
+     * @param expiryHour The expiry hour, with format "2021-12-31T23:00Z".
+     * @return Number of indexed consents.
+     */
+    public int countIndexedConsents(final String expiryHour) {
+        return idsPerExpiryHour.getOrDefault(expiryHour, new ConcurrentSkipListMap<>()).size();
+    }
+
+    /**
+     * Counts the consents still in the index, across all expiry hours.
+     *
+     * @return Number of indexed consents.
+     */
+    public long countIndexedConsents() {
+        return idsPerExpiryHour.values().stream().mapToLong(Map::size).sum();
+    }
+
+    /**
+     * Returns the number of requests received for an operation, including throttled ones.
+     *
+     * @param operation The operation name, e.g. "UpdateItem".
+     * @return Request count.
+     */
+    public long getRequestCount(final String operation) {
+        final LongAdder requestCount = requestCounts.get(operation);
+        return requestCount == null ? 0 : requestCount.sum();
+    }
+
+    /**
+     * Returns the number of write requests rejected as throttled.
+     *
+     * @return Throttled request count.
+     */
+    public long getNumThrottledRequests() {
+        return numThrottledRequests.sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        try (exchange) {
+            final String target = exchange.getRequestHeaders().getFirst("X-Amz-Target");
+            final String operation = target == null ? "" : target.substring(target.indexOf('.') + 1);
+            requestCounts.computeIfAbsent(operation, name -> new LongAdder()).increment();
+
+            int statusCode = 200;
+            JsonNode response;
+            try {
+                response = dispatch(operation, OBJECT_MAPPER.readTree(exchange.getRequestBody()));
+            } catch (final FakeDynamoDbException e) {
+                statusCode = 400;
+                response = e.toResponse();
+            } catch (final RuntimeException e) {
+                statusCode = 500;
+                response = new FakeDynamoDbException("InternalServerError", String.valueOf(e.getMessage())).toResponse();
+            }
+
+            final byte[] responseBody = OBJECT_MAPPER.writeValueAsBytes(response);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.getResponseHeaders().set("x-amzn-RequestId", UUID.randomUUID().toString());
+            exchange.sendResponseHeaders(statusCode, responseBody.length);
+            exchange.getResponseBody().write(responseBody);
+        }
+    }
+
+    private JsonNode dispatch(final String operation, final JsonNode request) {
+        if (CHECKPOINT_TABLE_NAME.equals(request.path("TableName").asText())) {
+            return dispatchCheckpointRequest(operation, request);
+        }
+        return switch (operation) {
+            case "Query" -> {
+                delay(queryLatency);
+                yield query(request);
+            }
+            case "UpdateItem" -> {
+                beginWrite();
+                write(keyId(request.path("Key")), existing -> update(request, existing));
+                yield OBJECT_MAPPER.createObjectNode();
+            }
+            case "BatchWriteItem" -> {
+                beginWrite();
+                yield batchWriteItem(request);
+            }
+            case "TransactWriteItems" -> {
+                beginWrite();
+                yield transactWriteItems(request);
+            }
+            default -> throw validationError("Operation not supported by the fake: " + operation);
+        };
+    }
+
+    private JsonNode dispatchCheckpointRequest(final String operation, final JsonNode request) {
+        final ObjectNode response = OBJECT_MAPPER.createObjectNode();
+        switch (operation) {
+            case "GetItem" -> {
+                final ObjectNode item = checkpointItems.get(checkpointKey(request.path("Key")));
+                if (item != null) {
+                    response.set("Item", item.deepCopy());
+                }
+            }
+            case "PutItem" -> checkpointItems.compute(checkpointKey(request.path("Item")), (expiryHour, existing) -> {
+                checkCondition(request, existing);
+                return request.path("Item").deepCopy();
+            });
+            case "DeleteItem" -> checkpointItems.compute(checkpointKey(request.path("Key")), (expiryHour, existing) -> {
+                checkCondition(request, existing);
+                return null;
+            });
+            case "Scan" -> {
+                final ArrayNode responseItems = response.putArray("Items");
+                checkpointItems.values().forEach(item -> responseItems.add(item.deepCopy()));
+                response.put("Count", responseItems.size());
+                response.put("ScannedCount", responseItems.size());
+            }
+            default -> throw validationError("Operation not supported on the checkpoint table by the fake: " + operation);
+        }
+        return response;
+    }
+
+    private ObjectNode query(final JsonNode request) {
+        if (!DynamoDbActiveConsentWithExpiryTime.ACTIVE_CONSENTS_BY_EXPIRY_HOUR_GSI_NAME.equals(request.path("IndexName").asText())) {
+            throw validationError("Only the " + DynamoDbActiveConsentWithExpiryTime.ACTIVE_CONSENTS_BY_EXPIRY_HOUR_GSI_NAME
+                + " index can be queried");
+        }
+
+        String expiryHour = null;
+        final List<Matcher> sortKeyConditions = new ArrayList<>();
+        for (final String clause : CONJUNCTION.split(request.path("KeyConditionExpression").asText())) {
+            final Matcher comparison = COMPARISON.matcher(clause);
+            if (!comparison.matches()) {
+                throw validationError("Unsupported key condition: " + clause);
+            }
+            final String attributeName = attributeName(request, comparison.group(1));
+            if (EXPIRY_HOUR.equals(attributeName) && "=".equals(comparison.group(2))) {
+                expiryHour = attributeValue(request, comparison.group(3)).path("S").asText();
+            } else if (EXPIRY_TIME_ID.equals(attributeName)) {
+                sortKeyConditions.add(comparison);
+            } else {
+                throw validationError("Unsupported key condition: " + clause);
+            }
+        }
+        if (expiryHour == null) {
+            throw validationError("Key condition must select an expiry hour");
+        }
+
+        NavigableMap<String, String> ids = idsPerExpiryHour.getOrDefault(expiryHour, new ConcurrentSkipListMap<>());
+        for (final Matcher sortKeyCondition : sortKeyConditions) {
+            ids = applySortKeyCondition(ids, sortKeyCondition.group(2),
+                attributeValue(request, sortKeyCondition.group(3)).path("S").asText());
+        }
+        if (request.has("ExclusiveStartKey")) {
+            ids = ids.tailMap(request.path("ExclusiveStartKey").path(EXPIRY_TIME_ID).path("S").asText(), false);
+        }
+        if (!request.path("ScanIndexForward").asBoolean(true)) {
+            ids = ids.descendingMap();
+        }
+
+        final int limit = Math.min(request.path("Limit").asInt(Integer.MAX_VALUE), maxPageSize);
+        final List<String> projectedAttributeNames = request.has("ProjectionExpression")
+            ? Arrays.stream(request.path("ProjectionExpression").asText().split(","))
+                .map(name -> attributeName(request, name.trim()))
+                .toList()
+            : null;
+        final ObjectNode response = OBJECT_MAPPER.createObjectNode();
+        final ArrayNode responseItems = response.putArray("Items");
+        for (final String id : ids.values()) {
+            final ObjectNode item = items.get(id);
+            if (item == null) {
+                continue;
+            }
+            responseItems.add(project(item, projectedAttributeNames));
+            if (responseItems.size() == limit) {
+                // As in DynamoDB, a full page has a last evaluated key even when no items follow it
+                final ObjectNode lastEvaluatedKey = response.putObject("LastEvaluatedKey");
+                lastEvaluatedKey.set(ID, item.get(ID));
+                lastEvaluatedKey.set(EXPIRY_HOUR, item.get(EXPIRY_HOUR));
+                lastEvaluatedKey.set(EXPIRY_TIME_ID, item.get(EXPIRY_TIME_ID));
+                break;
+            }
+        }
+        response.put("Count", responseItems.size());
+        response.put("ScannedCount", responseItems.size());
+        return response;
+    }
+
+    private static NavigableMap<String, String> applySortKeyCondition(final NavigableMap<String, String> ids,
+            final String operator, final String value) {
+        return switch (operator) {
+            case "=" -> ids.subMap(value, true, value, true);
+            case "<" -> ids.headMap(value, false);
+            case "<=" -> ids.headMap(value, true);
+            case ">" -> ids.tailMap(value, false);
+            case ">=" -> ids.tailMap(value, true);
+            default -> throw validationError("Unsupported key condition operator: " + operator);
+        };
+    }
+
+    private static ObjectNode project(final ObjectNode item, final List<String> projectedAttributeNames) {
+        if (projectedAttributeNames == null) {
+            return item.deepCopy();
+        }
+        final ObjectNode projectedItem = OBJECT_MAPPER.createObjectNode();
+        projectedAttributeNames.stream()
+            .filter(item::has)
+            .forEach(name -> projectedItem.set(name, item.get(name).deepCopy()));
+        return projectedItem;
+    }
+
+    private ObjectNode batchWriteItem(final JsonNode request) {
+        request.path("RequestItems").forEach(tableRequests -> tableRequests.forEach(writeRequest -> {
+            if (writeRequest.has("PutRequest")) {
+                final JsonNode item = writeRequest.path("PutRequest").path("Item");
+                write(keyId(item), existing -> item.deepCopy());
+            } else if (writeRequest.has("DeleteRequest")) {
+                write(keyId(writeRequest.path("DeleteRequest").path("Key")), existing -> null);
+            } else {
+                throw validationError("Unsupported batch write request: " + writeRequest);
+            }
+        }));
+        final ObjectNode response = OBJECT_MAPPER.createObjectNode();
+        response.putObject("UnprocessedItems");
+        return response;
+    }
+
+    /**
+     * Checks every action's condition before applying any of them, cancelling the whole transaction if one fails.
+     */
+    private ObjectNode transactWriteItems(final JsonNode request) {
+        transactionLock.writeLock().lock();
+        try {
+            final Map<String, ObjectNode> updatedItems = new HashMap<>();
+            final List<String> cancellationCodes = new ArrayList<>();
+            boolean cancelled = false;
+            for (final JsonNode transactItem : request.path("TransactItems")) {
+                final Map.Entry<String, JsonNode> action = transactItem.fields().next();
+                final JsonNode actionRequest = action.getValue();
+                final String id = keyId(actionRequest.has("Item") ? actionRequest.path("Item") : actionRequest.path("Key"));
+                if (updatedItems.containsKey(id)) {
+                    throw validationError("Transaction request cannot include multiple operations on one item");
+                }
+                try {
+                    updatedItems.put(id, applyTransactAction(action.getKey(), actionRequest, items.get(id)));
+                    cancellationCodes.add("None");
+                } catch (final FakeDynamoDbException e) {
+                    if (!"ConditionalCheckFailedException".equals(e.errorType)) {
+                        throw e;
+                    }
+                    cancellationCodes.add("ConditionalCheckFailed");
+                    cancelled = true;
+                }
+            }
+            if (cancelled) {
+                throw new TransactionCanceledException(cancellationCodes);
+            }
+
+            updatedItems.forEach((id, updatedItem) -> {
+                final ObjectNode existing = updatedItem == null ? items.remove(id) : items.put(id, updatedItem);
+                reindex(id, existing, updatedItem);
+            });
+            return OBJECT_MAPPER.createObjectNode();
+        } finally {
+            transactionLock.writeLock().unlock();
+        }
+    }
+
+    private ObjectNode applyTransactAction(final String actionType, final JsonNode actionRequest, final ObjectNode existing) {
+        return switch (actionType) {
+            case "Update" -> update(actionRequest, existing);
+            case "Put" -> {
+                checkCondition(actionRequest, existing);
+                yield actionRequest.path("Item").deepCopy();
+            }
+            case "Delete" -> {
+                checkCondition(actionRequest, existing);
+                yield null;
+            }
+            case "ConditionCheck" -> {
+                checkCondition(actionRequest, existing);
+                yield existing;
+            }
+            default -> throw validationError("Unsupported transaction action: " + actionType);
+        };
+    }
+
+    /**
+     * Applies a single-item write atomically, keeping the index in step with the item.
+     */
+    private void write(final String id, final ItemWrite itemWrite) {
+        transactionLock.readLock().lock();
+        try {
+            items.compute(id, (itemId, existing) -> {
+                final ObjectNode updatedItem = itemWrite.apply(existing);
+                reindex(itemId, existing, updatedItem);
+                return updatedItem;
+            });
+        } finally {
+            transactionLock.readLock().unlock();
+        }
+    }
+
+    private ObjectNode update(final JsonNode request, final ObjectNode existing) {
+        checkCondition(request, existing);
+        final ObjectNode updatedItem;
+        if (existing == null) {
+            updatedItem = OBJECT_MAPPER.createObjectNode();
+            updatedItem.setAll((ObjectNode) request.path("Key"));
+        } else {
+            updatedItem = existing.deepCopy();
+        }
+
+        final Matcher updateClause = UPDATE_CLAUSE.matcher(request.path("UpdateExpression").asText().trim());
+        while (updateClause.find()) {
+            for (final String action : updateClause.group(2).split(",")) {
+                if ("SET".equalsIgnoreCase(updateClause.group(1))) {
+                    final Matcher assignment = ASSIGNMENT.matcher(action);
+                    if (!assignment.matches()) {
+                        throw validationError("Unsupported update action: " + action);
+                    }
+                    updatedItem.set(attributeName(request, assignment.group(1)), attributeValue(request, assignment.group(2)).deepCopy());
+                } else {
+                    updatedItem.remove(attributeName(request, action.trim()));
+                }
+            }
+        }
+        return updatedItem;
+    }
+
+    private static void checkCondition(final JsonNode request, final ObjectNode existing) {
+        if (!request.has("ConditionExpression")) {
+            return;
+        }
+        for (final String clause : CONJUNCTION.split(request.path("ConditionExpression").asText())) {
+            if (!isConditionMet(request, clause, existing)) {
+                throw new FakeDynamoDbException("ConditionalCheckFailedException", "The conditional request failed");
+            }
+        }
+    }
+
+    private static boolean isConditionMet(final JsonNode request, final String clause, final ObjectNode existing) {
+        final Matcher attributeFunction = ATTRIBUTE_FUNCTION.matcher(clause);
+        if (attributeFunction.matches()) {
+            final boolean attributeExists = existing != null && existing.has(attributeName(request, attributeFunction.group(2)));
+            return "attribute_exists".equals(attributeFunction.group(1)) == attributeExists;
+        }
+
+        final Matcher comparison = COMPARISON.matcher(clause);
+        if (!comparison.matches() || !List.of("=", "<>").contains(comparison.group(2))) {
+            throw validationError("Unsupported condition: " + clause);
+        }
+        final JsonNode actualValue = existing == null ? null : existing.get(attributeName(request, comparison.group(1)));
+        final boolean isEqual = attributeValue(request, comparison.group(3)).equals(actualValue);
+        return "=".equals(comparison.group(2)) == isEqual;
+    }
+
+    private void reindex(final String id, final ObjectNode existing, final ObjectNode updatedItem) {
+        if (existing != null && existing.has(EXPIRY_HOUR) && existing.has(EXPIRY_TIME_ID)) {
+            final NavigableMap<String, String> ids = idsPerExpiryHour.get(existing.get(EXPIRY_HOUR).path("S").asText());
+            if (ids != null) {
+                ids.remove(existing.get(EXPIRY_TIME_ID).path("S").asText(), id);
+            }
+        }
+        if (updatedItem != null && updatedItem.has(EXPIRY_HOUR) && updatedItem.has(EXPIRY_TIME_ID)) {
+            idsPerExpiryHour.computeIfAbsent(updatedItem.get(EXPIRY_HOUR).path("S").asText(), expiryHour -> new ConcurrentSkipListMap<>())
+                .put(updatedItem.get(EXPIRY_TIME_ID).path("S").asText(), id);
+        }
+    }
+
+    private void beginWrite() {
+        delay(writeLatency);
+        if (throttleRate > 0.0 && ThreadLocalRandom.current().nextDouble() < throttleRate) {
+            numThrottledRequests.increment();
+            throw new FakeDynamoDbException("ProvisionedThroughputExceededException",
+                "The level of configured provisioned throughput for the table was exceeded");
+        }
+    }
+
+    private static void delay(final Duration latency) {
+        if (latency.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(latency);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while delaying response", e);
+        }
+    }
+
+    private static String keyId(final JsonNode key) {
+        final String id = key.path(ID).path("S").asText(null);
+        if (id == null) {
+            throw validationError("Key must include the " + ID + " attribute");
+        }
+        return id;
+    }
+
+    private static String checkpointKey(final JsonNode key) {
+        final String expiryHour = key.path(EXPIRY_HOUR).path("S").asText(null);
+        if (expiryHour == null) {
+            throw validationError("Key must include the " + EXPIRY_HOUR + " attribute");
+        }
+        return expiryHour;
+    }
+
+    private static String attributeName(final JsonNode request, final String nameOrPlaceholder) {
+        if (!nameOrPlaceholder.startsWith("#")) {
+            return nameOrPlaceholder;
+        }
+        final JsonNode name = request.path("ExpressionAttributeNames").get(nameOrPlaceholder);
+        if (name == null) {
+            throw validationError("Missing expression attribute name: " + nameOrPlaceholder);
+        }
+        return name.asText();
+    }
+
+    private static JsonNode attributeValue(final JsonNode request, final String placeholder) {
+        final JsonNode value = request.path("ExpressionAttributeValues").get(placeholder);
+        if (value == null) {
+            throw validationError("Missing expression attribute value: " + placeholder);
+        }
+        return value;
+    }
+
+    private static ObjectNode stringValue(final String value) {
+        return OBJECT_MAPPER.createObjectNode().put("S", value);
+    }
+
+    private static FakeDynamoDbException validationError(final String message) {
+        return new FakeDynamoDbException("ValidationException", message);
+    }
+
+    /**
+     * Computes an item's new value from its current one, null if it does not exist or should be deleted.
+     */
+    @FunctionalInterface
+    private interface ItemWrite {
+        ObjectNode apply(ObjectNode existing);
+    }
+
+    /**
+     * Error returned to the client as a DynamoDB error response.
+     */
+    private static class FakeDynamoDbException extends RuntimeException {
+        private final String errorType;
+
+        FakeDynamoDbException(final String errorType, final String message) {
+            super(message);
+            this.errorType = errorType;
+        }
+
+        ObjectNode toResponse() {
+            return OBJECT_MAPPER.createObjectNode()
+                .put("__type", ERROR_TYPE_PREFIX + errorType)
+                .put("message", getMessage());
+        }
+    }
+
+    /**
+     * Transaction cancellation, with one reason per action in the order the actions were sent.
+     */
+    private static final class TransactionCanceledException extends FakeDynamoDbException {
+        private final List<String> cancellationCodes;
+
+        TransactionCanceledException(final List<String> cancellationCodes) {
+            super("TransactionCanceledException",
+                "Transaction cancelled, please refer cancellation reasons for specific reasons " + cancellationCodes);
+            this.cancellationCodes = cancellationCodes;
+        }
+
+        @Override
+        ObjectNode toResponse() {
+            final ObjectNode response = super.toResponse();
+            final ArrayNode cancellationReasons = response.putArray("CancellationReasons");
+            cancellationCodes.forEach(code -> cancellationReasons.addObject().put("Code", code));
+            return response;
+        }
+    }
+}
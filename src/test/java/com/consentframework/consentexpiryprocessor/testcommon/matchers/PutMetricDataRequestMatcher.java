@@ -5,8 +5,13 @@ import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
 import software.amazon.awssdk.services.cloudwatch.model.PutMetricDataRequest;
 import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
 
+import java.util.List;
+
 /**
  * A matcher for {@link PutMetricDataRequest} that validates that non-timestamp attributes match the input.
+ *
+ * The request may hold other metrics flushed at the same time, such as the run report's latencies,
+ * but must hold exactly one datum with the expected metric name.
  */
 public class PutMetricDataRequestMatcher implements ArgumentMatcher<PutMetricDataRequest> {
     private final String metricNamespace;
@@ -30,13 +35,13 @@ public class PutMetricDataRequestMatcher implements ArgumentMatcher<PutMetricDat
         if (!metricNamespace.equals(argument.namespace())) {
             return false;
         }
-        if (argument.metricData().size() != 1) {
-            return false;
-        }
-        final MetricDatum datum = argument.metricData().get(0);
-        if (!metricName.equals(datum.metricName())) {
+        final List<MetricDatum> matchingData = argument.metricData().stream()
+            .filter(datum -> metricName.equals(datum.metricName()))
+            .toList();
+        if (matchingData.size() != 1) {
             return false;
         }
+        final MetricDatum datum = matchingData.get(0);
         if (!StandardUnit.COUNT.equals(datum.unit())) {
             return false;
         }
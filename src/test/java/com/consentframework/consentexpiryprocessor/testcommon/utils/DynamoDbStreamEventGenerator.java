@@ -0,0 +1,85 @@
+package com.consentframework.consentexpiryprocessor.testcommon.utils;
+
+import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
+import com.consentframework.consentexpiryprocessor.infrastructure.mappers.DynamoDbStreamEventMapper;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Utility class for generating test DynamoDB Streams events, in the form the Lambda runtime passes them to handlers.
+ */
+public final class DynamoDbStreamEventGenerator {
+    private DynamoDbStreamEventGenerator() {}
+
+    /**
+     * Generates an event holding the given stream records.
+     *
+     * @param streamRecords The stream records.
+     * @return The generated event.
+     */
+    @SafeVarargs
+    public static Map<String, Object> generateEvent(final Map<String, Object>... streamRecords) {
+        return Map.of(DynamoDbStreamEventMapper.RECORDS_KEY, List.of(streamRecords));
+    }
+
+    /**
+     * Generates a record for an active consent being written with an expiry time.
+     *
+     * @param eventName The event name, INSERT or MODIFY.
+     * @param consent The consent as written.
+     * @return The generated stream record.
+     */
+    public static Map<String, Object> generateActiveConsentRecord(final String eventName, final ActiveConsentWithExpiryTime consent) {
+        final Map<String, Object> newImage = new LinkedHashMap<>();
+        newImage.put("id", Map.of("S", consent.id()));
+        newImage.put("consentVersion", Map.of("N", consent.consentVersion().toString()));
+        newImage.put(DynamoDbStreamEventMapper.CONSENT_STATUS_ATTRIBUTE_NAME, Map.of("S", DynamoDbStreamEventMapper.ACTIVE_STATUS));
+        newImage.put("expiryHour", Map.of("S", consent.expiryHour()));
+        newImage.put("expiryTimeId", Map.of("S", consent.expiryTimeId()));
+        return generateRecord(eventName, consent.id(), newImage);
+    }
+
+    /**
+     * Generates a record for a consent being expired, which removes its expiry time.
+     *
+     * @param id The consent partition key.
+     * @param consentVersion The consent version after it was expired.
+     * @return The generated stream record.
+     */
+    public static Map<String, Object> generateExpiredConsentRecord(final String id, final int consentVersion) {
+        return generateRecord("MODIFY", id, Map.of(
+            "id", Map.of("S", id),
+            "consentVersion", Map.of("N", String.valueOf(consentVersion)),
+            DynamoDbStreamEventMapper.CONSENT_STATUS_ATTRIBUTE_NAME, Map.of("S", "EXPIRED")));
+    }
+
+    /**
+     * Generates a record for a consent being deleted.
+     *
+     * @param id The consent partition key.
+     * @return The generated stream record.
+     */
+    public static Map<String, Object> generateRemoveRecord(final String id) {
+        return Map.of(
+            DynamoDbStreamEventMapper.EVENT_NAME_KEY, DynamoDbStreamEventMapper.REMOVE_EVENT_NAME,
+            DynamoDbStreamEventMapper.DYNAMODB_KEY, Map.of(DynamoDbStreamEventMapper.KEYS_KEY, Map.of("id", Map.of("S", id))));
+    }
+
+    /**
+     * Generates a record with the given new image.
+     *
+     * @param eventName The event name, INSERT or MODIFY.
+     * @param id The consent partition key.
+     * @param newImage The item after it was written, in the DynamoDB JSON format.
+     * @return The generated stream record.
+     */
+    public static Map<String, Object> generateRecord(final String eventName, final String id, final Map<String, Object> newImage) {
+        return Map.of(
+            DynamoDbStreamEventMapper.EVENT_NAME_KEY, eventName,
+            DynamoDbStreamEventMapper.DYNAMODB_KEY, Map.of(
+                DynamoDbStreamEventMapper.KEYS_KEY, Map.of("id", Map.of("S", id)),
+                DynamoDbStreamEventMapper.NEW_IMAGE_KEY, newImage));
+    }
+}
@@ -0,0 +1,61 @@
+package com.consentframework.consentexpiryprocessor.testcommon.utils;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import software.amazon.awssdk.core.async.SdkPublisher;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SdkPublisher that synchronously emits a fixed list of items as they are requested, used to stub async query results.
+ */
+public class IterablePublisher<T> implements SdkPublisher<T> {
+    private final List<T> items;
+    private final AtomicInteger numItemsEmitted = new AtomicInteger();
+
+    /**
+     * Constructs a publisher of the given items.
+     *
+     * @param items The items to publish, in order.
+     */
+    public IterablePublisher(final List<T> items) {
+        this.items = items;
+    }
+
+    /**
+     * Returns the number of items delivered to subscribers, used to validate that unneeded items are not requested.
+     *
+     * @return number of items emitted.
+     */
+    public int numItemsEmitted() {
+        return numItemsEmitted.get();
+    }
+
+    @Override
+    public void subscribe(final Subscriber<? super T> subscriber) {
+        final Iterator<T> iterator = items.iterator();
+        subscriber.onSubscribe(new Subscription() {
+            private boolean completed = false;
+
+            @Override
+            public void request(final long n) {
+                for (long i = 0; i < n && !completed; i++) {
+                    if (!iterator.hasNext()) {
+                        completed = true;
+                        subscriber.onComplete();
+                        return;
+                    }
+                    numItemsEmitted.incrementAndGet();
+                    subscriber.onNext(iterator.next());
+                }
+            }
+
+            @Override
+            public void cancel() {
+                completed = true;
+            }
+        });
+    }
+}
@@ -0,0 +1,39 @@
+package com.consentframework.consentexpiryprocessor.testcommon.utils;
+
+import com.consentframework.consentexpiryprocessor.infrastructure.mappers.DynamoDbExpiryHourTokenMapper;
+import software.amazon.awssdk.enhanced.dynamodb.document.EnhancedDocument;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Encodes page tokens in the JSON form issued before the binary form, such as those still saved in checkpoints,
+ * so tests and benchmarks can check they are still decoded.
+ */
+public final class JsonPageTokenEncoder {
+    private JsonPageTokenEncoder() {}
+
+    /**
+     * Converts the DynamoDB page token of a single partition to a JSON string.
+     *
+     * @param pageToken DynamoDB AttributeValue map representation of the page token.
+     * @return JSON string representation of the page token.
+     */
+    public static String toJsonString(final Map<String, AttributeValue> pageToken) {
+        return EnhancedDocument.fromAttributeValueMap(pageToken).toJson();
+    }
+
+    /**
+     * Converts the DynamoDB positions of each partition of a sharded expiry hour to a JSON string.
+     *
+     * @param exclusiveStartKeys Exclusive start key per partition key, empty to read the partition from its start.
+     * @return JSON string representation of the page token.
+     */
+    public static String toShardedJsonString(final Map<String, Map<String, AttributeValue>> exclusiveStartKeys) {
+        final Map<String, AttributeValue> shards = new LinkedHashMap<>();
+        exclusiveStartKeys.forEach((partitionKey, exclusiveStartKey) ->
+            shards.put(partitionKey, AttributeValue.builder().m(exclusiveStartKey).build()));
+        return toJsonString(Map.of(DynamoDbExpiryHourTokenMapper.SHARDS_KEY, AttributeValue.builder().m(shards).build()));
+    }
+}
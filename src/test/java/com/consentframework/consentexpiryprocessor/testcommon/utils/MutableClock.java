@@ -0,0 +1,47 @@
+package com.consentframework.consentexpiryprocessor.testcommon.utils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * UTC clock whose current time only changes when advanced by the test.
+ */
+public class MutableClock extends Clock {
+    private Instant currentTime;
+
+    /**
+     * Constructs a clock starting at the given time.
+     *
+     * @param startTime The initial time.
+     */
+    public MutableClock(final Instant startTime) {
+        this.currentTime = startTime;
+    }
+
+    /**
+     * Moves the clock forward.
+     *
+     * @param duration The amount of time to advance the clock by.
+     */
+    public synchronized void advance(final Duration duration) {
+        currentTime = currentTime.plus(duration);
+    }
+
+    @Override
+    public synchronized Instant instant() {
+        return currentTime;
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(final ZoneId zone) {
+        throw new UnsupportedOperationException("MutableClock only supports UTC");
+    }
+}
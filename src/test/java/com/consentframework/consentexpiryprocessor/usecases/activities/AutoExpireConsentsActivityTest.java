@@ -1,30 +1,57 @@
 package com.consentframework.consentexpiryprocessor.usecases.activities;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import com.consentframework.consentexpiryprocessor.domain.constants.ConsentExpiryStatus;
 import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
+import com.consentframework.consentexpiryprocessor.domain.entities.ConsentExpiryResult;
+import com.consentframework.consentexpiryprocessor.domain.entities.ExpiryHourSummary;
+import com.consentframework.consentexpiryprocessor.domain.entities.ExpiryRunSummary;
+import com.consentframework.consentexpiryprocessor.domain.entities.ExpiryShardAssignment;
+import com.consentframework.consentexpiryprocessor.domain.metrics.ExpiryRunRecorder;
 import com.consentframework.consentexpiryprocessor.domain.repositories.ConsentRepository;
 import com.consentframework.consentexpiryprocessor.infrastructure.repositories.InMemoryConsentRepository;
+import com.consentframework.consentexpiryprocessor.infrastructure.repositories.InMemoryExpiryCheckpointStore;
 import com.consentframework.consentexpiryprocessor.testcommon.utils.ActiveConsentWithExpiryTimeGenerator;
 import com.consentframework.shared.api.domain.pagination.ListPage;
 import com.consentframework.shared.api.infrastructure.mappers.DynamoDbConsentExpiryTimeConverter;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 class AutoExpireConsentsActivityTest {
     @Test
@@ -39,7 +66,8 @@ class AutoExpireConsentsActivityTest {
     void executeWhenNullPageReturned() {
         final InMemoryConsentRepository repository = mock(InMemoryConsentRepository.class);
         final Optional<String> expectedGetActiveConsentsInput = Optional.empty();
-        doReturn(null).when(repository).getActiveConsentsWithExpiryHour(anyString(), eq(expectedGetActiveConsentsInput));
+        doReturn(null).when(repository).getActiveConsentsWithExpiryHour(anyString(), eq(expectedGetActiveConsentsInput), any());
+        doCallRealMethod().when(repository).openExpiredConsentPages(anyString(), any(), any());
 
         new AutoExpireConsentsActivity(repository).execute();
 
@@ -51,7 +79,8 @@ class AutoExpireConsentsActivityTest {
         final InMemoryConsentRepository repository = mock(InMemoryConsentRepository.class);
         final Optional<String> expectedGetActiveConsentsInput = Optional.empty();
         final ListPage<ActiveConsentWithExpiryTime> mockPageConsents = new ListPage<>(null, Optional.empty());
-        doReturn(mockPageConsents).when(repository).getActiveConsentsWithExpiryHour(anyString(), eq(expectedGetActiveConsentsInput));
+        doReturn(mockPageConsents).when(repository).getActiveConsentsWithExpiryHour(anyString(), eq(expectedGetActiveConsentsInput), any());
+        doCallRealMethod().when(repository).openExpiredConsentPages(anyString(), any(), any());
 
         new AutoExpireConsentsActivity(repository).execute();
 
@@ -88,12 +117,13 @@ class AutoExpireConsentsActivityTest {
         final List<String> currentHourPartitionKeys = consentsExpiringCurrentHour.stream()
             .map(ActiveConsentWithExpiryTime::id).toList();
 
-        final int expectedNumExpiryHoursProcessed = AutoExpireConsentsActivity.NUMBER_PAST_DAYS_TO_EXPIRE_CONSENTS * 24;
+        final int expectedNumExpiryHoursProcessed = AutoExpireConsentsActivitySettings.DEFAULT_LOOKBACK_HOURS;
         verify(repository, times(expectedNumExpiryHoursProcessed))
-            .getActiveConsentsWithExpiryHour(anyString(), eq(Optional.empty()));
-        verify(repository).getActiveConsentsWithExpiryHour(firstExpiryHour, Optional.of(firstHourPartitionKeys.get(2)));
-        verify(repository).getActiveConsentsWithExpiryHour(firstExpiryHour, Optional.of(firstHourPartitionKeys.get(4)));
-        verify(repository, never()).getActiveConsentsWithExpiryHour(currentExpiryHour, Optional.of(currentHourPartitionKeys.get(2)));
+            .getActiveConsentsWithExpiryHour(anyString(), eq(Optional.empty()), any());
+        verify(repository).getActiveConsentsWithExpiryHour(eq(firstExpiryHour), eq(Optional.of(firstHourPartitionKeys.get(2))), any());
+        verify(repository).getActiveConsentsWithExpiryHour(eq(firstExpiryHour), eq(Optional.of(firstHourPartitionKeys.get(4))), any());
+        verify(repository, never())
+            .getActiveConsentsWithExpiryHour(eq(currentExpiryHour), eq(Optional.of(currentHourPartitionKeys.get(2))), any());
 
         firstHourPartitionKeys.forEach(partitionKey -> verify(repository).expireConsent(partitionKey, "2"));
         verify(repository).expireConsent(currentHourPartitionKeys.get(0), "2");
@@ -101,9 +131,566 @@ class AutoExpireConsentsActivityTest {
             verify(repository, never()).expireConsent(partitionKey, "2"));
     }
 
+    @Test
+    void executeConcurrentlyWhenMultipleExpiryHours() {
+        final OffsetDateTime firstHourDatetime = OffsetDateTime.now().minusHours(5).truncatedTo(ChronoUnit.HOURS);
+        final Map<String, List<ActiveConsentWithExpiryTime>> consentsExpiringPerHour = new HashMap<>();
+        final List<String> expiredPartitionKeys = new ArrayList<>();
+        for (int hour = 0; hour < 5; hour++) {
+            final OffsetDateTime hourDatetime = firstHourDatetime.plusHours(hour);
+            final List<ActiveConsentWithExpiryTime> consentsExpiringInHour = List.of(
+                ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), hourDatetime.plusMinutes(1)),
+                ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), hourDatetime.plusMinutes(20)),
+                ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), hourDatetime.plusMinutes(40))
+            );
+            consentsExpiringPerHour.put(DynamoDbConsentExpiryTimeConverter.toExpiryHour(hourDatetime), consentsExpiringInHour);
+            consentsExpiringInHour.forEach(consent -> expiredPartitionKeys.add(consent.id()));
+        }
+        final ActiveConsentWithExpiryTime futureConsent = ActiveConsentWithExpiryTimeGenerator.generate(
+            UUID.randomUUID().toString(), OffsetDateTime.now().plusMinutes(5));
+        final String currentExpiryHour = futureConsent.expiryHour();
+        consentsExpiringPerHour.merge(currentExpiryHour, List.of(futureConsent), (existingConsents, newConsents) -> {
+            final List<ActiveConsentWithExpiryTime> mergedConsents = new ArrayList<>(existingConsents);
+            mergedConsents.addAll(newConsents);
+            return mergedConsents;
+        });
+        final InMemoryConsentRepository repository = spy(new InMemoryConsentRepository(consentsExpiringPerHour));
+
+        new AutoExpireConsentsActivity(repository, AutoExpireConsentsActivitySettings.builder().maxConcurrentExpiryHours(8).build())
+            .execute();
+
+        verify(repository, times(AutoExpireConsentsActivitySettings.DEFAULT_LOOKBACK_HOURS))
+            .getActiveConsentsWithExpiryHour(anyString(), eq(Optional.empty()), any());
+        expiredPartitionKeys.forEach(partitionKey -> verify(repository).expireConsent(partitionKey, "2"));
+        verify(repository, times(expiredPartitionKeys.size())).expireConsent(anyString(), anyString());
+        verify(repository, never()).expireConsent(futureConsent.id(), "2");
+        assertEquals(List.of(futureConsent),
+            repository.getActiveConsentsWithExpiryHour(currentExpiryHour, Optional.empty()).resultsOnPage());
+    }
+
+    @Test
+    void executeConcurrentlyWhenExpiryHourFails() {
+        final InMemoryConsentRepository repository = spy(new InMemoryConsentRepository());
+        final RuntimeException testException = new RuntimeException("Test error message");
+        doThrow(testException).when(repository).getActiveConsentsWithExpiryHour(anyString(), any(), any());
+
+        final AutoExpireConsentsActivity activity = new AutoExpireConsentsActivity(repository,
+            AutoExpireConsentsActivitySettings.builder().maxConcurrentExpiryHours(4).build());
+        final RuntimeException thrownException = assertThrows(RuntimeException.class, activity::execute);
+        assertEquals(testException, thrownException);
+        verify(repository, never()).expireConsent(any(), any());
+    }
+
+    @Test
+    void executeConcurrentlySharesPagesOfHeavyExpiryHourAcrossPageWriters() {
+        final OffsetDateTime expiryTime = OffsetDateTime.now().minusHours(3).truncatedTo(ChronoUnit.HOURS);
+        final List<ActiveConsentWithExpiryTime> consents = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            consents.add(ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), expiryTime.plusMinutes(i)));
+        }
+        final String expiryHour = consents.get(0).expiryHour();
+        final InMemoryConsentRepository repository = spy(new InMemoryConsentRepository(Map.of(expiryHour, consents)));
+        // Each page write waits until three page writers are writing pages of the single expiry hour at the same time
+        final CountDownLatch concurrentPageWrites = new CountDownLatch(3);
+        final Set<String> workerNames = ConcurrentHashMap.newKeySet();
+        doAnswer(invocation -> {
+            workerNames.add(Thread.currentThread().getName());
+            concurrentPageWrites.countDown();
+            if (!concurrentPageWrites.await(10, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Pages were not written concurrently");
+            }
+            final List<ActiveConsentWithExpiryTime> pageConsents = invocation.getArgument(0);
+            return pageConsents.stream()
+                .map(consent -> ConsentExpiryResult.builder().id(consent.id()).status(ConsentExpiryStatus.SUCCESS).build())
+                .toList();
+        }).when(repository).expireConsents(any());
+        final InMemoryExpiryCheckpointStore checkpointStore = new InMemoryExpiryCheckpointStore();
+
+        final ExpiryRunSummary runSummary = new AutoExpireConsentsActivity(repository, AutoExpireConsentsActivitySettings.builder()
+                .maxConcurrentExpiryHours(4)
+                .checkpointStore(checkpointStore)
+                .build())
+            .execute(ExpiryShardAssignment.builder().addExpiryHours(expiryHour).build());
+
+        assertEquals(consents.size(), runSummary.numConsentsExpired());
+        assertTrue(workerNames.size() >= 3);
+        workerNames.forEach(workerName -> assertTrue(workerName.startsWith("expiry-page-writer-")));
+        assertTrue(checkpointStore.getPageToken(expiryHour).isEmpty());
+        assertEquals(Set.of(expiryHour), checkpointStore.getDrainedExpiryHours());
+    }
+
+    @Test
+    void executeConcurrentlyWhenPageFails() {
+        final OffsetDateTime expiryTime = OffsetDateTime.now().minusHours(3).truncatedTo(ChronoUnit.HOURS);
+        final List<ActiveConsentWithExpiryTime> consents = List.of(
+            ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), expiryTime),
+            ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), expiryTime.plusMinutes(1)),
+            ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), expiryTime.plusMinutes(2))
+        );
+        final InMemoryConsentRepository repository = spy(new InMemoryConsentRepository(Map.of(consents.get(0).expiryHour(), consents)));
+        final RuntimeException testException = new RuntimeException("Test error message");
+        doThrow(testException).when(repository).expireConsents(any());
+
+        final AutoExpireConsentsActivity activity = new AutoExpireConsentsActivity(repository,
+            AutoExpireConsentsActivitySettings.builder().maxConcurrentExpiryHours(4).build());
+        final RuntimeException thrownException = assertThrows(RuntimeException.class, activity::execute);
+        assertEquals(testException, thrownException);
+    }
+
+    @Test
+    void executeConcurrentlyWaitsForPageWritesInFlightWhenExpiryHourFails() {
+        final OffsetDateTime expiryTime = OffsetDateTime.now().minusHours(3).truncatedTo(ChronoUnit.HOURS);
+        final ActiveConsentWithExpiryTime slowConsent = ActiveConsentWithExpiryTimeGenerator.generate(
+            UUID.randomUUID().toString(), expiryTime);
+        final ActiveConsentWithExpiryTime failingConsent = ActiveConsentWithExpiryTimeGenerator.generate(
+            UUID.randomUUID().toString(), expiryTime.plusHours(1));
+        final InMemoryConsentRepository repository = spy(new InMemoryConsentRepository(Map.of(
+            slowConsent.expiryHour(), List.of(slowConsent),
+            failingConsent.expiryHour(), List.of(failingConsent))));
+        // The first hour's query fails once the second hour's page write has started, which ignores interrupts
+        final CountDownLatch slowPageWriteStarted = new CountDownLatch(1);
+        final AtomicBoolean slowPageWriteFinished = new AtomicBoolean();
+        doAnswer(invocation -> {
+            slowPageWriteStarted.countDown();
+            final long writeEndNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+            while (System.nanoTime() < writeEndNanos) {
+                Thread.onSpinWait();
+            }
+            slowPageWriteFinished.set(true);
+            return invocation.callRealMethod();
+        }).when(repository).expireConsents(List.of(slowConsent));
+        final RuntimeException testException = new RuntimeException("Test error message");
+        doAnswer(invocation -> {
+            slowPageWriteStarted.await(10, TimeUnit.SECONDS);
+            throw testException;
+        }).when(repository).getActiveConsentsWithExpiryHour(eq(failingConsent.expiryHour()), any(), any());
+
+        final AutoExpireConsentsActivity activity = new AutoExpireConsentsActivity(repository,
+            AutoExpireConsentsActivitySettings.builder().maxConcurrentExpiryHours(2).build());
+        final RuntimeException thrownException = assertThrows(RuntimeException.class, () -> activity.execute(
+            ExpiryShardAssignment.builder().addExpiryHours(failingConsent.expiryHour(), slowConsent.expiryHour()).build()));
+
+        assertEquals(testException, thrownException);
+        assertTrue(slowPageWriteFinished.get());
+    }
+
+    @Test
+    void executeWhenSomeConsentsCannotBeExpired() {
+        final OffsetDateTime expiryTime = OffsetDateTime.now().minusHours(1).truncatedTo(ChronoUnit.HOURS).plusMinutes(1);
+        final List<ActiveConsentWithExpiryTime> consents = List.of(
+            ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), expiryTime),
+            ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), expiryTime.plusMinutes(1))
+        );
+        final InMemoryConsentRepository repository = spy(new InMemoryConsentRepository(Map.of(consents.get(0).expiryHour(), consents)));
+        doReturn(List.of(
+            ConsentExpiryResult.builder().id(consents.get(0).id()).status(ConsentExpiryStatus.SUCCESS).build(),
+            ConsentExpiryResult.builder().id(consents.get(1).id()).status(ConsentExpiryStatus.THROTTLED).build()
+        )).when(repository).expireConsents(consents);
+
+        final ExpiryRunSummary runSummary = new AutoExpireConsentsActivity(repository).execute();
+
+        verify(repository).expireConsents(consents);
+        verify(repository, never()).expireConsent(any(), any());
+        assertEquals(ExpiryHourSummary.builder()
+            .numConsentsScanned(2)
+            .numConsentsExpired(1)
+            .numConsentsSkipped(0)
+            .numConsentsFailed(1)
+            .stoppedAtDeadline(false)
+            .build(), runSummary.expiryHours().get(consents.get(0).expiryHour()));
+        assertEquals(1, runSummary.numConsentsFailed());
+    }
+
+    @Test
+    void executeContinuesPastConsentsThatFailToExpire() {
+        final OffsetDateTime expiryTime = OffsetDateTime.now().minusHours(3).truncatedTo(ChronoUnit.HOURS).plusMinutes(1);
+        final List<ActiveConsentWithExpiryTime> consents = List.of(
+            ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), expiryTime),
+            ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), expiryTime.plusMinutes(1)),
+            ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), expiryTime.plusMinutes(2))
+        );
+        final String expiryHour = consents.get(0).expiryHour();
+        final InMemoryConsentRepository repository = spy(new InMemoryConsentRepository(Map.of(expiryHour, consents)));
+        doReturn(ConsentExpiryStatus.FAILED).when(repository).expireConsent(consents.get(0).id(), "2");
+        final InMemoryExpiryCheckpointStore checkpointStore = new InMemoryExpiryCheckpointStore();
+        final ExpiryShardAssignment shardAssignment = ExpiryShardAssignment.builder().addExpiryHours(expiryHour).build();
+
+        final ExpiryRunSummary runSummary = new AutoExpireConsentsActivity(repository, AutoExpireConsentsActivitySettings.builder()
+                .checkpointStore(checkpointStore)
+                .build())
+            .execute(shardAssignment);
+
+        consents.forEach(consent -> verify(repository).expireConsent(consent.id(), "2"));
+        assertEquals(3, runSummary.numConsentsScanned());
+        assertEquals(2, runSummary.numConsentsExpired());
+        assertEquals(1, runSummary.numConsentsFailed());
+        assertFalse(runSummary.stoppedEarly());
+        // The failed consent is still active, so the next run must scan the hour again
+        assertTrue(checkpointStore.getDrainedExpiryHours().isEmpty());
+    }
+
+    @Test
+    void executeSkipsConsentsExpiredByEarlierRun() {
+        final OffsetDateTime expiryTime = OffsetDateTime.now().minusHours(1).truncatedTo(ChronoUnit.HOURS).plusMinutes(1);
+        final List<ActiveConsentWithExpiryTime> consents = List.of(
+            ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), expiryTime),
+            ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), expiryTime.plusMinutes(1)),
+            ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), expiryTime.plusMinutes(2))
+        );
+        // The repository leaves the consents in the index, as when the index has not yet caught up with the writes
+        final InMemoryConsentRepository repository = spy(new InMemoryConsentRepository(Map.of(consents.get(0).expiryHour(), consents)));
+        final List<ActiveConsentWithExpiryTime> firstPage = consents.subList(0, InMemoryConsentRepository.MAX_PAGE_SIZE);
+        final List<ActiveConsentWithExpiryTime> lastPage = List.of(consents.get(2));
+        doReturn(List.of(
+            ConsentExpiryResult.builder().id(consents.get(0).id()).status(ConsentExpiryStatus.SUCCESS).build(),
+            ConsentExpiryResult.builder().id(consents.get(1).id()).status(ConsentExpiryStatus.CONDITION_FAILED).build()
+        )).when(repository).expireConsents(firstPage);
+        doReturn(List.of(ConsentExpiryResult.builder().id(consents.get(2).id()).status(ConsentExpiryStatus.THROTTLED).build()))
+            .doReturn(List.of(ConsentExpiryResult.builder().id(consents.get(2).id()).status(ConsentExpiryStatus.SUCCESS).build()))
+            .when(repository).expireConsents(lastPage);
+        final ExpiredConsentCache expiredConsentCache = new ExpiredConsentCache(10);
+        final AutoExpireConsentsActivity activity = new AutoExpireConsentsActivity(repository, AutoExpireConsentsActivitySettings.builder()
+            .expiredConsentCache(expiredConsentCache)
+            .build());
+
+        final ExpiryRunSummary firstRunSummary = activity.execute();
+        activity.execute();
+        activity.execute();
+
+        assertEquals(1, firstRunSummary.numConsentsExpired());
+        assertEquals(1, firstRunSummary.numConsentsSkipped());
+        assertEquals(1, firstRunSummary.numConsentsFailed());
+        // The throttled consent is retried by the second run, and the third run has nothing left to write
+        verify(repository).expireConsents(firstPage);
+        verify(repository, times(2)).expireConsents(lastPage);
+        verify(repository, times(3)).expireConsents(any());
+        assertEquals(consents.size(), expiredConsentCache.size());
+    }
+
+    @Test
+    void executeRecordsConsentsScannedAndExpiredPerExpiryHour() {
+        final OffsetDateTime expiryTime = OffsetDateTime.now().minusHours(1).truncatedTo(ChronoUnit.HOURS).plusMinutes(1);
+        final List<ActiveConsentWithExpiryTime> consents = List.of(
+            ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), expiryTime),
+            ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), expiryTime.plusMinutes(1)),
+            ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), expiryTime.plusMinutes(2))
+        );
+        final InMemoryConsentRepository repository = new InMemoryConsentRepository(Map.of(consents.get(0).expiryHour(), consents));
+        final ExpiryRunRecorder runRecorder = mock(ExpiryRunRecorder.class);
+
+        new AutoExpireConsentsActivity(repository, AutoExpireConsentsActivitySettings.builder()
+                .expiredConsentCache(new ExpiredConsentCache(0))
+                .runRecorder(runRecorder)
+                .build())
+            .execute();
+
+        final InOrder inOrder = inOrder(runRecorder);
+        inOrder.verify(runRecorder).runStarted();
+        inOrder.verify(runRecorder).recordExpiryHour(consents.get(0).expiryHour(), consents.size(), consents.size());
+        inOrder.verify(runRecorder).runFinished();
+    }
+
+    @Test
+    void executeFinishesRunRecorderWhenExpiryHourFails() {
+        final InMemoryConsentRepository repository = spy(new InMemoryConsentRepository());
+        doThrow(new IllegalStateException("Test query failure"))
+            .when(repository).getActiveConsentsWithExpiryHour(anyString(), any(), any());
+        final ExpiryRunRecorder runRecorder = mock(ExpiryRunRecorder.class);
+        final AutoExpireConsentsActivity activity = new AutoExpireConsentsActivity(repository, AutoExpireConsentsActivitySettings.builder()
+            .expiredConsentCache(new ExpiredConsentCache(0))
+            .runRecorder(runRecorder)
+            .build());
+
+        assertThrows(IllegalStateException.class, activity::execute);
+
+        verify(runRecorder).runFinished();
+    }
+
+    @Test
+    void executePrefetchesNextPageBeforeExpiringCurrentPage() {
+        final OffsetDateTime firstHourDatetime = OffsetDateTime.now().minusHours(2).truncatedTo(ChronoUnit.HOURS);
+        final List<ActiveConsentWithExpiryTime> consents = List.of(
+            ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), firstHourDatetime.plusMinutes(1)),
+            ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), firstHourDatetime.plusMinutes(2)),
+            ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), firstHourDatetime.plusMinutes(3))
+        );
+        final String expiryHour = consents.get(0).expiryHour();
+        final InMemoryConsentRepository repository = spy(new InMemoryConsentRepository(Map.of(expiryHour, consents)));
+
+        new AutoExpireConsentsActivity(repository).execute();
+
+        final InOrder inOrder = inOrder(repository);
+        inOrder.verify(repository).getActiveConsentsWithExpiryHourAsync(eq(expiryHour), eq(Optional.of(consents.get(2).id())), any());
+        inOrder.verify(repository).expireConsents(consents.subList(0, 2));
+        inOrder.verify(repository).expireConsents(consents.subList(2, 3));
+    }
+
+    @Test
+    void executeWhenNextPageFails() {
+        final OffsetDateTime expiryTime = OffsetDateTime.now().minusHours(2).truncatedTo(ChronoUnit.HOURS).plusMinutes(1);
+        final List<ActiveConsentWithExpiryTime> consents = List.of(
+            ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), expiryTime),
+            ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), expiryTime.plusMinutes(1)),
+            ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), expiryTime.plusMinutes(2))
+        );
+        final InMemoryConsentRepository repository = spy(new InMemoryConsentRepository(Map.of(consents.get(0).expiryHour(), consents)));
+        final RuntimeException testException = new RuntimeException("Test error message");
+        doReturn(CompletableFuture.failedFuture(testException)).when(repository)
+            .getActiveConsentsWithExpiryHourAsync(anyString(), eq(Optional.of(consents.get(2).id())), any());
+
+        final AutoExpireConsentsActivity activity = new AutoExpireConsentsActivity(repository);
+        final RuntimeException thrownException = assertThrows(RuntimeException.class, activity::execute);
+        assertEquals(testException, thrownException);
+    }
+
+    @Test
+    void executeWhenExplicitExpiryHoursAssigned() {
+        final ActiveConsentWithExpiryTime assignedConsent = ActiveConsentWithExpiryTimeGenerator.generate(
+            UUID.randomUUID().toString(), nowPlusMinutes(-120));
+        final ActiveConsentWithExpiryTime unassignedConsent = ActiveConsentWithExpiryTimeGenerator.generate(
+            UUID.randomUUID().toString(), nowPlusMinutes(-240));
+        final InMemoryConsentRepository repository = spy(new InMemoryConsentRepository(Map.of(
+            assignedConsent.expiryHour(), List.of(assignedConsent),
+            unassignedConsent.expiryHour(), List.of(unassignedConsent))));
+
+        new AutoExpireConsentsActivity(repository).execute(ExpiryShardAssignment.builder()
+            .addExpiryHours(assignedConsent.expiryHour())
+            .build());
+
+        verify(repository).getActiveConsentsWithExpiryHour(eq(assignedConsent.expiryHour()), eq(Optional.empty()), any());
+        verify(repository, times(1)).getActiveConsentsWithExpiryHour(anyString(), any(), any());
+        verify(repository).expireConsent(assignedConsent.id(), "2");
+        verify(repository, never()).expireConsent(unassignedConsent.id(), "2");
+    }
+
+    @Test
+    void executeWhenHashRangeAssigned() {
+        final int shardCount = 3;
+        final List<String> queriedExpiryHours = new ArrayList<>();
+        for (int shardIndex = 0; shardIndex < shardCount; shardIndex++) {
+            final ExpiryShardAssignment shardAssignment = ExpiryShardAssignment.builder()
+                .shardIndex(shardIndex)
+                .shardCount(shardCount)
+                .build();
+            final InMemoryConsentRepository repository = spy(new InMemoryConsentRepository());
+            new AutoExpireConsentsActivity(repository).execute(shardAssignment);
+
+            final ArgumentCaptor<String> expiryHourCaptor = ArgumentCaptor.forClass(String.class);
+            verify(repository, atLeastOnce()).getActiveConsentsWithExpiryHour(expiryHourCaptor.capture(), eq(Optional.empty()), any());
+            expiryHourCaptor.getAllValues().forEach(expiryHour -> assertTrue(shardAssignment.includes(expiryHour)));
+            queriedExpiryHours.addAll(expiryHourCaptor.getAllValues());
+        }
+
+        // Each hour in the lookback window is queried by exactly one shard, allowing for an hour boundary between runs
+        assertEquals(queriedExpiryHours.size(), Set.copyOf(queriedExpiryHours).size());
+        assertTrue(Math.abs(queriedExpiryHours.size() - AutoExpireConsentsActivitySettings.DEFAULT_LOOKBACK_HOURS) <= 1);
+    }
+
+    @Test
+    void executeStopsAtDeadlineAndResumesFromCheckpoint() {
+        final List<ActiveConsentWithExpiryTime> consents = List.of(
+            ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), nowPlusMinutes(-5)),
+            ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), nowPlusMinutes(-4)),
+            ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), nowPlusMinutes(-3)),
+            ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), nowPlusMinutes(-2)),
+            ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), nowPlusMinutes(-1))
+        );
+        final String expiryHour = consents.get(0).expiryHour();
+        final InMemoryConsentRepository repository = spy(new InMemoryConsentRepository(Map.of(expiryHour, consents)));
+        final InMemoryExpiryCheckpointStore checkpointStore = new InMemoryExpiryCheckpointStore();
+        final AutoExpireConsentsActivity activity = new AutoExpireConsentsActivity(repository, AutoExpireConsentsActivitySettings.builder()
+            .checkpointStore(checkpointStore)
+            .build());
+        final ExpiryShardAssignment shardAssignment = ExpiryShardAssignment.builder().addExpiryHours(expiryHour).build();
+
+        // The deadline is reached once the first page has been read
+        final AtomicInteger numDeadlineChecks = new AtomicInteger();
+        final ExpiryRunSummary firstRunSummary = activity.execute(shardAssignment, () -> numDeadlineChecks.incrementAndGet() > 1);
+
+        assertTrue(firstRunSummary.stoppedEarly());
+        assertTrue(firstRunSummary.expiryHours().get(expiryHour).stoppedAtDeadline());
+
+        verify(repository).expireConsent(consents.get(0).id(), "2");
+        verify(repository).expireConsent(consents.get(1).id(), "2");
+        verify(repository, times(2)).expireConsent(anyString(), anyString());
+        verify(repository, never()).getActiveConsentsWithExpiryHourAsync(anyString(), any(), any());
+        assertEquals(Optional.of(consents.get(2).id()), checkpointStore.getPageToken(expiryHour));
+
+        final ExpiryRunSummary secondRunSummary = activity.execute(shardAssignment, () -> false);
+
+        assertFalse(secondRunSummary.stoppedEarly());
+        assertEquals(3, secondRunSummary.numConsentsExpired());
+        verify(repository).getActiveConsentsWithExpiryHour(eq(expiryHour), eq(Optional.empty()), any());
+        verify(repository).getActiveConsentsWithExpiryHour(eq(expiryHour), eq(Optional.of(consents.get(2).id())), any());
+        consents.forEach(consent -> verify(repository).expireConsent(consent.id(), "2"));
+        verify(repository, times(consents.size())).expireConsent(anyString(), anyString());
+        assertTrue(checkpointStore.getPageToken(expiryHour).isEmpty());
+    }
+
+    @Test
+    void executeWithLookbackHours() {
+        final InMemoryConsentRepository repository = spy(new InMemoryConsentRepository());
+
+        new AutoExpireConsentsActivity(repository, AutoExpireConsentsActivitySettings.builder()
+                .expiredConsentCache(new ExpiredConsentCache(0))
+                .lookbackHours(6)
+                .build())
+            .execute();
+
+        verify(repository, times(6)).getActiveConsentsWithExpiryHour(anyString(), eq(Optional.empty()), any());
+    }
+
+    @Test
+    void executeSkipsExpiryHoursDrainedByEarlierRun() {
+        final ActiveConsentWithExpiryTime pastHourConsent = ActiveConsentWithExpiryTimeGenerator.generate(
+            UUID.randomUUID().toString(), nowPlusMinutes(-180));
+        final String pastExpiryHour = pastHourConsent.expiryHour();
+        final String currentExpiryHour = DynamoDbConsentExpiryTimeConverter.toExpiryHour(nowPlusMinutes(0));
+        final InMemoryConsentRepository repository = spy(new InMemoryConsentRepository(Map.of(pastExpiryHour, List.of(pastHourConsent))));
+        final InMemoryExpiryCheckpointStore checkpointStore = new InMemoryExpiryCheckpointStore();
+        final AutoExpireConsentsActivity activity = new AutoExpireConsentsActivity(repository, AutoExpireConsentsActivitySettings.builder()
+            .checkpointStore(checkpointStore)
+            .build());
+        final ExpiryShardAssignment shardAssignment = ExpiryShardAssignment.builder()
+            .addExpiryHours(pastExpiryHour, currentExpiryHour)
+            .build();
+
+        activity.execute(shardAssignment);
+
+        // The current hour is not drained, consents can still reach their expiry time within it
+        assertEquals(Set.of(pastExpiryHour), checkpointStore.getDrainedExpiryHours());
+
+        activity.execute(shardAssignment);
+
+        verify(repository).getActiveConsentsWithExpiryHour(eq(pastExpiryHour), any(), any());
+        verify(repository, times(2)).getActiveConsentsWithExpiryHour(eq(currentExpiryHour), any(), any());
+        verify(repository).expireConsent(pastHourConsent.id(), "2");
+    }
+
+    @Test
+    void executeDoesNotMarkExpiryHourDrainedWhenConsentsLeftActive() {
+        final ActiveConsentWithExpiryTime consent = ActiveConsentWithExpiryTimeGenerator.generate(
+            UUID.randomUUID().toString(), nowPlusMinutes(-180));
+        final InMemoryConsentRepository repository = spy(new InMemoryConsentRepository(Map.of(consent.expiryHour(), List.of(consent))));
+        doReturn(List.of(ConsentExpiryResult.builder().id(consent.id()).status(ConsentExpiryStatus.THROTTLED).build()))
+            .when(repository).expireConsents(List.of(consent));
+        final InMemoryExpiryCheckpointStore checkpointStore = new InMemoryExpiryCheckpointStore();
+        final AutoExpireConsentsActivity activity = new AutoExpireConsentsActivity(repository, AutoExpireConsentsActivitySettings.builder()
+            .checkpointStore(checkpointStore)
+            .build());
+        final ExpiryShardAssignment shardAssignment = ExpiryShardAssignment.builder().addExpiryHours(consent.expiryHour()).build();
+
+        activity.execute(shardAssignment);
+        activity.execute(shardAssignment);
+
+        assertTrue(checkpointStore.getDrainedExpiryHours().isEmpty());
+        verify(repository, times(2)).getActiveConsentsWithExpiryHour(eq(consent.expiryHour()), eq(Optional.empty()), any());
+    }
+
+    @Test
+    void executeDoesNotCheckpointPastPageWithConsentsLeftActive() {
+        final OffsetDateTime pastHour = nowPlusMinutes(-180).truncatedTo(ChronoUnit.HOURS);
+        final List<ActiveConsentWithExpiryTime> consents = List.of(
+            ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), pastHour.plusMinutes(1)),
+            ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), pastHour.plusMinutes(2)),
+            ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), pastHour.plusMinutes(3)),
+            ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), pastHour.plusMinutes(4)),
+            ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), pastHour.plusMinutes(5))
+        );
+        final ActiveConsentWithExpiryTime throttledConsent = consents.get(0);
+        final String expiryHour = throttledConsent.expiryHour();
+        final InMemoryConsentRepository repository = spy(new InMemoryConsentRepository(Map.of(expiryHour, consents)));
+        final AtomicBoolean throttling = new AtomicBoolean(true);
+        doAnswer(invocation -> {
+            final List<ActiveConsentWithExpiryTime> page = invocation.getArgument(0);
+            if (!throttling.get() || !page.contains(throttledConsent)) {
+                return invocation.callRealMethod();
+            }
+            final List<ConsentExpiryResult> results = new ArrayList<>();
+            for (final ActiveConsentWithExpiryTime consent : page) {
+                results.addAll(consent.equals(throttledConsent)
+                    ? List.of(ConsentExpiryResult.builder().id(consent.id()).status(ConsentExpiryStatus.THROTTLED).build())
+                    : repository.expireConsents(List.of(consent)));
+            }
+            return results;
+        }).when(repository).expireConsents(any());
+        final InMemoryExpiryCheckpointStore checkpointStore = new InMemoryExpiryCheckpointStore();
+        final AutoExpireConsentsActivity activity = new AutoExpireConsentsActivity(repository, AutoExpireConsentsActivitySettings.builder()
+            .checkpointStore(checkpointStore)
+            .build());
+        final ExpiryShardAssignment shardAssignment = ExpiryShardAssignment.builder().addExpiryHours(expiryHour).build();
+
+        // The deadline is reached once the first page, with the throttled consent, has been read
+        final AtomicInteger numDeadlineChecks = new AtomicInteger();
+        final ExpiryRunSummary firstRunSummary = activity.execute(shardAssignment, () -> numDeadlineChecks.incrementAndGet() > 1);
+
+        assertTrue(firstRunSummary.stoppedEarly());
+        assertEquals(1, firstRunSummary.numConsentsFailed());
+        assertTrue(checkpointStore.getPageToken(expiryHour).isEmpty());
+
+        // The resumed run reads the throttled consent again, and it is still throttled
+        final ExpiryRunSummary secondRunSummary = activity.execute(shardAssignment, () -> false);
+
+        assertEquals(1, secondRunSummary.numConsentsFailed());
+        assertTrue(checkpointStore.getDrainedExpiryHours().isEmpty());
+        verify(repository, times(2)).getActiveConsentsWithExpiryHour(eq(expiryHour), eq(Optional.empty()), any());
+
+        throttling.set(false);
+        activity.execute(shardAssignment, () -> false);
+
+        verify(repository).expireConsent(throttledConsent.id(), "2");
+        assertEquals(Set.of(expiryHour), checkpointStore.getDrainedExpiryHours());
+    }
+
+    @Test
+    void executeForgetsCheckpointsOutsideLookbackWindow() {
+        final String oldExpiryHour = DynamoDbConsentExpiryTimeConverter.toExpiryHour(nowPlusMinutes(-10 * 60));
+        final String recentExpiryHour = DynamoDbConsentExpiryTimeConverter.toExpiryHour(nowPlusMinutes(-2 * 60));
+        final InMemoryConsentRepository repository = spy(new InMemoryConsentRepository());
+        final InMemoryExpiryCheckpointStore checkpointStore = new InMemoryExpiryCheckpointStore();
+        checkpointStore.markExpiryHourDrained(oldExpiryHour);
+        checkpointStore.markExpiryHourDrained(recentExpiryHour);
+        checkpointStore.savePageToken(oldExpiryHour, "oldPageToken");
+
+        new AutoExpireConsentsActivity(repository, AutoExpireConsentsActivitySettings.builder()
+                .checkpointStore(checkpointStore)
+                .expiredConsentCache(new ExpiredConsentCache(0))
+                .lookbackHours(6)
+                .build())
+            .execute();
+
+        assertTrue(checkpointStore.getDrainedExpiryHours().contains(recentExpiryHour));
+        assertFalse(checkpointStore.getDrainedExpiryHours().contains(oldExpiryHour));
+        assertTrue(checkpointStore.getPageToken(oldExpiryHour).isEmpty());
+        verify(repository, never()).getActiveConsentsWithExpiryHour(eq(recentExpiryHour), any(), any());
+    }
+
+    @Test
+    void executeWhenDeadlineReachedBeforeStart() {
+        final InMemoryConsentRepository repository = spy(new InMemoryConsentRepository());
+
+        new AutoExpireConsentsActivity(repository, AutoExpireConsentsActivitySettings.builder().maxConcurrentExpiryHours(4).build())
+            .execute(ExpiryShardAssignment.ALL_EXPIRY_HOURS, () -> true);
+
+        verify(repository, never()).getActiveConsentsWithExpiryHour(anyString(), any(), any());
+    }
+
+    @Test
+    void settingsWhenInvalidMaxConcurrentExpiryHours() {
+        final AutoExpireConsentsActivitySettings.Builder settingsBuilder = AutoExpireConsentsActivitySettings.builder()
+            .maxConcurrentExpiryHours(0);
+        assertThrows(IllegalArgumentException.class, settingsBuilder::build);
+    }
+
+    @Test
+    void settingsWhenInvalidLookbackHours() {
+        final AutoExpireConsentsActivitySettings.Builder settingsBuilder = AutoExpireConsentsActivitySettings.builder().lookbackHours(0);
+        assertThrows(IllegalArgumentException.class, settingsBuilder::build);
+    }
+
     private void validateNoConsentsExpired(final ConsentRepository repository) {
-        verify(repository, times(AutoExpireConsentsActivity.NUMBER_PAST_DAYS_TO_EXPIRE_CONSENTS * 24))
-            .getActiveConsentsWithExpiryHour(anyString(), eq(Optional.empty()));
+        verify(repository, times(AutoExpireConsentsActivitySettings.DEFAULT_LOOKBACK_HOURS))
+            .getActiveConsentsWithExpiryHour(anyString(), eq(Optional.empty()), any());
         verify(repository, never()).expireConsent(any(), any());
     }
 
@@ -0,0 +1,130 @@
+package com.consentframework.consentexpiryprocessor.usecases.activities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
+import com.consentframework.consentexpiryprocessor.testcommon.utils.ActiveConsentWithExpiryTimeGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+class ConsentExpiryTimerWheelTest {
+    private static final Instant START_TIME = Instant.parse("2011-12-03T10:15:30Z");
+    private static final Duration TICK = Duration.ofSeconds(1);
+
+    @Test
+    void advanceToWhenConsentsDue() {
+        final ConsentExpiryTimerWheel timerWheel = new ConsentExpiryTimerWheel(START_TIME, TICK, 10);
+        final ActiveConsentWithExpiryTime pastConsent = buildConsent("past", START_TIME.minusSeconds(5));
+        final ActiveConsentWithExpiryTime dueConsent = buildConsent("due", START_TIME.plusMillis(2500));
+        final ActiveConsentWithExpiryTime laterConsent = buildConsent("later", START_TIME.plusSeconds(5));
+        assertTrue(timerWheel.schedule(laterConsent, START_TIME.plusSeconds(5)));
+        assertTrue(timerWheel.schedule(dueConsent, START_TIME.plusMillis(2500)));
+        assertTrue(timerWheel.schedule(pastConsent, START_TIME.minusSeconds(5)));
+
+        assertEquals(List.of(pastConsent), timerWheel.advanceTo(START_TIME));
+        assertEquals(List.of(), timerWheel.advanceTo(START_TIME.plusMillis(2999)));
+        assertEquals(List.of(dueConsent), timerWheel.advanceTo(START_TIME.plusSeconds(3)));
+        assertEquals(List.of(), timerWheel.advanceTo(START_TIME.plusSeconds(4)));
+        assertEquals(1, timerWheel.size());
+        assertEquals(List.of(laterConsent), timerWheel.advanceTo(START_TIME.plusSeconds(20)));
+        assertEquals(0, timerWheel.size());
+    }
+
+    @Test
+    void advanceToBeforeStartTime() {
+        final ConsentExpiryTimerWheel timerWheel = new ConsentExpiryTimerWheel(START_TIME, TICK, 10);
+        timerWheel.schedule(buildConsent("past", START_TIME.minusSeconds(5)), START_TIME.minusSeconds(5));
+
+        assertEquals(List.of(), timerWheel.advanceTo(START_TIME.minusMillis(1)));
+        assertEquals(1, timerWheel.size());
+    }
+
+    @Test
+    void scheduleAfterHorizon() {
+        final ConsentExpiryTimerWheel timerWheel = new ConsentExpiryTimerWheel(START_TIME, TICK, 3);
+
+        assertTrue(timerWheel.schedule(buildConsent("last", START_TIME.plusSeconds(2)), START_TIME.plusSeconds(2)));
+        assertFalse(timerWheel.schedule(buildConsent("beyond", START_TIME.plusMillis(2001)), START_TIME.plusMillis(2001)));
+        assertEquals(1, timerWheel.size());
+    }
+
+    @Test
+    void scheduleAfterAdvancing() {
+        final ConsentExpiryTimerWheel timerWheel = new ConsentExpiryTimerWheel(START_TIME, TICK, 3);
+        final ActiveConsentWithExpiryTime consent = buildConsent("consent", START_TIME.plusSeconds(4));
+        assertFalse(timerWheel.schedule(consent, START_TIME.plusSeconds(4)));
+
+        timerWheel.advanceTo(START_TIME.plusSeconds(2));
+
+        assertTrue(timerWheel.schedule(consent, START_TIME.plusSeconds(4)));
+        assertEquals(List.of(), timerWheel.advanceTo(START_TIME.plusSeconds(3)));
+        assertEquals(List.of(consent), timerWheel.advanceTo(START_TIME.plusSeconds(4)));
+    }
+
+    @Test
+    void scheduleReplacesEarlierSchedule() {
+        final ConsentExpiryTimerWheel timerWheel = new ConsentExpiryTimerWheel(START_TIME, TICK, 10);
+        final ActiveConsentWithExpiryTime consent = buildConsent("consent", START_TIME.plusSeconds(1));
+        final ActiveConsentWithExpiryTime extendedConsent = buildConsent("consent", START_TIME.plusSeconds(5));
+        timerWheel.schedule(consent, START_TIME.plusSeconds(1));
+
+        timerWheel.schedule(extendedConsent, START_TIME.plusSeconds(5));
+
+        assertEquals(1, timerWheel.size());
+        assertEquals(List.of(), timerWheel.advanceTo(START_TIME.plusSeconds(4)));
+        assertEquals(List.of(extendedConsent), timerWheel.advanceTo(START_TIME.plusSeconds(5)));
+    }
+
+    @Test
+    void scheduleAfterHorizonCancelsEarlierSchedule() {
+        final ConsentExpiryTimerWheel timerWheel = new ConsentExpiryTimerWheel(START_TIME, TICK, 3);
+        timerWheel.schedule(buildConsent("consent", START_TIME.plusSeconds(1)), START_TIME.plusSeconds(1));
+
+        assertFalse(timerWheel.schedule(buildConsent("consent", START_TIME.plusSeconds(60)), START_TIME.plusSeconds(60)));
+
+        assertEquals(0, timerWheel.size());
+        assertEquals(List.of(), timerWheel.advanceTo(START_TIME.plusSeconds(60)));
+    }
+
+    @Test
+    void cancel() {
+        final ConsentExpiryTimerWheel timerWheel = new ConsentExpiryTimerWheel(START_TIME, TICK, 10);
+        timerWheel.schedule(buildConsent("consent", START_TIME.plusSeconds(1)), START_TIME.plusSeconds(1));
+
+        assertTrue(timerWheel.cancel("consent"));
+        assertFalse(timerWheel.cancel("consent"));
+        assertEquals(0, timerWheel.size());
+        assertEquals(List.of(), timerWheel.advanceTo(START_TIME.plusSeconds(10)));
+    }
+
+    @Test
+    void nextDueTime() {
+        final ConsentExpiryTimerWheel timerWheel = new ConsentExpiryTimerWheel(START_TIME, TICK, 10);
+        assertEquals(Optional.empty(), timerWheel.nextDueTime());
+
+        timerWheel.schedule(buildConsent("later", START_TIME.plusSeconds(7)), START_TIME.plusSeconds(7));
+        timerWheel.schedule(buildConsent("sooner", START_TIME.plusMillis(3200)), START_TIME.plusMillis(3200));
+
+        assertEquals(Optional.of(START_TIME.plusSeconds(4)), timerWheel.nextDueTime());
+        timerWheel.advanceTo(START_TIME.plusSeconds(4));
+        assertEquals(Optional.of(START_TIME.plusSeconds(7)), timerWheel.nextDueTime());
+    }
+
+    @Test
+    void constructorWhenInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> new ConsentExpiryTimerWheel(START_TIME, Duration.ZERO, 10));
+        assertThrows(IllegalArgumentException.class, () -> new ConsentExpiryTimerWheel(START_TIME, TICK, 0));
+    }
+
+    private static ActiveConsentWithExpiryTime buildConsent(final String id, final Instant expiryTime) {
+        return ActiveConsentWithExpiryTimeGenerator.generate(id, expiryTime.atOffset(ZoneOffset.UTC));
+    }
+}
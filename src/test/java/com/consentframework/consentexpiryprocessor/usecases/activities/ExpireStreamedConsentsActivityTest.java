@@ -0,0 +1,153 @@
+package com.consentframework.consentexpiryprocessor.usecases.activities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.consentframework.consentexpiryprocessor.domain.constants.ConsentExpiryStatus;
+import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
+import com.consentframework.consentexpiryprocessor.domain.entities.ConsentExpiryChange;
+import com.consentframework.consentexpiryprocessor.domain.entities.ConsentExpiryResult;
+import com.consentframework.consentexpiryprocessor.domain.repositories.ConsentRepository;
+import com.consentframework.consentexpiryprocessor.testcommon.utils.ActiveConsentWithExpiryTimeGenerator;
+import com.consentframework.consentexpiryprocessor.testcommon.utils.MutableClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+class ExpireStreamedConsentsActivityTest {
+    private static final Instant START_TIME = Instant.parse("2011-12-03T10:15:30Z");
+    private static final Duration EXPIRY_WINDOW = Duration.ofSeconds(60);
+
+    private final ConsentRepository consentRepository = mock(ConsentRepository.class);
+    private final MutableClock clock = new MutableClock(START_TIME);
+    private final List<Duration> sleeps = new ArrayList<>();
+    // Consent ids expired at each time, in the order they were expired
+    private final Map<Instant, List<String>> expiredConsentIds = new LinkedHashMap<>();
+
+    private ExpireStreamedConsentsActivity activity;
+
+    @BeforeEach
+    void setup() {
+        when(consentRepository.expireConsents(any())).thenAnswer(invocation -> {
+            final List<ActiveConsentWithExpiryTime> consents = invocation.getArgument(0);
+            expiredConsentIds.computeIfAbsent(clock.instant(), time -> new ArrayList<>())
+                .addAll(consents.stream().map(ActiveConsentWithExpiryTime::id).toList());
+            return consents.stream()
+                .map(consent -> ConsentExpiryResult.builder().id(consent.id()).status(ConsentExpiryStatus.SUCCESS).build())
+                .toList();
+        });
+        activity = new ExpireStreamedConsentsActivity(consentRepository, EXPIRY_WINDOW, Duration.ofSeconds(1), clock, duration -> {
+            sleeps.add(duration);
+            clock.advance(duration);
+        });
+    }
+
+    @Test
+    void executeExpiresConsentsAtTheirExpiryTime() {
+        activity.execute(List.of(
+            activeConsentChange("later", START_TIME.plusSeconds(5)),
+            activeConsentChange("past", START_TIME.minusSeconds(30)),
+            activeConsentChange("sooner", START_TIME.plusSeconds(2))), () -> false);
+
+        assertEquals(Map.of(
+            START_TIME, List.of("past"),
+            START_TIME.plusSeconds(2), List.of("sooner"),
+            START_TIME.plusSeconds(5), List.of("later")), expiredConsentIds);
+        assertEquals(List.of(Duration.ofSeconds(1), Duration.ofSeconds(1), Duration.ofSeconds(1), Duration.ofSeconds(1),
+            Duration.ofSeconds(1)), sleeps);
+    }
+
+    @Test
+    void executeLeavesConsentsAfterWindowToSweep() {
+        activity.execute(List.of(
+            activeConsentChange("inWindow", START_TIME.plus(EXPIRY_WINDOW)),
+            activeConsentChange("afterWindow", START_TIME.plus(EXPIRY_WINDOW).plusSeconds(1))), () -> false);
+
+        assertEquals(Map.of(START_TIME.plus(EXPIRY_WINDOW), List.of("inWindow")), expiredConsentIds);
+    }
+
+    @Test
+    void executeAppliesChangesInStreamOrder() {
+        activity.execute(List.of(
+            activeConsentChange("removed", START_TIME.plusSeconds(1)),
+            activeConsentChange("extended", START_TIME.plusSeconds(1)),
+            activeConsentChange("extendedPastWindow", START_TIME.plusSeconds(1)),
+            ConsentExpiryChange.builder().id("removed").build(),
+            activeConsentChange("extended", START_TIME.plusSeconds(3)),
+            activeConsentChange("extendedPastWindow", START_TIME.plus(Duration.ofDays(1)))), () -> false);
+
+        assertEquals(Map.of(START_TIME.plusSeconds(3), List.of("extended")), expiredConsentIds);
+    }
+
+    @Test
+    void executeWhenDeadlineReached() {
+        activity.execute(List.of(
+            activeConsentChange("past", START_TIME.minusSeconds(1)),
+            activeConsentChange("later", START_TIME.plusSeconds(30))),
+            () -> clock.instant().isAfter(START_TIME.plusSeconds(10)));
+
+        assertEquals(Map.of(START_TIME, List.of("past")), expiredConsentIds);
+        assertEquals(11, sleeps.size());
+    }
+
+    @Test
+    void executeWhenExpiryTimeIdInvalid() {
+        final ActiveConsentWithExpiryTime consent = ActiveConsentWithExpiryTime.builder()
+            .id("invalid")
+            .consentVersion(1)
+            .expiryHour("2011-12-03T10:00Z")
+            .expiryTimeId("invalid|invalid")
+            .build();
+
+        activity.execute(List.of(ConsentExpiryChange.builder().id(consent.id()).activeConsent(consent).build()), () -> false);
+
+        verify(consentRepository, never()).expireConsents(any());
+    }
+
+    @Test
+    void executeWhenNoChanges() {
+        activity.execute(List.of(), () -> false);
+
+        verify(consentRepository, never()).expireConsents(any());
+        assertEquals(List.of(), sleeps);
+    }
+
+    @Test
+    void executeCountsThrottledWrites() {
+        doReturn(List.of(
+            ConsentExpiryResult.builder().id("throttled").status(ConsentExpiryStatus.THROTTLED).build(),
+            ConsentExpiryResult.builder().id("conditionFailed").status(ConsentExpiryStatus.CONDITION_FAILED).build()))
+            .when(consentRepository).expireConsents(any());
+
+        activity.execute(List.of(
+            activeConsentChange("throttled", START_TIME.minusSeconds(1)),
+            activeConsentChange("conditionFailed", START_TIME.minusSeconds(1))), () -> false);
+
+        verify(consentRepository).expireConsents(any());
+    }
+
+    @Test
+    void constructorWhenNegativeExpiryWindow() {
+        assertThrows(IllegalArgumentException.class, () -> new ExpireStreamedConsentsActivity(consentRepository, Duration.ofSeconds(-1)));
+    }
+
+    private static ConsentExpiryChange activeConsentChange(final String id, final Instant expiryTime) {
+        return ConsentExpiryChange.builder()
+            .id(id)
+            .activeConsent(ActiveConsentWithExpiryTimeGenerator.generate(id, expiryTime.atOffset(ZoneOffset.UTC)))
+            .build();
+    }
+}
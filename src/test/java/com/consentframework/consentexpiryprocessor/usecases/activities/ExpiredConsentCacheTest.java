@@ -0,0 +1,75 @@
+package com.consentframework.consentexpiryprocessor.usecases.activities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
+import com.consentframework.consentexpiryprocessor.testcommon.constants.TestConstants;
+import org.junit.jupiter.api.Test;
+
+class ExpiredConsentCacheTest {
+    private static final ActiveConsentWithExpiryTime CONSENT_1 = buildConsent(TestConstants.TEST_PARTITION_KEY, 1);
+    private static final ActiveConsentWithExpiryTime CONSENT_2 = buildConsent(TestConstants.TEST_PARTITION_KEY_2, 1);
+    private static final ActiveConsentWithExpiryTime CONSENT_3 = buildConsent(TestConstants.TEST_PARTITION_KEY_3, 1);
+
+    @Test
+    void containsWhenAdded() {
+        final ExpiredConsentCache cache = new ExpiredConsentCache(2);
+
+        cache.add(CONSENT_1);
+
+        assertTrue(cache.contains(CONSENT_1));
+        assertTrue(cache.contains(buildConsent(TestConstants.TEST_PARTITION_KEY, 1)));
+        assertFalse(cache.contains(CONSENT_2));
+    }
+
+    @Test
+    void containsWhenConsentVersionChanged() {
+        final ExpiredConsentCache cache = new ExpiredConsentCache(2);
+
+        cache.add(CONSENT_1);
+
+        assertFalse(cache.contains(buildConsent(TestConstants.TEST_PARTITION_KEY, 2)));
+    }
+
+    @Test
+    void addEvictsLeastRecentlyUsed() {
+        final ExpiredConsentCache cache = new ExpiredConsentCache(2);
+
+        cache.add(CONSENT_1);
+        cache.add(CONSENT_2);
+        assertTrue(cache.contains(CONSENT_1));
+        cache.add(CONSENT_3);
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.contains(CONSENT_1));
+        assertFalse(cache.contains(CONSENT_2));
+        assertTrue(cache.contains(CONSENT_3));
+    }
+
+    @Test
+    void addWhenDisabled() {
+        final ExpiredConsentCache cache = new ExpiredConsentCache(0);
+
+        cache.add(CONSENT_1);
+
+        assertEquals(0, cache.size());
+        assertFalse(cache.contains(CONSENT_1));
+    }
+
+    @Test
+    void constructorWhenNegativeMaxEntries() {
+        assertThrows(IllegalArgumentException.class, () -> new ExpiredConsentCache(-1));
+    }
+
+    private static ActiveConsentWithExpiryTime buildConsent(final String id, final int consentVersion) {
+        return ActiveConsentWithExpiryTime.builder()
+            .id(id)
+            .consentVersion(consentVersion)
+            .expiryHour(TestConstants.TEST_EXPIRY_HOUR)
+            .expiryTimeId(TestConstants.TEST_EXPIRY_TIME_ID)
+            .build();
+    }
+}
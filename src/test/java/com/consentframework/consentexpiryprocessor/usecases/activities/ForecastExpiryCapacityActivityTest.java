@@ -0,0 +1,172 @@
+package com.consentframework.consentexpiryprocessor.usecases.activities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.consentframework.consentexpiryprocessor.domain.entities.ActiveConsentWithExpiryTime;
+import com.consentframework.consentexpiryprocessor.domain.entities.ExpiryForecast;
+import com.consentframework.consentexpiryprocessor.domain.repositories.ConsentRepository;
+import com.consentframework.consentexpiryprocessor.infrastructure.repositories.InMemoryConsentRepository;
+import com.consentframework.consentexpiryprocessor.testcommon.utils.ActiveConsentWithExpiryTimeGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class ForecastExpiryCapacityActivityTest {
+    private static final DateTimeFormatter EXPIRY_MINUTE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mmX");
+    private static final int LOOKBACK_HOURS = 3;
+    private static final int LOOKAHEAD_HOURS = 24;
+    private static final Duration EXPIRY_WRITE_LATENCY = Duration.ofMillis(10);
+
+    @Test
+    void executeCountsPastAndFutureConsentsWithoutExpiringThem() {
+        final OffsetDateTime currentHour = OffsetDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.HOURS);
+        final OffsetDateTime pastMinute = currentHour.minusHours(2).plusMinutes(5);
+        final OffsetDateTime futureMinute = currentHour.plusHours(3).plusMinutes(15);
+        final ActiveConsentWithExpiryTime pastConsent = generate(pastMinute);
+        final List<ActiveConsentWithExpiryTime> futureConsents = List.of(
+            generate(futureMinute.plusSeconds(10)),
+            generate(futureMinute.plusSeconds(20)),
+            generate(futureMinute.plusMinutes(25)));
+        final ActiveConsentWithExpiryTime consentAfterLookahead = generate(currentHour.plusHours(LOOKAHEAD_HOURS + 1));
+        final ConsentRepository repository = spy(new InMemoryConsentRepository(Map.of(
+            pastConsent.expiryHour(), List.of(pastConsent),
+            futureConsents.get(0).expiryHour(), futureConsents,
+            consentAfterLookahead.expiryHour(), List.of(consentAfterLookahead))));
+
+        final ExpiryForecast forecast = new ForecastExpiryCapacityActivity(repository, LOOKBACK_HOURS, 1, 10, 1000, EXPIRY_WRITE_LATENCY)
+            .execute(LOOKAHEAD_HOURS, () -> false);
+
+        assertEquals(LOOKBACK_HOURS + LOOKAHEAD_HOURS, forecast.consentsPerHour().size());
+        assertEquals(1, forecast.consentsPerHour().get(pastConsent.expiryHour()));
+        assertEquals(3, forecast.consentsPerHour().get(futureConsents.get(0).expiryHour()));
+        assertFalse(forecast.consentsPerHour().containsKey(consentAfterLookahead.expiryHour()));
+        assertEquals(List.of(pastMinute, futureMinute, futureMinute.plusMinutes(25)).stream().map(EXPIRY_MINUTE_FORMATTER::format).toList(),
+            List.copyOf(forecast.consentsPerMinute().keySet()));
+        assertEquals(List.of(1, 2, 1), List.copyOf(forecast.consentsPerMinute().values()));
+        assertEquals(4, forecast.numConsents());
+        assertEquals(2, forecast.peakConsentsPerMinute());
+        assertEquals(1000.0, forecast.expiryWritesPerSecond());
+        assertFalse(forecast.stoppedAtDeadline());
+
+        // The future hour holds more consents than fit on one page
+        verify(repository, times(2)).getActiveConsentsWithExpiryHour(eq(futureConsents.get(0).expiryHour()), any());
+        verify(repository, never()).getActiveConsentsWithExpiryHour(any(), any(), any());
+        verify(repository, never()).expireConsent(any(), any());
+        verify(repository, never()).expireConsents(any());
+    }
+
+    @Test
+    void executeWithoutLookahead() {
+        final ActiveConsentWithExpiryTime futureConsent = generate(OffsetDateTime.now(ZoneOffset.UTC).plusHours(2));
+        final ConsentRepository repository = new InMemoryConsentRepository(Map.of(futureConsent.expiryHour(), List.of(futureConsent)));
+
+        final ExpiryForecast forecast = new ForecastExpiryCapacityActivity(repository, LOOKBACK_HOURS, 1, 10, 1000, EXPIRY_WRITE_LATENCY)
+            .execute(0, () -> false);
+
+        assertEquals(LOOKBACK_HOURS, forecast.consentsPerHour().size());
+        assertEquals(0, forecast.numConsents());
+        assertTrue(forecast.consentsPerMinute().isEmpty());
+    }
+
+    @Test
+    void executeWhenDeadlineReached() {
+        final OffsetDateTime currentHour = OffsetDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.HOURS);
+        final List<ActiveConsentWithExpiryTime> consents = List.of(
+            generate(currentHour.minusHours(2).plusMinutes(1)),
+            generate(currentHour.minusHours(2).plusMinutes(2)),
+            generate(currentHour.minusHours(2).plusMinutes(3)));
+        final ConsentRepository repository = spy(new InMemoryConsentRepository(Map.of(consents.get(0).expiryHour(), consents)));
+        final AtomicInteger numDeadlineChecks = new AtomicInteger();
+
+        final ExpiryForecast forecast = new ForecastExpiryCapacityActivity(repository, LOOKBACK_HOURS, 1, 10, 1000, EXPIRY_WRITE_LATENCY)
+            .execute(LOOKAHEAD_HOURS, () -> numDeadlineChecks.incrementAndGet() > 1);
+
+        assertTrue(forecast.stoppedAtDeadline());
+        assertEquals(Map.of(consents.get(0).expiryHour(), 2), forecast.consentsPerHour());
+        verify(repository, times(1)).getActiveConsentsWithExpiryHour(any(), any());
+    }
+
+    @Test
+    void executeWhenDeadlineReachedBeforeFirstPage() {
+        final ConsentRepository repository = spy(new InMemoryConsentRepository());
+
+        final ExpiryForecast forecast = new ForecastExpiryCapacityActivity(repository, LOOKBACK_HOURS, 1, 10, 1000, EXPIRY_WRITE_LATENCY)
+            .execute(LOOKAHEAD_HOURS, () -> true);
+
+        assertTrue(forecast.stoppedAtDeadline());
+        assertTrue(forecast.consentsPerHour().isEmpty());
+        verify(repository, never()).getActiveConsentsWithExpiryHour(any(), any());
+    }
+
+    @Test
+    void executeWhenRepositoryReturnsNullPage() {
+        final ConsentRepository repository = mock(ConsentRepository.class);
+        when(repository.getActiveConsentsWithExpiryHour(any(), any())).thenReturn(null);
+
+        final ExpiryForecast forecast = new ForecastExpiryCapacityActivity(repository, LOOKBACK_HOURS, 1, 10, 1000, EXPIRY_WRITE_LATENCY)
+            .execute(1, () -> false);
+
+        assertEquals(LOOKBACK_HOURS + 1, forecast.consentsPerHour().size());
+        assertEquals(0, forecast.numConsents());
+    }
+
+    @Test
+    void estimateExpiryWritesPerSecondWhenLimitedByConcurrency() {
+        assertEquals(4 * 10 * 50.0, ForecastExpiryCapacityActivity.estimateExpiryWritesPerSecond(4, 10, 5000, Duration.ofMillis(20)));
+    }
+
+    @Test
+    void estimateExpiryWritesPerSecondWhenLimitedByWriteBudget() {
+        assertEquals(1000.0, ForecastExpiryCapacityActivity.estimateExpiryWritesPerSecond(4, 10, 1000, Duration.ofMillis(10)));
+    }
+
+    @Test
+    void getExpiryHoursToForecast() {
+        final OffsetDateTime now = OffsetDateTime.of(2011, 12, 3, 10, 15, 12, 0, ZoneOffset.UTC);
+
+        assertEquals(List.of("2011-12-03T09:00Z", "2011-12-03T10:00Z", "2011-12-03T11:00Z", "2011-12-03T12:00Z"),
+            ForecastExpiryCapacityActivity.getExpiryHoursToForecast(now, 2, 2));
+    }
+
+    @Test
+    void executeWhenInvalidLookaheadHours() {
+        final ForecastExpiryCapacityActivity activity = new ForecastExpiryCapacityActivity(new InMemoryConsentRepository(),
+            LOOKBACK_HOURS, 1, 10, 1000, EXPIRY_WRITE_LATENCY);
+        assertThrows(IllegalArgumentException.class, () -> activity.execute(-1, () -> false));
+    }
+
+    @Test
+    void constructorWhenInvalidLookbackHours() {
+        assertThrows(IllegalArgumentException.class, () -> new ForecastExpiryCapacityActivity(new InMemoryConsentRepository(),
+            0, 1, 10, 1000, EXPIRY_WRITE_LATENCY));
+    }
+
+    @Test
+    void constructorWhenInvalidExpiryWriteLatency() {
+        assertThrows(IllegalArgumentException.class, () -> new ForecastExpiryCapacityActivity(new InMemoryConsentRepository(),
+            LOOKBACK_HOURS, 1, 10, 1000, Duration.ZERO));
+    }
+
+    private static ActiveConsentWithExpiryTime generate(final OffsetDateTime expiryTime) {
+        return ActiveConsentWithExpiryTimeGenerator.generate(UUID.randomUUID().toString(), expiryTime);
+    }
+}
@@ -0,0 +1,62 @@
+package com.consentframework.consentexpiryprocessor.usecases.activities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.consentframework.consentexpiryprocessor.domain.entities.ExpiryShardAssignment;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+class PlanExpiryShardsActivityTest {
+    private static final int NUMBER_EXPIRY_HOURS = AutoExpireConsentsActivitySettings.DEFAULT_LOOKBACK_HOURS;
+
+    @Test
+    void executeSplitsExpiryHoursAcrossShards() {
+        final List<ExpiryShardAssignment> shards = new PlanExpiryShardsActivity().execute(5);
+
+        assertEquals(5, shards.size());
+        final List<String> assignedExpiryHours = shards.stream()
+            .flatMap(shard -> shard.expiryHours().stream())
+            .toList();
+        assertEquals(NUMBER_EXPIRY_HOURS, assignedExpiryHours.size());
+        assertEquals(NUMBER_EXPIRY_HOURS, Set.copyOf(assignedExpiryHours).size());
+        shards.forEach(shard -> assertTrue(shard.expiryHours().size() >= NUMBER_EXPIRY_HOURS / 5));
+    }
+
+    @Test
+    void executeWhenSingleShard() {
+        final List<ExpiryShardAssignment> shards = new PlanExpiryShardsActivity().execute(1);
+
+        assertEquals(1, shards.size());
+        assertEquals(NUMBER_EXPIRY_HOURS, shards.get(0).expiryHours().size());
+    }
+
+    @Test
+    void executeWhenMoreShardsThanExpiryHours() {
+        final List<ExpiryShardAssignment> shards = new PlanExpiryShardsActivity().execute(NUMBER_EXPIRY_HOURS + 10);
+
+        assertEquals(NUMBER_EXPIRY_HOURS, shards.size());
+        shards.forEach(shard -> assertEquals(1, shard.expiryHours().size()));
+    }
+
+    @Test
+    void executeWithLookbackHours() {
+        final List<ExpiryShardAssignment> shards = new PlanExpiryShardsActivity(6).execute(4);
+
+        assertEquals(4, shards.size());
+        assertEquals(6, shards.stream().mapToInt(shard -> shard.expiryHours().size()).sum());
+    }
+
+    @Test
+    void constructorWhenInvalidLookbackHours() {
+        assertThrows(IllegalArgumentException.class, () -> new PlanExpiryShardsActivity(0));
+    }
+
+    @Test
+    void executeWhenInvalidShardCount() {
+        assertThrows(IllegalArgumentException.class, () -> new PlanExpiryShardsActivity().execute(0));
+    }
+}